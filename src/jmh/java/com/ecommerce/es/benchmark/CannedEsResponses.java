@@ -0,0 +1,104 @@
+package com.ecommerce.es.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import jakarta.json.stream.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * author Nami
+ * date 2026/1/16 16:20
+ * description 基准测试用的固定ES响应（与ES 8.x typed_keys响应格式一致，离线运行不依赖集群）
+ */
+public final class CannedEsResponses {
+
+    private static final String[] CATEGORIES = {"手机", "电脑", "家电", "服饰", "美妆", "食品"};
+    private static final String[] SUB_CATEGORIES = {"旗舰", "入门", "配件", "套装"};
+
+    private CannedEsResponses() {
+    }
+
+    /**
+     * 商品搜索响应（hitCount条命中，描述字段约300字，接近真实商品）
+     */
+    public static byte[] searchResponse(int hitCount) {
+        StringBuilder json = new StringBuilder(hitCount * 1200);
+        json.append("{\"took\":12,\"timed_out\":false,")
+                .append("\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(hitCount * 10).append(",\"relation\":\"eq\"},")
+                .append("\"max_score\":null,\"hits\":[");
+        for (int i = 0; i < hitCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String category = CATEGORIES[i % CATEGORIES.length];
+            json.append("{\"_index\":\"ecommerce_product\",\"_id\":\"").append(100000 + i).append("\",\"_score\":null,")
+                    .append("\"_source\":{\"id\":\"").append(100000 + i).append("\",")
+                    .append("\"productName\":\"").append(category).append("热销商品").append(i).append("\",")
+                    .append("\"category\":\"").append(category).append("\",")
+                    .append("\"subCategory\":\"").append(SUB_CATEGORIES[i % SUB_CATEGORIES.length]).append("\",")
+                    .append("\"price\":").append(99 + i % 5000).append(".99,")
+                    .append("\"stock\":").append(i % 1000).append(",")
+                    .append("\"sales\":").append(100000 - i).append(",")
+                    .append("\"tags\":[\"新品\",\"包邮\",\"爆款\"],")
+                    .append("\"createTime\":\"2026-01-05 10:00:00\",")
+                    .append("\"description\":\"").append(repeat("高品质商品描述，支持七天无理由退换。", 20)).append("\",")
+                    .append("\"merchantId\":\"M").append(i % 100).append("\",")
+                    .append("\"score\":4.").append(i % 10).append("},")
+                    .append("\"sort\":[").append(100000 - i).append(",").append(i).append("]}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 分类 -> 子分类二级聚合响应
+     */
+    public static byte[] subCategoryAggResponse() {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"took\":5,\"timed_out\":false,")
+                .append("\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":10000,\"relation\":\"gte\"},\"max_score\":null,\"hits\":[]},")
+                .append("\"aggregations\":{\"sterms#category_agg\":{\"doc_count_error_upper_bound\":0,")
+                .append("\"sum_other_doc_count\":0,\"buckets\":[");
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"key\":\"").append(CATEGORIES[i]).append("\",\"doc_count\":").append(1000 * (i + 1))
+                    .append(",\"sterms#sub_category_agg\":{\"doc_count_error_upper_bound\":0,")
+                    .append("\"sum_other_doc_count\":0,\"buckets\":[");
+            for (int j = 0; j < SUB_CATEGORIES.length; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append("{\"key\":\"").append(SUB_CATEGORIES[j]).append("\",\"doc_count\":").append(250 * (i + 1)).append('}');
+            }
+            json.append("]}}");
+        }
+        json.append("]}}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按ES客户端的方式反序列化搜索响应
+     */
+    public static <T> SearchResponse<T> parse(byte[] body, Class<T> documentClass, JsonpMapper mapper) {
+        JsonpDeserializer<SearchResponse<T>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(documentClass));
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(body))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder(value.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
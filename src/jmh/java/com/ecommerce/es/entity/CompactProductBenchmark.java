@@ -0,0 +1,55 @@
+package com.ecommerce.es.entity;
+
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.benchmark.CannedEsResponses;
+import com.ecommerce.es.config.JacksonConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/20 15:00
+ * description 紧凑商品表示的CPU开销：缓存写入（from）、缓存命中还原（toProduct）、接口序列化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompactProductBenchmark {
+
+    private final ObjectMapper objectMapper = new JacksonConfig().dateObjectMapper();
+    private Product product;
+    private CompactProduct compactProduct;
+
+    @Setup
+    public void setUp() {
+        product = CannedEsResponses.parse(CannedEsResponses.searchResponse(1), Product.class, new JacksonJsonpMapper())
+                .hits().hits().get(0).source();
+        compactProduct = CompactProduct.from(product);
+    }
+
+    @Benchmark
+    public CompactProduct fromProduct() {
+        return CompactProduct.from(product);
+    }
+
+    @Benchmark
+    public Product toProduct() {
+        return compactProduct.toProduct();
+    }
+
+    @Benchmark
+    public String serializeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(product);
+    }
+
+    @Benchmark
+    public String serializeCompactProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(compactProduct);
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecommerce.es.entity;
+
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.benchmark.CannedEsResponses;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * author Nami
+ * date 2026/1/20 14:30
+ * description 商品对象内存占用对比（JOL按对象图统计，含共享的驻留字符串只算一次）
+ * - Product vs CompactProduct（详情缓存）
+ * - 装箱字段的列表视图 vs 紧凑ProductListItem（列表页）
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.main=com.ecommerce.es.entity.ProductFootprint -Djmh.args=
+ */
+public class ProductFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        JsonpMapper mapper = new JacksonJsonpMapper();
+        byte[] body = CannedEsResponses.searchResponse(count);
+
+        List<Product> productList = CannedEsResponses.parse(body, Product.class, mapper).hits().hits().stream()
+                .map(Hit::source).collect(Collectors.toList());
+        List<CompactProduct> compactList = productList.stream().map(CompactProduct::from).collect(Collectors.toList());
+        // 描述是大字段且两种表示完全相同，单独统计不含描述的部分
+        List<Product> noDescList = productList.stream().map(ProductFootprint::withoutDescription).collect(Collectors.toList());
+        List<CompactProduct> noDescCompactList = noDescList.stream().map(CompactProduct::from).collect(Collectors.toList());
+
+        List<BoxedListItem> boxedItemList = productList.stream().map(BoxedListItem::new).collect(Collectors.toList());
+        List<ProductListItem> itemList = CannedEsResponses.parse(body, ProductListItem.class, mapper).hits().hits().stream()
+                .map(Hit::source).collect(Collectors.toList());
+
+        System.out.printf("商品数量：%d%n", count);
+        print("Product（含描述）", productList, count);
+        print("CompactProduct（含描述）", compactList, count);
+        print("Product（不含描述）", noDescList, count);
+        print("CompactProduct（不含描述）", noDescCompactList, count);
+        print("列表视图（装箱字段）", boxedItemList, count);
+        print("ProductListItem（紧凑）", itemList, count);
+        System.out.println();
+        System.out.println("单个Product对象图：");
+        System.out.println(GraphLayout.parseInstance(noDescList.get(0)).toFootprint());
+        System.out.println("单个CompactProduct对象图：");
+        System.out.println(GraphLayout.parseInstance(noDescCompactList.get(0)).toFootprint());
+    }
+
+    private static void print(String name, List<?> list, int count) {
+        long total = GraphLayout.parseInstance(list.toArray()).totalSize();
+        System.out.printf("%-28s 总计：%,10d 字节，平均：%,6d 字节/个%n", name, total, total / count);
+    }
+
+    private static Product withoutDescription(Product product) {
+        Product copy = CompactProduct.from(product).toProduct();
+        copy.setDescription(null);
+        // 与解析结果一致：每个商品持有独立的字符串/BigDecimal实例
+        copy.setCategory(new String(product.getCategory()));
+        copy.setSubCategory(new String(product.getSubCategory()));
+        copy.setMerchantId(new String(product.getMerchantId()));
+        copy.setTags(product.getTags().stream().map(String::new).collect(Collectors.toList()));
+        copy.setPrice(new BigDecimal(product.getPrice().toPlainString()));
+        return copy;
+    }
+
+    /**
+     * 紧凑化之前的列表视图字段类型
+     */
+    private static class BoxedListItem {
+        private final String id;
+        private final String productName;
+        private final String category;
+        private final BigDecimal price;
+        private final Integer sales;
+        private final Double score;
+        private final List<String> tags;
+
+        BoxedListItem(Product product) {
+            this.id = product.getId();
+            this.productName = product.getProductName();
+            this.category = product.getCategory();
+            this.price = product.getPrice();
+            this.sales = product.getSales();
+            this.score = product.getScore();
+            this.tags = product.getTags();
+        }
+    }
+}
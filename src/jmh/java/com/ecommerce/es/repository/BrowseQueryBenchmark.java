@@ -0,0 +1,91 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.ecommerce.es.entity.ProductListItem;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/19 15:20
+ * description 分类浏览查询延迟对比（需要真实ES，其余基准均离线运行）
+ * - legacy：bool打分查询 + 统计总命中数
+ * - browse：constant_score + 不统计总命中数（索引预排序时可提前终止）
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.args="BrowseQuery -p host=http://localhost:9200 -p category=手机"
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BrowseQueryBenchmark {
+
+    /** ES地址，必须通过 -p host=... 指定 */
+    @Param({""})
+    public String host;
+
+    @Param({"手机"})
+    public String category;
+
+    private RestClientTransport transport;
+    private ElasticsearchClient esClient;
+    private SearchRequest legacyRequest;
+    private SearchRequest browseRequest;
+
+    @Setup
+    public void setUp() {
+        if (host.isEmpty()) {
+            throw new IllegalStateException("需要真实ES，请通过 -p host=http://localhost:9200 指定地址");
+        }
+        transport = new RestClientTransport(RestClient.builder(HttpHost.create(host)).build(), new JacksonJsonpMapper());
+        esClient = new ElasticsearchClient(transport);
+
+        Query legacyQuery = BoolQuery.of(b -> b
+                .filter(TermQuery.of(t -> t.field("category").value(category))._toQuery()))._toQuery();
+        legacyRequest = SearchRequest.of(s -> s
+                .index(ProductEsRepository.PRODUCT_INDEX)
+                .query(legacyQuery)
+                .sort(so -> so.field(f -> f.field("sales").order(SortOrder.Desc)))
+                .source(src -> src.filter(f -> f.includes(ProductListItem.SOURCE_FIELDS)))
+                .size(100));
+
+        Query browseQuery = ProductEsRepository.buildSearchQuery(null, null, null, category, null);
+        browseRequest = SearchRequest.of(s -> s
+                .index(ProductEsRepository.PRODUCT_INDEX)
+                .query(browseQuery)
+                .sort(so -> so.field(f -> f.field("sales").order(SortOrder.Desc)))
+                .source(src -> src.filter(f -> f.includes(ProductListItem.SOURCE_FIELDS)))
+                .trackTotalHits(t -> t.enabled(false))
+                .size(100));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    @Benchmark
+    public SearchResponse<ProductListItem> legacy() throws IOException {
+        return esClient.search(legacyRequest, ProductListItem.class);
+    }
+
+    @Benchmark
+    public SearchResponse<ProductListItem> browse() throws IOException {
+        return esClient.search(browseRequest, ProductListItem.class);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchTemplateRequest;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.entity.ProductListItem;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/16 16:40
+ * description 搜索请求构建基准（searchProduct每次调用都会重新构建查询并序列化为JSON）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchRequestBuildBenchmark {
+
+    /** keyword：关键词搜索；browse：分类浏览 */
+    @Param({"keyword", "browse"})
+    public String mode;
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private final BigDecimal minPrice = new BigDecimal("1000");
+    private final BigDecimal maxPrice = new BigDecimal("5000");
+    private final List<String> tags = Arrays.asList("新品", "包邮");
+    private String keyword;
+
+    @Setup
+    public void setUp() {
+        keyword = "keyword".equals(mode) ? "华为手机" : null;
+    }
+
+    @Benchmark
+    public SearchRequest build() {
+        return ProductEsRepository.buildSearchRequest(keyword, minPrice, maxPrice, "手机", tags,
+                "sales", SortOrder.Desc, null);
+    }
+
+    @Benchmark
+    public SearchRequest buildListView() {
+        return ProductEsRepository.buildSearchRequest(keyword, minPrice, maxPrice, "手机", tags,
+                "sales", SortOrder.Desc, ProductListItem.SOURCE_FIELDS);
+    }
+
+    /**
+     * 存储模板模式：只构建参数
+     */
+    @Benchmark
+    public SearchTemplateRequest buildTemplate() {
+        return ProductEsRepository.buildSearchTemplateRequest(keyword, minPrice, maxPrice, "手机", tags,
+                "sales", SortOrder.Desc, false);
+    }
+
+    @Benchmark
+    public byte[] buildTemplateAndSerialize() {
+        SearchTemplateRequest request = buildTemplate();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            request.serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 构建 + 序列化为请求体（传输层实际发送的内容）
+     */
+    @Benchmark
+    public byte[] buildAndSerialize() {
+        SearchRequest request = build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            request.serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.es.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/19 15:10
+ * description 搜索联想前缀树基准：按词条规模对比单次联想耗时与全量重建耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefixSuggestBenchmark {
+    private static final String[] BRANDS = {"华为", "小米", "苹果", "OPPO", "vivo", "联想", "戴尔", "华硕", "荣耀", "三星"};
+    private static final String[] TYPES = {"手机", "平板", "笔记本", "耳机", "手表", "充电器", "手机壳", "显示器"};
+
+    @Param({"10000", "100000"})
+    public int termCount;
+
+    private String[] names;
+    private PrefixSuggestTrie trie;
+    private String[] prefixes;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        names = new String[termCount];
+        for (int i = 0; i < termCount; i++) {
+            names[i] = BRANDS[random.nextInt(BRANDS.length)] + TYPES[random.nextInt(TYPES.length)] + " " + (i % 997) + "型号" + i;
+        }
+        trie = build();
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = names[random.nextInt(termCount)];
+            prefixes[i] = name.substring(0, 1 + random.nextInt(Math.min(8, name.length())));
+        }
+    }
+
+    private PrefixSuggestTrie build() {
+        PrefixSuggestTrie.Builder builder = PrefixSuggestTrie.builder(10);
+        for (int i = 0; i < names.length; i++) {
+            builder.add(names[i], i % 5000);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return trie.suggest(prefixes[cursor++ & (prefixes.length - 1)], 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PrefixSuggestTrie rebuild() {
+        return build();
+    }
+}
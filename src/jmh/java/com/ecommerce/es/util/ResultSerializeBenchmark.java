@@ -0,0 +1,57 @@
+package com.ecommerce.es.util;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.benchmark.CannedEsResponses;
+import com.ecommerce.es.config.JacksonConfig;
+import com.ecommerce.es.entity.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * author Nami
+ * date 2026/1/16 17:00
+ * description 聚合结果解析 + 接口返回商品列表JSON序列化基准
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSerializeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int hitCount;
+
+    // 与接口层使用同一套Jackson配置
+    private final ObjectMapper objectMapper = new JacksonConfig().dateObjectMapper();
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private SearchResponse<Product> aggResponse;
+    private List<Product> productList;
+
+    @Setup
+    public void setUp() {
+        aggResponse = CannedEsResponses.parse(CannedEsResponses.subCategoryAggResponse(), Product.class, mapper);
+        productList = CannedEsResponses.parse(CannedEsResponses.searchResponse(hitCount), Product.class, mapper)
+                .hits().hits().stream().map(Hit::source).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Long>> parseDoubleAggResult() {
+        return EsResponseUtil.parseDoubleAggResult(aggResponse, "category_agg", "sub_category_agg");
+    }
+
+    @Benchmark
+    public byte[] serializeProductList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productList);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.es.util;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.benchmark.CannedEsResponses;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductListItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/16 16:50
+ * description 搜索响应解析基准（JacksonJsonpMapper反序列化 + 分页结果封装），按命中条数对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchResponseParseBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int hitCount;
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private byte[] body;
+    private SearchResponse<Product> parsed;
+
+    @Setup
+    public void setUp() {
+        body = CannedEsResponses.searchResponse(hitCount);
+        parsed = CannedEsResponses.parse(body, Product.class, mapper);
+    }
+
+    @Benchmark
+    public SearchResponse<Product> parseProduct() {
+        return CannedEsResponses.parse(body, Product.class, mapper);
+    }
+
+    /**
+     * 列表页精简视图（未映射字段被跳过）
+     */
+    @Benchmark
+    public SearchResponse<ProductListItem> parseListItem() {
+        return CannedEsResponses.parse(body, ProductListItem.class, mapper);
+    }
+
+    @Benchmark
+    public EsResponseUtil.EsPageResult<Product> wrapPageResult() {
+        return EsResponseUtil.wrapPageResult(parsed, 1, hitCount);
+    }
+}
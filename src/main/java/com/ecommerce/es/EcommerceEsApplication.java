@@ -2,11 +2,13 @@ package com.ecommerce.es;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 项目启动类
  */
 @SpringBootApplication
+@EnableScheduling
 public class EcommerceEsApplication {
     public static void main(String[] args) {
         SpringApplication.run(EcommerceEsApplication.class, args);
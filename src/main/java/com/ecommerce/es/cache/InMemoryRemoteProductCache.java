@@ -0,0 +1,67 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.CompactProduct;
+import com.ecommerce.es.entity.Product;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * author Nami
+ * date 2026/1/12 10:12
+ * description 二级缓存的进程内替身（未接入Redis时使用，也用于测试）
+ * - 按CompactProduct存储，读取时复制出新的Product
+ */
+public class InMemoryRemoteProductCache implements RemoteProductCache {
+    private final int maxSize;
+    private final Map<String, Entry> entryMap = new ConcurrentHashMap<>();
+
+    public InMemoryRemoteProductCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Product get(String productId) {
+        Entry entry = entryMap.get(productId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            entryMap.remove(productId, entry);
+            return null;
+        }
+        return entry.product.toProduct();
+    }
+
+    @Override
+    public void put(String productId, Product product, long ttlMillis) {
+        if (entryMap.size() >= maxSize) {
+            // 容量已满：先清理过期数据，仍然满则放弃写入
+            long now = System.currentTimeMillis();
+            entryMap.values().removeIf(entry -> entry.expireAt < now);
+            if (entryMap.size() >= maxSize) {
+                return;
+            }
+        }
+        entryMap.put(productId, new Entry(CompactProduct.from(product), System.currentTimeMillis() + ttlMillis));
+    }
+
+    @Override
+    public void evict(String productId) {
+        entryMap.remove(productId);
+    }
+
+    public int size() {
+        return entryMap.size();
+    }
+
+    private static class Entry {
+        private final CompactProduct product;
+        private final long expireAt;
+
+        Entry(CompactProduct product, long expireAt) {
+            this.product = product;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.ProductAggSnapshot;
+import com.ecommerce.es.repository.ProductEsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * author Nami
+ * date 2026/1/22 10:00
+ * description 分类聚合快照（运营看板每隔几秒轮询，不再每次对全索引做terms聚合）
+ * - 后台按固定间隔重新计算；两次计算之间商品写入量达到阈值时提前计算（有最小间隔保护）
+ * - 快照不可变，计算完成后整体替换引用，读取无锁
+ * - 计算失败时继续返回旧快照；尚无快照时同步计算一次
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductAggSnapshotCache {
+
+    private final ProductEsRepository productEsRepository;
+
+    @Value("${agg.snapshot.enabled:true}")
+    private boolean enabled;
+
+    // 定时计算间隔（毫秒）
+    @Value("${agg.snapshot.refresh-interval:60000}")
+    private long refreshIntervalMillis;
+
+    // 写入量阈值：自上次计算以来写入/删除商品数达到该值时提前计算，0为关闭
+    @Value("${agg.snapshot.write-threshold:1000}")
+    private long writeThreshold;
+
+    // 两次计算的最小间隔（毫秒），防止持续导入时频繁聚合
+    @Value("${agg.snapshot.min-interval:5000}")
+    private long minIntervalMillis;
+
+    private volatile ProductAggSnapshot snapshot;
+    private final AtomicLong pendingWrites = new AtomicLong();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final Object refreshLock = new Object();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder writeTriggeredCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private volatile long lastFailureTime;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("agg-snapshot-"));
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 应用启动后后台计算首个快照（不阻塞启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            scheduler.execute(this::refreshQuietly);
+        }
+    }
+
+    // ====================== 读取 ======================
+    /**
+     * 当前快照（尚无快照时同步计算；关闭快照时每次直接聚合）
+     */
+    public ProductAggSnapshot get() throws IOException {
+        if (!enabled) {
+            return productEsRepository.aggProductCategorySnapshot();
+        }
+        ProductAggSnapshot current = snapshot;
+        if (current != null) {
+            hitCount.increment();
+            return current;
+        }
+        synchronized (refreshLock) {
+            // 等锁期间其他线程可能已算好
+            current = snapshot;
+            return current != null ? current : refreshLocked();
+        }
+    }
+
+    /**
+     * 当前快照（无则返回null，不触发计算）
+     */
+    public ProductAggSnapshot peek() {
+        return enabled ? snapshot : null;
+    }
+
+    // ====================== 计算 ======================
+    /**
+     * 立即重新计算（运维强制刷新，与后台计算互斥）
+     */
+    public ProductAggSnapshot refresh() throws IOException {
+        synchronized (refreshLock) {
+            return refreshLocked();
+        }
+    }
+
+    private ProductAggSnapshot refreshLocked() throws IOException {
+        long writesBefore = pendingWrites.get();
+        ProductAggSnapshot newSnapshot;
+        try {
+            newSnapshot = productEsRepository.aggProductCategorySnapshot();
+        } catch (IOException | RuntimeException e) {
+            failureCount.increment();
+            lastFailureTime = System.currentTimeMillis();
+            throw e;
+        }
+        snapshot = newSnapshot;
+        // 只扣掉计算前已记录的写入，计算期间的写入留给下一次
+        pendingWrites.addAndGet(-writesBefore);
+        refreshCount.increment();
+        log.debug("分类聚合快照计算完成，分类数：{}，耗时：{}ms（ES {}ms）",
+                newSnapshot.getCategoryCounts().size(), newSnapshot.getComputeMillis(), newSnapshot.getEsTookMillis());
+        return newSnapshot;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("分类聚合快照计算失败，继续使用旧快照：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 商品写入/删除（达到写入量阈值时提前计算）
+     */
+    public void onProductsWritten(int count) {
+        if (!enabled || writeThreshold <= 0 || count <= 0) {
+            return;
+        }
+        if (pendingWrites.addAndGet(count) < writeThreshold || !refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        ProductAggSnapshot current = snapshot;
+        long delay = current == null ? 0 : Math.max(0, minIntervalMillis - current.ageMillis());
+        writeTriggeredCount.increment();
+        scheduler.schedule(() -> {
+            refreshScheduled.set(false);
+            refreshQuietly();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 快照监控指标（年龄、计算耗时、计算次数）
+     */
+    public Map<String, Object> stats() {
+        ProductAggSnapshot current = snapshot;
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("enabled", enabled);
+        statsMap.put("ready", current != null);
+        statsMap.put("computedAt", current == null ? 0 : current.getComputedAt());
+        statsMap.put("ageMillis", current == null ? -1 : current.ageMillis());
+        statsMap.put("computeMillis", current == null ? 0 : current.getComputeMillis());
+        statsMap.put("esTookMillis", current == null ? 0 : current.getEsTookMillis());
+        statsMap.put("categoryCount", current == null ? 0 : current.getCategoryCounts().size());
+        statsMap.put("pendingWrites", pendingWrites.get());
+        statsMap.put("hitCount", hitCount.sum());
+        statsMap.put("refreshCount", refreshCount.sum());
+        statsMap.put("writeTriggeredCount", writeTriggeredCount.sum());
+        statsMap.put("failureCount", failureCount.sum());
+        statsMap.put("lastFailureTime", lastFailureTime);
+        return statsMap;
+    }
+}
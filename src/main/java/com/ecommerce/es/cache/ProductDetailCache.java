@@ -0,0 +1,275 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.CompactProduct;
+import com.ecommerce.es.entity.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * author Nami
+ * date 2026/1/12 10:30
+ * description 商品详情两级缓存（详情页读穿透）
+ * - 一级：进程内Caffeine（W-TinyLFU淘汰，按条数限制容量），热点商品微秒级返回
+ * - 二级：RemoteProductCache（多实例共享），一级未命中时查询
+ * - 不存在的商品ID做短时负缓存，防止恶意/失效ID反复穿透到ES
+ * - 商品写入后由业务层调用invalidate失效
+ * - 一级缓存存CompactProduct（价格存分、时间存毫秒、字符串驻留），命中时复制出新的Product返回
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductDetailCache {
+    private final RemoteProductCache remoteCache;
+
+    @Value("${cache.product.local-max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${cache.product.ttl:300000}")
+    private long ttlMillis;
+
+    @Value("${cache.product.negative-ttl:30000}")
+    private long negativeTtlMillis;
+
+    @Value("${cache.product.remote-enabled:true}")
+    private boolean remoteEnabled;
+
+    @Value("${cache.product.remote-ttl:1800000}")
+    private long remoteTtlMillis;
+
+    @Value("${cache.product.invalidation-retention:60000}")
+    private long invalidationRetentionMillis;
+
+    @Value("${cache.product.writeback-threads:2}")
+    private int writebackThreads;
+
+    private Cache<String, CacheValue> localCache;
+    // 异步加载结果的回填线程池：ES异步结果在IO线程上完成，紧凑编码和写二级缓存不能占用IO线程
+    private ExecutorService writebackExecutor;
+
+    // 按商品ID记录最近一次失效的序号（墓碑），加载期间该商品发生过失效则不回填，避免旧数据覆盖新写入；
+    // 墓碑保留invalidationRetentionMillis，加载耗时超过保留期的结果一律不回填
+    private Cache<String, Long> invalidations;
+    private final AtomicLong invalidateSequence = new AtomicLong();
+    private final LongAdder remoteHitCount = new LongAdder();
+    private final LongAdder remoteMissCount = new LongAdder();
+    private final LongAdder negativeHitCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfter(new Expiry<String, CacheValue>() {
+                    @Override
+                    public long expireAfterCreate(String key, CacheValue value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(value.isNegative() ? negativeTtlMillis : ttlMillis);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CacheValue value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CacheValue value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        invalidations = Caffeine.newBuilder()
+                .expireAfterWrite(invalidationRetentionMillis, TimeUnit.MILLISECONDS)
+                .build();
+        writebackExecutor = Executors.newFixedThreadPool(writebackThreads, new CustomizableThreadFactory("product-cache-writeback-"));
+        log.info("商品详情缓存初始化完成：容量={}，TTL={}ms，负缓存TTL={}ms，二级缓存={}",
+                localMaxSize, ttlMillis, negativeTtlMillis, remoteEnabled);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writebackExecutor.shutdown();
+    }
+
+    /**
+     * 读穿透查询：一级 -> 二级 -> loader（ES）
+     * @return 商品不存在返回null
+     */
+    public Product get(String productId, ProductLoader loader) throws IOException {
+        CacheValue cached = localCache.getIfPresent(productId);
+        if (cached != null) {
+            if (cached.isNegative()) {
+                negativeHitCount.increment();
+            }
+            return cached.toProduct();
+        }
+
+        LoadToken token = new LoadToken(invalidateSequence.get(), System.nanoTime());
+        if (remoteEnabled) {
+            Product remote = remoteCache.get(productId);
+            if (remote != null) {
+                remoteHitCount.increment();
+                putLocal(productId, remote, token);
+                return remote;
+            }
+            remoteMissCount.increment();
+        }
+
+        Product product = loader.load(productId);
+        putLoaded(productId, product, token);
+        return product;
+    }
+
+    /**
+     * 异步读穿透查询：缓存命中直接返回已完成的future，未命中时回填缓存
+     * 回填在writebackExecutor上执行，不占用完成loader的ES IO线程，也不推迟结果返回
+     */
+    public CompletableFuture<Product> getAsync(String productId, Function<String, CompletableFuture<Product>> loader) {
+        CacheValue cached = localCache.getIfPresent(productId);
+        if (cached != null) {
+            if (cached.isNegative()) {
+                negativeHitCount.increment();
+            }
+            return CompletableFuture.completedFuture(cached.toProduct());
+        }
+
+        LoadToken token = new LoadToken(invalidateSequence.get(), System.nanoTime());
+        if (remoteEnabled) {
+            Product remote = remoteCache.get(productId);
+            if (remote != null) {
+                remoteHitCount.increment();
+                putLocal(productId, remote, token);
+                return CompletableFuture.completedFuture(remote);
+            }
+            remoteMissCount.increment();
+        }
+
+        CompletableFuture<Product> loaded = loader.apply(productId);
+        loaded.thenAcceptAsync(product -> putLoaded(productId, product, token), writebackExecutor)
+                .exceptionally(e -> {
+                    if (!loaded.isCompletedExceptionally()) {
+                        log.warn("商品详情缓存回填失败，productId={}", productId, e);
+                    }
+                    return null;
+                });
+        return loaded;
+    }
+
+    private void putLoaded(String productId, Product product, LoadToken token) {
+        putLocal(productId, product, token);
+        if (product != null && remoteEnabled && !isInvalidatedSince(productId, token)) {
+            remoteCache.put(productId, product, remoteTtlMillis);
+            // 回填与失效并发时，以失效为准
+            if (isInvalidatedSince(productId, token)) {
+                remoteCache.evict(productId);
+            }
+        }
+    }
+
+    private void putLocal(String productId, Product product, LoadToken token) {
+        if (isInvalidatedSince(productId, token)) {
+            return;
+        }
+        localCache.put(productId, new CacheValue(CompactProduct.from(product)));
+        if (isInvalidatedSince(productId, token)) {
+            localCache.invalidate(productId);
+        }
+    }
+
+    /**
+     * 加载开始后该商品是否被失效过（墓碑已过期时无法判断，按已失效处理）
+     */
+    private boolean isInvalidatedSince(String productId, LoadToken token) {
+        if (System.nanoTime() - token.startNanos >= TimeUnit.MILLISECONDS.toNanos(invalidationRetentionMillis)) {
+            return true;
+        }
+        Long invalidatedAt = invalidations.getIfPresent(productId);
+        return invalidatedAt != null && invalidatedAt > token.sequence;
+    }
+
+    /**
+     * 商品写入后失效两级缓存
+     */
+    public void invalidate(String productId) {
+        invalidations.put(productId, invalidateSequence.incrementAndGet());
+        localCache.invalidate(productId);
+        if (remoteEnabled) {
+            remoteCache.evict(productId);
+        }
+    }
+
+    /**
+     * 缓存监控指标
+     */
+    public Map<String, Object> stats() {
+        CacheStats localStats = localCache.stats();
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("localSize", localCache.estimatedSize());
+        statsMap.put("localHitCount", localStats.hitCount());
+        statsMap.put("localMissCount", localStats.missCount());
+        statsMap.put("localHitRate", localStats.hitRate());
+        statsMap.put("localEvictionCount", localStats.evictionCount());
+        statsMap.put("negativeHitCount", negativeHitCount.sum());
+        statsMap.put("remoteHitCount", remoteHitCount.sum());
+        statsMap.put("remoteMissCount", remoteMissCount.sum());
+        return statsMap;
+    }
+
+    /**
+     * 缓存未命中时的加载逻辑（查询ES）
+     */
+    @FunctionalInterface
+    public interface ProductLoader {
+        Product load(String productId) throws IOException;
+    }
+
+    /**
+     * 加载开始时的失效序号与时间，回填前据此判断加载期间是否发生过失效
+     */
+    private static class LoadToken {
+        private final long sequence;
+        private final long startNanos;
+
+        LoadToken(long sequence, long startNanos) {
+            this.sequence = sequence;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * 缓存值（product为null表示负缓存）
+     */
+    private static class CacheValue {
+        private final CompactProduct product;
+
+        CacheValue(CompactProduct product) {
+            this.product = product;
+        }
+
+        boolean isNegative() {
+            return product == null;
+        }
+
+        Product toProduct() {
+            return product == null ? null : product.toProduct();
+        }
+    }
+}
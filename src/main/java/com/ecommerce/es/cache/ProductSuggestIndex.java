@@ -0,0 +1,330 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.repository.ProductEsRepository;
+import com.ecommerce.es.util.PrefixSuggestTrie;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * author Nami
+ * date 2026/1/19 11:00
+ * description 搜索联想本地前缀索引（输入框每次按键调用，热点前缀不访问ES）
+ * - 词条来源：商品名称（权重=销量）+ 高频搜索词（权重=搜索次数×query-weight）
+ * - 启动后从ES全量加载一次，之后商品写入/删除增量更新词条，后台按间隔重建前缀树并整体替换
+ * - 定时全量重载纠正漂移（如绕过本服务直接写ES），搜索词计数同时衰减一半
+ * - 前缀树未就绪（启动加载中/加载失败）时降级为ES completion查询
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestIndex {
+    private static final List<String> SOURCE_FIELDS = Collections.unmodifiableList(Arrays.asList("id", "productName", "sales"));
+
+    private final ProductEsRepository productEsRepository;
+
+    @Value("${suggest.local-enabled:true}")
+    private boolean localEnabled;
+
+    // 每个前缀预先保留的联想词数量（单次查询上限）
+    @Value("${suggest.top-k:10}")
+    private int topK;
+
+    @Value("${suggest.rebuild-interval:5000}")
+    private long rebuildIntervalMillis;
+
+    @Value("${suggest.reload-interval:3600000}")
+    private long reloadIntervalMillis;
+
+    @Value("${suggest.reload-retry-interval:60000}")
+    private long reloadRetryIntervalMillis;
+
+    @Value("${suggest.scan-batch-size:1000}")
+    private int scanBatchSize;
+
+    // 搜索词计数：进入联想的最少搜索次数、最多保留条数、单次搜索相当于多少销量
+    @Value("${suggest.query.min-count:3}")
+    private long queryMinCount;
+
+    @Value("${suggest.query.max-size:10000}")
+    private int queryMaxSize;
+
+    @Value("${suggest.query.weight:10}")
+    private long queryWeight;
+
+    @Value("${suggest.query.max-length:50}")
+    private int queryMaxLength;
+
+    // 商品ID -> 联想词条（增量更新，重建前缀树的数据源）
+    private volatile Map<String, SuggestSource> productSources = new ConcurrentHashMap<>();
+    // 全量重载期间的增量变更（重载完成后补到新数据上，值为null表示删除）
+    private Map<String, SuggestSource> reloadChanges;
+    private final Object changeLock = new Object();
+    private final Map<String, LongAdder> queryCounts = new ConcurrentHashMap<>();
+
+    private volatile PrefixSuggestTrie trie;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile long lastRebuildTime;
+    private volatile long lastRebuildMillis;
+    private final LongAdder localCount = new LongAdder();
+    private final LongAdder esFallbackCount = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("suggest-"));
+        scheduler.scheduleWithFixedDelay(this::rebuildIfDirty, rebuildIntervalMillis, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, reloadIntervalMillis, reloadIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 应用启动后后台全量加载（不阻塞启动，加载完成前联想走ES）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (localEnabled) {
+            scheduler.execute(this::reloadQuietly);
+        }
+    }
+
+    // ====================== 联想查询 ======================
+    /**
+     * 前缀联想：本地前缀树就绪时直接返回，否则查询ES
+     */
+    public List<String> suggest(String prefix, int size) throws IOException {
+        PrefixSuggestTrie current = trie;
+        if (localEnabled && current != null) {
+            localCount.increment();
+            return current.suggest(prefix, Math.min(size, topK));
+        }
+        esFallbackCount.increment();
+        return productEsRepository.suggestProductNames(PrefixSuggestTrie.normalize(prefix), size);
+    }
+
+    // ====================== 增量更新 ======================
+    /**
+     * 商品写入成功（单条/批量/异步导入）
+     */
+    public void onProductIndexed(Product product) {
+        if (product == null || product.getId() == null || product.getProductName() == null) {
+            return;
+        }
+        long weight;
+        if (product.getSales() != null) {
+            weight = product.getSales();
+        } else {
+            // 局部更新未带销量时沿用原权重
+            SuggestSource existing = productSources.get(product.getId());
+            weight = existing == null ? 0 : existing.weight;
+        }
+        applyChange(product.getId(), new SuggestSource(product.getProductName(), weight));
+    }
+
+    public void onProductDeleted(String productId) {
+        applyChange(productId, null);
+    }
+
+    private void applyChange(String productId, SuggestSource source) {
+        if (!localEnabled) {
+            return;
+        }
+        synchronized (changeLock) {
+            if (source == null) {
+                productSources.remove(productId);
+            } else {
+                productSources.put(productId, source);
+            }
+            if (reloadChanges != null) {
+                reloadChanges.put(productId, source);
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * 记录用户搜索词（高频搜索词进入联想）
+     */
+    public void recordQuery(String keyword) {
+        String key = PrefixSuggestTrie.normalize(keyword);
+        if (!localEnabled || key.isEmpty() || key.length() > queryMaxLength) {
+            return;
+        }
+        // 超过容量后只给已有搜索词计数，新词等重建时淘汰低频词后再进入
+        LongAdder counter = queryCounts.get(key);
+        if (counter == null) {
+            if (queryCounts.size() >= queryMaxSize * 2) {
+                return;
+            }
+            counter = queryCounts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+        if (counter.sum() == queryMinCount) {
+            dirty.set(true);
+        }
+    }
+
+    // ====================== 重建 / 全量重载 ======================
+    private void rebuildIfDirty() {
+        // 首次全量加载完成前只累积增量，不用残缺数据构建
+        if (trie != null && dirty.compareAndSet(true, false)) {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                dirty.set(true);
+                log.warn("联想前缀树重建失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        trimQueryCounts();
+        PrefixSuggestTrie.Builder builder = PrefixSuggestTrie.builder(topK);
+        productSources.values().forEach(source -> builder.add(source.name, source.weight));
+        queryCounts.forEach((query, counter) -> {
+            long count = counter.sum();
+            if (count >= queryMinCount) {
+                builder.add(query, count * queryWeight);
+            }
+        });
+        PrefixSuggestTrie newTrie = builder.build();
+        trie = newTrie;
+        lastRebuildTime = System.currentTimeMillis();
+        lastRebuildMillis = lastRebuildTime - start;
+        log.debug("联想前缀树重建完成，词条：{}，节点：{}，耗时：{}ms", newTrie.size(), newTrie.nodeCount(), lastRebuildMillis);
+    }
+
+    /**
+     * 搜索词超过容量时淘汰低频词
+     */
+    private void trimQueryCounts() {
+        int overflow = queryCounts.size() - queryMaxSize;
+        if (overflow <= 0) {
+            return;
+        }
+        List<Map.Entry<String, LongAdder>> entryList = new ArrayList<>(queryCounts.entrySet());
+        entryList.sort((a, b) -> Long.compare(a.getValue().sum(), b.getValue().sum()));
+        for (int i = 0; i < overflow; i++) {
+            queryCounts.remove(entryList.get(i).getKey());
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("联想词条全量加载失败，联想暂时查询ES：{}", e.getMessage());
+            // 首次加载失败时按重试间隔再次加载，不等到下一次定时全量重载
+            if (trie == null) {
+                scheduler.schedule(this::reloadQuietly, reloadRetryIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 从ES全量加载商品名称并重建前缀树
+     */
+    public void reload() throws IOException {
+        if (!localEnabled) {
+            return;
+        }
+        synchronized (changeLock) {
+            reloadChanges = new LinkedHashMap<>();
+        }
+        long start = System.currentTimeMillis();
+        Map<String, SuggestSource> loadedMap = new ConcurrentHashMap<>();
+        try {
+            productEsRepository.scanProducts(SOURCE_FIELDS, scanBatchSize, ProductListItem.class, batch -> {
+                for (ProductListItem item : batch) {
+                    if (item.getId() != null && item.getProductName() != null) {
+                        loadedMap.put(item.getId(), new SuggestSource(item.getProductName(),
+                                item.getSales() == null ? 0 : item.getSales()));
+                    }
+                }
+            });
+            // 补上加载期间的增量变更后替换
+            synchronized (changeLock) {
+                reloadChanges.forEach((productId, source) -> {
+                    if (source == null) {
+                        loadedMap.remove(productId);
+                    } else {
+                        loadedMap.put(productId, source);
+                    }
+                });
+                productSources = loadedMap;
+            }
+        } finally {
+            synchronized (changeLock) {
+                reloadChanges = null;
+            }
+        }
+        // 搜索词计数衰减，近期热词排在前面
+        queryCounts.forEach((query, counter) -> {
+            long half = counter.sum() / 2;
+            counter.add(-half);
+        });
+        queryCounts.values().removeIf(counter -> counter.sum() == 0);
+        rebuild();
+        log.info("联想词条全量加载完成，商品：{}，搜索词：{}，前缀树节点：{}，耗时：{}ms",
+                loadedMap.size(), queryCounts.size(), trie.nodeCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 联想监控指标
+     */
+    public Map<String, Object> stats() {
+        PrefixSuggestTrie current = trie;
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("ready", current != null);
+        statsMap.put("termCount", current == null ? 0 : current.size());
+        statsMap.put("nodeCount", current == null ? 0 : current.nodeCount());
+        statsMap.put("productCount", productSources.size());
+        statsMap.put("queryCount", queryCounts.size());
+        statsMap.put("lastRebuildTime", lastRebuildTime);
+        statsMap.put("lastRebuildMillis", lastRebuildMillis);
+        statsMap.put("localCount", localCount.sum());
+        statsMap.put("esFallbackCount", esFallbackCount.sum());
+        return statsMap;
+    }
+
+    /**
+     * 商品联想词条
+     */
+    private static class SuggestSource {
+        private final String name;
+        private final long weight;
+
+        SuggestSource(String name, long weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+}
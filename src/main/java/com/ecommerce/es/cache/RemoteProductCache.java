@@ -0,0 +1,28 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.Product;
+
+/**
+ * author Nami
+ * date 2026/1/12 10:05
+ * description 商品详情二级缓存（远程缓存，如Redis），多实例共享
+ */
+public interface RemoteProductCache {
+
+    /**
+     * 查询缓存
+     * @return 未命中返回null
+     */
+    Product get(String productId);
+
+    /**
+     * 写入缓存
+     * @param ttlMillis 过期时长（毫秒）
+     */
+    void put(String productId, Product product, long ttlMillis);
+
+    /**
+     * 删除缓存（商品写入后失效）
+     */
+    void evict(String productId);
+}
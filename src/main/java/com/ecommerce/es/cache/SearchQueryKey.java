@@ -0,0 +1,70 @@
+package com.ecommerce.es.cache;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.ecommerce.es.util.CompactValues;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * author Nami
+ * date 2026/1/13 09:55
+ * description 规范化后的商品搜索条件（请求合并/结果缓存的key）
+ * - 关键词去首尾空格、转小写（IK分词本身大小写不敏感）
+ * - 价格按分取整并去掉末尾0（100、100.00、100.001视为同一条件）
+ * - 标签排序去重（terms过滤与顺序无关）
+ * - 排序字段/方向补齐默认值（销量降序）
+ */
+@Value
+public class SearchQueryKey {
+    String keyword;
+    String minPrice;
+    String maxPrice;
+    String category;
+    List<String> tags;
+    String sortField;
+    SortOrder sortOrder;
+
+    public static SearchQueryKey of(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                    String category, List<String> tags, String sortField, SortOrder sortOrder) {
+        return new SearchQueryKey(
+                normalizeKeyword(keyword),
+                normalizePrice(minPrice),
+                normalizePrice(maxPrice),
+                category == null || category.isEmpty() ? null : category,
+                normalizeTags(tags),
+                sortField == null || sortField.isEmpty() ? "sales" : sortField,
+                sortOrder == null ? SortOrder.Desc : sortOrder
+        );
+    }
+
+    private static String normalizeKeyword(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String trimmed = keyword.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizePrice(BigDecimal price) {
+        return price == null ? null : CompactValues.fromCents(CompactValues.toCents(price)).toPlainString();
+    }
+
+    private static List<String> normalizeTags(List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> sorted = new ArrayList<>();
+        for (String tag : tags) {
+            if (tag != null && !sorted.contains(tag)) {
+                sorted.add(tag);
+            }
+        }
+        Collections.sort(sorted);
+        return Collections.unmodifiableList(sorted);
+    }
+}
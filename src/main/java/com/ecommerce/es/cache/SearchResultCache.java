@@ -0,0 +1,442 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.CompactProduct;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.resilience.EsOverloadedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * author Nami
+ * date 2026/1/24 10:00
+ * description 商品搜索结果缓存（热门关键词/分类筛选的重复搜索不访问ES）
+ * - key为规范化后的搜索条件（SearchQueryKey）+ 视图（完整商品/列表精简视图）
+ * - 按估算字节数限制总容量（Caffeine按权重淘汰），结果较大的查询占用更多配额
+ * - 失效按代数：商品写入/删除时全局代数+1，之前缓存的结果全部变为过期，不逐条查找受影响的key
+ * - 过期后在max-stale窗口内先返回旧结果，同时后台刷新（同一key只刷新一次），写入后的流量高峰不会同时打到ES
+ * - 完整商品按CompactProduct存储，命中时复制出新对象
+ * - ES过载保护拒绝请求时（EsOverloadedException），在fallback-max-stale窗口内回退到更旧的结果，不直接返回503
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchResultCache {
+
+    @Value("${cache.search.enabled:true}")
+    private boolean enabled;
+
+    // 缓存总容量（估算字节数）
+    @Value("${cache.search.max-weight:67108864}")
+    private long maxWeight;
+
+    // 新鲜期（毫秒）：未发生写入且在新鲜期内直接返回
+    @Value("${cache.search.ttl:30000}")
+    private long ttlMillis;
+
+    // 过期后仍可返回旧结果的时长（毫秒），超过后同步查询ES
+    @Value("${cache.search.max-stale:60000}")
+    private long maxStaleMillis;
+
+    // 写入后ES刷新可见的延迟（毫秒，与索引refresh_interval一致），期间加载的结果可能不含刚写入的商品
+    @Value("${cache.search.write-visibility-delay:1000}")
+    private long writeVisibilityDelayMillis;
+
+    // 超过max-stale后仅在ES过载时作为回退结果的保留时长（毫秒），0为不回退
+    @Value("${cache.search.fallback-max-stale:600000}")
+    private long fallbackMaxStaleMillis;
+
+    @Value("${cache.search.refresh-threads:2}")
+    private int refreshThreads;
+
+    private Cache<CacheKey, CacheEntry> cache;
+    private ThreadPoolExecutor refreshExecutor;
+    // 写入代数：每次商品写入/删除+1
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long lastWriteTime;
+    // 正在后台刷新的key（同一key只刷新一次）
+    private final Set<CacheKey> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder freshHitCount = new LongAdder();
+    private final LongAdder staleHitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder refreshFailureCount = new LongAdder();
+    private final LongAdder fallbackHitCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((CacheKey key, CacheEntry entry) -> entry.weight)
+                // 硬过期：新鲜期 + 可返回旧结果的窗口 + 过载回退窗口
+                .expireAfterWrite(ttlMillis + maxStaleMillis + fallbackMaxStaleMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        // 刷新队列满时不刷新，继续返回旧结果
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100), new CustomizableThreadFactory("search-cache-refresh-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("搜索结果缓存初始化完成：启用={}，容量={}字节，TTL={}ms，最长返回旧结果={}ms",
+                enabled, maxWeight, ttlMillis, maxStaleMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // ====================== 查询 ======================
+    /**
+     * 完整商品搜索结果
+     */
+    public List<Product> getProducts(SearchQueryKey queryKey, ResultLoader<Product> loader) throws IOException {
+        return get(new CacheKey(View.PRODUCT, queryKey), loader);
+    }
+
+    public CompletableFuture<List<Product>> getProductsAsync(SearchQueryKey queryKey,
+                                                            Supplier<CompletableFuture<List<Product>>> loader) {
+        return getAsync(new CacheKey(View.PRODUCT, queryKey), loader);
+    }
+
+    /**
+     * 列表精简视图搜索结果
+     */
+    public List<ProductListItem> getListItems(SearchQueryKey queryKey, ResultLoader<ProductListItem> loader) throws IOException {
+        return get(new CacheKey(View.LIST, queryKey), loader);
+    }
+
+    private <T> List<T> get(CacheKey key, ResultLoader<T> loader) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+        CacheEntry entry = cache.getIfPresent(key);
+        CacheEntry fallback = null;
+        if (entry != null && !isServable(entry)) {
+            fallback = entry;
+            entry = null;
+        }
+        if (entry != null) {
+            if (isFresh(entry)) {
+                freshHitCount.increment();
+            } else {
+                staleHitCount.increment();
+                refreshInBackground(key, () -> {
+                    long loadGeneration = generation.get();
+                    put(key, loader.load(), loadGeneration);
+                });
+            }
+            return entry.decode();
+        }
+        missCount.increment();
+        long loadGeneration = generation.get();
+        List<T> resultList;
+        try {
+            resultList = loader.load();
+        } catch (EsOverloadedException e) {
+            if (fallback == null) {
+                throw e;
+            }
+            fallbackHitCount.increment();
+            return fallback.decode();
+        }
+        put(key, resultList, loadGeneration);
+        return resultList;
+    }
+
+    private <T> CompletableFuture<List<T>> getAsync(CacheKey key, Supplier<CompletableFuture<List<T>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        CacheEntry entry = cache.getIfPresent(key);
+        CacheEntry fallback = null;
+        if (entry != null && !isServable(entry)) {
+            fallback = entry;
+            entry = null;
+        }
+        if (entry != null) {
+            if (isFresh(entry)) {
+                freshHitCount.increment();
+            } else {
+                staleHitCount.increment();
+                if (refreshingKeys.add(key)) {
+                    // 异步客户端本身不阻塞，直接发起刷新
+                    long loadGeneration = generation.get();
+                    loader.get().whenComplete((resultList, error) -> {
+                        refreshingKeys.remove(key);
+                        onRefreshed(key, resultList, error, loadGeneration);
+                    });
+                }
+            }
+            return CompletableFuture.completedFuture(entry.decode());
+        }
+        missCount.increment();
+        long loadGeneration = generation.get();
+        CompletableFuture<List<T>> future = loader.get().thenApply(resultList -> {
+            put(key, resultList, loadGeneration);
+            return resultList;
+        });
+        if (fallback == null) {
+            return future;
+        }
+        CacheEntry fallbackEntry = fallback;
+        CompletableFuture<List<T>> guarded = new CompletableFuture<>();
+        future.whenComplete((resultList, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (error == null) {
+                guarded.complete(resultList);
+            } else if (cause instanceof EsOverloadedException) {
+                fallbackHitCount.increment();
+                guarded.complete(fallbackEntry.decode());
+            } else {
+                guarded.completeExceptionally(error);
+            }
+        });
+        return guarded;
+    }
+
+    private boolean isFresh(CacheEntry entry) {
+        return entry.generation == generation.get() && System.currentTimeMillis() - entry.createTime < ttlMillis;
+    }
+
+    /**
+     * 是否在正常可返回的窗口内（新鲜期 + max-stale），超出的只用于过载回退
+     */
+    private boolean isServable(CacheEntry entry) {
+        return System.currentTimeMillis() - entry.createTime < ttlMillis + maxStaleMillis;
+    }
+
+    private void refreshInBackground(CacheKey key, RefreshTask task) {
+        if (!refreshingKeys.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    task.run();
+                    refreshCount.increment();
+                } catch (Exception e) {
+                    refreshFailureCount.increment();
+                    log.warn("搜索结果缓存后台刷新失败：{}", e.getMessage());
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingKeys.remove(key);
+        }
+    }
+
+    private void onRefreshed(CacheKey key, List<?> resultList, Throwable error, long loadGeneration) {
+        if (error != null) {
+            refreshFailureCount.increment();
+            log.warn("搜索结果缓存后台刷新失败：{}", error.getMessage());
+            return;
+        }
+        put(key, resultList, loadGeneration);
+        refreshCount.increment();
+    }
+
+    private void put(CacheKey key, List<?> resultList, long loadGeneration) {
+        if (resultList == null) {
+            return;
+        }
+        // 刚发生写入时ES可能还未刷新可见，结果按旧代数存储，下次读取时再刷新一次
+        long storedGeneration = System.currentTimeMillis() - lastWriteTime < writeVisibilityDelayMillis
+                ? loadGeneration - 1 : loadGeneration;
+        cache.put(key, key.view.encode(resultList, storedGeneration));
+    }
+
+    // ====================== 失效 ======================
+    /**
+     * 商品写入/删除后调用：代数+1，已缓存的结果全部过期（过期后仍可短时返回旧结果并后台刷新）
+     */
+    public void onProductsWritten() {
+        lastWriteTime = System.currentTimeMillis();
+        generation.incrementAndGet();
+    }
+
+    /**
+     * 清空缓存（运维使用）
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存监控指标
+     */
+    public Map<String, Object> stats() {
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("enabled", enabled);
+        statsMap.put("size", cache.estimatedSize());
+        statsMap.put("weightedSize", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        statsMap.put("maxWeight", maxWeight);
+        statsMap.put("generation", generation.get());
+        statsMap.put("freshHitCount", freshHitCount.sum());
+        statsMap.put("staleHitCount", staleHitCount.sum());
+        statsMap.put("missCount", missCount.sum());
+        statsMap.put("refreshCount", refreshCount.sum());
+        statsMap.put("refreshFailureCount", refreshFailureCount.sum());
+        statsMap.put("fallbackHitCount", fallbackHitCount.sum());
+        statsMap.put("evictionCount", cacheStats.evictionCount());
+        statsMap.put("evictionWeight", cacheStats.evictionWeight());
+        return statsMap;
+    }
+
+    /**
+     * 缓存未命中时的加载逻辑（查询ES）
+     */
+    @FunctionalInterface
+    public interface ResultLoader<T> {
+        List<T> load() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RefreshTask {
+        void run() throws IOException;
+    }
+
+    // ====================== 缓存结构 ======================
+    /**
+     * 结果视图：决定存储格式和估算大小
+     */
+    private enum View {
+        PRODUCT(list -> {
+            CompactProduct[] products = new CompactProduct[list.size()];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = CompactProduct.from((Product) list.get(i));
+            }
+            return products;
+        }, stored -> {
+            CompactProduct[] products = (CompactProduct[]) stored;
+            List<Object> resultList = new ArrayList<>(products.length);
+            for (CompactProduct product : products) {
+                resultList.add(product == null ? null : product.toProduct());
+            }
+            return resultList;
+        }),
+        LIST(list -> Collections.unmodifiableList(new ArrayList<>(list)), stored -> (List<?>) stored);
+
+        private final Function<List<?>, Object> encoder;
+        private final Function<Object, List<?>> decoder;
+
+        View(Function<List<?>, Object> encoder, Function<Object, List<?>> decoder) {
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+        CacheEntry encode(List<?> resultList, long generation) {
+            long bytes = 64;
+            for (Object item : resultList) {
+                bytes += item instanceof Product ? estimateBytes((Product) item) : estimateBytes((ProductListItem) item);
+            }
+            return new CacheEntry(this, encoder.apply(resultList), generation, (int) Math.min(bytes, Integer.MAX_VALUE));
+        }
+    }
+
+    private static final class CacheKey {
+        private final View view;
+        private final SearchQueryKey queryKey;
+
+        CacheKey(View view, SearchQueryKey queryKey) {
+            this.view = view;
+            this.queryKey = queryKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return view == other.view && queryKey.equals(other.queryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(view, queryKey);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final View view;
+        private final Object value;
+        private final long generation;
+        private final long createTime = System.currentTimeMillis();
+        private final int weight;
+
+        CacheEntry(View view, Object value, long generation, int weight) {
+            this.view = view;
+            this.value = value;
+            this.generation = generation;
+            this.weight = weight;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> List<T> decode() {
+            return (List<T>) view.decoder.apply(value);
+        }
+    }
+
+    // ====================== 大小估算 ======================
+    /**
+     * 估算紧凑存储后的字节数（对象头+基本类型字段约80字节，字符串按每字符2字节）
+     */
+    static long estimateBytes(Product product) {
+        if (product == null) {
+            return 16;
+        }
+        long size = 80;
+        size += stringBytes(product.getId()) + stringBytes(product.getProductName()) + stringBytes(product.getDescription());
+        // 分类/商家ID/标签已驻留，只算引用
+        size += product.getTags() == null ? 0 : 16 + 4L * product.getTags().size();
+        return size;
+    }
+
+    static long estimateBytes(ProductListItem item) {
+        if (item == null) {
+            return 16;
+        }
+        long size = 64;
+        size += stringBytes(item.getId()) + stringBytes(item.getProductName());
+        size += item.getTags() == null ? 0 : 16 + 4L * item.getTags().size();
+        return size;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.es.cache;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * author Nami
+ * date 2026/1/13 09:40
+ * description 请求合并（single-flight）：同一时刻相同key的请求只执行一次ES调用，其余请求共享结果
+ * - 仅合并"在途"请求，调用结束即移除，不做结果缓存
+ * - 异常（包括Error）同样共享给所有等待方，等待方不会因调用方异常而永久阻塞
+ * @param <K> 请求key（需正确实现equals/hashCode）
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlightMap = new ConcurrentHashMap<>();
+    private final LongAdder callCount = new LongAdder();
+    private final LongAdder executeCount = new LongAdder();
+
+    /**
+     * 执行调用（相同key已有在途调用时等待其结果）
+     */
+    public V execute(K key, Call<V> call) throws IOException {
+        callCount.increment();
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightMap.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        executeCount.increment();
+        try {
+            V result = call.call();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightMap.remove(key, future);
+        }
+    }
+
+    /**
+     * 异步执行（相同key已有在途调用时直接共享其future，同步/异步调用之间同样合并）
+     * - 返回的是共享结果的副本，调用方cancel不会影响其他等待方
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        callCount.increment();
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightMap.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return inFlight.thenApply(Function.identity());
+        }
+
+        executeCount.increment();
+        CompletableFuture<V> source;
+        try {
+            source = call.get();
+        } catch (Throwable e) {
+            source = new CompletableFuture<>();
+            source.completeExceptionally(e);
+        }
+        source.whenComplete((result, error) -> {
+            // 先移除再通知，结果返回后新到的请求重新发起调用
+            inFlightMap.remove(key, future);
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future.thenApply(Function.identity());
+    }
+
+    private V await(CompletableFuture<V> inFlight) throws IOException {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待合并请求结果被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 合并指标：调用总数、实际执行数、合并掉的请求数、合并率
+     */
+    public Map<String, Object> stats() {
+        long calls = callCount.sum();
+        long executions = executeCount.sum();
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("callCount", calls);
+        statsMap.put("executeCount", executions);
+        statsMap.put("sharedCount", calls - executions);
+        statsMap.put("dedupRatio", calls == 0 ? 0.0 : (double) (calls - executions) / calls);
+        statsMap.put("inFlight", inFlightMap.size());
+        return statsMap;
+    }
+
+    /**
+     * 被合并的调用（允许抛出IOException）
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws IOException;
+    }
+}
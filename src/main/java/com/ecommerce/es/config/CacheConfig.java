@@ -0,0 +1,32 @@
+package com.ecommerce.es.config;
+
+import com.ecommerce.es.cache.InMemoryRemoteProductCache;
+import com.ecommerce.es.cache.RemoteProductCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * author Nami
+ * date 2026/1/12 10:20
+ * description 缓存配置类
+ */
+@Configuration
+@Slf4j
+public class CacheConfig {
+
+    @Value("${cache.product.remote-max-size:100000}")
+    private int remoteMaxSize;
+
+    /**
+     * 商品详情二级缓存：默认使用进程内替身，接入Redis时声明自己的RemoteProductCache即可替换
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RemoteProductCache remoteProductCache() {
+        log.info("未配置远程商品缓存，使用进程内替身，容量：{}", remoteMaxSize);
+        return new InMemoryRemoteProductCache(remoteMaxSize);
+    }
+}
@@ -1,21 +1,49 @@
 package com.ecommerce.es.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.ecommerce.es.metrics.EsMetrics;
+import com.ecommerce.es.metrics.InstrumentedEsTransport;
+import com.ecommerce.es.metrics.SlowQueryLog;
+import com.ecommerce.es.resilience.DeadlineEsTransport;
+import com.ecommerce.es.resilience.EsResilience;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.elasticsearch.client.HasAttributeNodeSelector;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * author Nami
  * date 2026/1/5 15:42
  * description ES客户端配置类
+ * - 支持多节点（elasticsearch.hosts），请求在节点间轮询，节点故障时自动摘除/恢复
+ * - 连接池/IO线程/keep-alive/gzip可配置（默认值30总连接、10单节点连接远低于集群承载能力）
+ * - 可选节点嗅探（定时 + 请求失败时）和节点选择（如跳过专用master节点）
  */
 @Configuration
 @Slf4j
@@ -29,27 +57,89 @@ public class ElasticsearchConfig {
     @Value("${elasticsearch.scheme}")
     private String esScheme;
 
+    // 多节点地址，逗号分隔（如 http://es1:9200,http://es2:9200），配置后忽略host/port
+    @Value("${elasticsearch.hosts:}")
+    private String esHosts;
+
     @Value("${elasticsearch.connect-timeout}")
     private int esConnectTimeout;
 
     @Value("${elasticsearch.socket-timeout}")
     private int esSocketTimeout;
 
+    @Value("${elasticsearch.pool.max-conn-total:200}")
+    private int maxConnTotal;
+
+    @Value("${elasticsearch.pool.max-conn-per-route:100}")
+    private int maxConnPerRoute;
+
+    // 0表示使用默认值（CPU核数）
+    @Value("${elasticsearch.pool.io-thread-count:0}")
+    private int ioThreadCount;
+
+    @Value("${elasticsearch.pool.keep-alive:60000}")
+    private long keepAliveMillis;
+
+    @Value("${elasticsearch.compression-enabled:true}")
+    private boolean compressionEnabled;
+
+    // any / skip-dedicated-masters / attr:key=value
+    @Value("${elasticsearch.node-selector:any}")
+    private String nodeSelector;
+
+    @Value("${elasticsearch.sniff.enabled:false}")
+    private boolean sniffEnabled;
+
+    @Value("${elasticsearch.sniff.interval:300000}")
+    private int sniffIntervalMillis;
+
+    @Value("${elasticsearch.sniff.after-failure-delay:60000}")
+    private int sniffAfterFailureDelayMillis;
+
 //    @Value("${elasticsearch.username}")
 //    private String esUserName;
 //
 //    @Value("${elasticsearch.password}")
 //    private String esPassword;
 
-    @Bean
-    public ElasticsearchClient elasticsearchClient() {
+    // 开启嗅探时，请求失败立即触发一次嗅探
+    private final SniffOnFailureListener sniffOnFailureListener = new SniffOnFailureListener();
+
+    /**
+     * HTTP连接池（单独声明为Bean，供连接池监控读取使用率）
+     * - 由RestClient关闭时一并关闭
+     */
+    @Bean(destroyMethod = "")
+    public PoolingNHttpClientConnectionManager esConnectionManager() throws IOReactorException {
+        IOReactorConfig.Builder ioConfig = IOReactorConfig.custom()
+                .setConnectTimeout(esConnectTimeout)
+                .setSoTimeout(esSocketTimeout)
+                .setSoKeepAlive(true);
+        if (ioThreadCount > 0) {
+            ioConfig.setIoThreadCount(ioThreadCount);
+        }
+        DefaultConnectingIOReactor ioReactor =
+                new DefaultConnectingIOReactor(ioConfig.build(), new CustomizableThreadFactory("es-io-"));
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(ioReactor);
+        connectionManager.setMaxTotal(maxConnTotal);
+        connectionManager.setDefaultMaxPerRoute(maxConnPerRoute);
+        return connectionManager;
+    }
+
+    /**
+     * 底层RestClient（同步/异步客户端共用同一个连接池）
+     */
+    @Bean(destroyMethod = "close")
+    public RestClient restClient(PoolingNHttpClientConnectionManager esConnectionManager, EsMetrics esMetrics) {
         // 1. 构建HTTP Host
-        HttpHost httpHost = new HttpHost(esHost, esPort, esScheme);
+        HttpHost[] httpHosts = parseHosts(esHosts, esHost, esPort, esScheme);
 
         // 2. 构建RestClientBuilder
-        RestClientBuilder builder = RestClient.builder(httpHost)
+        RestClientBuilder builder = RestClient.builder(httpHosts)
                 .setRequestConfigCallback(requestConfigBuilder -> requestConfigBuilder.setConnectTimeout(esConnectTimeout)
                         .setSocketTimeout(esSocketTimeout))
+                .setCompressionEnabled(compressionEnabled)
+                .setNodeSelector(buildNodeSelector(nodeSelector))
                 .setHttpClientConfigCallback(new RestClientBuilder.HttpClientConfigCallback() {
                     @Override
                     public HttpAsyncClientBuilder customizeHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
@@ -60,16 +150,132 @@ public class ElasticsearchConfig {
                         //             new UsernamePasswordCredentials(esUsername, esPassword));
                         //     httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
                         // }
-                        return httpClientBuilder;
+                        return httpClientBuilder
+                                .setConnectionManager(esConnectionManager)
+                                .setKeepAliveStrategy(keepAliveStrategy(keepAliveMillis))
+                                // 记录响应字节数（解压前，即网络传输大小）
+                                .addInterceptorLast((HttpResponseInterceptor) (response, context) -> {
+                                    if (response.getEntity() != null) {
+                                        esMetrics.recordResponseBytes(response.getEntity().getContentLength());
+                                    }
+                                });
                     }
                 });
+        if (sniffEnabled) {
+            builder.setFailureListener(sniffOnFailureListener);
+        }
 
-        // 3. 构建Transport
-        RestClientTransport transport = new RestClientTransport(builder.build(), new JacksonJsonpMapper());
+        // 3. 构建RestClient
+        RestClient restClient = builder.build();
+        log.info("ES RestClient初始化完成，节点：{}，maxConnTotal={}，maxConnPerRoute={}，gzip={}，nodeSelector={}",
+                Arrays.toString(httpHosts), maxConnTotal, maxConnPerRoute, compressionEnabled, nodeSelector);
+        return restClient;
+    }
+
+    /**
+     * ES传输层（RestClient由自身Bean负责关闭）
+     * - 外层包装指标记录：同步/异步客户端的每次请求记录往返耗时、took、返回文档数，超过阈值的记慢查询日志
+     * - 内层按过载保护的截止时间收紧单次请求超时
+     */
+    @Bean(destroyMethod = "")
+    public ElasticsearchTransport esTransport(RestClient restClient, EsMetrics esMetrics, SlowQueryLog slowQueryLog,
+                                              EsResilience esResilience) {
+        ElasticsearchTransport restClientTransport = new RestClientTransport(restClient, new JacksonJsonpMapper());
+        return new InstrumentedEsTransport(new DeadlineEsTransport(restClientTransport, esResilience,
+                esConnectTimeout, esSocketTimeout), esMetrics, slowQueryLog);
+    }
+
+    /**
+     * 节点嗅探：定时从集群拉取节点列表，扩缩容后无需重启应用
+     * - 先于RestClient关闭
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "elasticsearch.sniff.enabled", havingValue = "true")
+    public Sniffer esSniffer(RestClient restClient) {
+        ElasticsearchNodesSniffer nodesSniffer = new ElasticsearchNodesSniffer(restClient,
+                ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT,
+                "https".equalsIgnoreCase(esScheme) ? ElasticsearchNodesSniffer.Scheme.HTTPS : ElasticsearchNodesSniffer.Scheme.HTTP);
+        Sniffer sniffer = Sniffer.builder(restClient)
+                .setNodesSniffer(nodesSniffer)
+                .setSniffIntervalMillis(sniffIntervalMillis)
+                .setSniffAfterFailureDelayMillis(sniffAfterFailureDelayMillis)
+                .build();
+        sniffOnFailureListener.setSniffer(sniffer);
+        log.info("ES节点嗅探已开启，间隔：{}ms", sniffIntervalMillis);
+        return sniffer;
+    }
 
+    @Bean
+    public ElasticsearchClient elasticsearchClient(ElasticsearchTransport transport) {
         // 4. 构建ES Client
         ElasticsearchClient client = new ElasticsearchClient(transport);
-        log.info("ES 8.6.2 客户端初始化完成，连接地址：{}://{}:{}", esScheme, esHost, esPort);
+        log.info("ES 8.6.2 客户端初始化完成");
         return client;
     }
+
+    /**
+     * ES异步客户端（非阻塞接口使用，请求在IO线程上完成，不占用Tomcat工作线程）
+     */
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchTransport transport) {
+        return new ElasticsearchAsyncClient(transport);
+    }
+
+    /**
+     * 解析节点地址：优先使用hosts（逗号分隔，可省略协议），未配置时使用host/port
+     */
+    static HttpHost[] parseHosts(String hosts, String defaultHost, int defaultPort, String defaultScheme) {
+        if (hosts == null || hosts.trim().isEmpty()) {
+            return new HttpHost[]{new HttpHost(defaultHost, defaultPort, defaultScheme)};
+        }
+        List<HttpHost> hostList = new ArrayList<>();
+        for (String host : hosts.split(",")) {
+            String address = host.trim();
+            if (address.isEmpty()) {
+                continue;
+            }
+            if (!address.contains("://")) {
+                address = defaultScheme + "://" + address;
+            }
+            HttpHost httpHost = HttpHost.create(address);
+            if (httpHost.getPort() < 0) {
+                httpHost = new HttpHost(httpHost.getHostName(), defaultPort, httpHost.getSchemeName());
+            }
+            hostList.add(httpHost);
+        }
+        if (hostList.isEmpty()) {
+            throw new IllegalArgumentException("elasticsearch.hosts配置错误：" + hosts);
+        }
+        return hostList.toArray(new HttpHost[0]);
+    }
+
+    /**
+     * 节点选择策略
+     * - skip-dedicated-masters：跳过专用master节点（节点角色来自嗅探，静态配置的节点不做过滤）
+     * - attr:key=value：只发往带指定属性的节点（如 attr:rack=rack1 就近访问）
+     */
+    static NodeSelector buildNodeSelector(String selector) {
+        if (selector == null || selector.isEmpty() || "any".equalsIgnoreCase(selector)) {
+            return NodeSelector.ANY;
+        }
+        if ("skip-dedicated-masters".equalsIgnoreCase(selector)) {
+            return NodeSelector.SKIP_DEDICATED_MASTERS;
+        }
+        if (selector.startsWith("attr:") && selector.indexOf('=') > 5) {
+            int split = selector.indexOf('=');
+            return new HasAttributeNodeSelector(selector.substring(5, split), selector.substring(split + 1));
+        }
+        throw new IllegalArgumentException("不支持的节点选择策略：" + selector);
+    }
+
+    /**
+     * keep-alive策略：服务端返回Keep-Alive时取较小值，否则使用配置值
+     * - 默认策略在服务端不返回时无限复用，连接被负载均衡/防火墙静默断开后会出现请求失败
+     */
+    static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+        };
+    }
 }
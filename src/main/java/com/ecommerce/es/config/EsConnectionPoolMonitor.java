@@ -0,0 +1,89 @@
+package com.ecommerce.es.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * author Nami
+ * date 2026/1/16 14:10
+ * description ES连接池监控
+ * - 暴露总连接/单节点连接的使用情况（leased/available/pending/max）
+ * - 定时检查使用率，连接耗尽（有请求排队等待连接）时告警，用于调整maxConnTotal/maxConnPerRoute
+ * - 同时注册为Micrometer指标（es.pool.connections，按state区分）
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EsConnectionPoolMonitor implements MeterBinder {
+    private final PoolingNHttpClientConnectionManager esConnectionManager;
+
+    @Value("${elasticsearch.pool.warn-utilization:0.8}")
+    private double warnUtilization;
+
+    /**
+     * 连接池使用情况
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> statsMap = toMap(esConnectionManager.getTotalStats());
+        Map<String, Object> routeMap = new LinkedHashMap<>();
+        for (HttpRoute route : esConnectionManager.getRoutes()) {
+            routeMap.put(route.getTargetHost().toURI(), toMap(esConnectionManager.getStats(route)));
+        }
+        statsMap.put("routes", routeMap);
+        return statsMap;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        poolGauge(registry, "leased", PoolStats::getLeased);
+        poolGauge(registry, "available", PoolStats::getAvailable);
+        poolGauge(registry, "pending", PoolStats::getPending);
+        poolGauge(registry, "max", PoolStats::getMax);
+    }
+
+    private void poolGauge(MeterRegistry registry, String state, ToIntFunction<PoolStats> value) {
+        Gauge.builder("es.pool.connections", esConnectionManager, manager -> value.applyAsInt(manager.getTotalStats()))
+                .description("ES连接池连接数")
+                .tag("state", state)
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${elasticsearch.pool.monitor-interval:60000}")
+    public void checkUtilization() {
+        PoolStats totalStats = esConnectionManager.getTotalStats();
+        double utilization = utilization(totalStats);
+        if (totalStats.getPending() > 0 || utilization >= warnUtilization) {
+            log.warn("ES连接池使用率过高：leased={}，max={}，pending={}，使用率={}",
+                    totalStats.getLeased(), totalStats.getMax(), totalStats.getPending(), String.format("%.2f", utilization));
+        } else {
+            log.debug("ES连接池使用情况：{}", totalStats);
+        }
+    }
+
+    private static Map<String, Object> toMap(PoolStats poolStats) {
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("leased", poolStats.getLeased());
+        statsMap.put("available", poolStats.getAvailable());
+        statsMap.put("pending", poolStats.getPending());
+        statsMap.put("max", poolStats.getMax());
+        statsMap.put("utilization", utilization(poolStats));
+        return statsMap;
+    }
+
+    private static double utilization(PoolStats poolStats) {
+        return poolStats.getMax() == 0 ? 0 : (double) poolStats.getLeased() / poolStats.getMax();
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.es.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * author Nami
+ * date 2026/1/18 10:05
+ * description 商品索引配置（elasticsearch.index）
+ * - profiles：索引配置档位，如serving（对外服务）、bulk-load（大批量导入）
+ * - 分片数/压缩方式/预排序只能在建索引时指定，始终取serving档位；其余配置可随时切换
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "elasticsearch.index")
+public class IndexSettingsProperties {
+    public static final String SERVING = "serving";
+    public static final String BULK_LOAD = "bulk-load";
+
+    /** 建索引时按sales/createTime降序预排序 */
+    private boolean sortEnabled = true;
+
+    /** 配置档位（档位名 -> 配置） */
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    public Profile getProfile(String name) {
+        Profile profile = profiles.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("索引配置档位不存在：" + name + "，可选：" + profiles.keySet());
+        }
+        return profile;
+    }
+
+    @Data
+    public static class Profile {
+        /** 主分片数（建索引时生效） */
+        private Integer numberOfShards;
+        /** 副本数 */
+        private Integer numberOfReplicas;
+        /** 刷新间隔，-1关闭自动刷新 */
+        private String refreshInterval;
+        /** translog落盘方式：request（每个请求fsync）/ async（定时fsync，吞吐高，宕机可能丢最近数据） */
+        private String translogDurability;
+        /** 存储压缩：default / best_compression（建索引时生效） */
+        private String codec;
+    }
+}
@@ -0,0 +1,273 @@
+package com.ecommerce.es.controller;
+
+import com.ecommerce.es.config.EsConnectionPoolMonitor;
+import com.ecommerce.es.entity.ExportJob;
+import com.ecommerce.es.entity.ReindexJob;
+import com.ecommerce.es.metrics.SlowQueryLog;
+import com.ecommerce.es.resilience.EsResilience;
+import com.ecommerce.es.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * author Nami
+ * date 2026/1/16 14:30
+ * description ES运维接口（连接池监控、慢查询、过载保护、索引配置档位、聚合快照、全量导出、索引重建等）
+ */
+@RestController
+@RequestMapping("/admin/es")
+@RequiredArgsConstructor
+@Slf4j
+public class EsAdminController {
+
+    private final EsConnectionPoolMonitor esConnectionPoolMonitor;
+    private final SlowQueryLog slowQueryLog;
+    private final EsResilience esResilience;
+    private final ProductService productService;
+
+    // ====================== 连接池监控 ======================
+    @GetMapping("/pool/stats")
+    public ResponseEntity<Map<String, Object>> getPoolStats() {
+        try {
+            return ResponseEntity.ok(esConnectionPoolMonitor.stats());
+        } catch (Exception e) {
+            log.error("查询ES连接池指标失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 慢查询 ======================
+    /**
+     * 慢查询统计 + 最慢的N条（按往返耗时降序，抽样profile的记录带profile结果）
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> getSlowQueries() {
+        try {
+            Map<String, Object> resultMap = new LinkedHashMap<>(slowQueryLog.stats());
+            resultMap.put("queries", slowQueryLog.worstQueries());
+            return ResponseEntity.ok(resultMap);
+        } catch (Exception e) {
+            log.error("查询慢查询记录失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * 清空最慢记录（调整索引/查询后重新观察）
+     */
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> clearSlowQueries() {
+        slowQueryLog.clear();
+        return ResponseEntity.ok(slowQueryLog.stats());
+    }
+
+    // ====================== 过载保护 ======================
+    /**
+     * 各类操作的自适应并发上限/在途数/基线耗时，及各仓库方法的熔断器状态
+     */
+    @GetMapping("/resilience")
+    public ResponseEntity<Map<String, Object>> getResilienceStats() {
+        try {
+            return ResponseEntity.ok(esResilience.stats());
+        } catch (Exception e) {
+            log.error("查询ES过载保护状态失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 索引信息 ======================
+    /**
+     * 读写别名当前指向的物理索引
+     */
+    @GetMapping("/index")
+    public ResponseEntity<Map<String, Object>> getProductIndexInfo() {
+        try {
+            return ResponseEntity.ok(productService.getProductIndexInfo());
+        } catch (Exception e) {
+            log.error("查询商品索引信息失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 索引配置档位 ======================
+    /**
+     * 当前生效的索引配置 + 可选配置档位
+     */
+    @GetMapping("/index/settings")
+    public ResponseEntity<Map<String, Object>> getProductIndexSettings() {
+        try {
+            return ResponseEntity.ok(productService.getProductIndexSettings());
+        } catch (Exception e) {
+            log.error("查询商品索引配置失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * 切换配置档位（大批量导入前切到bulk-load，导入完切回serving）
+     */
+    @PutMapping("/index/settings/{profile}")
+    public ResponseEntity<String> applyProductIndexSettingsProfile(@PathVariable String profile) {
+        try {
+            productService.applyProductIndexSettingsProfile(profile);
+            return ResponseEntity.ok("商品索引已切换配置档位：" + profile);
+        } catch (IllegalArgumentException e) {
+            log.error("切换商品索引配置档位参数错误", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("切换商品索引配置档位失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("切换失败：" + e.getMessage());
+        }
+    }
+
+    // ====================== 分类聚合快照 ======================
+    /**
+     * 快照年龄、计算耗时、计算次数
+     */
+    @GetMapping("/agg/snapshot")
+    public ResponseEntity<Map<String, Object>> getAggSnapshotStats() {
+        try {
+            return ResponseEntity.ok(productService.getAggSnapshotStats());
+        } catch (Exception e) {
+            log.error("查询分类聚合快照指标失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * 强制重新计算快照（如批量调整分类后立即生效）
+     */
+    @PostMapping("/agg/snapshot/refresh")
+    public ResponseEntity<Map<String, Object>> refreshAggSnapshot() {
+        try {
+            return ResponseEntity.ok(productService.refreshAggSnapshot());
+        } catch (Exception e) {
+            log.error("刷新分类聚合快照失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 商品全量导出 ======================
+    /**
+     * 全量导出直接写响应（合作方商品源/数仓拉取），边扫描边输出
+     * - format：ndjson（默认）/csv；slices>1时按切片并行扫描；gzip=true时输出gzip压缩流
+     * - 响应头X-Export-Job-Id可用于查询本次导出的吞吐指标
+     * - 已开始输出后失败：NDJSON最后一行为错误行；CSV无法标记，抛出异常由容器中断连接，避免客户端误认为导出完整
+     */
+    @GetMapping("/export")
+    public void exportProducts(@RequestParam(required = false, defaultValue = "ndjson") String format,
+                               @RequestParam(required = false, defaultValue = "1") int slices,
+                               @RequestParam(required = false, defaultValue = "false") boolean gzip,
+                               HttpServletResponse response) throws IOException {
+        ExportJob job = null;
+        try {
+            job = productService.prepareProductExport(format, slices, gzip);
+            String fileName = "products-" + job.getJobId() + "." + job.getFormat().getExtension() + (gzip ? ".gz" : "");
+            response.setContentType(gzip ? "application/gzip" : job.getFormat().getContentType());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
+            response.setHeader("X-Export-Job-Id", job.getJobId());
+            productService.exportProducts(job, response.getOutputStream());
+        } catch (IllegalArgumentException e) {
+            log.error("商品导出参数错误", e);
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+        } catch (IllegalStateException e) {
+            log.warn("商品导出被拒绝：{}", e.getMessage());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        } catch (Exception e) {
+            log.error("商品导出失败", e);
+            if (!response.isCommitted()) {
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            } else if (job == null || job.getFormat() != ExportJob.Format.NDJSON) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 后台导出到服务器gzip文件，立即返回任务
+     */
+    @PostMapping("/export/job")
+    public ResponseEntity<ExportJob> submitProductExportFile(@RequestParam(required = false, defaultValue = "ndjson") String format,
+                                                             @RequestParam(required = false, defaultValue = "1") int slices) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(productService.submitProductExportFile(format, slices));
+        } catch (IllegalArgumentException e) {
+            log.error("提交商品导出任务参数错误", e);
+            return ResponseEntity.badRequest().body(null);
+        } catch (IllegalStateException e) {
+            log.warn("提交商品导出任务被拒绝：{}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(null);
+        } catch (Exception e) {
+            log.error("提交商品导出任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * 导出任务进度与吞吐（条/秒、字节/秒、扫描等待/写出/背压阻塞耗时）
+     */
+    @GetMapping("/export/job/{jobId}")
+    public ResponseEntity<ExportJob> getExportJob(@PathVariable String jobId) {
+        try {
+            ExportJob job = productService.getExportJob(jobId);
+            if (job != null) {
+                return ResponseEntity.ok(job);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (Exception e) {
+            log.error("查询商品导出任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 索引重建（无停机） ======================
+    /**
+     * 提交索引重建任务，立即返回任务（通过任务ID查询进度）
+     */
+    @PostMapping("/reindex")
+    public ResponseEntity<ReindexJob> startReindex() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(productService.startReindex());
+        } catch (IllegalStateException e) {
+            log.warn("提交索引重建任务失败：{}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        } catch (Exception e) {
+            log.error("提交索引重建任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @GetMapping("/reindex/{jobId}")
+    public ResponseEntity<ReindexJob> getReindexJob(@PathVariable String jobId) {
+        try {
+            ReindexJob job = productService.getReindexJob(jobId);
+            if (job != null) {
+                return ResponseEntity.ok(job);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (Exception e) {
+            log.error("查询索引重建任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.ecommerce.es.controller;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.resilience.EsOverloadedException;
+import com.ecommerce.es.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * author Nami
+ * date 2026/1/15 10:20
+ * description 商品非阻塞查询接口
+ * - 基于ES异步客户端，等待ES响应期间释放Tomcat工作线程，ES抖动时不会占满线程池
+ * - 每个接口单独配置超时时间，超时后按接口返回降级结果
+ * - ES过载保护拒绝的请求立即返回503 + Retry-After，不等到超时
+ */
+@RestController
+@RequestMapping("/product/async")
+@RequiredArgsConstructor
+@Slf4j
+public class ProductAsyncController {
+
+    private final ProductService productService;
+
+    @Value("${async.timeout.search:3000}")
+    private long searchTimeoutMillis;
+
+    @Value("${async.timeout.detail:1000}")
+    private long detailTimeoutMillis;
+
+    @Value("${async.timeout.agg:5000}")
+    private long aggTimeoutMillis;
+
+    // ====================== 商品详情（超时返回504） ======================
+    @GetMapping("/{productId}")
+    public DeferredResult<ResponseEntity<Product>> getProductById(@PathVariable String productId) {
+        DeferredResult<ResponseEntity<Product>> deferredResult =
+                new DeferredResult<>(detailTimeoutMillis, ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build());
+        try {
+            bind(deferredResult, productService.getProductByIdAsync(productId),
+                    product -> product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build(),
+                    "查询商品失败");
+        } catch (IllegalArgumentException e) {
+            log.error("查询商品参数错误", e);
+            deferredResult.setResult(ResponseEntity.badRequest().body(null));
+        }
+        return deferredResult;
+    }
+
+    // ====================== 商品搜索（超时降级为空列表+503） ======================
+    @GetMapping("/search")
+    public DeferredResult<ResponseEntity<List<Product>>> searchProduct(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false) String sortField,
+            @RequestParam(required = false, defaultValue = "Desc") SortOrder sortOrder
+    ) {
+        DeferredResult<ResponseEntity<List<Product>>> deferredResult = new DeferredResult<>(searchTimeoutMillis,
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.<Product>emptyList()));
+        try {
+            bind(deferredResult, productService.searchProductAsync(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder),
+                    ResponseEntity::ok, "商品搜索失败");
+        } catch (IllegalArgumentException e) {
+            log.error("商品搜索参数错误", e);
+            deferredResult.setResult(ResponseEntity.badRequest().body(null));
+        }
+        return deferredResult;
+    }
+
+    // ====================== 商品聚合（超时降级为空结果+503） ======================
+    @GetMapping("/agg/category")
+    public DeferredResult<ResponseEntity<Map<String, Long>>> aggProductByCategory() {
+        DeferredResult<ResponseEntity<Map<String, Long>>> deferredResult = new DeferredResult<>(aggTimeoutMillis,
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.<String, Long>emptyMap()));
+        bind(deferredResult, productService.aggProductByCategoryAsync(), ResponseEntity::ok, "商品分类聚合失败");
+        return deferredResult;
+    }
+
+    @GetMapping("/agg/category/sub")
+    public DeferredResult<ResponseEntity<Map<String, Map<String, Long>>>> aggProductByCategoryAndSubCategory() {
+        DeferredResult<ResponseEntity<Map<String, Map<String, Long>>>> deferredResult = new DeferredResult<>(aggTimeoutMillis,
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.<String, Map<String, Long>>emptyMap()));
+        bind(deferredResult, productService.aggProductByCategoryAndSubCategoryAsync(), ResponseEntity::ok, "商品二级分类聚合失败");
+        return deferredResult;
+    }
+
+    /**
+     * ES结果回写到DeferredResult（超时后到达的结果会被忽略）
+     */
+    private <T, R> void bind(DeferredResult<ResponseEntity<R>> deferredResult, CompletableFuture<T> future,
+                             Function<T, ResponseEntity<R>> onSuccess, String errorMessage) {
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                deferredResult.setResult(onSuccess.apply(result));
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof EsOverloadedException) {
+                // ES过载保护拒绝：503 + Retry-After
+                log.warn("{}：{}", errorMessage, cause.getMessage());
+                deferredResult.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(((EsOverloadedException) cause).getRetryAfterSeconds()))
+                        .body(null));
+                return;
+            }
+            log.error(errorMessage, cause);
+            if (cause instanceof IllegalArgumentException) {
+                deferredResult.setResult(ResponseEntity.badRequest().body(null));
+            } else {
+                deferredResult.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null));
+            }
+        });
+    }
+}
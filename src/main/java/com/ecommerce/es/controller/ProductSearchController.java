@@ -1,15 +1,28 @@
 package com.ecommerce.es.controller;
 
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.ecommerce.es.entity.BulkIngestJob;
 import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductFacetQuery;
+import com.ecommerce.es.entity.ProductFacetResult;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.entity.ProductLookupItem;
+import com.ecommerce.es.resilience.EsOverloadedException;
 import com.ecommerce.es.service.ProductService;
+import com.ecommerce.es.util.EsResponseUtil;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -17,14 +30,22 @@ import java.util.Map;
  * author Nami
  * date 2026/1/5 15:45
  * description 商品搜索接口
+ * - 每个接口按uri/method/status记录耗时直方图（product.search.requests），用于观察p99回归
  */
 @RestController
+@Timed(value = "product.search.requests", histogram = true, description = "商品搜索接口耗时")
 @RequestMapping("/product")
 @RequiredArgsConstructor
 @Slf4j
 public class ProductSearchController {
 
     private final ProductService productService;
+    // 游标翻页默认页大小
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 20;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    // 搜索结果视图：完整商品 / 列表页精简视图
+    private static final String VIEW_FULL = "full";
+    private static final String VIEW_LIST = "list";
 
     // ====================== 索引管理接口（电商运维） ======================
     @PostMapping("/index/create")
@@ -58,6 +79,9 @@ public class ProductSearchController {
         } catch (IllegalArgumentException e) {
             log.error("新增商品参数错误", e);
             return ResponseEntity.badRequest().body("参数错误：" + e.getMessage());
+        } catch (EsOverloadedException e) {
+            log.warn("新增商品失败：{}", e.getMessage());
+            return serviceUnavailable(e, "新增失败：" + e.getMessage());
         } catch (Exception e) {
             log.error("新增商品失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("新增失败：" + e.getMessage());
@@ -72,12 +96,67 @@ public class ProductSearchController {
         } catch (IllegalArgumentException e) {
             log.error("批量新增商品参数错误", e);
             return ResponseEntity.badRequest().body("参数错误：" + e.getMessage());
+        } catch (EsOverloadedException e) {
+            log.warn("批量新增商品失败：{}", e.getMessage());
+            return serviceUnavailable(e, "批量新增失败：" + e.getMessage());
         } catch (Exception e) {
             log.error("批量新增商品失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("批量新增失败：" + e.getMessage());
         }
     }
 
+    /**
+     * 异步批量导入（大批量上架），立即返回任务ID，通过任务查询接口获取进度
+     */
+    @PostMapping("/batch/async")
+    public ResponseEntity<BulkIngestJob> submitBatchSaveJob(@RequestBody List<Product> productList) {
+        try {
+            BulkIngestJob job = productService.submitBatchSaveJob(productList);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            log.error("批量导入商品参数错误", e);
+            return ResponseEntity.badRequest().body(null);
+        } catch (Exception e) {
+            log.error("提交批量导入任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    /**
+     * 流式导入（商品目录文件），支持NDJSON（每行一个商品）或JSON数组，请求体边读边写入ES
+     */
+    @PostMapping(value = "/batch/import", consumes = {NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> importProducts(InputStream inputStream) {
+        try {
+            BulkIngestJob job = productService.importProducts(inputStream);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            log.error("流式导入商品参数错误", e);
+            return ResponseEntity.badRequest().body("参数错误：" + e.getMessage());
+        } catch (Exception e) {
+            log.error("流式导入商品失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    @GetMapping("/batch/job/{jobId}")
+    public ResponseEntity<BulkIngestJob> getBatchSaveJob(@PathVariable String jobId) {
+        try {
+            BulkIngestJob job = productService.getBatchSaveJob(jobId);
+            if (job != null) {
+                return ResponseEntity.ok(job);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalArgumentException e) {
+            log.error("查询批量导入任务参数错误", e);
+            return ResponseEntity.badRequest().body(null);
+        } catch (Exception e) {
+            log.error("查询批量导入任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     @GetMapping("/{productId}")
     public ResponseEntity<Product> getProductById(@PathVariable String productId) {
         try {
@@ -90,12 +169,36 @@ public class ProductSearchController {
         } catch (IllegalArgumentException e) {
             log.error("查询商品参数错误", e);
             return ResponseEntity.badRequest().body(null);
+        } catch (EsOverloadedException e) {
+            log.warn("查询商品失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
         } catch (Exception e) {
             log.error("查询商品失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /**
+     * 批量查询商品详情（购物车/订单/推荐页），请求体为商品ID数组，结果与ID顺序一致
+     * @param fields 只返回指定字段（如productName,price），为空返回全部字段
+     */
+    @PostMapping("/mget")
+    public ResponseEntity<List<ProductLookupItem>> getProductsByIds(@RequestBody List<String> productIds,
+                                                                    @RequestParam(required = false) List<String> fields) {
+        try {
+            return ResponseEntity.ok(productService.getProductsByIds(productIds, fields));
+        } catch (IllegalArgumentException e) {
+            log.error("批量查询商品参数错误", e);
+            return ResponseEntity.badRequest().body(null);
+        } catch (EsOverloadedException e) {
+            log.warn("批量查询商品失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
+        } catch (Exception e) {
+            log.error("批量查询商品失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     @PutMapping("/update")
     public ResponseEntity<String> updateProduct(@RequestBody Product product) {
         try {
@@ -104,6 +207,9 @@ public class ProductSearchController {
         } catch (IllegalArgumentException e) {
             log.error("更新商品参数错误", e);
             return ResponseEntity.badRequest().body("参数错误：" + e.getMessage());
+        } catch (EsOverloadedException e) {
+            log.warn("更新商品失败：{}", e.getMessage());
+            return serviceUnavailable(e, "更新失败：" + e.getMessage());
         } catch (Exception e) {
             log.error("更新商品失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("更新失败：" + e.getMessage());
@@ -118,6 +224,9 @@ public class ProductSearchController {
         } catch (IllegalArgumentException e) {
             log.error("删除商品参数错误", e);
             return ResponseEntity.badRequest().body("参数错误：" + e.getMessage());
+        } catch (EsOverloadedException e) {
+            log.warn("删除商品失败：{}", e.getMessage());
+            return serviceUnavailable(e, "删除失败：" + e.getMessage());
         } catch (Exception e) {
             log.error("删除商品失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("删除失败：" + e.getMessage());
@@ -125,17 +234,42 @@ public class ProductSearchController {
     }
 
     // ====================== 商品搜索接口（电商核心） ======================
+    /**
+     * 商品搜索
+     * - 不传cursor/pageSize：返回商品列表（最多100条）
+     * - 传cursor或pageSize：游标翻页模式，返回分页结果，nextCursor传给下一次请求（首页cursor传空）
+     * - view=list：列表页精简视图，只返回列表卡片需要的字段（不含描述等大字段）
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProduct(
+    public ResponseEntity<?> searchProduct(
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) List<String> tags,
             @RequestParam(required = false) String sortField,
-            @RequestParam(required = false, defaultValue = "Desc") SortOrder sortOrder
+            @RequestParam(required = false, defaultValue = "Desc") SortOrder sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false, defaultValue = VIEW_FULL) String view
     ) {
         try {
+            boolean listView = VIEW_LIST.equalsIgnoreCase(view);
+            if (cursor != null || pageSize != null) {
+                int size = pageSize == null ? DEFAULT_CURSOR_PAGE_SIZE : pageSize;
+                EsResponseUtil.EsPageResult<?> pageResult = listView
+                        ? productService.searchProductListByCursor(keyword, minPrice, maxPrice, category, tags,
+                                sortField, sortOrder, cursor, size)
+                        : productService.searchProductByCursor(keyword, minPrice, maxPrice, category, tags,
+                                sortField, sortOrder, cursor, size);
+                return ResponseEntity.ok(pageResult);
+            }
+            if (listView) {
+                List<ProductListItem> itemList = productService.searchProductList(
+                        keyword, minPrice, maxPrice, category, tags, sortField, sortOrder
+                );
+                return ResponseEntity.ok(itemList);
+            }
             List<Product> productList = productService.searchProduct(
                     keyword, minPrice, maxPrice, category, tags, sortField, sortOrder
             );
@@ -143,18 +277,78 @@ public class ProductSearchController {
         } catch (IllegalArgumentException e) {
             log.error("商品搜索参数错误", e);
             return ResponseEntity.badRequest().body(null);
+        } catch (EsOverloadedException e) {
+            log.warn("商品搜索失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
         } catch (Exception e) {
             log.error("商品搜索失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /**
+     * 分面搜索（列表页筛选栏）：一次请求返回当前页商品、分类/子分类/标签/商家计数、价格分布
+     * - 多选参数重复传递，如 categories=手机&categories=平板
+     */
+    @GetMapping("/search/facets")
+    public ResponseEntity<ProductFacetResult> searchProductFacets(ProductFacetQuery facetQuery) {
+        try {
+            return ResponseEntity.ok(productService.searchProductFacets(facetQuery));
+        } catch (IllegalArgumentException e) {
+            log.error("商品分面搜索参数错误", e);
+            return ResponseEntity.badRequest().body(null);
+        } catch (EsOverloadedException e) {
+            log.warn("商品分面搜索失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
+        } catch (Exception e) {
+            log.error("商品分面搜索失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 搜索联想接口（输入框按键触发） ======================
+    /**
+     * 前缀联想：优先查本地前缀索引，未就绪时查询ES completion
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggestProduct(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false, defaultValue = "10") int size
+    ) {
+        try {
+            return ResponseEntity.ok(productService.suggestProduct(prefix, size));
+        } catch (IllegalArgumentException e) {
+            log.error("搜索联想参数错误", e);
+            return ResponseEntity.badRequest().body(null);
+        } catch (EsOverloadedException e) {
+            log.warn("搜索联想失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
+        } catch (Exception e) {
+            log.error("搜索联想失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // ====================== 缓存监控接口（电商运维） ======================
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        try {
+            return ResponseEntity.ok(productService.getProductCacheStats());
+        } catch (Exception e) {
+            log.error("查询商品缓存指标失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     // ====================== 商品聚合接口（电商运营） ======================
     @GetMapping("/agg/category")
     public ResponseEntity<Map<String, Long>> aggProductByCategory() {
         try {
             Map<String, Long> result = productService.aggProductByCategory();
             return ResponseEntity.ok(result);
+        } catch (EsOverloadedException e) {
+            log.warn("商品分类聚合失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
         } catch (Exception e) {
             log.error("商品分类聚合失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -166,9 +360,49 @@ public class ProductSearchController {
         try {
             Map<String, Map<String, Long>> result = productService.aggProductByCategoryAndSubCategory();
             return ResponseEntity.ok(result);
+        } catch (EsOverloadedException e) {
+            log.warn("商品二级分类聚合失败：{}", e.getMessage());
+            return serviceUnavailable(e, null);
         } catch (Exception e) {
             log.error("商品二级分类聚合失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
-}
+
+    /**
+     * 全量分桶统计（不受terms聚合size限制），NDJSON逐页输出
+     * - fields可多选（category/subCategory/merchantId/tags），多字段时按组合分桶
+     * - 每行一个分桶，如 {"category":"手机","subCategory":"华为","docCount":120}
+     * - 输出部分分桶后ES失败时，最后一行为 {"error":"...","bucketCount":N}，表示结果不完整
+     */
+    @GetMapping("/agg/stream")
+    public void streamProductAggBuckets(@RequestParam List<String> fields,
+                                        @RequestParam(required = false, defaultValue = "1000") int pageSize,
+                                        HttpServletResponse response) {
+        try {
+            // 先校验参数，写出第一页之前仍可返回400
+            productService.validateAggBucketStream(fields, pageSize);
+            response.setContentType(NDJSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            long bucketCount = productService.streamProductAggBuckets(fields, pageSize, response.getOutputStream());
+            log.info("全量分桶统计输出完成，字段：{}，分桶数：{}", fields, bucketCount);
+        } catch (IllegalArgumentException e) {
+            log.error("全量分桶统计参数错误", e);
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+        } catch (Exception e) {
+            log.error("全量分桶统计输出失败", e);
+            if (!response.isCommitted()) {
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+    }
+
+    /**
+     * ES过载保护拒绝请求：503 + Retry-After，客户端按提示时间后重试
+     */
+    private static <T> ResponseEntity<T> serviceUnavailable(EsOverloadedException e, T body) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.ecommerce.es.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * author Nami
+ * date 2026/1/9 14:20
+ * description 批量导入任务（异步批量上架进度）
+ */
+public class BulkIngestJob {
+    /** 失败明细最多保留条数（避免大批量失败时撑爆内存） */
+    private static final int MAX_FAILURE_DETAILS = 100;
+
+    public enum Status {
+        /** 导入中 */
+        RUNNING,
+        /** 全部成功 */
+        COMPLETED,
+        /** 导入结束，存在失败商品 */
+        COMPLETED_WITH_ERRORS,
+        /** 任务异常终止 */
+        FAILED
+    }
+
+    private final String jobId = UUID.randomUUID().toString().replace("-", "");
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime;
+    private volatile boolean submitFinished;
+    private volatile String errorMessage;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final List<String> failureDetails = Collections.synchronizedList(new ArrayList<>());
+
+    // ====================== 进度记录（导入线程调用） ======================
+    public void onSubmitted() {
+        submittedCount.incrementAndGet();
+    }
+
+    public void onSuccess() {
+        successCount.incrementAndGet();
+        checkCompleted();
+    }
+
+    public void onFailure(String productId, String reason) {
+        failureCount.incrementAndGet();
+        if (failureDetails.size() < MAX_FAILURE_DETAILS) {
+            failureDetails.add(productId + "：" + reason);
+        }
+        checkCompleted();
+    }
+
+    public void onRetry() {
+        retryCount.incrementAndGet();
+    }
+
+    /**
+     * 所有商品已提交（之后只需等待在途批次返回）
+     */
+    public void finishSubmit() {
+        submitFinished = true;
+        checkCompleted();
+    }
+
+    /**
+     * 任务异常终止（如导入数据解析失败）
+     */
+    public synchronized void abort(String message) {
+        errorMessage = message;
+        submitFinished = true;
+        if (endTime == 0) {
+            endTime = System.currentTimeMillis();
+        }
+        notifyAll();
+    }
+
+    /**
+     * 等待任务结束
+     * @return 超时前是否结束
+     */
+    public synchronized boolean await(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!isFinished()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private synchronized void checkCompleted() {
+        if (endTime == 0 && submitFinished
+                && successCount.get() + failureCount.get() >= submittedCount.get()) {
+            endTime = System.currentTimeMillis();
+            notifyAll();
+        }
+    }
+
+    // ====================== 进度查询 ======================
+    public boolean isFinished() {
+        return endTime != 0;
+    }
+
+    public Status getStatus() {
+        if (errorMessage != null) {
+            return Status.FAILED;
+        }
+        if (!isFinished()) {
+            return Status.RUNNING;
+        }
+        return failureCount.get() == 0 ? Status.COMPLETED : Status.COMPLETED_WITH_ERRORS;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public List<String> getFailureDetails() {
+        synchronized (failureDetails) {
+            return new ArrayList<>(failureDetails);
+        }
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getElapsedMillis() {
+        return (isFinished() ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    /** 写入吞吐（条/秒） */
+    public long getDocsPerSecond() {
+        long elapsed = Math.max(getElapsedMillis(), 1);
+        return (successCount.get() + failureCount.get()) * 1000 / elapsed;
+    }
+}
@@ -0,0 +1,179 @@
+package com.ecommerce.es.entity;
+
+import com.ecommerce.es.util.CompactValues;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * author Nami
+ * date 2026/1/20 10:00
+ * description 商品紧凑表示（详情缓存等长期驻留场景使用）
+ * - 价格存long分和原始小数位（不是整分的价格保留原值）、上架/更新时间存毫秒、库存/销量/评分存基本类型，标签存驻留后的String数组
+ * - 不可变，缓存命中时通过toProduct复制出新对象，调用方修改不会污染缓存
+ * - JSON格式与Product完全一致（字段顺序、日期格式、空值输出），可直接作为接口返回或写入远程缓存
+ */
+@JsonSerialize(using = CompactProduct.Serializer.class)
+@JsonDeserialize(using = CompactProduct.Deserializer.class)
+public final class CompactProduct {
+    // 与Product.createTime/updateTime的@JsonFormat保持一致
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.of("GMT+8"));
+
+    private final String id;
+    private final String productName;
+    private final String category;
+    private final String subCategory;
+    private final long priceCents;
+    // 价格原始小数位，还原时保持5999.00/19.90等写法不变
+    private final byte priceScale;
+    // 不能无损存为分时的原价格，其余情况为null
+    private final BigDecimal inexactPrice;
+    private final int stock;
+    private final int sales;
+    private final String[] tags;
+    private final long createTimeMillis;
+    private final String description;
+    private final String merchantId;
+    private final double score;
+    private final long updateTimeMillis;
+
+    private CompactProduct(Product product) {
+        this.id = product.getId();
+        this.productName = product.getProductName();
+        this.category = CompactValues.intern(product.getCategory());
+        this.subCategory = CompactValues.intern(product.getSubCategory());
+        this.priceCents = CompactValues.toExactCents(product.getPrice());
+        this.priceScale = CompactValues.toPriceScale(product.getPrice());
+        this.inexactPrice = priceCents == CompactValues.INEXACT_CENTS ? product.getPrice() : null;
+        this.stock = CompactValues.toInt(product.getStock());
+        this.sales = CompactValues.toInt(product.getSales());
+        this.tags = CompactValues.internArray(product.getTags());
+        this.createTimeMillis = toMillis(product.getCreateTime());
+        this.description = product.getDescription();
+        this.merchantId = CompactValues.intern(product.getMerchantId());
+        this.score = CompactValues.toDouble(product.getScore());
+        this.updateTimeMillis = toMillis(product.getUpdateTime());
+    }
+
+    private static long toMillis(Date date) {
+        return date == null ? CompactValues.NULL_LONG : date.getTime();
+    }
+
+    private static Date toDate(long millis) {
+        return millis == CompactValues.NULL_LONG ? null : new Date(millis);
+    }
+
+    public static CompactProduct from(Product product) {
+        return product == null ? null : new CompactProduct(product);
+    }
+
+    /**
+     * 还原为Product（每次返回新对象）
+     */
+    public Product toProduct() {
+        return new Product(id, productName, category, subCategory,
+                price(),
+                CompactValues.fromInt(stock),
+                CompactValues.fromInt(sales),
+                CompactValues.toList(tags),
+                toDate(createTimeMillis),
+                description, merchantId,
+                CompactValues.fromDouble(score),
+                toDate(updateTimeMillis));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 价格（分），不能无损存为分时为CompactValues.INEXACT_CENTS
+     */
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    private BigDecimal price() {
+        return inexactPrice != null ? inexactPrice : CompactValues.fromCents(priceCents, priceScale);
+    }
+
+    public long getCreateTimeMillis() {
+        return createTimeMillis;
+    }
+
+    /**
+     * 按Product的字段顺序和格式输出
+     */
+    public static class Serializer extends JsonSerializer<CompactProduct> {
+        @Override
+        public void serialize(CompactProduct value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("id", value.id);
+            gen.writeStringField("productName", value.productName);
+            gen.writeStringField("category", value.category);
+            gen.writeStringField("subCategory", value.subCategory);
+            if (value.priceCents == CompactValues.NULL_LONG) {
+                gen.writeNullField("price");
+            } else {
+                gen.writeNumberField("price", value.price());
+            }
+            writeIntField(gen, "stock", value.stock);
+            writeIntField(gen, "sales", value.sales);
+            if (value.tags == null) {
+                gen.writeNullField("tags");
+            } else {
+                gen.writeArrayFieldStart("tags");
+                for (String tag : value.tags) {
+                    gen.writeString(tag);
+                }
+                gen.writeEndArray();
+            }
+            writeTimeField(gen, "createTime", value.createTimeMillis);
+            gen.writeStringField("description", value.description);
+            gen.writeStringField("merchantId", value.merchantId);
+            if (Double.isNaN(value.score)) {
+                gen.writeNullField("score");
+            } else {
+                gen.writeNumberField("score", value.score);
+            }
+            writeTimeField(gen, "updateTime", value.updateTimeMillis);
+            gen.writeEndObject();
+        }
+
+        private static void writeTimeField(JsonGenerator gen, String name, long millis) throws IOException {
+            gen.writeStringField(name, millis == CompactValues.NULL_LONG
+                    ? null : TIME_FORMATTER.format(Instant.ofEpochMilli(millis)));
+        }
+
+        private static void writeIntField(JsonGenerator gen, String name, int value) throws IOException {
+            if (value == CompactValues.NULL_INT) {
+                gen.writeNullField(name);
+            } else {
+                gen.writeNumberField(name, value);
+            }
+        }
+    }
+
+    /**
+     * 按Product格式解析（日期格式等规则与Product一致）
+     */
+    public static class Deserializer extends JsonDeserializer<CompactProduct> {
+        @Override
+        public CompactProduct deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return from(ctxt.readValue(p, Product.class));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.ecommerce.es.entity;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * author Nami
+ * date 2026/1/23 10:00
+ * description 商品全量导出任务（导出进度与吞吐指标）
+ */
+public class ExportJob {
+
+    public enum Status {
+        /** 导出中 */
+        RUNNING,
+        /** 导出完成 */
+        COMPLETED,
+        /** 导出失败（ES异常、客户端断开、写文件失败等） */
+        FAILED
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String format) {
+            if (format == null || format.isEmpty()) {
+                return NDJSON;
+            }
+            try {
+                return valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("导出格式仅支持ndjson/csv");
+            }
+        }
+    }
+
+    private final String jobId = UUID.randomUUID().toString().replace("-", "");
+    private final long startTime = System.currentTimeMillis();
+    private final Format format;
+    private final int slices;
+    private final boolean gzip;
+    // 导出目标：stream（直接写HTTP响应）或文件路径
+    private volatile String target;
+    private volatile long endTime;
+    private volatile String errorMessage;
+
+    private final AtomicLong docCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    // 写出的字节数（gzip时为压缩后大小）
+    private final AtomicLong byteCount = new AtomicLong();
+    // 各分片累计等待ES返回的时长
+    private final AtomicLong scanMillis = new AtomicLong();
+    // 写出（序列化+输出流）时长
+    private final AtomicLong writeMillis = new AtomicLong();
+    // 扫描线程因写出跟不上而阻塞的时长（背压）
+    private final AtomicLong blockedMillis = new AtomicLong();
+
+    public ExportJob(Format format, int slices, boolean gzip, String target) {
+        this.format = format;
+        this.slices = slices;
+        this.gzip = gzip;
+        this.target = target;
+    }
+
+    // ====================== 进度记录（导出线程调用） ======================
+    public void onBatchScanned(long scanCostMillis) {
+        batchCount.incrementAndGet();
+        scanMillis.addAndGet(scanCostMillis);
+    }
+
+    public void onBatchWritten(int docs, long writeCostMillis) {
+        docCount.addAndGet(docs);
+        writeMillis.addAndGet(writeCostMillis);
+    }
+
+    public void onBlocked(long millis) {
+        blockedMillis.addAndGet(millis);
+    }
+
+    public void setByteCount(long bytes) {
+        byteCount.set(bytes);
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public synchronized void complete() {
+        if (endTime == 0) {
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized void fail(String message) {
+        if (endTime == 0) {
+            errorMessage = message;
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    // ====================== 进度查询 ======================
+    public boolean isFinished() {
+        return endTime != 0;
+    }
+
+    public Status getStatus() {
+        if (errorMessage != null) {
+            return Status.FAILED;
+        }
+        return isFinished() ? Status.COMPLETED : Status.RUNNING;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getDocCount() {
+        return docCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    public long getScanMillis() {
+        return scanMillis.get();
+    }
+
+    public long getWriteMillis() {
+        return writeMillis.get();
+    }
+
+    public long getBlockedMillis() {
+        return blockedMillis.get();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getElapsedMillis() {
+        return (isFinished() ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    /** 导出吞吐（条/秒） */
+    public long getDocsPerSecond() {
+        return docCount.get() * 1000 / Math.max(getElapsedMillis(), 1);
+    }
+
+    /** 导出吞吐（字节/秒） */
+    public long getBytesPerSecond() {
+        return byteCount.get() * 1000 / Math.max(getElapsedMillis(), 1);
+    }
+}
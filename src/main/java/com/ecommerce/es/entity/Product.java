@@ -46,4 +46,7 @@ public class Product {
     private String merchantId;
     /** 商品评分（排序/筛选） */
     private Double score;
+    /** 更新时间（写入时由服务端设置，重建索引时按此补齐复制期间的变更） */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date updateTime;
 }
@@ -0,0 +1,58 @@
+package com.ecommerce.es.entity;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * author Nami
+ * date 2026/1/22 09:30
+ * description 商品分类聚合快照（运营看板读取，不可变，定时/按写入量重新计算后整体替换）
+ */
+public final class ProductAggSnapshot {
+    // 分类 -> 商品数
+    private final Map<String, Long> categoryCounts;
+    // 分类 -> 子分类 -> 商品数
+    private final Map<String, Map<String, Long>> subCategoryCounts;
+    // 计算完成时间
+    private final long computedAt;
+    // 计算耗时（毫秒，含网络与解析）
+    private final long computeMillis;
+    // ES执行耗时（毫秒）
+    private final long esTookMillis;
+
+    public ProductAggSnapshot(Map<String, Long> categoryCounts, Map<String, Map<String, Long>> subCategoryCounts,
+                              long computedAt, long computeMillis, long esTookMillis) {
+        this.categoryCounts = Collections.unmodifiableMap(categoryCounts);
+        this.subCategoryCounts = Collections.unmodifiableMap(subCategoryCounts);
+        this.computedAt = computedAt;
+        this.computeMillis = computeMillis;
+        this.esTookMillis = esTookMillis;
+    }
+
+    public Map<String, Long> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    public Map<String, Map<String, Long>> getSubCategoryCounts() {
+        return subCategoryCounts;
+    }
+
+    public long getComputedAt() {
+        return computedAt;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    public long getEsTookMillis() {
+        return esTookMillis;
+    }
+
+    /**
+     * 快照年龄（毫秒）
+     */
+    public long ageMillis() {
+        return System.currentTimeMillis() - computedAt;
+    }
+}
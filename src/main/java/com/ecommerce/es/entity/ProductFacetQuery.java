@@ -0,0 +1,38 @@
+package com.ecommerce.es.entity;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * author Nami
+ * date 2026/1/21 10:10
+ * description 分面搜索条件（列表页左侧筛选栏，各分面内多选为“或”，分面之间为“且”）
+ */
+@Data
+public class ProductFacetQuery {
+    /** 搜索关键词（为空时为分类浏览） */
+    private String keyword;
+    /** 分类（多选） */
+    private List<String> categories;
+    /** 子分类（多选） */
+    private List<String> subCategories;
+    /** 标签（多选） */
+    private List<String> tags;
+    /** 商家ID（多选） */
+    private List<String> merchantIds;
+    /** 价格区间 */
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    /** 价格直方图区间宽度（元） */
+    private double priceInterval = 500;
+    /** 每个分面最多返回的取值数量 */
+    private int facetSize = 20;
+    private String sortField;
+    private SortOrder sortOrder = SortOrder.Desc;
+    /** 页码（从1开始） */
+    private int page = 1;
+    private int pageSize = 20;
+}
@@ -0,0 +1,26 @@
+package com.ecommerce.es.entity;
+
+import com.ecommerce.es.util.EsResponseUtil;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * author Nami
+ * date 2026/1/21 10:20
+ * description 分面搜索结果（一次ES请求返回：当前页商品 + 各分面计数 + 价格分布）
+ * - 分面计数不受本分面已选条件影响（选中“手机”后仍能看到其他分类的数量，便于多选）
+ */
+@Data
+public class ProductFacetResult {
+    /** 当前页商品（列表视图） */
+    private EsResponseUtil.EsPageResult<ProductListItem> page;
+    /** 分面计数：分面字段（category/subCategory/tags/merchantId） -> 取值 -> 商品数（按数量降序） */
+    private Map<String, Map<String, Long>> facets;
+    /** 价格直方图：区间下限 -> 商品数 */
+    private Map<String, Long> priceHistogram;
+    /** 价格直方图实际区间宽度（请求的宽度过小时会放宽，保证桶数有上限） */
+    private double priceInterval;
+    /** 价格统计：count/min/max/avg */
+    private Map<String, Object> priceStats;
+}
@@ -0,0 +1,112 @@
+package com.ecommerce.es.entity;
+
+import com.ecommerce.es.util.CompactValues;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * author Nami
+ * date 2026/1/16 09:30
+ * description 商品列表页精简视图（只包含列表卡片渲染需要的字段，不含描述等大字段）
+ * - 内部紧凑存储：价格存long分和原始小数位（不是整分的价格保留原值），销量/评分存基本类型，分类/标签驻留；getter/setter保持原类型，JSON格式不变
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"id", "productName", "category", "price", "sales", "score", "tags"})
+public class ProductListItem {
+    /** 列表视图需要从ES _source读取的字段 */
+    public static final List<String> SOURCE_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "id", "productName", "category", "price", "sales", "score", "tags"));
+
+    /** 商品ID */
+    private String id;
+    /** 商品名称 */
+    private String productName;
+    /** 商品分类（驻留） */
+    @Setter(AccessLevel.NONE)
+    private String category;
+    /** 商品价格（分） */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long priceCents = CompactValues.NULL_LONG;
+    /** 价格原始小数位 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private byte priceScale;
+    /** 不能无损存为分时的原价格 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BigDecimal inexactPrice;
+    /** 销量 */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int sales = CompactValues.NULL_INT;
+    /** 商品评分（空值为NaN） */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private double score = Double.NaN;
+    /** 商品标签（列表卡片角标：新品、包邮等，驻留） */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String[] tags;
+
+    public ProductListItem(String id, String productName, String category, BigDecimal price,
+                           Integer sales, Double score, List<String> tags) {
+        this.id = id;
+        this.productName = productName;
+        setCategory(category);
+        setPrice(price);
+        setSales(sales);
+        setScore(score);
+        setTags(tags);
+    }
+
+    public void setCategory(String category) {
+        this.category = CompactValues.intern(category);
+    }
+
+    public BigDecimal getPrice() {
+        return inexactPrice != null ? inexactPrice : CompactValues.fromCents(priceCents, priceScale);
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.priceCents = CompactValues.toExactCents(price);
+        this.priceScale = CompactValues.toPriceScale(price);
+        this.inexactPrice = priceCents == CompactValues.INEXACT_CENTS ? price : null;
+    }
+
+    public Integer getSales() {
+        return CompactValues.fromInt(sales);
+    }
+
+    public void setSales(Integer sales) {
+        this.sales = CompactValues.toInt(sales);
+    }
+
+    public Double getScore() {
+        return CompactValues.fromDouble(score);
+    }
+
+    public void setScore(Double score) {
+        this.score = CompactValues.toDouble(score);
+    }
+
+    public List<String> getTags() {
+        return CompactValues.asListView(tags);
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = CompactValues.internArray(tags);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.es.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * author Nami
+ * date 2026/1/14 11:05
+ * description 批量查询商品的单条结果（与请求ID顺序一致）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductLookupItem {
+    /** 商品ID（请求中的ID） */
+    private String id;
+    /** 是否找到商品 */
+    private boolean found;
+    /** 商品数据（未找到时为空） */
+    private Product product;
+    /** 查询失败原因（分片异常等，正常未找到时为空） */
+    private String error;
+
+    public static ProductLookupItem found(String id, Product product) {
+        return new ProductLookupItem(id, true, product, null);
+    }
+
+    public static ProductLookupItem notFound(String id) {
+        return new ProductLookupItem(id, false, null, null);
+    }
+
+    public static ProductLookupItem failed(String id, String error) {
+        return new ProductLookupItem(id, false, null, error);
+    }
+}
@@ -0,0 +1,170 @@
+package com.ecommerce.es.entity;
+
+import java.util.UUID;
+
+/**
+ * author Nami
+ * date 2026/1/17 14:20
+ * description 商品索引重建任务（无停机重建进度）
+ */
+public class ReindexJob {
+
+    public enum Phase {
+        /** 创建新版本索引（无副本、关闭刷新） */
+        CREATING_INDEX,
+        /** 全量复制旧索引数据 */
+        COPYING,
+        /** 恢复副本数/刷新间隔 */
+        RESTORING_SETTINGS,
+        /** 段合并 */
+        FORCE_MERGING,
+        /** 冻结旧索引写入，补齐复制期间旧索引上的变更 */
+        CATCHING_UP,
+        /** 原子切换读写别名 */
+        SWAPPING_ALIASES,
+        /** 完成 */
+        COMPLETED,
+        /** 失败（别名未切换时旧索引继续提供服务） */
+        FAILED
+    }
+
+    private final String jobId = UUID.randomUUID().toString().replace("-", "");
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime;
+    private volatile Phase phase = Phase.CREATING_INDEX;
+    private volatile String sourceIndex;
+    private volatile String targetIndex;
+    private volatile String taskId;
+    private volatile String errorMessage;
+
+    // 全量复制进度（来自ES reindex任务状态）
+    private volatile long total;
+    private volatile long created;
+    private volatile long updated;
+    private volatile long versionConflicts;
+    private volatile long batches;
+    private volatile long copyStartTime;
+    private volatile long copyEndTime;
+    // 补齐阶段复制 + 删除的文档数
+    private volatile long catchUpCount;
+
+    // ====================== 进度记录（重建线程调用） ======================
+    public void enterPhase(Phase phase) {
+        this.phase = phase;
+        if (phase == Phase.COPYING) {
+            copyStartTime = System.currentTimeMillis();
+        }
+    }
+
+    public void updateCopyProgress(String taskId, long total, long created, long updated, long versionConflicts, long batches) {
+        this.taskId = taskId;
+        this.total = total;
+        this.created = created;
+        this.updated = updated;
+        this.versionConflicts = versionConflicts;
+        this.batches = batches;
+    }
+
+    public void finishCopy() {
+        copyEndTime = System.currentTimeMillis();
+    }
+
+    public void setIndices(String sourceIndex, String targetIndex) {
+        this.sourceIndex = sourceIndex;
+        this.targetIndex = targetIndex;
+    }
+
+    public void setCatchUpCount(long catchUpCount) {
+        this.catchUpCount = catchUpCount;
+    }
+
+    public void complete() {
+        phase = Phase.COMPLETED;
+        endTime = System.currentTimeMillis();
+    }
+
+    public void fail(String message) {
+        errorMessage = message;
+        phase = Phase.FAILED;
+        endTime = System.currentTimeMillis();
+    }
+
+    // ====================== 进度查询 ======================
+    public boolean isFinished() {
+        return endTime != 0;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public String getSourceIndex() {
+        return sourceIndex;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getVersionConflicts() {
+        return versionConflicts;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getCatchUpCount() {
+        return catchUpCount;
+    }
+
+    /** 全量复制进度（0-100） */
+    public double getPercent() {
+        return total == 0 ? 0 : Math.min(100.0, (created + updated + versionConflicts) * 100.0 / total);
+    }
+
+    /** 全量复制吞吐（条/秒） */
+    public long getDocsPerSecond() {
+        if (copyStartTime == 0) {
+            return 0;
+        }
+        long elapsed = Math.max((copyEndTime != 0 ? copyEndTime : System.currentTimeMillis()) - copyStartTime, 1);
+        return (created + updated) * 1000 / elapsed;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getElapsedMillis() {
+        return (isFinished() ? endTime : System.currentTimeMillis()) - startTime;
+    }
+}
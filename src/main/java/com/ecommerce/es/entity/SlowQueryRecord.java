@@ -0,0 +1,42 @@
+package com.ecommerce.es.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+
+/**
+ * author Nami
+ * date 2026/1/26 10:00
+ * description ES慢查询记录（最慢N条保留在内存中，运维接口查看）
+ */
+@Getter
+public class SlowQueryRecord {
+    private final long timestamp = System.currentTimeMillis();
+    // 仓库方法名（searchProduct、aggProductByCategory等）
+    private final String operation;
+    // 仓库方法参数
+    private final String params;
+    // HTTP方法 + 路径（如 POST /ecommerce_product/_search）
+    private final String request;
+    // 序列化后的请求体（超长截断）
+    private final String query;
+    // ES服务端耗时（毫秒），-1表示响应不含took
+    private final long tookMillis;
+    // 客户端往返耗时（毫秒）
+    private final long latencyMillis;
+    // 抽样以profile=true重新执行的结果（未抽中或尚未完成为null）
+    private volatile JsonNode profile;
+
+    public SlowQueryRecord(String operation, String params, String request, String query,
+                           long tookMillis, long latencyMillis) {
+        this.operation = operation;
+        this.params = params;
+        this.request = request;
+        this.query = query;
+        this.tookMillis = tookMillis;
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setProfile(JsonNode profile) {
+        this.profile = profile;
+    }
+}
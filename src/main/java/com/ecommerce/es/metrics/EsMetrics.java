@@ -0,0 +1,237 @@
+package com.ecommerce.es.metrics;
+
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.SearchTemplateResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * author Nami
+ * date 2026/1/25 10:00
+ * description ES调用指标（Micrometer，/actuator/prometheus拉取）
+ * - es.operation：仓库方法耗时（含分块/多次请求/结果解析），按operation区分
+ * - es.client.requests：单次ES请求客户端往返耗时（含序列化/反序列化），按endpoint + operation区分
+ * - es.took：ES返回的服务端执行耗时，与往返耗时对比可区分ES慢还是网络/连接池/解析慢
+ * - es.hits：每次请求返回的文档数；es.bulk.items：bulk成功/失败条数；es.response.size：响应字节数（压缩后）
+ * - 直方图/百分位在application.yml的management.metrics.distribution中按指标名配置
+ */
+@Component
+@RequiredArgsConstructor
+public class EsMetrics {
+    // 不在仓库方法内发起的请求（批量导入器、重建索引、并行mget分块线程等）
+    static final String NO_OPERATION = "none";
+    static final String SUCCESS = "success";
+    static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+
+    // 当前线程正在执行的仓库方法及参数（异步请求在发起时读取）
+    private final ThreadLocal<OperationContext> currentContext = new ThreadLocal<>();
+
+    // Meter按标签组合缓存，热路径上不重复构建
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    // ====================== 操作上下文 ======================
+    /**
+     * 进入仓库方法，返回外层方法上下文（嵌套调用时按最外层方法统计请求）
+     */
+    public OperationContext enterOperation(String operation, Object[] args) {
+        OperationContext outer = currentContext.get();
+        if (outer == null) {
+            currentContext.set(new OperationContext(operation, args));
+        }
+        return outer;
+    }
+
+    public void exitOperation(OperationContext outer) {
+        if (outer == null) {
+            currentContext.remove();
+        }
+    }
+
+    public OperationContext currentContext() {
+        OperationContext context = currentContext.get();
+        return context == null ? OperationContext.NONE : context;
+    }
+
+    public String currentOperation() {
+        return currentContext().getOperation();
+    }
+
+    // ====================== 记录 ======================
+    /**
+     * 仓库方法耗时
+     */
+    public void recordOperation(String operation, long startNanos, Throwable error) {
+        String outcome = error == null ? SUCCESS : ERROR;
+        timer("es.operation|" + operation + "|" + outcome, key -> Timer.builder("es.operation")
+                .description("ES仓库方法耗时")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 单次ES请求往返耗时
+     */
+    public void recordRequest(String endpoint, String operation, long startNanos, Throwable error) {
+        String outcome = error == null ? SUCCESS : ERROR;
+        timer("es.client.requests|" + endpoint + "|" + operation + "|" + outcome, key -> Timer.builder("es.client.requests")
+                .description("ES请求客户端往返耗时")
+                .tag("endpoint", endpoint)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 从响应中提取服务端耗时、返回文档数、bulk失败条数
+     */
+    public void recordResponse(String endpoint, String operation, Object response) {
+        long tookMillis = tookMillis(response);
+        if (tookMillis >= 0) {
+            recordTook(endpoint, operation, tookMillis);
+        }
+        if (response instanceof ResponseBody) {
+            recordHits(endpoint, operation, ((ResponseBody<?>) response).hits());
+        } else if (response instanceof SearchTemplateResponse) {
+            recordHits(endpoint, operation, ((SearchTemplateResponse<?>) response).hits());
+        } else if (response instanceof BulkResponse) {
+            BulkResponse body = (BulkResponse) response;
+            int failed = 0;
+            if (body.errors()) {
+                for (BulkResponseItem item : body.items()) {
+                    if (item.error() != null) {
+                        failed++;
+                    }
+                }
+            }
+            bulkItems(operation, SUCCESS).increment(body.items().size() - failed);
+            bulkItems(operation, "failed").increment(failed);
+        } else if (response instanceof MgetResponse) {
+            long found = 0;
+            for (MultiGetResponseItem<?> item : ((MgetResponse<?>) response).docs()) {
+                if (item.isResult() && item.result().found()) {
+                    found++;
+                }
+            }
+            hits(endpoint, operation).record(found);
+        }
+    }
+
+    /**
+     * 响应中的ES服务端耗时（毫秒），不含took的响应返回-1
+     */
+    public static long tookMillis(Object response) {
+        if (response instanceof ResponseBody) {
+            return ((ResponseBody<?>) response).took();
+        }
+        if (response instanceof SearchTemplateResponse) {
+            return ((SearchTemplateResponse<?>) response).took();
+        }
+        if (response instanceof BulkResponse) {
+            return ((BulkResponse) response).took();
+        }
+        return -1;
+    }
+
+    /**
+     * 响应字节数（HTTP IO线程上记录，不区分操作）
+     */
+    public void recordResponseBytes(long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        summary("es.response.size", key -> DistributionSummary.builder("es.response.size")
+                .description("ES响应大小（开启gzip时为压缩后大小）")
+                .baseUnit("bytes")
+                .register(meterRegistry))
+                .record(bytes);
+    }
+
+    private void recordTook(String endpoint, String operation, long tookMillis) {
+        timer("es.took|" + endpoint + "|" + operation, key -> Timer.builder("es.took")
+                .description("ES服务端执行耗时（响应took）")
+                .tag("endpoint", endpoint)
+                .tag("operation", operation)
+                .register(meterRegistry))
+                .record(tookMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordHits(String endpoint, String operation, HitsMetadata<?> hitsMetadata) {
+        if (hitsMetadata != null) {
+            hits(endpoint, operation).record(hitsMetadata.hits().size());
+        }
+    }
+
+    private DistributionSummary hits(String endpoint, String operation) {
+        return summary("es.hits|" + endpoint + "|" + operation, key -> DistributionSummary.builder("es.hits")
+                .description("ES单次请求返回的文档数")
+                .tag("endpoint", endpoint)
+                .tag("operation", operation)
+                .register(meterRegistry));
+    }
+
+    private Counter bulkItems(String operation, String result) {
+        return cached(counters, "es.bulk.items|" + operation + "|" + result, key -> Counter.builder("es.bulk.items")
+                .description("bulk写入条数（按成功/失败）")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private Timer timer(String key, Function<String, Timer> factory) {
+        return cached(timers, key, factory);
+    }
+
+    private DistributionSummary summary(String key, Function<String, DistributionSummary> factory) {
+        return cached(summaries, key, factory);
+    }
+
+    // 先无锁读取，未注册时再computeIfAbsent（JDK8的computeIfAbsent在key已存在时也会加锁）
+    private static <M> M cached(Map<String, M> meters, String key, Function<String, M> factory) {
+        M meter = meters.get(key);
+        return meter != null ? meter : meters.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * 仓库方法上下文：方法名 + 参数（慢查询日志记录参数）
+     */
+    public static final class OperationContext {
+        static final OperationContext NONE = new OperationContext(NO_OPERATION, null);
+
+        private final String operation;
+        private final Object[] args;
+
+        OperationContext(String operation, Object[] args) {
+            this.operation = operation;
+            this.args = args;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public Object[] getArgs() {
+            return args;
+        }
+    }
+}
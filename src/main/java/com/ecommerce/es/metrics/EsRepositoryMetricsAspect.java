@@ -0,0 +1,47 @@
+package com.ecommerce.es.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * author Nami
+ * date 2026/1/25 10:40
+ * description ES仓库方法计时（ProductEsRepository每个公开方法记为一个operation）
+ * - 方法执行期间在当前线程记录方法名，期间发出的ES请求按该operation打标签
+ * - 返回CompletableFuture的异步方法在完成时计时
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class EsRepositoryMetricsAspect {
+    private final EsMetrics esMetrics;
+
+    @Around("execution(public * com.ecommerce.es.repository.ProductEsRepository.*(..))"
+            + " && !@annotation(org.springframework.context.event.EventListener)")
+    public Object timeOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        EsMetrics.OperationContext outer = esMetrics.enterOperation(operation, joinPoint.getArgs());
+        long startNanos = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            esMetrics.recordOperation(operation, startNanos, e);
+            throw e;
+        } finally {
+            esMetrics.exitOperation(outer);
+        }
+        if (result instanceof CompletableFuture) {
+            ((CompletableFuture<?>) result).whenComplete((value, error) ->
+                    esMetrics.recordOperation(operation, startNanos, error));
+        } else {
+            esMetrics.recordOperation(operation, startNanos, null);
+        }
+        return result;
+    }
+}
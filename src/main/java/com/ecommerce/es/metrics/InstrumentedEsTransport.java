@@ -0,0 +1,101 @@
+package com.ecommerce.es.metrics;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * author Nami
+ * date 2026/1/25 10:20
+ * description 带指标的ES传输层（同步/异步客户端的所有请求都经过这里）
+ * - 记录每次请求的往返耗时，并从响应中取took/返回文档数/bulk失败条数
+ * - 异步请求在发起线程上读取当前仓库方法名，完成时（IO线程）记录
+ * - 超过阈值的请求交给慢查询日志
+ */
+@Slf4j
+public class InstrumentedEsTransport implements ElasticsearchTransport {
+    private final ElasticsearchTransport delegate;
+    private final EsMetrics esMetrics;
+    // 为null时不记录慢查询
+    private final SlowQueryLog slowQueryLog;
+
+    public InstrumentedEsTransport(ElasticsearchTransport delegate, EsMetrics esMetrics) {
+        this(delegate, esMetrics, null);
+    }
+
+    public InstrumentedEsTransport(ElasticsearchTransport delegate, EsMetrics esMetrics, SlowQueryLog slowQueryLog) {
+        this.delegate = delegate;
+        this.esMetrics = esMetrics;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(RequestT request,
+                                                                 Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                 TransportOptions options) throws IOException {
+        EsMetrics.OperationContext context = esMetrics.currentContext();
+        long startNanos = System.nanoTime();
+        ResponseT response;
+        try {
+            response = delegate.performRequest(request, endpoint, options);
+        } catch (IOException | RuntimeException e) {
+            esMetrics.recordRequest(endpoint.id(), context.getOperation(), startNanos, e);
+            throw e;
+        }
+        onResponse(context, request, endpoint, response, startNanos);
+        return response;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(RequestT request,
+                                                                                         Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                                         TransportOptions options) {
+        EsMetrics.OperationContext context = esMetrics.currentContext();
+        long startNanos = System.nanoTime();
+        CompletableFuture<ResponseT> future = delegate.performRequestAsync(request, endpoint, options);
+        future.whenComplete((response, error) -> {
+            if (error != null) {
+                esMetrics.recordRequest(endpoint.id(), context.getOperation(), startNanos, error);
+            } else {
+                onResponse(context, request, endpoint, response, startNanos);
+            }
+        });
+        return future;
+    }
+
+    private <RequestT, ResponseT> void onResponse(EsMetrics.OperationContext context, RequestT request,
+                                                  Endpoint<RequestT, ResponseT, ?> endpoint, ResponseT response,
+                                                  long startNanos) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        esMetrics.recordRequest(endpoint.id(), context.getOperation(), startNanos, null);
+        esMetrics.recordResponse(endpoint.id(), context.getOperation(), response);
+        if (slowQueryLog != null) {
+            try {
+                slowQueryLog.onResponse(context, request, endpoint, response, latencyNanos, delegate.jsonpMapper());
+            } catch (RuntimeException e) {
+                // 慢查询记录失败不影响请求结果
+                log.debug("慢查询记录失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return delegate.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return delegate.options();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,228 @@
+package com.ecommerce.es.metrics;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.transport.Endpoint;
+import com.ecommerce.es.entity.SlowQueryRecord;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.json.stream.JsonGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * author Nami
+ * date 2026/1/26 10:30
+ * description ES慢查询日志（搜索/聚合p99升高时定位是哪些关键词/筛选组合）
+ * - 往返耗时超过阈值的请求记录仓库方法、参数、请求体、took与往返耗时，写入独立的异步日志（slow-query.log）
+ * - 内存中保留最慢的N条（小顶堆，新记录比堆顶慢时替换）
+ * - 可按比例抽样，以profile=true在后台重新执行一次，结果挂到对应记录上（单线程、队列满则放弃，不影响线上请求）
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlowQueryLog {
+    // 独立logger，logback.xml中配置异步appender
+    private static final Logger SLOW_LOG = LoggerFactory.getLogger("es.slow-query");
+
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${slow-query.enabled:true}")
+    private boolean enabled;
+
+    // 慢查询阈值（毫秒，客户端往返耗时）
+    @Value("${slow-query.threshold:500}")
+    private long thresholdMillis;
+
+    // 记录的仓库方法（按方法名前缀匹配）
+    @Value("${slow-query.operations:searchProduct,aggProduct}")
+    private List<String> operations;
+
+    // 内存中保留的最慢记录数
+    @Value("${slow-query.worst-size:50}")
+    private int worstSize;
+
+    // 请求体记录长度上限（字符）
+    @Value("${slow-query.max-query-length:8192}")
+    private int maxQueryLength;
+
+    // 慢查询以profile=true重新执行的比例（0关闭，会对ES产生额外负载）
+    @Value("${slow-query.profile-sample-rate:0}")
+    private double profileSampleRate;
+
+    private final PriorityQueue<SlowQueryRecord> worstQueries =
+            new PriorityQueue<>(Comparator.comparingLong(SlowQueryRecord::getLatencyMillis));
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder profiledCount = new LongAdder();
+    private final LongAdder profileFailureCount = new LongAdder();
+    private final LongAdder profileDroppedCount = new LongAdder();
+    private ThreadPoolExecutor profileExecutor;
+
+    @PostConstruct
+    public void init() {
+        profileExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10),
+                new CustomizableThreadFactory("slow-query-profile-"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        profileExecutor.shutdownNow();
+    }
+
+    // ====================== 记录 ======================
+    /**
+     * ES请求完成后调用（未超过阈值或不在记录范围内时直接返回，不做序列化）
+     */
+    public <RequestT> void onResponse(EsMetrics.OperationContext context, RequestT request,
+                                      Endpoint<RequestT, ?, ?> endpoint, Object response,
+                                      long latencyNanos, JsonpMapper jsonpMapper) {
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        if (!enabled || latencyMillis < thresholdMillis || !isMonitored(context.getOperation())) {
+            return;
+        }
+        String body = serialize(request, jsonpMapper);
+        String path = endpoint.requestUrl(request);
+        SlowQueryRecord record = new SlowQueryRecord(context.getOperation(), formatArgs(context.getArgs()),
+                endpoint.method(request) + " " + path, truncate(body), EsMetrics.tookMillis(response), latencyMillis);
+        slowCount.increment();
+        SLOW_LOG.warn("operation={} latency={}ms took={}ms request={} params={} query={}", record.getOperation(),
+                latencyMillis, record.getTookMillis(), record.getRequest(), record.getParams(), record.getQuery());
+        offer(record);
+        if (body != null && profileSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < profileSampleRate) {
+            submitProfile(record, endpoint.method(request), path, endpoint.queryParameters(request), body);
+        }
+    }
+
+    boolean isMonitored(String operation) {
+        for (String prefix : operations) {
+            if (operation.startsWith(prefix.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void offer(SlowQueryRecord record) {
+        synchronized (worstQueries) {
+            if (worstQueries.size() < worstSize) {
+                worstQueries.add(record);
+            } else if (!worstQueries.isEmpty() && worstQueries.peek().getLatencyMillis() < record.getLatencyMillis()) {
+                worstQueries.poll();
+                worstQueries.add(record);
+            }
+        }
+    }
+
+    // ====================== 抽样profile ======================
+    private void submitProfile(SlowQueryRecord record, String method, String path,
+                               Map<String, String> queryParameters, String body) {
+        try {
+            profileExecutor.execute(() -> profile(record, method, path, queryParameters, body));
+        } catch (RejectedExecutionException e) {
+            profileDroppedCount.increment();
+        }
+    }
+
+    private void profile(SlowQueryRecord record, String method, String path,
+                         Map<String, String> queryParameters, String body) {
+        try {
+            ObjectNode profiledBody = (ObjectNode) objectMapper.readTree(body);
+            profiledBody.put("profile", true);
+            Request request = new Request(method, path);
+            request.addParameters(queryParameters);
+            request.setJsonEntity(objectMapper.writeValueAsString(profiledBody));
+            Response response = restClient.performRequest(request);
+            try (InputStream in = response.getEntity().getContent()) {
+                JsonNode profile = objectMapper.readTree(in).get("profile");
+                record.setProfile(profile);
+            }
+            profiledCount.increment();
+        } catch (Exception e) {
+            profileFailureCount.increment();
+            log.debug("慢查询profile执行失败，operation：{}，原因：{}", record.getOperation(), e.getMessage());
+        }
+    }
+
+    // ====================== 查询 ======================
+    /**
+     * 最慢的N条（按往返耗时降序）
+     */
+    public List<SlowQueryRecord> worstQueries() {
+        List<SlowQueryRecord> recordList;
+        synchronized (worstQueries) {
+            recordList = new ArrayList<>(worstQueries);
+        }
+        recordList.sort(Comparator.comparingLong(SlowQueryRecord::getLatencyMillis).reversed());
+        return recordList;
+    }
+
+    public void clear() {
+        synchronized (worstQueries) {
+            worstQueries.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("enabled", enabled);
+        statsMap.put("thresholdMillis", thresholdMillis);
+        statsMap.put("operations", operations);
+        statsMap.put("profileSampleRate", profileSampleRate);
+        statsMap.put("slowCount", slowCount.sum());
+        statsMap.put("profiledCount", profiledCount.sum());
+        statsMap.put("profileFailureCount", profileFailureCount.sum());
+        statsMap.put("profileDroppedCount", profileDroppedCount.sum());
+        return statsMap;
+    }
+
+    // ====================== 序列化 ======================
+    private static String serialize(Object request, JsonpMapper jsonpMapper) {
+        if (!(request instanceof JsonpSerializable)) {
+            return null;
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(writer)) {
+            ((JsonpSerializable) request).serialize(generator, jsonpMapper);
+        }
+        return writer.toString();
+    }
+
+    private String truncate(String body) {
+        if (body == null || body.length() <= maxQueryLength) {
+            return body;
+        }
+        return body.substring(0, maxQueryLength) + "...(" + body.length() + " chars)";
+    }
+
+    static String formatArgs(Object[] args) {
+        return args == null ? "" : Arrays.deepToString(args);
+    }
+}
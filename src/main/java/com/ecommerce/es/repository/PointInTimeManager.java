@@ -0,0 +1,125 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * author Nami
+ * date 2026/1/8 10:30
+ * description PIT（时间点）生命周期管理：打开、续期、回收
+ * - ES会在keep-alive到期后自动释放PIT，这里主动回收空闲PIT，避免翻页中途放弃的会话长期占用段文件
+ * - 限制同时打开的PIT数量，超出时优先关闭最久未访问的PIT
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PointInTimeManager {
+    private final ElasticsearchClient esClient;
+
+    @Value("${elasticsearch.pit.keep-alive:1m}")
+    private String keepAlive;
+
+    @Value("${elasticsearch.pit.idle-timeout:60000}")
+    private long idleTimeoutMillis;
+
+    @Value("${elasticsearch.pit.max-open:500}")
+    private int maxOpen;
+
+    // pitId -> 最近访问时间
+    private final Map<String, Long> lastAccessMap = new ConcurrentHashMap<>();
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * 打开新的PIT
+     */
+    public String open(String index) throws IOException {
+        if (lastAccessMap.size() >= maxOpen) {
+            evictOldest();
+        }
+        OpenPointInTimeResponse response = esClient.openPointInTime(o -> o
+                .index(index)
+                .keepAlive(t -> t.time(keepAlive))
+        );
+        lastAccessMap.put(response.id(), System.currentTimeMillis());
+        log.debug("PIT打开成功，索引：{}，当前打开数量：{}", index, lastAccessMap.size());
+        return response.id();
+    }
+
+    /**
+     * 续期：ES每次搜索可能返回新的PIT ID，需要替换旧ID
+     */
+    public void touch(String oldPitId, String newPitId) {
+        if (newPitId != null && !newPitId.equals(oldPitId)) {
+            lastAccessMap.remove(oldPitId);
+        }
+        lastAccessMap.put(newPitId == null ? oldPitId : newPitId, System.currentTimeMillis());
+    }
+
+    /**
+     * 主动关闭PIT（最后一页/查询异常）
+     */
+    public void release(String pitId) {
+        if (pitId == null) {
+            return;
+        }
+        lastAccessMap.remove(pitId);
+        try {
+            esClient.closePointInTime(c -> c.id(pitId));
+        } catch (Exception e) {
+            // PIT可能已过期，关闭失败不影响业务
+            log.warn("PIT关闭失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时回收空闲PIT
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.pit.reaper-interval:30000}")
+    public void reapIdle() {
+        long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+        List<String> idleList = new ArrayList<>();
+        lastAccessMap.forEach((pitId, lastAccess) -> {
+            if (lastAccess < deadline) {
+                idleList.add(pitId);
+            }
+        });
+        idleList.forEach(this::release);
+        if (!idleList.isEmpty()) {
+            log.info("回收空闲PIT数量：{}，剩余：{}", idleList.size(), lastAccessMap.size());
+        }
+    }
+
+    public int openCount() {
+        return lastAccessMap.size();
+    }
+
+    private void evictOldest() {
+        lastAccessMap.entrySet().stream()
+                .min(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .ifPresent(pitId -> {
+                    log.warn("PIT打开数量达到上限{}，关闭最久未访问的PIT", maxOpen);
+                    release(pitId);
+                });
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        new ArrayList<>(lastAccessMap.keySet()).forEach(this::release);
+    }
+}
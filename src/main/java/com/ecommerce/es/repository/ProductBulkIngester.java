@@ -0,0 +1,431 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.ecommerce.es.entity.BulkIngestJob;
+import com.ecommerce.es.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.ResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * author Nami
+ * date 2026/1/9 14:35
+ * description 商品批量写入引擎（大批量上架）
+ * - 按条数/字节数/时间间隔三种条件触发flush，单个bulk请求大小可控
+ * - 限制同时在途的bulk请求数，超出时阻塞调用方（背压），避免压垮ES写入线程池
+ * - 单条商品遇到429/es_rejected_execution_exception时按指数退避重试，整个请求失败时只重试429/5xx/网络异常
+ * - 以提交时间作为外部版本（external_gte）写入，退避后重发的旧数据不会覆盖期间写入的新数据
+ * - 按任务精确统计成功/失败数量
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductBulkIngester {
+    private final ElasticsearchClient esClient;
+
+    @Value("${elasticsearch.bulk.max-actions:1000}")
+    private int maxActions;
+
+    @Value("${elasticsearch.bulk.max-bytes:5242880}")
+    private long maxBytes;
+
+    @Value("${elasticsearch.bulk.flush-interval:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${elasticsearch.bulk.concurrent-requests:2}")
+    private int concurrentRequests;
+
+    @Value("${elasticsearch.bulk.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${elasticsearch.bulk.retry-backoff:200}")
+    private long retryBackoffMillis;
+
+    @Value("${elasticsearch.bulk.job-retention:3600000}")
+    private long jobRetentionMillis;
+
+    // 待发送缓冲区（lock保护）
+    private final Object lock = new Object();
+    private List<PendingItem> buffer = new ArrayList<>();
+    private long bufferBytes;
+
+    // 在途bulk请求许可
+    private Semaphore inFlightPermits;
+    private ExecutorService bulkExecutor;
+    private ExecutorService feederExecutor;
+    private ScheduledExecutorService scheduler;
+    // 已安排但尚未放回缓冲区的重试批次，关闭时据此把未执行的重试记为失败
+    private final Set<List<PendingItem>> pendingRetries = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, BulkIngestJob> jobMap = new ConcurrentHashMap<>();
+    // 商品写入成功监听（如失效详情缓存、更新联想词条）
+    private final List<Consumer<Product>> indexedListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        inFlightPermits = new Semaphore(concurrentRequests);
+        bulkExecutor = Executors.newFixedThreadPool(concurrentRequests, new CustomizableThreadFactory("es-bulk-"));
+        feederExecutor = Executors.newFixedThreadPool(2, new CustomizableThreadFactory("es-bulk-feeder-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-bulk-scheduler-"));
+        scheduler.scheduleWithFixedDelay(this::flushOnInterval, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::cleanFinishedJobs, 1, 1, TimeUnit.MINUTES);
+        log.info("商品批量写入引擎初始化完成：maxActions={}, maxBytes={}, flushInterval={}ms, concurrentRequests={}",
+                maxActions, maxBytes, flushIntervalMillis, concurrentRequests);
+    }
+
+    // ====================== 任务管理 ======================
+    /**
+     * 创建导入任务（调用方逐条add，最后finishJob）
+     */
+    public BulkIngestJob startJob() {
+        BulkIngestJob job = new BulkIngestJob();
+        jobMap.put(job.getJobId(), job);
+        return job;
+    }
+
+    /**
+     * 异步导入整个商品列表，立即返回任务
+     */
+    public BulkIngestJob submitJob(List<Product> productList) {
+        BulkIngestJob job = startJob();
+        feederExecutor.execute(() -> {
+            try {
+                for (Product product : productList) {
+                    add(job, product);
+                }
+                finishJob(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.abort("导入任务被中断");
+            }
+        });
+        return job;
+    }
+
+    /**
+     * 所有商品提交完毕，立即发送剩余缓冲
+     */
+    public void finishJob(BulkIngestJob job) throws InterruptedException {
+        job.finishSubmit();
+        flush();
+    }
+
+    public BulkIngestJob getJob(String jobId) {
+        return jobMap.get(jobId);
+    }
+
+    /**
+     * 注册商品写入成功监听（参数为写入的商品）
+     */
+    public void addIndexedListener(Consumer<Product> listener) {
+        indexedListeners.add(listener);
+    }
+
+    // ====================== 写入（带背压） ======================
+    /**
+     * 添加单条商品，缓冲达到条数/字节阈值时发送；在途请求已满时阻塞（背压）
+     */
+    public void add(BulkIngestJob job, Product product) throws InterruptedException {
+        job.onSubmitted();
+        PendingItem item = new PendingItem(job, product, estimateBytes(product), System.currentTimeMillis(), 0);
+        List<PendingItem> batch = null;
+        synchronized (lock) {
+            buffer.add(item);
+            bufferBytes += item.bytes;
+            if (buffer.size() >= maxActions || bufferBytes >= maxBytes) {
+                batch = drainBuffer();
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * 立即发送缓冲区中的商品
+     */
+    public void flush() throws InterruptedException {
+        List<PendingItem> batch;
+        synchronized (lock) {
+            batch = drainBuffer();
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    private void flushOnInterval() {
+        // 定时线程不阻塞等待：无空闲许可时跳过本轮，由下一轮或阈值触发发送
+        if (!inFlightPermits.tryAcquire()) {
+            return;
+        }
+        List<PendingItem> batch;
+        synchronized (lock) {
+            batch = drainBuffer();
+        }
+        if (batch == null) {
+            inFlightPermits.release();
+            return;
+        }
+        execute(batch);
+    }
+
+    private List<PendingItem> drainBuffer() {
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        List<PendingItem> batch = buffer;
+        buffer = new ArrayList<>();
+        bufferBytes = 0;
+        return batch;
+    }
+
+    private void dispatch(List<PendingItem> batch) throws InterruptedException {
+        inFlightPermits.acquire();
+        execute(batch);
+    }
+
+    // 调用前必须已获取在途许可
+    private void execute(List<PendingItem> batch) {
+        try {
+            bulkExecutor.execute(() -> {
+                try {
+                    sendBulk(batch);
+                } finally {
+                    inFlightPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightPermits.release();
+            batch.forEach(item -> item.job.onFailure(item.product.getId(), "写入引擎已关闭"));
+        }
+    }
+
+    // ====================== 发送 + 逐条结果统计 ======================
+    private void sendBulk(List<PendingItem> batch) {
+        BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
+        for (PendingItem item : batch) {
+            Product product = item.product;
+            // updateTime和版本号都取提交时间，重试时不变：补齐（catch-up）和版本比较都按提交顺序
+            product.setUpdateTime(new Date(item.submitMillis));
+            bulkBuilder.operations(op -> op
+                    .index(idx -> idx
+                            .index(ProductEsRepository.PRODUCT_WRITE_ALIAS)
+                            .id(product.getId())
+                            .versionType(VersionType.ExternalGte)
+                            .version(item.submitMillis)
+                            .document(product)
+                    )
+            );
+        }
+
+        List<PendingItem> retryList = new ArrayList<>();
+        try {
+            BulkResponse bulkResponse = esClient.bulk(bulkBuilder.build());
+            // bulk响应条目与请求顺序一一对应
+            List<BulkResponseItem> items = bulkResponse.items();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingItem pending = batch.get(i);
+                BulkResponseItem item = items.get(i);
+                if (item.error() == null) {
+                    pending.job.onSuccess();
+                    indexedListeners.forEach(listener -> listener.accept(pending.product));
+                } else if (isVersionConflict(item)) {
+                    // 期间已有更晚提交的写入：本条已过时，视为完成
+                    log.debug("商品{}已有更新的写入，跳过提交时间{}的旧数据", item.id(), pending.submitMillis);
+                    pending.job.onSuccess();
+                } else if (isRetryable(item) && pending.attempt < maxRetries) {
+                    retryList.add(pending);
+                } else {
+                    pending.job.onFailure(item.id(), item.error().reason());
+                }
+            }
+            log.debug("bulk请求完成，条数：{}，耗时：{}ms，待重试：{}", batch.size(), bulkResponse.took(), retryList.size());
+        } catch (Exception e) {
+            // 整个请求失败：网络异常/429/5xx整批重试，超过次数则全部记为失败；400/413等重试也不会成功，直接记为失败
+            boolean retryable = isRetryable(e);
+            log.warn("bulk请求失败，条数：{}，可重试：{}，原因：{}", batch.size(), retryable, e.getMessage());
+            for (PendingItem pending : batch) {
+                if (retryable && pending.attempt < maxRetries) {
+                    retryList.add(pending);
+                } else {
+                    pending.job.onFailure(pending.product.getId(), e.getMessage());
+                }
+            }
+        }
+        if (!retryList.isEmpty()) {
+            scheduleRetry(retryList);
+        }
+    }
+
+    private boolean isRetryable(BulkResponseItem item) {
+        return item.status() == 429 || "es_rejected_execution_exception".equals(item.error().type());
+    }
+
+    private boolean isVersionConflict(BulkResponseItem item) {
+        return item.status() == 409 && "version_conflict_engine_exception".equals(item.error().type());
+    }
+
+    /**
+     * 整个bulk请求失败时是否可重试：429/5xx和网络异常是暂时性的，其余（400、413请求过大等）重试也不会成功
+     */
+    static boolean isRetryable(Exception e) {
+        if (e instanceof ElasticsearchException) {
+            return isRetryableStatus(((ElasticsearchException) e).status());
+        }
+        if (e instanceof ResponseException) {
+            return isRetryableStatus(((ResponseException) e).getResponse().getStatusLine().getStatusCode());
+        }
+        return e instanceof IOException;
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * 按已重试次数分组后分别退避（同一批中既有首次发送的条目，也有已重试过的条目）
+     */
+    private void scheduleRetry(List<PendingItem> retryList) {
+        Map<Integer, List<PendingItem>> attemptMap = new TreeMap<>();
+        for (PendingItem item : retryList) {
+            attemptMap.computeIfAbsent(item.attempt, attempt -> new ArrayList<>()).add(item);
+        }
+        attemptMap.forEach(this::scheduleRetry);
+    }
+
+    /**
+     * 指数退避后重新放回缓冲区（由定时flush发送，不阻塞当前bulk线程）
+     */
+    private void scheduleRetry(int attempt, List<PendingItem> retryList) {
+        long delay = retryBackoffMillis << Math.min(attempt, 10);
+        retryList.forEach(item -> item.job.onRetry());
+        pendingRetries.add(retryList);
+        try {
+            scheduler.schedule(() -> {
+                if (!pendingRetries.remove(retryList)) {
+                    return;
+                }
+                synchronized (lock) {
+                    for (PendingItem item : retryList) {
+                        buffer.add(new PendingItem(item.job, item.product, item.bytes, item.submitMillis, item.attempt + 1));
+                        bufferBytes += item.bytes;
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            if (pendingRetries.remove(retryList)) {
+                retryList.forEach(item -> item.job.onFailure(item.product.getId(), "写入引擎已关闭"));
+            }
+        }
+    }
+
+    private void cleanFinishedJobs() {
+        long deadline = System.currentTimeMillis() - jobRetentionMillis;
+        jobMap.values().removeIf(job -> job.isFinished() && job.getEndTime() < deadline);
+    }
+
+    /**
+     * 估算商品在bulk请求中的字节数（按UTF-8中文3字节估算，避免为统计大小再序列化一次）
+     */
+    static long estimateBytes(Product product) {
+        long size = 256; // bulk元数据行 + 字段名 + 数值字段
+        size += utf8Length(product.getId());
+        size += utf8Length(product.getProductName());
+        size += utf8Length(product.getCategory());
+        size += utf8Length(product.getSubCategory());
+        size += utf8Length(product.getDescription());
+        size += utf8Length(product.getMerchantId());
+        if (product.getTags() != null) {
+            for (String tag : product.getTags()) {
+                size += utf8Length(tag) + 3;
+            }
+        }
+        return size;
+    }
+
+    private static long utf8Length(String value) {
+        return value == null ? 0 : value.length() * 3L;
+    }
+
+    /**
+     * 关闭：发送剩余缓冲并等待在途bulk返回；此后尚未执行的重试（退避中或已放回缓冲区）记为失败，保证任务能结束
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flush();
+        feederExecutor.shutdown();
+        bulkExecutor.shutdown();
+        if (!bulkExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("商品批量写入引擎关闭超时，仍有bulk请求未完成");
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        failUnsent();
+    }
+
+    private void failUnsent() {
+        List<PendingItem> unsent = new ArrayList<>();
+        for (List<PendingItem> retryList : pendingRetries) {
+            if (pendingRetries.remove(retryList)) {
+                unsent.addAll(retryList);
+            }
+        }
+        synchronized (lock) {
+            List<PendingItem> batch = drainBuffer();
+            if (batch != null) {
+                unsent.addAll(batch);
+            }
+        }
+        if (!unsent.isEmpty()) {
+            log.warn("商品批量写入引擎已关闭，{}条商品的重试未执行，记为失败", unsent.size());
+            unsent.forEach(item -> item.job.onFailure(item.product.getId(), "写入引擎已关闭，重试未执行"));
+        }
+    }
+
+    /**
+     * 待发送条目
+     */
+    private static class PendingItem {
+        private final BulkIngestJob job;
+        private final Product product;
+        private final long bytes;
+        // 提交时间（毫秒），作为外部版本号
+        private final long submitMillis;
+        private final int attempt;
+
+        PendingItem(BulkIngestJob job, Product product, long bytes, long submitMillis, int attempt) {
+            this.job = job;
+            this.product = product;
+            this.bytes = bytes;
+            this.submitMillis = submitMillis;
+            this.attempt = attempt;
+        }
+    }
+}
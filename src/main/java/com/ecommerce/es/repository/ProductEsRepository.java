@@ -1,31 +1,77 @@
 package com.ecommerce.es.repository;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.ScriptLanguage;
 import co.elastic.clients.elasticsearch._types.SortOptions;
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.VersionType;
 import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
 import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregationSource;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StatsAggregate;
 import co.elastic.clients.elasticsearch._types.aggregations.TermsAggregation;
+import co.elastic.clients.elasticsearch._types.mapping.FieldMapping;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetError;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import co.elastic.clients.elasticsearch.core.search.Suggestion;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.SegmentSortOrder;
+import co.elastic.clients.elasticsearch.indices.TranslogDurability;
 import co.elastic.clients.json.JsonData;
+import com.ecommerce.es.config.IndexSettingsProperties;
 import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductAggSnapshot;
+import com.ecommerce.es.entity.ProductFacetQuery;
+import com.ecommerce.es.entity.ProductFacetResult;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.entity.ProductLookupItem;
+import com.ecommerce.es.util.EsResponseUtil;
+import com.ecommerce.es.util.SearchCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -38,28 +84,169 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ProductEsRepository {
     private final ElasticsearchClient esClient;
-    // 电商商品索引名（规范命名）
-    private static final String PRODUCT_INDEX = "ecommerce_product";
+    private final ElasticsearchAsyncClient esAsyncClient;
+    private final PointInTimeManager pointInTimeManager;
+    // 索引配置档位 + 预排序开关（预排序按销量、上架时间降序存储段内文档，分类浏览按默认排序可提前终止）
+    private final IndexSettingsProperties indexSettingsProperties;
+
+    // 电商商品索引名（规范命名）：读别名，指向当前版本的物理索引ecommerce_product_v{n}
+    static final String PRODUCT_INDEX = "ecommerce_product";
+    // 写别名（重建索引期间仍指向旧索引，切换时与读别名一起原子切换）
+    static final String PRODUCT_WRITE_ALIAS = "ecommerce_product_write";
+    static final String PRODUCT_INDEX_VERSION_PREFIX = PRODUCT_INDEX + "_v";
+    // 搜索联想：productName的completion子字段
+    private static final String SUGGEST_FIELD_NAME = "suggest";
+    private static final String SUGGEST_FIELD = "productName." + SUGGEST_FIELD_NAME;
+    private static final String SUGGEST_ANALYZER = "suggest_keyword";
+    // 更新时间字段（写入时设置），格式与Product.updateTime的@JsonFormat一致
+    static final String UPDATE_TIME_FIELD = "updateTime";
+    static final String UPDATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    // 批量查询分块大小及并行度
+    @Value("${elasticsearch.mget.chunk-size:100}")
+    private int mgetChunkSize;
+
+    @Value("${elasticsearch.mget.parallelism:4}")
+    private int mgetParallelism;
+
+    private ExecutorService mgetExecutor;
+
+    // 存储搜索模板模式：搜索只传参数，由ES端模板渲染查询
+    @Value("${elasticsearch.search-template.enabled:false}")
+    private boolean searchTemplateEnabled;
+
+    // 启动时是否覆盖ES中已存在的模板（关闭时保留在ES中手工调整过的模板）
+    @Value("${elasticsearch.search-template.overwrite:false}")
+    private boolean searchTemplateOverwrite;
+
+    // 启动时模板注册失败后的重试间隔（毫秒），每次失败翻倍，不超过最大值
+    @Value("${elasticsearch.search-template.retry-backoff:5000}")
+    private long templateRetryBackoffMillis;
+
+    @Value("${elasticsearch.search-template.retry-max-backoff:300000}")
+    private long templateRetryMaxBackoffMillis;
+
+    // 模板注册成功前搜索走查询构建方式
+    private volatile boolean searchTemplatesReady;
+    // 下次重试注册模板的时间（Long.MAX_VALUE表示无需重试）及当前退避间隔
+    private volatile long templateRetryAt = Long.MAX_VALUE;
+    private long templateRetryDelayMillis;
+
+    @PostConstruct
+    public void init() {
+        mgetExecutor = Executors.newFixedThreadPool(mgetParallelism, new CustomizableThreadFactory("es-mget-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mgetExecutor.shutdown();
+    }
+
+    /**
+     * 应用启动后补充updateTime映射、注册搜索模板（ES不可用时只告警，搜索继续走查询构建方式）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            if (esClient.indices().exists(e -> e.index(PRODUCT_INDEX)).value()) {
+                ensureUpdateTimeMapping(PRODUCT_INDEX);
+            }
+        } catch (Exception e) {
+            log.warn("商品索引{}映射检查失败：{}", UPDATE_TIME_FIELD, e.getMessage());
+        }
+        if (!searchTemplateEnabled) {
+            return;
+        }
+        try {
+            registerSearchTemplates();
+        } catch (Exception e) {
+            templateRetryDelayMillis = templateRetryBackoffMillis;
+            templateRetryAt = System.currentTimeMillis() + templateRetryDelayMillis;
+            log.warn("商品搜索模板注册失败，暂使用查询构建方式，{}ms后重试：{}", templateRetryDelayMillis, e.getMessage());
+        }
+    }
+
+    /**
+     * 启动时模板注册失败则定时重试（指数退避），成功后搜索切换为模板方式
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.search-template.retry-backoff:5000}")
+    public void retrySearchTemplateRegistration() {
+        if (searchTemplatesReady || System.currentTimeMillis() < templateRetryAt) {
+            return;
+        }
+        try {
+            registerSearchTemplates();
+            templateRetryAt = Long.MAX_VALUE;
+        } catch (Exception e) {
+            templateRetryDelayMillis = Math.min(templateRetryDelayMillis * 2, templateRetryMaxBackoffMillis);
+            templateRetryAt = System.currentTimeMillis() + templateRetryDelayMillis;
+            log.warn("商品搜索模板重试注册失败，{}ms后重试：{}", templateRetryDelayMillis, e.getMessage());
+        }
+    }
 
     // ====================== 电商索引设计（核心） ======================
     /**
      * 创建商品索引（贴合电商搜索需求的映射设计）
      * - 商品名称/描述：IK分词（需提前安装IK插件）
      * - 分类/标签：关键词（聚合/筛选）
+     * - 商品名称联想：completion子字段（已有索引需重建生效）
      * - 价格/销量/评分：数值型（排序/范围筛选）
+     * - 可选索引预排序：sales desc, createTime desc（只能在建索引时指定）
+     * - 分片数/副本数/刷新间隔/translog/压缩方式取serving配置档位
+     * - 物理索引带版本号，读写通过别名访问，重建索引时切换别名即可无停机替换
      */
     public boolean createProductIndex() throws IOException {
         // 1. 检查索引是否存在
         if (esClient.indices().exists(e -> e.index(PRODUCT_INDEX)).value()) {
+            ensureLegacyWriteAlias();
             log.info("商品索引{}已存在，无需重复创建", PRODUCT_INDEX);
             return true;
         }
-        // 2. 创建索引 + 映射（电商场景精准字段类型）
-        CreateIndexResponse response = esClient.indices().create(c -> c
-                .index(PRODUCT_INDEX)
-                .mappings(m -> m
-                        // 商品名称：IK分词（max_word细粒度）
-                        .properties("productName", p -> p.text(t -> t.analyzer("ik_max_word")))
+        // 2. 创建第一个版本的物理索引，同时挂上读写别名
+        boolean acknowledged = createVersionedIndex(PRODUCT_INDEX_VERSION_PREFIX + 1, IndexSettingsProperties.SERVING, true);
+        if (searchTemplateEnabled) {
+            registerSearchTemplates();
+        }
+        return acknowledged;
+    }
+
+    /**
+     * 创建版本化的物理索引（映射与createProductIndex一致）
+     * @param profileName 配置档位：重建索引时用bulk-load（无副本、关闭刷新），写完后再切回serving
+     * @param attachAliases 是否同时挂上读写别名
+     */
+    boolean createVersionedIndex(String indexName, String profileName, boolean attachAliases) throws IOException {
+        IndexSettingsProperties.Profile profile = indexSettingsProperties.getProfile(profileName);
+        // 静态配置建索引后不能修改，不论以哪个档位创建都取serving档位
+        IndexSettingsProperties.Profile serving = indexSettingsProperties.getProfile(IndexSettingsProperties.SERVING);
+        // 创建索引 + 映射（电商场景精准字段类型）
+        CreateIndexResponse response = esClient.indices().create(c -> {
+            c.index(indexName);
+            c.settings(st -> {
+                if (serving.getNumberOfShards() != null) {
+                    st.numberOfShards(String.valueOf(serving.getNumberOfShards()));
+                }
+                if (serving.getCodec() != null) {
+                    st.codec(serving.getCodec());
+                }
+                // 联想词分析器：整个商品名作为一个词条，只转小写（前缀从商品名开头匹配）
+                st.analysis(an -> an.analyzer(SUGGEST_ANALYZER, a -> a.custom(cu -> cu.tokenizer("keyword").filter("lowercase"))));
+                if (indexSettingsProperties.isSortEnabled()) {
+                    st.sort(so -> so
+                            .field("sales", "createTime")
+                            .order(SegmentSortOrder.Desc, SegmentSortOrder.Desc));
+                }
+                return applyDynamicSettings(st, profile);
+            });
+            if (attachAliases) {
+                c.aliases(PRODUCT_INDEX, a -> a)
+                        .aliases(PRODUCT_WRITE_ALIAS, a -> a.isWriteIndex(true));
+            }
+            return c.mappings(m -> m
+                        // 商品名称：IK分词（max_word细粒度）；suggest子字段用于搜索联想（completion前缀查询）
+                        .properties("productName", p -> p.text(t -> t
+                                .analyzer("ik_max_word")
+                                .fields(SUGGEST_FIELD_NAME, f -> f.completion(cp -> cp.analyzer(SUGGEST_ANALYZER)))))
                         // 分类/子分类：关键词（聚合/精准筛选）
                         .properties("category", p -> p.keyword(k->k))
                         .properties("subCategory", p -> p.keyword(k->k))
@@ -78,12 +265,235 @@ public class ProductEsRepository {
                         .properties("merchantId", p -> p.keyword(k->k))
                         // 评分：浮点型（排序/筛选）
                         .properties("score", p -> p.double_(d->d))
-                )
-        );
-        log.info("商品索引{}创建成功，响应：{}", PRODUCT_INDEX, response.acknowledged());
+                        // 更新时间：日期（重建索引时按此补齐复制期间的变更）
+                        .properties(UPDATE_TIME_FIELD, p -> p.date(d -> d.format(UPDATE_TIME_FORMAT)))
+            );
+        });
+        log.info("商品索引{}创建成功，响应：{}，配置档位：{}", indexName, response.acknowledged(), profileName);
         return response.acknowledged();
     }
 
+    // ====================== 索引配置档位 ======================
+    /**
+     * 当前商品索引切换配置档位（大批量导入前切到bulk-load，导入完切回serving）
+     * - 只修改动态配置：副本数、刷新间隔、translog落盘方式
+     */
+    public void applySettingsProfile(String profileName) throws IOException {
+        applySettingsProfile(PRODUCT_WRITE_ALIAS, profileName);
+    }
+
+    void applySettingsProfile(String indexName, String profileName) throws IOException {
+        IndexSettingsProperties.Profile profile = indexSettingsProperties.getProfile(profileName);
+        esClient.indices().putSettings(p -> p
+                .index(indexName)
+                .settings(st -> applyDynamicSettings(st, profile))
+        );
+        // 从关闭刷新切回时立即刷新一次，导入期间写入的商品马上可搜
+        if (!"-1".equals(profile.getRefreshInterval())) {
+            esClient.indices().refresh(r -> r.index(indexName));
+        }
+        log.info("商品索引{}已切换配置档位：{}", indexName, profileName);
+    }
+
+    static IndexSettings.Builder applyDynamicSettings(IndexSettings.Builder st, IndexSettingsProperties.Profile profile) {
+        if (profile.getNumberOfReplicas() != null) {
+            st.numberOfReplicas(String.valueOf(profile.getNumberOfReplicas()));
+        }
+        if (profile.getRefreshInterval() != null) {
+            st.refreshInterval(t -> t.time(profile.getRefreshInterval()));
+        }
+        if (profile.getTranslogDurability() != null) {
+            TranslogDurability durability = parseTranslogDurability(profile.getTranslogDurability());
+            st.translog(t -> t.durability(durability));
+        }
+        return st;
+    }
+
+    static TranslogDurability parseTranslogDurability(String value) {
+        for (TranslogDurability durability : TranslogDurability.values()) {
+            if (durability.jsonValue().equalsIgnoreCase(value)) {
+                return durability;
+            }
+        }
+        throw new IllegalArgumentException("translog落盘方式不合法：" + value + "，可选：request / async");
+    }
+
+    /**
+     * 商品索引当前生效的配置（物理索引名 -> 配置）
+     */
+    public Map<String, Map<String, Object>> getIndexSettings() throws IOException {
+        Map<String, Map<String, Object>> settingsMap = new LinkedHashMap<>();
+        for (Map.Entry<String, IndexState> entry : esClient.indices().getSettings(g -> g.index(PRODUCT_INDEX)).result().entrySet()) {
+            IndexSettings settings = entry.getValue().settings();
+            if (settings != null && settings.index() != null) {
+                settings = settings.index();
+            }
+            Map<String, Object> itemMap = new LinkedHashMap<>();
+            if (settings != null) {
+                itemMap.put("numberOfShards", settings.numberOfShards());
+                itemMap.put("numberOfReplicas", settings.numberOfReplicas());
+                itemMap.put("refreshInterval", settings.refreshInterval() != null ? settings.refreshInterval().time() : null);
+                itemMap.put("translogDurability", settings.translog() != null && settings.translog().durability() != null
+                        ? settings.translog().durability().jsonValue() : null);
+                itemMap.put("codec", settings.codec());
+            }
+            settingsMap.put(entry.getKey(), itemMap);
+        }
+        return settingsMap;
+    }
+
+    public Map<String, IndexSettingsProperties.Profile> getSettingsProfiles() {
+        return indexSettingsProperties.getProfiles();
+    }
+
+    /**
+     * 兼容旧版本直接以ecommerce_product命名的物理索引：补上写别名，写入才能继续
+     */
+    private void ensureLegacyWriteAlias() throws IOException {
+        if (isLegacyIndex() && !esClient.indices().existsAlias(e -> e.name(PRODUCT_WRITE_ALIAS)).value()) {
+            esClient.indices().putAlias(a -> a.index(PRODUCT_INDEX).name(PRODUCT_WRITE_ALIAS).isWriteIndex(true));
+            log.info("旧商品索引{}已补充写别名{}", PRODUCT_INDEX, PRODUCT_WRITE_ALIAS);
+        }
+    }
+
+    /**
+     * 确保索引有updateTime日期映射（旧版本创建的索引没有该字段，动态映射会把该日期格式识别为text）
+     * @throws IllegalStateException 已被动态映射为非日期类型，需重建索引修正
+     */
+    void ensureUpdateTimeMapping(String indexName) throws IOException {
+        List<String> unmapped = new ArrayList<>();
+        esClient.indices().getFieldMapping(g -> g.index(indexName).fields(UPDATE_TIME_FIELD)).result()
+                .forEach((index, mappings) -> {
+                    FieldMapping fieldMapping = mappings.mappings().get(UPDATE_TIME_FIELD);
+                    if (fieldMapping == null) {
+                        unmapped.add(index);
+                        return;
+                    }
+                    Property property = fieldMapping.mapping().get(UPDATE_TIME_FIELD);
+                    if (property == null || !property.isDate()) {
+                        throw new IllegalStateException("索引" + index + "的" + UPDATE_TIME_FIELD + "字段不是日期类型："
+                                + (property == null ? null : property._kind()));
+                    }
+                });
+        for (String index : unmapped) {
+            esClient.indices().putMapping(pm -> pm.index(index)
+                    .properties(UPDATE_TIME_FIELD, p -> p.date(d -> d.format(UPDATE_TIME_FORMAT))));
+            log.info("商品索引{}已补充{}映射", index, UPDATE_TIME_FIELD);
+        }
+    }
+
+    /**
+     * ecommerce_product是物理索引而不是别名（旧版本创建）
+     */
+    boolean isLegacyIndex() throws IOException {
+        return esClient.indices().exists(e -> e.index(PRODUCT_INDEX)).value()
+                && !esClient.indices().existsAlias(e -> e.name(PRODUCT_INDEX)).value();
+    }
+
+    /**
+     * 别名当前指向的物理索引（旧版本物理索引直接返回自身）
+     */
+    List<String> resolveAliasIndices(String alias) throws IOException {
+        if (PRODUCT_INDEX.equals(alias) && isLegacyIndex()) {
+            return Collections.singletonList(PRODUCT_INDEX);
+        }
+        try {
+            return new ArrayList<>(esClient.indices().getAlias(g -> g.name(alias)).result().keySet());
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                return Collections.emptyList();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读写别名当前指向的物理索引
+     */
+    public Map<String, Object> getIndexAliasInfo() throws IOException {
+        Map<String, Object> infoMap = new LinkedHashMap<>();
+        infoMap.put(PRODUCT_INDEX, resolveAliasIndices(PRODUCT_INDEX));
+        infoMap.put(PRODUCT_WRITE_ALIAS, resolveAliasIndices(PRODUCT_WRITE_ALIAS));
+        infoMap.put("legacy", isLegacyIndex());
+        return infoMap;
+    }
+
+    /**
+     * 下一个版本的物理索引名（已有最大版本号 + 1）
+     */
+    String nextVersionedIndexName() throws IOException {
+        int maxVersion = 0;
+        for (String indexName : esClient.indices().get(g -> g
+                .index(PRODUCT_INDEX_VERSION_PREFIX + "*")
+                .allowNoIndices(true)).result().keySet()) {
+            maxVersion = Math.max(maxVersion, parseIndexVersion(indexName));
+        }
+        return PRODUCT_INDEX_VERSION_PREFIX + (maxVersion + 1);
+    }
+
+    static int parseIndexVersion(String indexName) {
+        if (indexName == null || !indexName.startsWith(PRODUCT_INDEX_VERSION_PREFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(indexName.substring(PRODUCT_INDEX_VERSION_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 原子切换读写别名到新索引
+     * - 旧版本物理索引与读别名同名，需在同一个请求中删除旧索引
+     */
+    void swapAliases(String sourceIndex, String targetIndex, boolean legacySource) throws IOException {
+        esClient.indices().updateAliases(u -> {
+            if (legacySource) {
+                u.actions(a -> a.removeIndex(r -> r.index(sourceIndex)));
+            } else {
+                u.actions(a -> a.remove(r -> r.index(sourceIndex).alias(PRODUCT_INDEX)))
+                        .actions(a -> a.remove(r -> r.index(sourceIndex).alias(PRODUCT_WRITE_ALIAS)));
+            }
+            return u.actions(a -> a.add(ad -> ad.index(targetIndex).alias(PRODUCT_INDEX)))
+                    .actions(a -> a.add(ad -> ad.index(targetIndex).alias(PRODUCT_WRITE_ALIAS).isWriteIndex(true)));
+        });
+        log.info("商品索引别名已切换：{} -> {}", sourceIndex, targetIndex);
+    }
+
+    /**
+     * 注册商品搜索存储模板（每种筛选条件组合一个）
+     * @return 本次写入的模板数量
+     */
+    public int registerSearchTemplates() throws IOException {
+        int registered = 0;
+        for (int mask = 0; mask < ProductSearchTemplates.COMBINATIONS; mask++) {
+            String templateId = ProductSearchTemplates.templateId(mask);
+            if (!searchTemplateOverwrite && scriptExists(templateId)) {
+                continue;
+            }
+            String source = ProductSearchTemplates.templateSource(mask);
+            esClient.putScript(p -> p
+                    .id(templateId)
+                    .script(sc -> sc.lang(ScriptLanguage.Mustache).source(source))
+            );
+            registered++;
+        }
+        searchTemplatesReady = true;
+        log.info("商品搜索模板注册完成，新写入：{}，模板总数：{}", registered, ProductSearchTemplates.COMBINATIONS);
+        return registered;
+    }
+
+    private boolean scriptExists(String scriptId) throws IOException {
+        try {
+            return esClient.getScript(g -> g.id(scriptId)).found();
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     /**
      * 删除商品索引（电商运维操作）
      */
@@ -92,19 +502,26 @@ public class ProductEsRepository {
             log.info("商品索引{}不存在，无需删除", PRODUCT_INDEX);
             return true;
         }
-        DeleteIndexResponse response = esClient.indices().delete(d -> d.index(PRODUCT_INDEX));
-        log.info("商品索引{}删除成功，响应：{}", PRODUCT_INDEX, response.acknowledged());
+        // 别名不能直接删除，删除其指向的物理索引
+        List<String> indexNames = resolveAliasIndices(PRODUCT_INDEX);
+        DeleteIndexResponse response = esClient.indices().delete(d -> d.index(indexNames));
+        log.info("商品索引{}删除成功，物理索引：{}，响应：{}", PRODUCT_INDEX, indexNames, response.acknowledged());
         return response.acknowledged();
     }
 
     // ====================== 电商商品CRUD（核心） ======================
     /**
      * 新增商品（电商上架）
+     * - 与批量写入引擎一致，以updateTime毫秒数作为外部版本（external_gte），引擎退避重发的旧数据不会覆盖本次写入
      */
     public String saveProduct(Product product) throws IOException {
+        Date updateTime = new Date();
+        product.setUpdateTime(updateTime);
         IndexResponse response = esClient.index(i -> i
-                .index(PRODUCT_INDEX)
+                .index(PRODUCT_WRITE_ALIAS)
                 .id(product.getId()) // 绑定商品ID为文档ID
+                .versionType(VersionType.ExternalGte)
+                .version(updateTime.getTime())
                 .document(product)
         );
         log.info("商品{}新增成功，操作结果：{}", product.getId(), response.result().name());
@@ -116,11 +533,15 @@ public class ProductEsRepository {
      */
     public String batchSaveProduct(List<Product> productList) throws IOException {
         BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
+        Date updateTime = new Date();
         for (Product product : productList) {
+            product.setUpdateTime(updateTime);
             bulkBuilder.operations(op -> op
                     .index(idx -> idx
-                            .index(PRODUCT_INDEX)
+                            .index(PRODUCT_WRITE_ALIAS)
                             .id(product.getId())
+                            .versionType(VersionType.ExternalGte)
+                            .version(updateTime.getTime())
                             .document(product)
                     )
             );
@@ -128,13 +549,15 @@ public class ProductEsRepository {
         BulkResponse bulkResponse = esClient.bulk(bulkBuilder.build());
         // 电商级异常处理：批量操作失败时打印失败详情
         if (bulkResponse.errors()) {
-            log.error("批量新增商品失败，失败数量：{}", bulkResponse.items().size());
+            int failureCount = 0;
             for (BulkResponseItem item : bulkResponse.items()) {
                 if (item.error() != null) {
+                    failureCount++;
                     log.error("商品{}新增失败：{}", item.id(), item.error().reason());
                 }
             }
-            return "批量新增失败，失败数量：" + bulkResponse.items().size();
+            log.error("批量新增商品失败，失败数量：{}，总数：{}", failureCount, productList.size());
+            return "批量新增失败，失败数量：" + failureCount + "，成功数量：" + (productList.size() - failureCount);
         }
         log.info("批量新增商品成功，总数：{}", productList.size());
         return "批量新增成功，总数：" + productList.size();
@@ -149,8 +572,23 @@ public class ProductEsRepository {
                         .id(productId),
                 Product.class
         );
+        return parseGetResponse(productId, response);
+    }
+
+    /**
+     * 根据商品ID异步查询（非阻塞详情页）
+     */
+    public CompletableFuture<Product> getProductByIdAsync(String productId) {
+        return esAsyncClient.get(g -> g
+                                .index(PRODUCT_INDEX)
+                                .id(productId),
+                        Product.class)
+                .thenApply(response -> parseGetResponse(productId, response));
+    }
+
+    private Product parseGetResponse(String productId, GetResponse<Product> response) {
         if (response.found()) {
-            log.info("商品{}查询成功", productId);
+            log.debug("商品{}查询成功", productId);
             return response.source();
         } else {
             log.warn("商品{}不存在", productId);
@@ -158,12 +596,89 @@ public class ProductEsRepository {
         }
     }
 
+    /**
+     * 批量查询商品（购物车/订单/推荐页）
+     * - 基于_mget一次往返查询多个商品，ID过多时分块并行查询
+     * - 支持_source字段过滤，只返回页面需要的字段
+     * - 结果与传入ID顺序一致，未找到的商品返回found=false
+     * @param productIds 商品ID列表（已去重）
+     * @param fields 返回字段（为空返回全部字段）
+     */
+    public List<ProductLookupItem> getProductsByIds(List<String> productIds, List<String> fields) throws IOException {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i += mgetChunkSize) {
+            chunks.add(productIds.subList(i, Math.min(i + mgetChunkSize, productIds.size())));
+        }
+
+        // 单块直接在当前线程查询，多块并行查询
+        Map<String, ProductLookupItem> itemMap = new HashMap<>(productIds.size() * 2);
+        if (chunks.size() == 1) {
+            itemMap.putAll(mgetChunk(chunks.get(0), fields));
+        } else {
+            List<CompletableFuture<Map<String, ProductLookupItem>>> futures = chunks.stream()
+                    .map(chunk -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return mgetChunk(chunk, fields);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, mgetExecutor))
+                    .collect(Collectors.toList());
+            try {
+                for (CompletableFuture<Map<String, ProductLookupItem>> future : futures) {
+                    itemMap.putAll(future.join());
+                }
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e;
+            }
+        }
+
+        List<ProductLookupItem> resultList = productIds.stream()
+                .map(id -> itemMap.getOrDefault(id, ProductLookupItem.notFound(id)))
+                .collect(Collectors.toList());
+        if (log.isDebugEnabled()) {
+            log.debug("商品批量查询完成，请求数量：{}，分块数：{}，命中数量：{}", productIds.size(), chunks.size(),
+                    resultList.stream().filter(ProductLookupItem::isFound).count());
+        }
+        return resultList;
+    }
+
+    private Map<String, ProductLookupItem> mgetChunk(List<String> productIds, List<String> fields) throws IOException {
+        MgetResponse<Product> response = esClient.mget(m -> {
+                    m.index(PRODUCT_INDEX).ids(productIds);
+                    if (fields != null && !fields.isEmpty()) {
+                        m.sourceIncludes(fields);
+                    }
+                    return m;
+                },
+                Product.class
+        );
+        Map<String, ProductLookupItem> itemMap = new HashMap<>(productIds.size() * 2);
+        for (MultiGetResponseItem<Product> item : response.docs()) {
+            if (item.isResult()) {
+                GetResult<Product> result = item.result();
+                itemMap.put(result.id(), result.found()
+                        ? ProductLookupItem.found(result.id(), result.source())
+                        : ProductLookupItem.notFound(result.id()));
+            } else {
+                MultiGetError failure = item.failure();
+                log.warn("商品{}批量查询失败：{}", failure.id(), failure.error().reason());
+                itemMap.put(failure.id(), ProductLookupItem.failed(failure.id(), failure.error().reason()));
+            }
+        }
+        return itemMap;
+    }
+
     /**
      * 更新商品（电商商品编辑）
      */
     public String updateProduct(Product product) throws IOException {
+        product.setUpdateTime(new Date());
         UpdateResponse<Product> response = esClient.update(u -> u
-                        .index(PRODUCT_INDEX)
+                        .index(PRODUCT_WRITE_ALIAS)
                         .id(product.getId())
                         .doc(product),
                 Product.class
@@ -177,7 +692,7 @@ public class ProductEsRepository {
      */
     public String deleteProductById(String productId) throws IOException {
         DeleteResponse response = esClient.delete(d -> d
-                .index(PRODUCT_INDEX)
+                .index(PRODUCT_WRITE_ALIAS)
                 .id(productId)
         );
         log.info("商品{}删除成功，操作结果：{}", productId, response.result().name());
@@ -200,9 +715,254 @@ public class ProductEsRepository {
             String sortField,        // 排序字段（sales/price/score）
             SortOrder sortOrder      // 排序方向（asc/desc）
     ) throws IOException {
+        if (useSearchTemplate()) {
+            SearchTemplateResponse<Product> response = esClient.searchTemplate(
+                    buildSearchTemplateRequest(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder, false),
+                    Product.class
+            );
+            return parseSearchResponse(keyword, response.hits());
+        }
+        SearchResponse<Product> response = esClient.search(
+                buildSearchRequest(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder, null),
+                Product.class
+        );
+        return parseSearchResponse(keyword, response.hits());
+    }
+
+    /**
+     * 商品列表页搜索（条件同searchProduct）
+     * - 通过_source过滤只返回列表卡片需要的字段，不传输/解析描述等大字段
+     */
+    public List<ProductListItem> searchProductList(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                   String category, List<String> tags,
+                                                   String sortField, SortOrder sortOrder) throws IOException {
+        if (useSearchTemplate()) {
+            SearchTemplateResponse<ProductListItem> response = esClient.searchTemplate(
+                    buildSearchTemplateRequest(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder, true),
+                    ProductListItem.class
+            );
+            return parseSearchResponse(keyword, response.hits());
+        }
+        SearchResponse<ProductListItem> response = esClient.search(
+                buildSearchRequest(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder,
+                        ProductListItem.SOURCE_FIELDS),
+                ProductListItem.class
+        );
+        return parseSearchResponse(keyword, response.hits());
+    }
+
+    /**
+     * 商品模糊搜索（异步，条件同searchProduct）
+     */
+    public CompletableFuture<List<Product>> searchProductAsync(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                               String category, List<String> tags,
+                                                               String sortField, SortOrder sortOrder) {
+        if (useSearchTemplate()) {
+            return esAsyncClient.searchTemplate(
+                            buildSearchTemplateRequest(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder, false),
+                            Product.class)
+                    .thenApply(response -> parseSearchResponse(keyword, response.hits()));
+        }
+        return esAsyncClient.search(
+                        buildSearchRequest(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder, null),
+                        Product.class)
+                .thenApply(response -> parseSearchResponse(keyword, response.hits()));
+    }
+
+    private boolean useSearchTemplate() {
+        return searchTemplateEnabled && searchTemplatesReady;
+    }
+
+    /**
+     * 存储模板搜索请求：按筛选条件组合选择模板，只传参数
+     */
+    static SearchTemplateRequest buildSearchTemplateRequest(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                            String category, List<String> tags,
+                                                            String sortField, SortOrder sortOrder, boolean listView) {
+        int mask = ProductSearchTemplates.combination(keyword, minPrice, maxPrice, category, tags);
+        return SearchTemplateRequest.of(st -> st
+                .index(PRODUCT_INDEX)
+                .id(ProductSearchTemplates.templateId(mask))
+                .params(ProductSearchTemplates.params(keyword, minPrice, maxPrice, category, tags,
+                        sortField, sortOrder, listView))
+        );
+    }
+
+    /**
+     * @param sourceFields 返回字段（为空返回完整商品）
+     */
+    static SearchRequest buildSearchRequest(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                            String category, List<String> tags,
+                                            String sortField, SortOrder sortOrder, List<String> sourceFields) {
+        // 1. 构建查询条件 + 排序
+        Query query = buildSearchQuery(keyword, minPrice, maxPrice, category, tags);
+        SortOptions sortOptions = buildSortOptions(sortField, sortOrder);
+
+        // 2. 构建查询请求
+        boolean browseMode = isBrowseMode(keyword);
+        return SearchRequest.of(s -> {
+            s.index(PRODUCT_INDEX)
+                    .query(query)
+                    .sort(sortOptions)
+                    .size(100); // 电商分页可扩展from/size
+            if (browseMode) {
+                // 列表不返回总数，不统计命中数后按索引排序顺序读满size条即可提前终止
+                s.trackTotalHits(t -> t.enabled(false));
+            }
+            if (sourceFields != null) {
+                s.source(src -> src.filter(f -> f.includes(sourceFields)));
+            }
+            return s;
+        });
+    }
+
+    private <T> List<T> parseSearchResponse(String keyword, HitsMetadata<T> hits) {
+        // 3. 解析结果
+        List<T> productList = hits.hits().stream()
+                .map(Hit::source)
+                .collect(Collectors.toList());
+        if (log.isDebugEnabled()) {
+            log.debug("商品搜索完成，关键词：{}，匹配数量：{}", keyword, productList.size());
+        }
+        return productList;
+    }
+
+    /**
+     * 商品游标搜索（电商分类列表页深分页）
+     * - 基于PIT（时间点）+ search_after，每页开销恒定，不受页码深度影响
+     * - PIT固定了索引快照，翻页过程中即使有商品写入，排序也保持稳定
+     * - 排序追加_shard_doc作为唯一兜底字段，避免同值商品重复/遗漏
+     * @param cursor 上一页返回的游标，为空表示从第一页开始
+     * @param pageSize 页大小
+     */
+    public EsResponseUtil.EsPageResult<Product> searchProductByCursor(
+            String keyword,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String category,
+            List<String> tags,
+            String sortField,
+            SortOrder sortOrder,
+            String cursor,
+            int pageSize
+    ) throws IOException {
+        return doSearchByCursor(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder,
+                cursor, pageSize, Product.class, null);
+    }
+
+    /**
+     * 游标绑定的查询条件摘要（重启/跨实例一致：不依赖枚举等对象的hashCode，价格去掉末尾0后比较）
+     */
+    static int cursorQueryHash(String keyword, BigDecimal minPrice, BigDecimal maxPrice, String category,
+                               List<String> tags, String sortField, SortOrder sortOrder) {
+        return String.join("\u0001", String.valueOf(keyword), canonicalPrice(minPrice), canonicalPrice(maxPrice),
+                String.valueOf(category), String.valueOf(tags), String.valueOf(sortField),
+                sortOrder == null ? "null" : sortOrder.jsonValue()).hashCode();
+    }
+
+    private static String canonicalPrice(BigDecimal price) {
+        return price == null ? "null" : price.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 商品列表页游标搜索（精简视图，条件同searchProductByCursor）
+     */
+    public EsResponseUtil.EsPageResult<ProductListItem> searchProductListByCursor(
+            String keyword, BigDecimal minPrice, BigDecimal maxPrice, String category, List<String> tags,
+            String sortField, SortOrder sortOrder, String cursor, int pageSize) throws IOException {
+        return doSearchByCursor(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder,
+                cursor, pageSize, ProductListItem.class, ProductListItem.SOURCE_FIELDS);
+    }
+
+    private <T> EsResponseUtil.EsPageResult<T> doSearchByCursor(
+            String keyword, BigDecimal minPrice, BigDecimal maxPrice, String category, List<String> tags,
+            String sortField, SortOrder sortOrder, String cursor, int pageSize,
+            Class<T> documentClass, List<String> sourceFields) throws IOException {
+        int queryHash = cursorQueryHash(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder);
+        SearchCursor current = (cursor == null || cursor.isEmpty()) ? null : SearchCursor.decode(cursor);
+        if (current != null && current.getQueryHash() != queryHash) {
+            throw new IllegalArgumentException("游标与当前查询条件不匹配，请从第一页重新查询");
+        }
+        boolean firstPage = current == null;
+        String pitId = firstPage ? pointInTimeManager.open(PRODUCT_INDEX) : current.getPitId();
+
+        // 1. 查询条件与普通搜索保持一致，排序追加_shard_doc兜底
+        Query query = buildSearchQuery(keyword, minPrice, maxPrice, category, tags);
+        List<SortOptions> sortList = Arrays.asList(
+                buildSortOptions(sortField, sortOrder),
+                SortOptions.of(s -> s.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+        );
+
+        // 2. 基于PIT查询（PIT查询不能指定索引），仅首页统计总条数
+        SearchResponse<T> response;
+        try {
+            response = esClient.search(s -> {
+                        s.pit(p -> p.id(pitId).keepAlive(t -> t.time(pointInTimeManager.getKeepAlive())))
+                                .query(query)
+                                .sort(sortList)
+                                .size(pageSize)
+                                .trackTotalHits(t -> t.enabled(firstPage));
+                        if (!firstPage) {
+                            s.searchAfter(current.toSearchAfter());
+                        }
+                        if (sourceFields != null) {
+                            s.source(src -> src.filter(f -> f.includes(sourceFields)));
+                        }
+                        return s;
+                    },
+                    documentClass
+            );
+        } catch (ElasticsearchException e) {
+            pointInTimeManager.release(pitId);
+            if (e.status() == 404) {
+                throw new IllegalArgumentException("游标已过期，请从第一页重新查询");
+            }
+            throw e;
+        }
+
+        // 3. 生成下一页游标（不足一页说明已到末尾，直接释放PIT）
+        int currentPage = firstPage ? 1 : current.getPage();
+        List<Hit<T>> hitList = response.hits().hits();
+        String latestPitId = response.pitId() == null ? pitId : response.pitId();
+        long totalCount = firstPage ? EsResponseUtil.exactTotalCount(response) : current.getTotalCount();
+        String nextCursor = null;
+        if (hitList.size() < pageSize) {
+            pointInTimeManager.release(latestPitId);
+        } else {
+            pointInTimeManager.touch(pitId, latestPitId);
+            nextCursor = new SearchCursor(latestPitId,
+                    SearchCursor.fromSortValues(hitList.get(hitList.size() - 1).sort()),
+                    currentPage + 1, totalCount, queryHash).encode();
+        }
+
+        // 4. 封装分页结果
+        EsResponseUtil.EsPageResult<T> pageResult =
+                EsResponseUtil.wrapPageResult(response, currentPage, pageSize, totalCount);
+        pageResult.setNextCursor(nextCursor);
+        if (log.isDebugEnabled()) {
+            log.debug("商品游标搜索完成，关键词：{}，页码：{}，本页数量：{}", keyword, currentPage, hitList.size());
+        }
+        return pageResult;
+    }
+
+    /**
+     * 浏览模式：无关键词（分类页/筛选页），结果只按排序字段排列，不需要相关性打分
+     */
+    static boolean isBrowseMode(String keyword) {
+        return keyword == null || keyword.trim().isEmpty();
+    }
+
+    /**
+     * 构建搜索条件
+     * - 搜索模式：关键词should打分 + 筛选条件filter
+     * - 浏览模式：只有filter，包成constant_score跳过打分；filter结果由ES节点查询缓存复用
+     */
+    static Query buildSearchQuery(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                  String category, List<String> tags) {
         // 1. 构建基础查询：关键词匹配商品名称/描述
         BoolQuery.Builder boolQuery = new BoolQuery.Builder();
-        if (keyword != null && !keyword.isEmpty()) {
+        boolean browseMode = isBrowseMode(keyword);
+        if (!browseMode) {
             boolQuery.should(MatchQuery.of(m -> m
                     .field("productName")
                     .query(keyword)
@@ -244,28 +1004,342 @@ public class ProductEsRepository {
                     .terms(tt -> tt.value(tags.stream().map(FieldValue::of).collect(Collectors.toList())))
             )._toQuery());
         }
+        BoolQuery query = boolQuery.build();
+        if (!browseMode) {
+            return query._toQuery();
+        }
+        // 5. 浏览模式：无筛选条件时match_all，否则constant_score
+        if (query.filter().isEmpty()) {
+            return MatchAllQuery.of(m -> m)._toQuery();
+        }
+        return ConstantScoreQuery.of(c -> c.filter(query._toQuery()))._toQuery();
+    }
 
-        // 3. 构建排序（电商默认按销量降序）
-        SortOptions sortOptions = SortOptions.of(s -> s.field(
+    /**
+     * 构建排序（电商默认按销量降序）
+     */
+    static SortOptions buildSortOptions(String sortField, SortOrder sortOrder) {
+        return SortOptions.of(s -> s.field(
                 f -> f.field(sortField == null || sortField.isEmpty() ? "sales" : sortField)
                         .order(sortOrder == null ? SortOrder.Desc : sortOrder)
         ));
+    }
+
+    // ====================== 分面搜索（列表页筛选栏） ======================
+    // 分面字段（ES字段名即分面名）
+    static final List<String> FACET_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "category", "subCategory", "tags", "merchantId"));
+    static final String PRICE_FACET = "price";
+    private static final String FACET_TERMS_AGG = "values";
+    private static final String FACET_HISTOGRAM_AGG = "histogram";
+    private static final String FACET_STATS_AGG = "stats";
+    // 价格直方图最多桶数：区间宽度过小时按全量价格跨度放宽，避免触发too_many_buckets（默认上限65536）
+    static final int MAX_PRICE_BUCKETS = 200;
+    // 全量价格跨度缓存时长（跨度只用于估算桶数上限，几分钟内的新价格只会让桶数略超MAX_PRICE_BUCKETS）
+    private static final long PRICE_SPAN_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private volatile double priceSpan;
+    private volatile long priceSpanLoadedAt;
+
+    /**
+     * 分面搜索：一次请求返回当前页商品 + 分面计数 + 价格分布
+     * - 关键词在query中（影响所有分面），分面筛选条件放在post_filter中只过滤命中结果
+     * - 每个分面的计数排除本分面自身的筛选条件（多选时其他取值的数量仍然可见）
+     */
+    public ProductFacetResult searchProductFacets(ProductFacetQuery facetQuery) throws IOException {
+        double priceInterval = effectivePriceInterval(facetQuery.getPriceInterval(), loadPriceSpan());
+        SearchResponse<ProductListItem> response = esClient.search(
+                buildFacetSearchRequest(facetQuery, priceInterval), ProductListItem.class);
+
+        ProductFacetResult result = new ProductFacetResult();
+        result.setPage(EsResponseUtil.wrapPageResult(response, facetQuery.getPage(), facetQuery.getPageSize()));
+        Map<String, Map<String, Long>> facetMap = new LinkedHashMap<>();
+        for (String field : FACET_FIELDS) {
+            facetMap.put(field, EsResponseUtil.parseFacetTerms(response.aggregations(), field, FACET_TERMS_AGG));
+        }
+        result.setFacets(facetMap);
+        result.setPriceHistogram(EsResponseUtil.parseFacetHistogram(response.aggregations(), PRICE_FACET, FACET_HISTOGRAM_AGG));
+        result.setPriceStats(EsResponseUtil.parseFacetStats(response.aggregations(), PRICE_FACET, FACET_STATS_AGG));
+        result.setPriceInterval(priceInterval);
+        if (log.isDebugEnabled()) {
+            log.debug("商品分面搜索完成，关键词：{}，命中：{}", facetQuery.getKeyword(), result.getPage().getTotalCount());
+        }
+        return result;
+    }
 
-        // 4. 执行查询
-        SearchResponse<Product> response = esClient.search(s -> s
+    /**
+     * 价格直方图实际区间宽度：保证全量价格跨度内的桶数不超过MAX_PRICE_BUCKETS（按分向上取整）
+     * 价格分面不受价格筛选条件约束，只能用全量价格跨度估算桶数
+     */
+    static double effectivePriceInterval(double requestedInterval, double priceSpan) {
+        double minInterval = Math.ceil(priceSpan / MAX_PRICE_BUCKETS * 100) / 100;
+        return Math.max(requestedInterval, minInterval);
+    }
+
+    /**
+     * 全量商品价格跨度（max - min），按PRICE_SPAN_TTL_MILLIS缓存
+     */
+    private double loadPriceSpan() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - priceSpanLoadedAt < PRICE_SPAN_TTL_MILLIS) {
+            return priceSpan;
+        }
+        SearchResponse<Void> response = esClient.search(s -> s
                         .index(PRODUCT_INDEX)
-                        .query(boolQuery.build()._toQuery())
-                        .sort(sortOptions)
-                        .size(100), // 电商分页可扩展from/size
-                Product.class
+                        .size(0)
+                        .trackTotalHits(t -> t.enabled(false))
+                        .aggregations(PRICE_FACET, a -> a.stats(st -> st.field("price"))),
+                Void.class);
+        StatsAggregate stats = response.aggregations().get(PRICE_FACET).stats();
+        priceSpan = stats.count() == 0 ? 0 : stats.max() - stats.min();
+        priceSpanLoadedAt = now;
+        return priceSpan;
+    }
+
+    static SearchRequest buildFacetSearchRequest(ProductFacetQuery facetQuery, double priceInterval) {
+        // 1. 各分面的筛选条件（分面名 -> 条件）
+        Map<String, Query> filterMap = new LinkedHashMap<>();
+        addTermsFilter(filterMap, "category", facetQuery.getCategories());
+        addTermsFilter(filterMap, "subCategory", facetQuery.getSubCategories());
+        addTermsFilter(filterMap, "tags", facetQuery.getTags());
+        addTermsFilter(filterMap, "merchantId", facetQuery.getMerchantIds());
+        if (facetQuery.getMinPrice() != null || facetQuery.getMaxPrice() != null) {
+            RangeQuery.Builder rangeQuery = new RangeQuery.Builder().field("price");
+            if (facetQuery.getMinPrice() != null) {
+                rangeQuery.gte(JsonData.of(facetQuery.getMinPrice().doubleValue()));
+            }
+            if (facetQuery.getMaxPrice() != null) {
+                rangeQuery.lte(JsonData.of(facetQuery.getMaxPrice().doubleValue()));
+            }
+            filterMap.put(PRICE_FACET, rangeQuery.build()._toQuery());
+        }
+
+        // 2. 分面聚合：filter聚合（排除本分面条件）包裹terms/histogram/stats
+        Map<String, Aggregation> aggMap = new LinkedHashMap<>();
+        for (String field : FACET_FIELDS) {
+            aggMap.put(field, Aggregation.of(a -> a
+                    .filter(facetFilter(filterMap, field))
+                    .aggregations(FACET_TERMS_AGG, sub -> sub.terms(t -> t.field(field).size(facetQuery.getFacetSize())))
+            ));
+        }
+        aggMap.put(PRICE_FACET, Aggregation.of(a -> a
+                .filter(facetFilter(filterMap, PRICE_FACET))
+                .aggregations(FACET_HISTOGRAM_AGG, sub -> sub.histogram(h -> h
+                        .field("price")
+                        .interval(priceInterval)
+                        .minDocCount(1)))
+                .aggregations(FACET_STATS_AGG, sub -> sub.stats(st -> st.field("price")))
+        ));
+
+        // 3. 关键词查询 + post_filter + 分页
+        Query query = buildSearchQuery(facetQuery.getKeyword(), null, null, null, null);
+        int from = (facetQuery.getPage() - 1) * facetQuery.getPageSize();
+        return SearchRequest.of(s -> {
+            s.index(PRODUCT_INDEX)
+                    .query(query)
+                    .aggregations(aggMap)
+                    .sort(buildSortOptions(facetQuery.getSortField(), facetQuery.getSortOrder()))
+                    .from(from)
+                    .size(facetQuery.getPageSize())
+                    .trackTotalHits(t -> t.enabled(true))
+                    .source(src -> src.filter(f -> f.includes(ProductListItem.SOURCE_FIELDS)));
+            if (!filterMap.isEmpty()) {
+                s.postFilter(BoolQuery.of(b -> b.filter(new ArrayList<>(filterMap.values())))._toQuery());
+            }
+            return s;
+        });
+    }
+
+    private static void addTermsFilter(Map<String, Query> filterMap, String field, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            filterMap.put(field, TermsQuery.of(t -> t
+                    .field(field)
+                    .terms(tt -> tt.value(values.stream().map(FieldValue::of).collect(Collectors.toList())))
+            )._toQuery());
+        }
+    }
+
+    /**
+     * 分面聚合的过滤条件：除本分面外的所有分面条件
+     */
+    private static Query facetFilter(Map<String, Query> filterMap, String facetName) {
+        List<Query> otherFilters = filterMap.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals(facetName))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        if (otherFilters.isEmpty()) {
+            return MatchAllQuery.of(m -> m)._toQuery();
+        }
+        return BoolQuery.of(b -> b.filter(otherFilters))._toQuery();
+    }
+
+    // ====================== 搜索联想 + 全量扫描 ======================
+    /**
+     * 商品名称联想（completion suggester，本地前缀索引未就绪时使用）
+     */
+    public List<String> suggestProductNames(String prefix, int size) throws IOException {
+        SearchResponse<ProductListItem> response = esClient.search(s -> s
+                        .index(PRODUCT_INDEX)
+                        .source(src -> src.fetch(false))
+                        .suggest(su -> su.suggesters("productName", fs -> fs
+                                .prefix(prefix)
+                                .completion(c -> c.field(SUGGEST_FIELD).size(size).skipDuplicates(true))
+                        )),
+                ProductListItem.class
         );
+        List<String> resultList = new ArrayList<>();
+        for (Suggestion<ProductListItem> suggestion : response.suggest().getOrDefault("productName", Collections.emptyList())) {
+            if (suggestion.isCompletion()) {
+                suggestion.completion().options().forEach(option -> resultList.add(option.text()));
+            }
+        }
+        return resultList;
+    }
 
-        // 5. 解析结果
-        List<Product> productList = response.hits().hits().stream()
-                .map(Hit::source)
+    /**
+     * 按_shard_doc顺序扫描全部商品（PIT + search_after），每批回调一次
+     * @param sourceFields 只读取的_source字段，null读取全部
+     * @return 扫描的商品总数
+     */
+    public <T> long scanProducts(List<String> sourceFields, int batchSize, Class<T> documentClass,
+                                 Consumer<List<T>> batchConsumer) throws IOException {
+        String pitId = openProductPit();
+        try {
+            return scanProductSlice(pitId, 0, 1, sourceFields, batchSize, documentClass, batchConsumer::accept);
+        } finally {
+            pointInTimeManager.release(pitId);
+        }
+    }
+
+    /**
+     * 打开商品索引PIT（多个切片共用，保证看到同一时刻的数据）
+     */
+    public String openProductPit() throws IOException {
+        return pointInTimeManager.open(PRODUCT_INDEX);
+    }
+
+    public void releasePit(String pitId) {
+        pointInTimeManager.release(pitId);
+    }
+
+    /**
+     * 扫描PIT中的一个切片（maxSlices为1时扫描全部），PIT由调用方打开和关闭
+     * - 多个切片可在不同线程并行扫描，ES按分片/文档划分切片，切片之间没有重复
+     * - 回调抛出IOException时停止扫描（如导出时客户端断开）
+     */
+    public <T> long scanProductSlice(String pitId, int sliceId, int maxSlices, List<String> sourceFields, int batchSize,
+                                     Class<T> documentClass, BatchHandler<T> batchHandler) throws IOException {
+        long scanned = 0;
+        String currentPitId = pitId;
+        List<FieldValue> searchAfter = null;
+        while (true) {
+            SearchResponse<T> response = esClient.search(
+                    buildScanRequest(currentPitId, pointInTimeManager.getKeepAlive(), sliceId, maxSlices,
+                            sourceFields, batchSize, searchAfter), documentClass);
+            pointInTimeManager.touch(currentPitId, response.pitId());
+            if (response.pitId() != null) {
+                currentPitId = response.pitId();
+            }
+            List<Hit<T>> hitList = response.hits().hits();
+            if (!hitList.isEmpty()) {
+                batchHandler.accept(hitList.stream().map(Hit::source).filter(Objects::nonNull).collect(Collectors.toList()));
+                scanned += hitList.size();
+                searchAfter = hitList.get(hitList.size() - 1).sort();
+            }
+            if (hitList.size() < batchSize) {
+                return scanned;
+            }
+        }
+    }
+
+    static SearchRequest buildScanRequest(String pitId, String keepAlive, int sliceId, int maxSlices,
+                                          List<String> sourceFields, int batchSize, List<FieldValue> searchAfter) {
+        return SearchRequest.of(s -> {
+            s.pit(p -> p.id(pitId).keepAlive(t -> t.time(keepAlive)))
+                    .sort(so -> so.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+                    .size(batchSize)
+                    .trackTotalHits(t -> t.enabled(false));
+            if (maxSlices > 1) {
+                s.slice(sl -> sl.id(String.valueOf(sliceId)).max(maxSlices));
+            }
+            if (searchAfter != null) {
+                s.searchAfter(searchAfter);
+            }
+            if (sourceFields != null) {
+                s.source(src -> src.filter(f -> f.includes(sourceFields)));
+            }
+            return s;
+        });
+    }
+
+    // ====================== 组合聚合分页（全量分类/商家/标签统计） ======================
+    // 支持组合聚合的字段（均为keyword）
+    public static final List<String> COMPOSITE_AGG_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "category", "subCategory", "merchantId", "tags"));
+    static final String DOC_COUNT_KEY = "docCount";
+
+    /**
+     * 分批回调（回调可抛出IOException，如写出到HTTP响应失败时终止翻页/扫描）
+     */
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+        void accept(List<T> batch) throws IOException;
+    }
+
+    /**
+     * 组合聚合翻页扫描全部分桶（不受terms聚合size限制）
+     * - 每页pageSize个桶，按after_key翻页，ES和应用内存都只占一页
+     * - 字段缺失的商品单独成桶（取值为null）
+     * @return 分桶总数
+     */
+    public long scanCompositeAgg(List<String> fields, int pageSize, BatchHandler<Map<String, Object>> handler) throws IOException {
+        long bucketCount = 0;
+        Map<String, FieldValue> afterKey = null;
+        while (true) {
+            SearchResponse<Product> response = esClient.search(buildCompositeAggRequest(fields, pageSize, afterKey), Product.class);
+            CompositeAggregate composite = response.aggregations().get("buckets").composite();
+            List<CompositeBucket> bucketList = composite.buckets().array();
+            if (!bucketList.isEmpty()) {
+                List<Map<String, Object>> rowList = new ArrayList<>(bucketList.size());
+                for (CompositeBucket bucket : bucketList) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (String field : fields) {
+                        FieldValue value = bucket.key().get(field);
+                        row.put(field, value == null || value.isNull() ? null : value._get());
+                    }
+                    row.put(DOC_COUNT_KEY, bucket.docCount());
+                    rowList.add(row);
+                }
+                handler.accept(rowList);
+                bucketCount += bucketList.size();
+            }
+            // after_key为空或不足一页说明已到末页
+            if (bucketList.size() < pageSize || composite.afterKey() == null || composite.afterKey().isEmpty()) {
+                log.info("组合聚合扫描完成，字段：{}，分桶数：{}", fields, bucketCount);
+                return bucketCount;
+            }
+            afterKey = composite.afterKey();
+        }
+    }
+
+    static SearchRequest buildCompositeAggRequest(List<String> fields, int pageSize, Map<String, FieldValue> afterKey) {
+        List<Map<String, CompositeAggregationSource>> sourceList = fields.stream()
+                .map(field -> Collections.singletonMap(field, CompositeAggregationSource.of(src -> src
+                        .terms(t -> t.field(field).missingBucket(true)))))
                 .collect(Collectors.toList());
-        log.info("商品搜索完成，关键词：{}，匹配数量：{}", keyword, productList.size());
-        return productList;
+        Aggregation compositeAgg = Aggregation.of(a -> a.composite(c -> {
+            c.sources(sourceList).size(pageSize);
+            if (afterKey != null) {
+                c.after(afterKey);
+            }
+            return c;
+        }));
+        return SearchRequest.of(s -> s
+                .index(PRODUCT_INDEX)
+                .size(0)
+                .trackTotalHits(t -> t.enabled(false))
+                .aggregations("buckets", compositeAgg)
+        );
     }
 
     // ====================== 电商商品聚合（运营分析） ======================
@@ -273,6 +1347,20 @@ public class ProductEsRepository {
      * 按分类聚合商品数量（电商运营报表）
      */
     public Map<String, Long> aggProductByCategory() throws IOException {
+        // 执行聚合查询（不返回原始文档，提升性能）
+        SearchResponse<Product> response = esClient.search(buildCategoryAggRequest(), Product.class);
+        return parseCategoryAgg(response);
+    }
+
+    /**
+     * 按分类聚合商品数量（异步）
+     */
+    public CompletableFuture<Map<String, Long>> aggProductByCategoryAsync() {
+        return esAsyncClient.search(buildCategoryAggRequest(), Product.class)
+                .thenApply(ProductEsRepository::parseCategoryAgg);
+    }
+
+    private SearchRequest buildCategoryAggRequest() {
         // 构建分类聚合
         Map<String, Aggregation> aggMap = Collections.singletonMap(
                 "category_agg", Aggregation.of(a -> a
@@ -282,23 +1370,22 @@ public class ProductEsRepository {
                         ))
                 )
         );
-
-        // 执行聚合查询（不返回原始文档，提升性能）
-        SearchResponse<Product> response = esClient.search(s -> s
-                        .index(PRODUCT_INDEX)
-                        .size(0)
-                        .aggregations(aggMap),
-                Product.class
+        return SearchRequest.of(s -> s
+                .index(PRODUCT_INDEX)
+                .size(0)
+                .aggregations(aggMap)
         );
+    }
 
-        // 解析聚合结果
+    static Map<String, Long> parseCategoryAgg(SearchResponse<Product> response) {
+        // 解析聚合结果（FieldValue未重写toString，桶key必须用stringValue读取）
         Map<String, Aggregate> aggResult = response.aggregations();
-        Map<String, Long> categoryCountMap = aggResult.get("category_agg").sterms().buckets().array().stream()
-                .collect(Collectors.toMap(
-                        bucket -> bucket.key().toString(),
-                        bucket -> bucket.docCount()
-                ));
-        log.info("商品分类聚合完成，聚合分类数：{}", categoryCountMap.size());
+        Map<String, Long> categoryCountMap = new LinkedHashMap<>();
+        aggResult.get("category_agg").sterms().buckets().array()
+                .forEach(bucket -> categoryCountMap.put(bucket.key().stringValue(), bucket.docCount()));
+        if (log.isDebugEnabled()) {
+            log.debug("商品分类聚合完成，聚合分类数：{}", categoryCountMap.size());
+        }
         return categoryCountMap;
     }
 
@@ -306,6 +1393,20 @@ public class ProductEsRepository {
      * 按分类+子分类二级聚合（电商多级分类分析）
      */
     public Map<String, Map<String, Long>> aggProductByCategoryAndSubCategory() throws IOException {
+        // 执行聚合
+        SearchResponse<Product> response = esClient.search(buildSubCategoryAggRequest(), Product.class);
+        return parseSubCategoryAgg(response);
+    }
+
+    /**
+     * 按分类+子分类二级聚合（异步）
+     */
+    public CompletableFuture<Map<String, Map<String, Long>>> aggProductByCategoryAndSubCategoryAsync() {
+        return esAsyncClient.search(buildSubCategoryAggRequest(), Product.class)
+                .thenApply(ProductEsRepository::parseSubCategoryAgg);
+    }
+
+    private SearchRequest buildSubCategoryAggRequest() {
         // 构建二级聚合：分类 -> 子分类
         Map<String, Aggregation> aggMap = Collections.singletonMap(
                 "category_agg",
@@ -328,29 +1429,42 @@ public class ProductEsRepository {
                         )
                 )
         );
-
-        // 执行聚合
-        SearchResponse<Product> response = esClient.search(s -> s
-                        .index(PRODUCT_INDEX)
-                        .size(0)
-                        .aggregations(aggMap),
-                Product.class
+        return SearchRequest.of(s -> s
+                .index(PRODUCT_INDEX)
+                .size(0)
+                .aggregations(aggMap)
         );
+    }
 
+    /**
+     * 分类聚合快照：一次二级聚合同时得到分类数量（一级桶doc_count）和子分类数量
+     */
+    public ProductAggSnapshot aggProductCategorySnapshot() throws IOException {
+        long start = System.currentTimeMillis();
+        SearchResponse<Product> response = esClient.search(buildSubCategoryAggRequest(), Product.class);
+        Map<String, Long> categoryCountMap = parseCategoryAgg(response);
+        Map<String, Map<String, Long>> subCategoryMap = parseSubCategoryAgg(response);
+        long end = System.currentTimeMillis();
+        return new ProductAggSnapshot(categoryCountMap, subCategoryMap, end, end - start, response.took());
+    }
+
+    static Map<String, Map<String, Long>> parseSubCategoryAgg(SearchResponse<Product> response) {
         // 解析二级聚合结果
         Map<String, Map<String, Long>> resultMap = new HashMap<>();
         Map<String, Aggregate> aggResult = response.aggregations();
         aggResult.get("category_agg").sterms().buckets().array().forEach(categoryBucket -> {
-            String category = categoryBucket.key().toString();
+            String category = categoryBucket.key().stringValue();
             Map<String, Long> subCategoryMap = categoryBucket.aggregations()
                     .get("sub_category_agg").sterms().buckets().array().stream()
                     .collect(Collectors.toMap(
-                            subBucket -> subBucket.key().toString(),
+                            subBucket -> subBucket.key().stringValue(),
                             subBucket -> subBucket.docCount()
                     ));
             resultMap.put(category, subCategoryMap);
         });
-        log.info("商品二级分类聚合完成，聚合分类数：{}", resultMap.size());
+        if (log.isDebugEnabled()) {
+            log.debug("商品二级分类聚合完成，聚合分类数：{}", resultMap.size());
+        }
         return resultMap;
     }
 }
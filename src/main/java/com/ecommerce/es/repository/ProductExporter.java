@@ -0,0 +1,462 @@
+package com.ecommerce.es.repository;
+
+import com.ecommerce.es.entity.ExportJob;
+import com.ecommerce.es.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * author Nami
+ * date 2026/1/23 10:30
+ * description 商品全量导出（合作方商品源、数仓同步）
+ * - PIT + search_after按_shard_doc扫描，可按切片多线程并行扫描（所有切片共用一个PIT，数据为同一时刻快照）
+ * - 扫描结果逐批写出为NDJSON/CSV，直接写HTTP响应或gzip文件，内存只占有限几批
+ * - 并行扫描时切片线程把批次放入有界队列，由一个线程顺序写出；写出跟不上时切片线程阻塞（背压）
+ * - 写出失败（客户端断开）时通知切片线程停止扫描
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExporter {
+    // CSV列（与Product字段顺序一致）
+    static final String CSV_HEADER = "id,productName,category,subCategory,price,stock,sales,tags,createTime,description,merchantId,score";
+    // 切片扫描结束标记
+    private static final List<Product> END_OF_SLICE = Collections.emptyList();
+
+    private final ProductEsRepository productEsRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${export.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${export.max-slices:8}")
+    private int maxSlices;
+
+    // 同时进行的导出任务数上限（每个任务都会全量扫描索引）
+    @Value("${export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    // 并行扫描时每个切片最多缓冲的批次数
+    @Value("${export.queue-batches-per-slice:2}")
+    private int queueBatchesPerSlice;
+
+    @Value("${export.dir:./export}")
+    private String exportDir;
+
+    @Value("${export.job-retention:86400000}")
+    private long jobRetentionMillis;
+
+    private Semaphore exportPermits;
+    private ExecutorService sliceExecutor;
+    private ExecutorService fileExecutor;
+    private ScheduledExecutorService scheduler;
+    private final Map<String, ExportJob> jobMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        exportPermits = new Semaphore(maxConcurrent);
+        sliceExecutor = Executors.newFixedThreadPool(maxConcurrent * maxSlices, new CustomizableThreadFactory("es-export-slice-"));
+        fileExecutor = Executors.newFixedThreadPool(maxConcurrent, new CustomizableThreadFactory("es-export-file-"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-export-scheduler-"));
+        scheduler.scheduleWithFixedDelay(this::cleanFinishedJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sliceExecutor.shutdownNow();
+        fileExecutor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    // ====================== 任务管理 ======================
+    /**
+     * 创建导出任务（占用一个导出许可，export结束时释放）
+     * @throws IllegalStateException 同时导出任务数达到上限
+     */
+    public ExportJob createJob(ExportJob.Format format, int slices, boolean gzip, String target) {
+        if (slices < 1 || slices > maxSlices) {
+            throw new IllegalArgumentException("切片数需在1-" + maxSlices + "之间");
+        }
+        if (!exportPermits.tryAcquire()) {
+            throw new IllegalStateException("同时进行的导出任务已达上限" + maxConcurrent + "个，请稍后再试");
+        }
+        ExportJob job = new ExportJob(format, slices, gzip, target);
+        jobMap.put(job.getJobId(), job);
+        return job;
+    }
+
+    /**
+     * 后台导出到gzip文件，立即返回任务（通过任务ID查询进度）
+     */
+    public ExportJob submitFileExport(ExportJob.Format format, int slices) throws IOException {
+        Files.createDirectories(new File(exportDir).toPath());
+        ExportJob job = createJob(format, slices, true, null);
+        File file = new File(exportDir, "products-" + job.getJobId() + "." + format.getExtension() + ".gz");
+        job.setTarget(file.getAbsolutePath());
+        try {
+            fileExecutor.execute(() -> {
+                OutputStream fileStream;
+                try {
+                    fileStream = new FileOutputStream(file);
+                } catch (IOException | RuntimeException e) {
+                    // export尚未开始，需在此处结束任务并释放许可
+                    job.fail("导出文件创建失败：" + e.getMessage());
+                    exportPermits.release();
+                    log.warn("导出文件创建失败，任务：{}，文件：{}，原因：{}", job.getJobId(), file, e.getMessage());
+                    return;
+                }
+                try (OutputStream outputStream = fileStream) {
+                    export(job, outputStream);
+                } catch (Exception e) {
+                    // export内部已记录失败原因
+                    log.debug("导出文件关闭失败：{}", e.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            job.fail("导出线程池已关闭");
+            exportPermits.release();
+            throw e;
+        }
+        return job;
+    }
+
+    public ExportJob getJob(String jobId) {
+        return jobMap.get(jobId);
+    }
+
+    private void cleanFinishedJobs() {
+        long deadline = System.currentTimeMillis() - jobRetentionMillis;
+        jobMap.values().removeIf(job -> job.isFinished() && job.getEndTime() < deadline);
+    }
+
+    // ====================== 导出执行 ======================
+    /**
+     * 执行导出（调用线程负责写出，结束后释放导出许可；调用方负责关闭outputStream）
+     * - NDJSON输出部分商品后失败时，最后一行为 {"error":"...","docCount":N}，表示结果不完整
+     */
+    public void export(ExportJob job, OutputStream outputStream) throws IOException {
+        CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        RecordWriter writer = null;
+        try {
+            GZIPOutputStream gzipStream = job.isGzip() ? new GZIPOutputStream(countingStream, 64 * 1024) : null;
+            writer = new RecordWriter(job.getFormat(),
+                    new BufferedOutputStream(gzipStream == null ? countingStream : gzipStream, 64 * 1024), gzipStream);
+            writer.writeHeader();
+            if (job.getSlices() == 1) {
+                exportSingle(job, writer, countingStream);
+            } else {
+                exportSliced(job, writer, countingStream);
+            }
+            writer.finish();
+            job.setByteCount(countingStream.count);
+            job.complete();
+            log.info("商品导出完成，任务：{}，格式：{}，切片：{}，商品：{}，字节：{}，耗时：{}ms，吞吐：{}条/秒，扫描等待：{}ms，写出：{}ms，背压阻塞：{}ms",
+                    job.getJobId(), job.getFormat(), job.getSlices(), job.getDocCount(), job.getByteCount(),
+                    job.getElapsedMillis(), job.getDocsPerSecond(), job.getScanMillis(), job.getWriteMillis(), job.getBlockedMillis());
+        } catch (IOException | RuntimeException e) {
+            // NDJSON已输出部分商品且输出流可写时，追加错误行标记结果不完整（CSV无法区分错误行，由调用方中断连接）
+            if (writer != null && job.getFormat() == ExportJob.Format.NDJSON && job.getDocCount() > 0
+                    && !countingStream.writeFailed) {
+                writer.writeError(job.getDocCount(), e);
+            }
+            job.setByteCount(countingStream.count);
+            job.fail(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            log.warn("商品导出失败，任务：{}，已导出：{}条，原因：{}", job.getJobId(), job.getDocCount(), e.getMessage());
+            throw e;
+        } finally {
+            exportPermits.release();
+        }
+    }
+
+    /**
+     * 单切片：扫描线程即写出线程，写出慢时自然放慢扫描
+     */
+    private void exportSingle(ExportJob job, RecordWriter writer, CountingOutputStream countingStream) throws IOException {
+        String pitId = productEsRepository.openProductPit();
+        try {
+            long[] lastReturn = {System.currentTimeMillis()};
+            productEsRepository.scanProductSlice(pitId, 0, 1, null, batchSize, Product.class, batch -> {
+                job.onBatchScanned(System.currentTimeMillis() - lastReturn[0]);
+                writeBatch(job, writer, countingStream, batch);
+                lastReturn[0] = System.currentTimeMillis();
+            });
+        } finally {
+            productEsRepository.releasePit(pitId);
+        }
+    }
+
+    /**
+     * 多切片：各切片线程扫描后放入有界队列，当前线程按到达顺序写出
+     */
+    private void exportSliced(ExportJob job, RecordWriter writer, CountingOutputStream countingStream) throws IOException {
+        int slices = job.getSlices();
+        BlockingQueue<List<Product>> queue = new ArrayBlockingQueue<>(slices * queueBatchesPerSlice);
+        AtomicReference<Throwable> sliceError = new AtomicReference<>();
+        // 写出失败后置为true，切片线程停止扫描
+        AtomicBoolean cancelled = new AtomicBoolean();
+        String pitId = productEsRepository.openProductPit();
+        try {
+            for (int i = 0; i < slices; i++) {
+                int sliceId = i;
+                sliceExecutor.execute(() -> scanSlice(job, pitId, sliceId, queue, sliceError, cancelled));
+            }
+            int finishedSlices = 0;
+            while (finishedSlices < slices) {
+                List<Product> batch = queue.take();
+                if (batch == END_OF_SLICE) {
+                    finishedSlices++;
+                    if (sliceError.get() != null) {
+                        throw new IOException("切片扫描失败：" + sliceError.get().getMessage(), sliceError.get());
+                    }
+                    continue;
+                }
+                writeBatch(job, writer, countingStream, batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("导出被中断", e);
+        } finally {
+            cancelled.set(true);
+            // 清空队列，让阻塞在put上的切片线程尽快退出
+            queue.clear();
+            productEsRepository.releasePit(pitId);
+        }
+    }
+
+    private void scanSlice(ExportJob job, String pitId, int sliceId, BlockingQueue<List<Product>> queue,
+                           AtomicReference<Throwable> sliceError, AtomicBoolean cancelled) {
+        try {
+            long[] lastReturn = {System.currentTimeMillis()};
+            productEsRepository.scanProductSlice(pitId, sliceId, job.getSlices(), null, batchSize, Product.class, batch -> {
+                job.onBatchScanned(System.currentTimeMillis() - lastReturn[0]);
+                long blockStart = System.currentTimeMillis();
+                if (!offerUntilCancelled(queue, batch, cancelled)) {
+                    throw new IOException("导出已取消");
+                }
+                job.onBlocked(System.currentTimeMillis() - blockStart);
+                lastReturn[0] = System.currentTimeMillis();
+            });
+        } catch (Exception e) {
+            if (!cancelled.get()) {
+                log.warn("导出切片{}扫描失败：{}", sliceId, e.getMessage());
+                sliceError.compareAndSet(null, e);
+            }
+        } finally {
+            offerUntilCancelled(queue, END_OF_SLICE, cancelled);
+        }
+    }
+
+    private static boolean offerUntilCancelled(BlockingQueue<List<Product>> queue, List<Product> batch,
+                                               AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private static void writeBatch(ExportJob job, RecordWriter writer, CountingOutputStream countingStream,
+                                   List<Product> batch) throws IOException {
+        long start = System.currentTimeMillis();
+        for (Product product : batch) {
+            writer.write(product);
+        }
+        // 每批flush一次，数据及时发给客户端，不在内存中堆积
+        writer.flush();
+        job.onBatchWritten(batch.size(), System.currentTimeMillis() - start);
+        job.setByteCount(countingStream.count);
+    }
+
+    // ====================== 输出格式 ======================
+    /**
+     * 按格式逐条写出（非线程安全，只由写出线程调用）
+     */
+    private class RecordWriter {
+        private final ExportJob.Format format;
+        private final OutputStream outputStream;
+        private final GZIPOutputStream gzipStream;
+        // SimpleDateFormat非线程安全，每个导出任务一个
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        private final StringBuilder line = new StringBuilder(512);
+
+        RecordWriter(ExportJob.Format format, OutputStream outputStream, GZIPOutputStream gzipStream) {
+            this.format = format;
+            this.outputStream = outputStream;
+            this.gzipStream = gzipStream;
+            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT+8"));
+        }
+
+        void writeHeader() throws IOException {
+            if (format == ExportJob.Format.CSV) {
+                outputStream.write((CSV_HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void write(Product product) throws IOException {
+            if (format == ExportJob.Format.NDJSON) {
+                outputStream.write(objectMapper.writeValueAsBytes(product));
+                outputStream.write('\n');
+                return;
+            }
+            line.setLength(0);
+            appendCsv(product.getId()).append(',');
+            appendCsv(product.getProductName()).append(',');
+            appendCsv(product.getCategory()).append(',');
+            appendCsv(product.getSubCategory()).append(',');
+            appendCsv(product.getPrice() == null ? null : product.getPrice().toPlainString()).append(',');
+            appendCsv(toText(product.getStock())).append(',');
+            appendCsv(toText(product.getSales())).append(',');
+            // 多个标签用|连接
+            appendCsv(product.getTags() == null ? null : String.join("|", product.getTags())).append(',');
+            appendCsv(product.getCreateTime() == null ? null : dateFormat.format(product.getCreateTime())).append(',');
+            appendCsv(product.getDescription()).append(',');
+            appendCsv(product.getMerchantId()).append(',');
+            appendCsv(product.getScore() == null ? null : BigDecimal.valueOf(product.getScore()).toPlainString());
+            line.append('\n');
+            outputStream.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * CSV转义：含逗号/引号/换行时加引号，引号双写
+         */
+        private StringBuilder appendCsv(String value) {
+            if (value == null) {
+                return line;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                return line.append(value);
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            return line.append('"');
+        }
+
+        void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        /**
+         * 写出错误行并结束输出，如 {"error":"导出中断：...","docCount":N}
+         */
+        void writeError(long docCount, Exception cause) {
+            Map<String, Object> errorLine = new LinkedHashMap<>();
+            errorLine.put("error", "导出中断：" + cause.getMessage());
+            errorLine.put("docCount", docCount);
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(errorLine));
+                outputStream.write('\n');
+                finish();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+
+        /**
+         * 写出剩余缓冲（gzip时写入压缩尾部），不关闭底层输出流
+         */
+        void finish() throws IOException {
+            outputStream.flush();
+            if (gzipStream != null) {
+                gzipStream.finish();
+                gzipStream.flush();
+            }
+        }
+    }
+
+    private static String toText(Integer value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 统计写出字节数（gzip时统计压缩后大小），并记录底层输出流是否写出失败
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private volatile long count;
+        private volatile boolean writeFailed;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                writeFailed = true;
+                throw e;
+            }
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                writeFailed = true;
+                throw e;
+            }
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                writeFailed = true;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import com.ecommerce.es.config.IndexSettingsProperties;
+import com.ecommerce.es.entity.ReindexJob;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * author Nami
+ * date 2026/1/17 14:40
+ * description 商品索引无停机重建（映射/分词器调整后使用）
+ * - 新建下一版本物理索引（bulk-load配置档位：无副本、关闭刷新），后台reindex全量复制，期间读写仍走旧索引
+ * - 复制完成后切回serving配置档位、段合并
+ * - 冻结旧索引写入（index.blocks.write），按updateTime补齐复制期间更新的商品、删除已下架的商品，再原子切换读写别名；
+ *   冻结期间的写入被ES拒绝，窗口为补齐 + 切换别名的时长
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductIndexReindexer {
+    private static final ObjectMapper TASK_MAPPER = new ObjectMapper();
+    // ES按无时区解析updateTime，查询条件与写入使用同一时区格式化即可比较
+    private static final DateTimeFormatter UPDATE_TIME_FORMATTER = DateTimeFormatter
+            .ofPattern(ProductEsRepository.UPDATE_TIME_FORMAT).withZone(ZoneId.of("GMT+8"));
+    private static final String SCROLL_KEEP_ALIVE = "1m";
+
+    private final ElasticsearchClient esClient;
+    private final RestClient restClient;
+    private final ProductEsRepository productEsRepository;
+
+    @Value("${elasticsearch.reindex.max-num-segments:1}")
+    private int maxNumSegments;
+
+    @Value("${elasticsearch.reindex.batch-size:1000}")
+    private int batchSize;
+
+    // reindex限速（条/秒），-1不限速
+    @Value("${elasticsearch.reindex.requests-per-second:-1}")
+    private float requestsPerSecond;
+
+    @Value("${elasticsearch.reindex.poll-interval:2000}")
+    private long pollIntervalMillis;
+
+    @Value("${elasticsearch.reindex.health-timeout:60s}")
+    private String healthTimeout;
+
+    // 补齐起点比复制开始时间提前的余量（毫秒），覆盖各实例与ES之间的时钟偏差
+    @Value("${elasticsearch.reindex.catch-up-overlap:60000}")
+    private long catchUpOverlapMillis;
+
+    // 切换后是否删除旧索引（默认保留，便于回滚）
+    @Value("${elasticsearch.reindex.delete-old-index:false}")
+    private boolean deleteOldIndex;
+
+    private final Map<String, ReindexJob> jobMap = new ConcurrentHashMap<>();
+    // 同一时间只允许一个重建任务
+    private final AtomicReference<ReindexJob> runningJob = new AtomicReference<>();
+    private ExecutorService reindexExecutor;
+
+    @PostConstruct
+    public void init() {
+        reindexExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("es-reindex-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reindexExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交重建任务，立即返回
+     */
+    public ReindexJob startReindex() {
+        ReindexJob job = new ReindexJob();
+        if (!runningJob.compareAndSet(null, job)) {
+            throw new IllegalStateException("已有索引重建任务在执行：" + runningJob.get().getJobId());
+        }
+        jobMap.put(job.getJobId(), job);
+        reindexExecutor.execute(() -> {
+            try {
+                runReindex(job);
+            } catch (Exception e) {
+                log.error("商品索引重建失败，任务：{}", job.getJobId(), e);
+                job.fail(e.getMessage());
+            } finally {
+                runningJob.set(null);
+            }
+        });
+        return job;
+    }
+
+    public ReindexJob getJob(String jobId) {
+        return jobMap.get(jobId);
+    }
+
+    private void runReindex(ReindexJob job) throws IOException, InterruptedException {
+        // 1. 确定源索引和新版本索引
+        List<String> sourceIndices = productEsRepository.resolveAliasIndices(ProductEsRepository.PRODUCT_INDEX);
+        if (sourceIndices.size() != 1) {
+            throw new IllegalStateException("商品读别名应指向1个索引，实际：" + sourceIndices);
+        }
+        String sourceIndex = sourceIndices.get(0);
+        boolean legacySource = productEsRepository.isLegacyIndex();
+        String targetIndex = productEsRepository.nextVersionedIndexName();
+        job.setIndices(sourceIndex, targetIndex);
+        log.info("开始重建商品索引：{} -> {}", sourceIndex, targetIndex);
+
+        // 2. 新建索引（批量写入配置档位），旧索引补上updateTime映射
+        job.enterPhase(ReindexJob.Phase.CREATING_INDEX);
+        productEsRepository.ensureUpdateTimeMapping(sourceIndex);
+        productEsRepository.createVersionedIndex(targetIndex, IndexSettingsProperties.BULK_LOAD, false);
+
+        // 3. 全量复制（期间读写仍走旧索引，目标索引只有复制写入）
+        job.enterPhase(ReindexJob.Phase.COPYING);
+        long catchUpSince = System.currentTimeMillis() - catchUpOverlapMillis;
+        String copyTaskId = submitReindex(sourceIndex, targetIndex, null);
+        JsonNode copyResult = waitForTask(copyTaskId, job);
+        job.finishCopy();
+        checkFailures(copyResult);
+
+        // 4. 恢复服务配置 + 段合并
+        job.enterPhase(ReindexJob.Phase.RESTORING_SETTINGS);
+        productEsRepository.applySettingsProfile(targetIndex, IndexSettingsProperties.SERVING);
+        job.enterPhase(ReindexJob.Phase.FORCE_MERGING);
+        waitForTask(submitForceMerge(targetIndex), null);
+        waitForHealth(targetIndex);
+
+        // 5. 冻结旧索引写入 -> 补齐 -> 切换别名（旧版本物理索引与读别名同名，切换时被删除）
+        job.enterPhase(ReindexJob.Phase.CATCHING_UP);
+        setWriteBlock(sourceIndex, true);
+        boolean swapped = false;
+        try {
+            job.setCatchUpCount(catchUp(sourceIndex, targetIndex, catchUpSince));
+            job.enterPhase(ReindexJob.Phase.SWAPPING_ALIASES);
+            productEsRepository.swapAliases(sourceIndex, targetIndex, legacySource);
+            swapped = true;
+        } finally {
+            if (!swapped) {
+                unblockQuietly(sourceIndex);
+            }
+        }
+        if (!legacySource) {
+            if (deleteOldIndex) {
+                esClient.indices().delete(d -> d.index(sourceIndex));
+                log.info("旧商品索引{}已删除", sourceIndex);
+            } else {
+                log.info("旧商品索引{}保留为只读（回滚时先解除index.blocks.write）", sourceIndex);
+            }
+        }
+        job.complete();
+        log.info("商品索引重建完成：{} -> {}，复制：{}条，补齐：{}条，吞吐：{}条/秒，耗时：{}ms",
+                sourceIndex, targetIndex, job.getCreated() + job.getUpdated(), job.getCatchUpCount(),
+                job.getDocsPerSecond(), job.getElapsedMillis());
+    }
+
+    /**
+     * 提交后台reindex任务（目标索引切换别名前没有其他写入，直接覆盖）
+     * @param query 为null时全量复制
+     */
+    private String submitReindex(String sourceIndex, String targetIndex, Query query) throws IOException {
+        return esClient.reindex(r -> r
+                .source(src -> {
+                    src.index(sourceIndex).size(batchSize);
+                    return query == null ? src : src.query(query);
+                })
+                .dest(d -> d.index(targetIndex))
+                .slices(sl -> sl.computed(SlicesCalculation.Auto))
+                .requestsPerSecond(requestsPerSecond)
+                .waitForCompletion(false)
+        ).task();
+    }
+
+    /**
+     * 补齐复制期间旧索引上的变更（旧索引已冻结写入）
+     * - 新增/更新：复制updateTime不早于复制开始时间的商品
+     * - 删除：目标索引多出的商品
+     * @return 补齐的文档数（复制 + 删除）
+     */
+    private long catchUp(String sourceIndex, String targetIndex, long sinceMillis) throws IOException, InterruptedException {
+        esClient.indices().refresh(r -> r.index(sourceIndex));
+        String since = UPDATE_TIME_FORMATTER.format(Instant.ofEpochMilli(sinceMillis));
+        Query changedSince = Query.of(q -> q.range(rg -> rg
+                .field(ProductEsRepository.UPDATE_TIME_FIELD)
+                .gte(JsonData.of(since))));
+        JsonNode result = waitForTask(submitReindex(sourceIndex, targetIndex, changedSince), null);
+        checkFailures(result);
+        long copied = result.path("created").asLong() + result.path("updated").asLong();
+        long deleted = removeDeleted(sourceIndex, targetIndex);
+        log.info("商品索引补齐完成：{} -> {}，更新时间不早于{}，复制：{}条，删除：{}条",
+                sourceIndex, targetIndex, since, copied, deleted);
+        return copied + deleted;
+    }
+
+    /**
+     * 删除复制期间已在旧索引上删除的商品：目标索引文档数多于旧索引时，逐批比对ID
+     */
+    private long removeDeleted(String sourceIndex, String targetIndex) throws IOException {
+        esClient.indices().refresh(r -> r.index(targetIndex));
+        long extra = esClient.count(c -> c.index(targetIndex)).count() - esClient.count(c -> c.index(sourceIndex)).count();
+        if (extra <= 0) {
+            return 0;
+        }
+        long deleted = 0;
+        SearchResponse<Void> response = esClient.search(s -> s
+                .index(targetIndex)
+                .source(src -> src.fetch(false))
+                .sort(so -> so.doc(d -> d))
+                .size(batchSize)
+                .scroll(t -> t.time(SCROLL_KEEP_ALIVE)), Void.class);
+        String scrollId = response.scrollId();
+        List<Hit<Void>> hits = response.hits().hits();
+        try {
+            while (!hits.isEmpty() && deleted < extra) {
+                List<String> ids = hits.stream().map(Hit::id).collect(Collectors.toList());
+                Set<String> existing = esClient.search(s -> s
+                        .index(sourceIndex)
+                        .source(src -> src.fetch(false))
+                        .size(ids.size())
+                        .query(q -> q.ids(i -> i.values(ids))), Void.class)
+                        .hits().hits().stream().map(Hit::id).collect(Collectors.toSet());
+                BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
+                int batchDeleted = 0;
+                for (String id : ids) {
+                    if (!existing.contains(id)) {
+                        bulkBuilder.operations(op -> op.delete(d -> d.index(targetIndex).id(id)));
+                        batchDeleted++;
+                    }
+                }
+                if (batchDeleted > 0) {
+                    BulkResponse bulkResponse = esClient.bulk(bulkBuilder.build());
+                    if (bulkResponse.errors()) {
+                        throw new IllegalStateException("补齐删除失败，目标索引：" + targetIndex);
+                    }
+                    deleted += batchDeleted;
+                }
+                String currentScrollId = scrollId;
+                ScrollResponse<Void> next = esClient.scroll(sc -> sc
+                        .scrollId(currentScrollId)
+                        .scroll(t -> t.time(SCROLL_KEEP_ALIVE)), Void.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } finally {
+            String lastScrollId = scrollId;
+            esClient.clearScroll(c -> c.scrollId(lastScrollId));
+        }
+        return deleted;
+    }
+
+    private void setWriteBlock(String indexName, boolean blocked) throws IOException {
+        esClient.indices().putSettings(p -> p
+                .index(indexName)
+                .settings(st -> st.blocks(b -> b.write(blocked))));
+        log.info("商品索引{}写入{}", indexName, blocked ? "已冻结" : "已解冻");
+    }
+
+    private void unblockQuietly(String indexName) {
+        try {
+            setWriteBlock(indexName, false);
+        } catch (Exception e) {
+            log.error("商品索引{}解除写入冻结失败，需手动解除index.blocks.write", indexName, e);
+        }
+    }
+
+    /**
+     * 段合并（后台任务，避免大索引合并超过读超时）
+     */
+    private String submitForceMerge(String indexName) throws IOException {
+        Request request = new Request("POST", "/" + indexName + "/_forcemerge");
+        request.addParameter("max_num_segments", String.valueOf(maxNumSegments));
+        request.addParameter("wait_for_completion", "false");
+        return performRequest(request).path("task").asText();
+    }
+
+    private void waitForHealth(String indexName) throws IOException {
+        Request request = new Request("GET", "/_cluster/health/" + indexName);
+        request.addParameter("wait_for_status", "green");
+        request.addParameter("timeout", healthTimeout);
+        // 等待超时ES返回408，由timed_out字段判断
+        request.addParameter("ignore", "408");
+        if (performRequest(request).path("timed_out").asBoolean()) {
+            log.warn("商品索引{}副本未在{}内全部分配，继续切换别名", indexName, healthTimeout);
+        }
+    }
+
+    /**
+     * 轮询ES后台任务直到完成，返回任务结果
+     * - 使用低级客户端读取任务状态（不同任务类型的status结构不同）
+     */
+    private JsonNode waitForTask(String taskId, ReindexJob job) throws IOException, InterruptedException {
+        while (true) {
+            JsonNode taskNode = performRequest(new Request("GET", "/_tasks/" + taskId));
+            if (job != null) {
+                JsonNode status = taskNode.path("completed").asBoolean()
+                        ? taskNode.path("response") : taskNode.path("task").path("status");
+                job.updateCopyProgress(taskId, status.path("total").asLong(), status.path("created").asLong(),
+                        status.path("updated").asLong(), status.path("version_conflicts").asLong(),
+                        status.path("batches").asLong());
+            }
+            if (taskNode.path("completed").asBoolean()) {
+                if (taskNode.hasNonNull("error")) {
+                    throw new IllegalStateException("ES任务" + taskId + "失败：" + taskNode.path("error").path("reason").asText());
+                }
+                return taskNode.path("response");
+            }
+            Thread.sleep(pollIntervalMillis);
+        }
+    }
+
+    private void checkFailures(JsonNode result) {
+        JsonNode failures = result.path("failures");
+        if (failures.isArray() && failures.size() > 0) {
+            throw new IllegalStateException("reindex存在失败文档" + failures.size() + "条，首条：" + failures.get(0));
+        }
+    }
+
+    private JsonNode performRequest(Request request) throws IOException {
+        Response response = restClient.performRequest(request);
+        return TASK_MAPPER.readTree(EntityUtils.toString(response.getEntity()));
+    }
+}
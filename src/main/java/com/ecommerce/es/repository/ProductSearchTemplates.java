@@ -0,0 +1,141 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.json.JsonData;
+import com.ecommerce.es.entity.ProductListItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * author Nami
+ * date 2026/1/17 10:15
+ * description 商品搜索存储模板（mustache）
+ * - 每种筛选条件组合对应一个模板（关键词/最低价/最高价/分类/标签，共32个），模板内不需要条件判断
+ * - 查询结构与buildSearchQuery一致；请求时只传参数，不再构建查询树和序列化整个查询
+ * - 模板存储在ES集群中，可直接在ES中调整查询而无需重新发布
+ */
+final class ProductSearchTemplates {
+    static final String TEMPLATE_PREFIX = "product_search_";
+
+    // 筛选条件组合位
+    static final int KEYWORD = 1;
+    static final int MIN_PRICE = 1 << 1;
+    static final int MAX_PRICE = 1 << 2;
+    static final int CATEGORY = 1 << 3;
+    static final int TAGS = 1 << 4;
+    static final int COMBINATIONS = 1 << 5;
+
+    private ProductSearchTemplates() {
+    }
+
+    /**
+     * 根据实际传入的筛选条件计算组合位
+     */
+    static int combination(String keyword, BigDecimal minPrice, BigDecimal maxPrice, String category, List<String> tags) {
+        int mask = 0;
+        if (!ProductEsRepository.isBrowseMode(keyword)) {
+            mask |= KEYWORD;
+        }
+        if (minPrice != null) {
+            mask |= MIN_PRICE;
+        }
+        if (maxPrice != null) {
+            mask |= MAX_PRICE;
+        }
+        if (category != null && !category.isEmpty()) {
+            mask |= CATEGORY;
+        }
+        if (tags != null && !tags.isEmpty()) {
+            mask |= TAGS;
+        }
+        return mask;
+    }
+
+    static String templateId(int mask) {
+        return TEMPLATE_PREFIX + mask;
+    }
+
+    /**
+     * 模板参数（只包含组合中存在的条件）
+     */
+    static Map<String, JsonData> params(String keyword, BigDecimal minPrice, BigDecimal maxPrice, String category,
+                                        List<String> tags, String sortField, SortOrder sortOrder, boolean listView) {
+        Map<String, JsonData> params = new HashMap<>();
+        if (!ProductEsRepository.isBrowseMode(keyword)) {
+            params.put("keyword", JsonData.of(keyword));
+        }
+        if (minPrice != null) {
+            params.put("minPrice", JsonData.of(minPrice.doubleValue()));
+        }
+        if (maxPrice != null) {
+            params.put("maxPrice", JsonData.of(maxPrice.doubleValue()));
+        }
+        if (category != null && !category.isEmpty()) {
+            params.put("category", JsonData.of(category));
+        }
+        if (tags != null && !tags.isEmpty()) {
+            params.put("tags", JsonData.of(tags));
+        }
+        params.put("sortField", JsonData.of(sortField == null || sortField.isEmpty() ? "sales" : sortField));
+        params.put("sortOrder", JsonData.of((sortOrder == null ? SortOrder.Desc : sortOrder).jsonValue()));
+        if (listView) {
+            params.put("listView", JsonData.of(true));
+        }
+        return params;
+    }
+
+    /**
+     * 生成组合对应的模板内容
+     */
+    static String templateSource(int mask) {
+        // 1. 筛选条件（filter上下文，不参与打分）
+        List<String> filters = new ArrayList<>();
+        if ((mask & (MIN_PRICE | MAX_PRICE)) != 0) {
+            List<String> bounds = new ArrayList<>();
+            if ((mask & MIN_PRICE) != 0) {
+                bounds.add("\"gte\":{{minPrice}}");
+            }
+            if ((mask & MAX_PRICE) != 0) {
+                bounds.add("\"lte\":{{maxPrice}}");
+            }
+            filters.add("{\"range\":{\"price\":{" + String.join(",", bounds) + "}}}");
+        }
+        if ((mask & CATEGORY) != 0) {
+            filters.add("{\"term\":{\"category\":\"{{category}}\"}}");
+        }
+        if ((mask & TAGS) != 0) {
+            filters.add("{\"terms\":{\"tags\":{{#toJson}}tags{{/toJson}}}}");
+        }
+        String filterArray = "[" + String.join(",", filters) + "]";
+
+        // 2. 查询：关键词打分 / 浏览模式constant_score
+        StringBuilder source = new StringBuilder(512);
+        source.append("{\"query\":");
+        if ((mask & KEYWORD) != 0) {
+            source.append("{\"bool\":{\"should\":[")
+                    .append("{\"match\":{\"productName\":{\"query\":\"{{keyword}}\",\"analyzer\":\"ik_max_word\"}}},")
+                    .append("{\"match\":{\"description\":{\"query\":\"{{keyword}}\",\"analyzer\":\"ik_smart\"}}}")
+                    .append("],\"minimum_should_match\":1,\"filter\":").append(filterArray).append("}}");
+        } else if (filters.isEmpty()) {
+            source.append("{\"match_all\":{}}");
+        } else {
+            source.append("{\"constant_score\":{\"filter\":{\"bool\":{\"filter\":").append(filterArray).append("}}}}");
+        }
+
+        // 3. 排序/条数/返回字段
+        source.append(",\"sort\":[{\"{{sortField}}\":{\"order\":\"{{sortOrder}}\"}}],\"size\":100");
+        if ((mask & KEYWORD) == 0) {
+            source.append(",\"track_total_hits\":false");
+        }
+        source.append("{{#listView}},\"_source\":{\"includes\":[")
+                .append(ProductListItem.SOURCE_FIELDS.stream().map(f -> "\"" + f + "\"").collect(Collectors.joining(",")))
+                .append("]}{{/listView}}");
+        source.append("}");
+        return source.toString();
+    }
+}
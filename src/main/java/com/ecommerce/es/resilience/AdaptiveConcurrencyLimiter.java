@@ -0,0 +1,154 @@
+package com.ecommerce.es.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * author Nami
+ * date 2026/1/27 10:20
+ * description 自适应并发上限（AIMD，按ES往返耗时调整）
+ * - 在途请求数达到上限时直接拒绝，不排队等待
+ * - 基线耗时：上一个统计窗口内的最小往返耗时（ES整体变慢后基线随之抬升，上限不会长期压在下限）
+ * - 往返耗时超过 max(基线 × tolerance, min-rtt-threshold) 或ES返回过载（429/超时）时，上限 × backoff-ratio，
+ *   每个往返耗时内最多下调一次（同一批排队请求陆续返回时只算一次）
+ * - 否则在上限被用到一半以上时+1（没有压力时不增长）
+ * - 每次tryAcquire成功后必须调用onSuccess/onDropped/onIgnored之一
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final long minRttThresholdNanos;
+    private final long baselineWindowNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // 以下字段在update中同步修改
+    private long baselineRttNanos = Long.MAX_VALUE;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private long windowStartNanos;
+    private long lastDecreaseNanos;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      double backoffRatio, long minRttThresholdMillis, long baselineWindowMillis) {
+        this(initialLimit, minLimit, maxLimit, tolerance, backoffRatio, minRttThresholdMillis, baselineWindowMillis,
+                System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio,
+                               long minRttThresholdMillis, long baselineWindowMillis, LongSupplier nanoClock) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("并发上限配置错误：min=" + minLimit + "，max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.minRttThresholdNanos = TimeUnit.MILLISECONDS.toNanos(minRttThresholdMillis);
+        this.baselineWindowNanos = TimeUnit.MILLISECONDS.toNanos(baselineWindowMillis);
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowStartNanos = nanoClock.getAsLong();
+        this.lastDecreaseNanos = windowStartNanos;
+    }
+
+    /**
+     * 占用一个并发名额，达到上限时返回false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejectedCount.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求正常返回
+     */
+    public void onSuccess(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        update(rttNanos, inFlightBefore, false);
+    }
+
+    /**
+     * ES过载（429/超过截止时间）
+     */
+    public void onDropped(long rttNanos) {
+        inFlight.decrementAndGet();
+        droppedCount.increment();
+        update(rttNanos, 0, true);
+    }
+
+    /**
+     * 结果与ES负载无关（参数错误、连接失败等），只归还名额
+     */
+    public void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("limit", getLimit());
+        statsMap.put("inFlight", getInFlight());
+        synchronized (this) {
+            statsMap.put("baselineRttMillis", baselineRttNanos == Long.MAX_VALUE ? null
+                    : TimeUnit.NANOSECONDS.toMicros(baselineRttNanos) / 1000.0);
+        }
+        statsMap.put("rejectedCount", rejectedCount.sum());
+        statsMap.put("droppedCount", droppedCount.sum());
+        return statsMap;
+    }
+
+    private synchronized void update(long rttNanos, int inFlightBefore, boolean dropped) {
+        long now = nanoClock.getAsLong();
+        if (!dropped) {
+            windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+            if (baselineRttNanos == Long.MAX_VALUE) {
+                baselineRttNanos = rttNanos;
+            }
+        }
+        if (now - windowStartNanos >= baselineWindowNanos) {
+            if (windowMinRttNanos != Long.MAX_VALUE) {
+                baselineRttNanos = windowMinRttNanos;
+            }
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowStartNanos = now;
+        }
+
+        long queueingThreshold = Math.max((long) (baselineRttNanos * tolerance), minRttThresholdNanos);
+        if (dropped || rttNanos > queueingThreshold) {
+            // 本次请求在上次下调之后才发出时才下调
+            if (now - rttNanos >= lastDecreaseNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = now;
+            }
+        } else if (inFlightBefore * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+}
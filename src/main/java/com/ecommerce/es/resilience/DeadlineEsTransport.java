@@ -0,0 +1,99 @@
+package com.ecommerce.es.resilience;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.rest_client.RestClientOptions;
+import org.apache.http.client.config.RequestConfig;
+import org.elasticsearch.client.RequestOptions;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/27 10:50
+ * description 按截止时间收紧单次ES请求超时的传输层
+ * - 受保护的仓库方法执行期间，发出的ES请求的socket超时/连接池等待超时取剩余时间，ES变慢时按接口截止时间失败，而不是等满socket-timeout
+ * - 已超过截止时间的请求不再发出
+ * - 不在受保护方法内（或在其他线程上，如mget分块并行线程）发出的请求沿用客户端默认超时
+ */
+public class DeadlineEsTransport implements ElasticsearchTransport {
+    private final ElasticsearchTransport delegate;
+    private final EsResilience esResilience;
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+
+    public DeadlineEsTransport(ElasticsearchTransport delegate, EsResilience esResilience,
+                               int connectTimeoutMillis, int socketTimeoutMillis) {
+        this.delegate = delegate;
+        this.esResilience = esResilience;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(RequestT request,
+                                                                 Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                 TransportOptions options) throws IOException {
+        return delegate.performRequest(request, endpoint, withDeadline(endpoint, options));
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(RequestT request,
+                                                                                         Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                                         TransportOptions options) {
+        TransportOptions deadlineOptions;
+        try {
+            deadlineOptions = withDeadline(endpoint, options);
+        } catch (EsOverloadedException e) {
+            CompletableFuture<ResponseT> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        return delegate.performRequestAsync(request, endpoint, deadlineOptions);
+    }
+
+    private TransportOptions withDeadline(Endpoint<?, ?, ?> endpoint, TransportOptions options) {
+        long deadlineNanos = esResilience.currentDeadline();
+        if (deadlineNanos == 0) {
+            return options;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            throw new EsOverloadedException(endpoint.id(), EsOverloadedException.Reason.DEADLINE_EXCEEDED, 1);
+        }
+        TransportOptions baseOptions = options != null ? options : delegate.options();
+        if (!(baseOptions instanceof RestClientOptions)) {
+            return options;
+        }
+        // 向上取整，超时触发时一定已过截止时间
+        int timeoutMillis = (int) Math.min(TimeUnit.NANOSECONDS.toMillis(remainingNanos + 999_999), socketTimeoutMillis);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(Math.min(timeoutMillis, connectTimeoutMillis))
+                .setSocketTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .build();
+        RequestOptions requestOptions = ((RestClientOptions) baseOptions).restClientRequestOptions().toBuilder()
+                .setRequestConfig(requestConfig)
+                .build();
+        return new RestClientOptions(requestOptions);
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return delegate.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return delegate.options();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.es.resilience;
+
+/**
+ * author Nami
+ * date 2026/1/27 10:05
+ * description 受保护的仓库操作分类（按方法名前缀），每类独立的截止时间与并发上限
+ * - 索引管理、重建索引、导出扫描、PIT等后台操作不在此列，不受限流/熔断影响
+ * - 批量写入耗时随批次大小变化，单独一类：不设截止时间，固定并发上限（不参与AIMD调整）
+ */
+public enum EsOperationType {
+    DETAIL("getProduct"),
+    SEARCH("searchProduct", "suggestProduct"),
+    AGG("aggProduct"),
+    WRITE("saveProduct", "updateProduct", "deleteProductById"),
+    BULK("batchSaveProduct");
+
+    private final String[] prefixes;
+
+    EsOperationType(String... prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * 仓库方法名对应的分类，不受保护的方法返回null
+     */
+    public static EsOperationType of(String operation) {
+        for (EsOperationType type : values()) {
+            for (String prefix : type.prefixes) {
+                if (operation.startsWith(prefix)) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+}
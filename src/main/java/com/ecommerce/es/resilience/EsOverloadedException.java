@@ -0,0 +1,45 @@
+package com.ecommerce.es.resilience;
+
+/**
+ * author Nami
+ * date 2026/1/27 10:00
+ * description ES过载保护拒绝请求（熔断中/超出并发上限/超过截止时间），接口层返回503 + Retry-After
+ */
+public class EsOverloadedException extends RuntimeException {
+
+    public enum Reason {
+        // 该操作熔断中
+        CIRCUIT_OPEN,
+        // 在途请求数达到自适应并发上限
+        CONCURRENCY_LIMIT,
+        // 超过接口截止时间仍未返回
+        DEADLINE_EXCEEDED
+    }
+
+    private final String operation;
+    private final Reason reason;
+    private final long retryAfterSeconds;
+
+    public EsOverloadedException(String operation, Reason reason, long retryAfterSeconds) {
+        this(operation, reason, retryAfterSeconds, null);
+    }
+
+    public EsOverloadedException(String operation, Reason reason, long retryAfterSeconds, Throwable cause) {
+        super("ES过载保护拒绝请求，操作：" + operation + "，原因：" + reason, cause, false, false);
+        this.operation = operation;
+        this.reason = reason;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
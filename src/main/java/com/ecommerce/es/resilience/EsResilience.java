@@ -0,0 +1,319 @@
+package com.ecommerce.es.resilience;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.ResponseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * author Nami
+ * date 2026/1/27 10:30
+ * description ES过载保护（ES变慢时快速失败，不让请求线程都卡在30s socket-timeout上）
+ * - 熔断：每个仓库方法一个熔断器，失败率过高时直接拒绝，定时放行探测请求
+ * - 自适应并发：每类操作（详情/搜索/聚合/写入）一个并发上限，按ES往返耗时AIMD调整，超出直接拒绝；批量写入为固定上限
+ * - 截止时间：每类操作一个截止时间，期间发出的ES请求的socket超时按剩余时间收紧（见DeadlineEsTransport）
+ * - 被拒绝/超时的请求抛出EsOverloadedException，接口层返回503 + Retry-After，搜索可回退到缓存旧结果
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EsResilience {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resilience.enabled:true}")
+    private boolean enabled;
+
+    @Value("${resilience.circuit-breaker.window-size:50}")
+    private int breakerWindowSize;
+
+    @Value("${resilience.circuit-breaker.minimum-calls:20}")
+    private int breakerMinimumCalls;
+
+    @Value("${resilience.circuit-breaker.failure-rate:0.5}")
+    private double breakerFailureRate;
+
+    @Value("${resilience.circuit-breaker.open-duration:10000}")
+    private long breakerOpenMillis;
+
+    @Value("${resilience.circuit-breaker.half-open-calls:5}")
+    private int breakerHalfOpenCalls;
+
+    @Value("${resilience.limit.initial:20}")
+    private int initialLimit;
+
+    @Value("${resilience.limit.min:5}")
+    private int minLimit;
+
+    @Value("${resilience.limit.max:200}")
+    private int maxLimit;
+
+    @Value("${resilience.limit.tolerance:2.0}")
+    private double limitTolerance;
+
+    @Value("${resilience.limit.backoff-ratio:0.9}")
+    private double limitBackoffRatio;
+
+    @Value("${resilience.limit.min-rtt-threshold:50}")
+    private long minRttThresholdMillis;
+
+    @Value("${resilience.limit.baseline-window:30000}")
+    private long baselineWindowMillis;
+
+    // 批量写入的固定并发上限（耗时随批次大小变化，不按往返耗时调整）
+    @Value("${resilience.limit.bulk:4}")
+    private int bulkLimit;
+
+    // 截止时间（毫秒），0为不设置（沿用elasticsearch.socket-timeout）
+    @Value("${resilience.deadline.detail:1000}")
+    private long detailDeadlineMillis;
+
+    @Value("${resilience.deadline.search:3000}")
+    private long searchDeadlineMillis;
+
+    @Value("${resilience.deadline.agg:5000}")
+    private long aggDeadlineMillis;
+
+    @Value("${resilience.deadline.write:10000}")
+    private long writeDeadlineMillis;
+
+    @Value("${resilience.deadline.bulk:0}")
+    private long bulkDeadlineMillis;
+
+    // 超出并发上限时的Retry-After（秒）
+    @Value("${resilience.retry-after:1}")
+    private long limitRetryAfterSeconds;
+
+    private final Map<EsOperationType, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(EsOperationType.class);
+    private final Map<EsOperationType, Long> deadlines = new EnumMap<>(EsOperationType.class);
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    // 当前线程正在执行的受保护操作的截止时间（System.nanoTime），DeadlineEsTransport读取
+    private final ThreadLocal<Long> currentDeadline = new ThreadLocal<>();
+
+    @PostConstruct
+    public void init() {
+        deadlines.put(EsOperationType.DETAIL, detailDeadlineMillis);
+        deadlines.put(EsOperationType.SEARCH, searchDeadlineMillis);
+        deadlines.put(EsOperationType.AGG, aggDeadlineMillis);
+        deadlines.put(EsOperationType.WRITE, writeDeadlineMillis);
+        deadlines.put(EsOperationType.BULK, bulkDeadlineMillis);
+        for (EsOperationType type : EsOperationType.values()) {
+            // 上下限相同时上限不变
+            AdaptiveConcurrencyLimiter limiter = type == EsOperationType.BULK
+                    ? new AdaptiveConcurrencyLimiter(bulkLimit, bulkLimit, bulkLimit,
+                    limitTolerance, limitBackoffRatio, minRttThresholdMillis, baselineWindowMillis)
+                    : new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                    limitTolerance, limitBackoffRatio, minRttThresholdMillis, baselineWindowMillis);
+            limiters.put(type, limiter);
+            Gauge.builder("es.resilience.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("ES自适应并发上限")
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry);
+            Gauge.builder("es.resilience.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("ES在途请求数")
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        log.info("ES过载保护初始化完成：启用={}，并发上限={}（{}~{}），截止时间={}，熔断失败率={}，熔断时长={}ms",
+                enabled, initialLimit, minLimit, maxLimit, deadlines, breakerFailureRate, breakerOpenMillis);
+    }
+
+    /**
+     * 仓库方法执行前调用：依次检查熔断器与并发上限
+     * @return 放行凭证，方法结束时必须调用Permit.onComplete；不受保护的方法返回null
+     * @throws EsOverloadedException 熔断中或超出并发上限
+     */
+    public Permit acquire(String operation) {
+        EsOperationType type = enabled ? EsOperationType.of(operation) : null;
+        if (type == null) {
+            return null;
+        }
+        CircuitBreaker breaker = breakers.computeIfAbsent(operation, key -> new CircuitBreaker(breakerWindowSize,
+                breakerMinimumCalls, breakerFailureRate, breakerOpenMillis, breakerHalfOpenCalls));
+        if (!breaker.tryAcquire()) {
+            throw reject(operation, EsOverloadedException.Reason.CIRCUIT_OPEN,
+                    TimeUnit.MILLISECONDS.toSeconds(breaker.remainingOpenMillis() + 999));
+        }
+        AdaptiveConcurrencyLimiter limiter = limiters.get(type);
+        if (!limiter.tryAcquire()) {
+            breaker.onIgnored();
+            throw reject(operation, EsOverloadedException.Reason.CONCURRENCY_LIMIT, limitRetryAfterSeconds);
+        }
+        long deadlineMillis = deadlines.get(type);
+        long startNanos = System.nanoTime();
+        long deadlineNanos = deadlineMillis > 0 ? startNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : 0;
+        return new Permit(operation, breaker, limiter, startNanos, deadlineNanos);
+    }
+
+    // ====================== 截止时间（线程上下文） ======================
+    /**
+     * 进入受保护方法，返回外层截止时间（嵌套调用时保留更早的截止时间）
+     */
+    public Long enterDeadline(long deadlineNanos) {
+        Long outer = currentDeadline.get();
+        if (deadlineNanos != 0 && (outer == null || deadlineNanos - outer < 0)) {
+            currentDeadline.set(deadlineNanos);
+        }
+        return outer;
+    }
+
+    public void exitDeadline(Long outer) {
+        if (outer == null) {
+            currentDeadline.remove();
+        } else {
+            currentDeadline.set(outer);
+        }
+    }
+
+    /**
+     * 当前线程的截止时间（System.nanoTime），未设置时返回0
+     */
+    public long currentDeadline() {
+        Long deadline = currentDeadline.get();
+        return deadline == null ? 0 : deadline;
+    }
+
+    // ====================== 监控 ======================
+    public Map<String, Object> stats() {
+        Map<String, Object> statsMap = new LinkedHashMap<>();
+        statsMap.put("enabled", enabled);
+        Map<String, Object> limiterStats = new LinkedHashMap<>();
+        limiters.forEach((type, limiter) -> {
+            Map<String, Object> typeStats = limiter.stats();
+            typeStats.put("deadlineMillis", deadlines.get(type));
+            limiterStats.put(type.name().toLowerCase(), typeStats);
+        });
+        statsMap.put("limiters", limiterStats);
+        Map<String, Object> breakerStats = new TreeMap<>();
+        breakers.forEach((operation, breaker) -> breakerStats.put(operation, breaker.stats()));
+        statsMap.put("circuitBreakers", breakerStats);
+        return statsMap;
+    }
+
+    private EsOverloadedException reject(String operation, EsOverloadedException.Reason reason, long retryAfterSeconds) {
+        rejectedCounter(operation, reason).increment();
+        return new EsOverloadedException(operation, reason, retryAfterSeconds);
+    }
+
+    private Counter rejectedCounter(String operation, EsOverloadedException.Reason reason) {
+        return rejectedCounters.computeIfAbsent(operation + "|" + reason, key -> Counter.builder("es.resilience.rejected")
+                .description("ES过载保护拒绝的请求数")
+                .tag("operation", operation)
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry));
+    }
+
+    /**
+     * 调用结果分类：是否计入熔断失败率、是否说明ES过载
+     */
+    enum Outcome {
+        SUCCESS, OVERLOADED, FAILURE, IGNORED
+    }
+
+    static Outcome classify(Throwable error, boolean deadlineExceeded) {
+        if (error == null) {
+            return Outcome.SUCCESS;
+        }
+        if (error instanceof EsOverloadedException) {
+            return Outcome.OVERLOADED;
+        }
+        // 400~405由客户端解析为ElasticsearchException，429/5xx等由低层RestClient抛出ResponseException（IOException）
+        if (error instanceof ElasticsearchException) {
+            return classifyStatus(((ElasticsearchException) error).status());
+        }
+        if (error instanceof ResponseException) {
+            return classifyStatus(((ResponseException) error).getResponse().getStatusLine().getStatusCode());
+        }
+        if (error instanceof IOException) {
+            // 超过截止时间的socket超时说明ES排队，其余IO异常（连接拒绝等）只计入熔断
+            return deadlineExceeded ? Outcome.OVERLOADED : Outcome.FAILURE;
+        }
+        return Outcome.IGNORED;
+    }
+
+    /**
+     * 429说明ES过载；5xx计入熔断；其余（参数错误、too_many_buckets等客户端原因）不计入
+     */
+    private static Outcome classifyStatus(int status) {
+        if (status == 429) {
+            return Outcome.OVERLOADED;
+        }
+        return status >= 500 ? Outcome.FAILURE : Outcome.IGNORED;
+    }
+
+    /**
+     * 一次受保护调用的放行凭证
+     */
+    public final class Permit {
+        private final String operation;
+        private final CircuitBreaker breaker;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long startNanos;
+        private final long deadlineNanos;
+
+        Permit(String operation, CircuitBreaker breaker, AdaptiveConcurrencyLimiter limiter, long startNanos,
+               long deadlineNanos) {
+            this.operation = operation;
+            this.breaker = breaker;
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /**
+         * 调用结束：更新熔断器与并发上限
+         * @return 需要抛给调用方的异常（超过截止时间的IO异常转换为EsOverloadedException），成功时返回null
+         */
+        public Throwable onComplete(Throwable error) {
+            long nowNanos = System.nanoTime();
+            boolean deadlineExceeded = deadlineNanos != 0 && nowNanos - deadlineNanos >= 0;
+            Outcome outcome = classify(error, deadlineExceeded);
+            switch (outcome) {
+                case SUCCESS:
+                    breaker.onSuccess();
+                    limiter.onSuccess(nowNanos - startNanos);
+                    return null;
+                case OVERLOADED:
+                    breaker.onFailure();
+                    limiter.onDropped(nowNanos - startNanos);
+                    if (error instanceof EsOverloadedException) {
+                        return error;
+                    }
+                    if (deadlineExceeded) {
+                        rejectedCounter(operation, EsOverloadedException.Reason.DEADLINE_EXCEEDED).increment();
+                        return new EsOverloadedException(operation, EsOverloadedException.Reason.DEADLINE_EXCEEDED,
+                                limitRetryAfterSeconds, error);
+                    }
+                    return error;
+                case FAILURE:
+                    breaker.onFailure();
+                    limiter.onIgnored();
+                    return error;
+                default:
+                    breaker.onIgnored();
+                    limiter.onIgnored();
+                    return error;
+            }
+        }
+    }
+}
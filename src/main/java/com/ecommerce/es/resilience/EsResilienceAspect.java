@@ -0,0 +1,73 @@
+package com.ecommerce.es.resilience;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * author Nami
+ * date 2026/1/27 10:40
+ * description ES仓库方法过载保护（在指标切面外层，被拒绝的调用不计入es.operation）
+ * - 同步方法：被拒绝时直接抛出EsOverloadedException
+ * - 返回CompletableFuture的异步方法：被拒绝时返回失败的future，完成时更新熔断器与并发上限
+ */
+@Aspect
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class EsResilienceAspect {
+    private final EsResilience esResilience;
+
+    @Around("execution(public * com.ecommerce.es.repository.ProductEsRepository.*(..))"
+            + " && !@annotation(org.springframework.context.event.EventListener)")
+    public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean async = ((MethodSignature) joinPoint.getSignature()).getReturnType() == CompletableFuture.class;
+        EsResilience.Permit permit;
+        try {
+            permit = esResilience.acquire(joinPoint.getSignature().getName());
+        } catch (EsOverloadedException e) {
+            if (async) {
+                CompletableFuture<Object> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(e);
+                return rejected;
+            }
+            throw e;
+        }
+        if (permit == null) {
+            return joinPoint.proceed();
+        }
+
+        Long outerDeadline = esResilience.enterDeadline(permit.getDeadlineNanos());
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            throw permit.onComplete(e);
+        } finally {
+            esResilience.exitDeadline(outerDeadline);
+        }
+        if (result instanceof CompletableFuture) {
+            CompletableFuture<Object> guarded = new CompletableFuture<>();
+            ((CompletableFuture<?>) result).whenComplete((value, error) -> {
+                if (error == null) {
+                    permit.onComplete(null);
+                    guarded.complete(value);
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    guarded.completeExceptionally(permit.onComplete(cause));
+                }
+            });
+            return guarded;
+        }
+        permit.onComplete(null);
+        return result;
+    }
+}
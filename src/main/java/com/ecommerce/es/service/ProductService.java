@@ -1,12 +1,23 @@
 package com.ecommerce.es.service;
 
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.ecommerce.es.entity.BulkIngestJob;
+import com.ecommerce.es.entity.ExportJob;
 import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductFacetQuery;
+import com.ecommerce.es.entity.ProductFacetResult;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.entity.ProductLookupItem;
+import com.ecommerce.es.entity.ReindexJob;
+import com.ecommerce.es.util.EsResponseUtil;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * author Nami
@@ -17,19 +28,64 @@ public interface ProductService {
     // 索引管理
     boolean createProductIndex() throws IOException;
     boolean deleteProductIndex() throws IOException;
+    ReindexJob startReindex();
+    ReindexJob getReindexJob(String jobId);
+    Map<String, Object> getProductIndexInfo() throws IOException;
+    Map<String, Object> getProductIndexSettings() throws IOException;
+    void applyProductIndexSettingsProfile(String profileName) throws IOException;
 
     // CRUD
     String saveProduct(Product product) throws IOException;
     String batchSaveProduct(List<Product> productList) throws IOException;
+    BulkIngestJob submitBatchSaveJob(List<Product> productList);
+    BulkIngestJob getBatchSaveJob(String jobId);
+    BulkIngestJob importProducts(InputStream inputStream) throws IOException;
     Product getProductById(String productId) throws IOException;
+    List<ProductLookupItem> getProductsByIds(List<String> productIds, List<String> fields) throws IOException;
     String updateProduct(Product product) throws IOException;
     String deleteProductById(String productId) throws IOException;
 
     // 搜索
     List<Product> searchProduct(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
                                 String category, List<String> tags, String sortField, SortOrder sortOrder) throws IOException;
+    EsResponseUtil.EsPageResult<Product> searchProductByCursor(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                               String category, List<String> tags, String sortField,
+                                                               SortOrder sortOrder, String cursor, int pageSize) throws IOException;
+    List<ProductListItem> searchProductList(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                            String category, List<String> tags, String sortField, SortOrder sortOrder) throws IOException;
+    EsResponseUtil.EsPageResult<ProductListItem> searchProductListByCursor(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                                           String category, List<String> tags, String sortField,
+                                                                           SortOrder sortOrder, String cursor, int pageSize) throws IOException;
+    ProductFacetResult searchProductFacets(ProductFacetQuery facetQuery) throws IOException;
+
+    // 搜索联想
+    List<String> suggestProduct(String prefix, int size) throws IOException;
+
+    // 缓存监控
+    Map<String, Object> getProductCacheStats();
 
     // 聚合
     Map<String, Long> aggProductByCategory() throws IOException;
     Map<String, Map<String, Long>> aggProductByCategoryAndSubCategory() throws IOException;
+
+    // 全量分桶统计（组合聚合翻页，NDJSON流式输出）
+    void validateAggBucketStream(List<String> fields, int pageSize);
+    long streamProductAggBuckets(List<String> fields, int pageSize, OutputStream outputStream) throws IOException;
+
+    // 全量导出（PIT扫描，NDJSON/CSV直接写响应或后台写gzip文件）
+    ExportJob prepareProductExport(String format, int slices, boolean gzip);
+    void exportProducts(ExportJob job, OutputStream outputStream) throws IOException;
+    ExportJob submitProductExportFile(String format, int slices) throws IOException;
+    ExportJob getExportJob(String jobId);
+
+    // 聚合快照（年龄/计算耗时、强制刷新）
+    Map<String, Object> getAggSnapshotStats();
+    Map<String, Object> refreshAggSnapshot() throws IOException;
+
+    // 异步（非阻塞，基于ES异步客户端）
+    CompletableFuture<Product> getProductByIdAsync(String productId);
+    CompletableFuture<List<Product>> searchProductAsync(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                       String category, List<String> tags, String sortField, SortOrder sortOrder);
+    CompletableFuture<Map<String, Long>> aggProductByCategoryAsync();
+    CompletableFuture<Map<String, Map<String, Long>>> aggProductByCategoryAndSubCategoryAsync();
 }
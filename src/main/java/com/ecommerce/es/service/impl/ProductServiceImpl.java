@@ -1,17 +1,51 @@
 package com.ecommerce.es.service.impl;
 
 import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.ecommerce.es.cache.ProductAggSnapshotCache;
+import com.ecommerce.es.cache.ProductDetailCache;
+import com.ecommerce.es.cache.ProductSuggestIndex;
+import com.ecommerce.es.cache.SearchQueryKey;
+import com.ecommerce.es.cache.SearchResultCache;
+import com.ecommerce.es.cache.SingleFlight;
+import com.ecommerce.es.entity.BulkIngestJob;
+import com.ecommerce.es.entity.ExportJob;
 import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductAggSnapshot;
+import com.ecommerce.es.entity.ProductFacetQuery;
+import com.ecommerce.es.entity.ProductFacetResult;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.entity.ProductLookupItem;
+import com.ecommerce.es.entity.ReindexJob;
+import com.ecommerce.es.repository.ProductBulkIngester;
 import com.ecommerce.es.repository.ProductEsRepository;
+import com.ecommerce.es.repository.ProductExporter;
+import com.ecommerce.es.repository.ProductIndexReindexer;
 import com.ecommerce.es.service.ProductService;
+import com.ecommerce.es.util.CompactValues;
+import com.ecommerce.es.util.EsResponseUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * author Nami
@@ -23,7 +57,38 @@ import java.util.Map;
 @Slf4j
 public class ProductServiceImpl implements ProductService {
 
+    // 批量查询商品ID上限
+    private static final int MAX_MGET_SIZE = 1000;
+    // 分面搜索分页深度上限（ES默认max_result_window）
+    private static final int MAX_FACET_RESULT_WINDOW = 10000;
+    // 价格直方图最小区间宽度（元）
+    private static final double MIN_PRICE_INTERVAL = 0.01;
+    // 组合聚合每页分桶数上限（ES默认search.max_buckets为65536）
+    private static final int MAX_COMPOSITE_PAGE_SIZE = 10000;
+
     private final ProductEsRepository productEsRepository;
+    private final ProductBulkIngester productBulkIngester;
+    private final ObjectMapper objectMapper;
+    private final ProductDetailCache productDetailCache;
+    private final ProductIndexReindexer productIndexReindexer;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductAggSnapshotCache productAggSnapshotCache;
+    private final ProductExporter productExporter;
+    private final SearchResultCache searchResultCache;
+
+    // 请求合并：相同条件的并发搜索/相同ID的并发详情查询共享一次ES调用
+    private final SingleFlight<SearchQueryKey, List<Product>> searchFlight = new SingleFlight<>();
+    private final SingleFlight<SearchQueryKey, List<ProductListItem>> searchListFlight = new SingleFlight<>();
+    private final SingleFlight<String, Product> detailFlight = new SingleFlight<>();
+
+    @PostConstruct
+    public void init() {
+        // 异步批量导入写入成功后失效详情缓存与搜索结果缓存、更新联想词条、累计聚合快照写入量
+        productBulkIngester.addIndexedListener(product -> productDetailCache.invalidate(product.getId()));
+        productBulkIngester.addIndexedListener(productSuggestIndex::onProductIndexed);
+        productBulkIngester.addIndexedListener(product -> productAggSnapshotCache.onProductsWritten(1));
+        productBulkIngester.addIndexedListener(product -> searchResultCache.onProductsWritten());
+    }
 
     @Override
     public boolean createProductIndex() throws IOException {
@@ -35,18 +100,128 @@ public class ProductServiceImpl implements ProductService {
         return productEsRepository.deleteProductIndex();
     }
 
+    @Override
+    public ReindexJob startReindex() {
+        return productIndexReindexer.startReindex();
+    }
+
+    @Override
+    public ReindexJob getReindexJob(String jobId) {
+        return productIndexReindexer.getJob(jobId);
+    }
+
+    @Override
+    public Map<String, Object> getProductIndexInfo() throws IOException {
+        return productEsRepository.getIndexAliasInfo();
+    }
+
+    @Override
+    public Map<String, Object> getProductIndexSettings() throws IOException {
+        Map<String, Object> settingsMap = new LinkedHashMap<>();
+        settingsMap.put("current", productEsRepository.getIndexSettings());
+        settingsMap.put("profiles", productEsRepository.getSettingsProfiles());
+        return settingsMap;
+    }
+
+    @Override
+    public void applyProductIndexSettingsProfile(String profileName) throws IOException {
+        // 档位不存在时由IndexSettingsProperties抛出IllegalArgumentException
+        productEsRepository.applySettingsProfile(profileName);
+    }
+
     @Override
     public String saveProduct(Product product) throws IOException {
         // 电商业务校验：商品ID/名称非空
         if (product.getId() == null || product.getProductName() == null) {
             throw new IllegalArgumentException("商品ID和名称不能为空");
         }
-        return productEsRepository.saveProduct(product);
+        String result = productEsRepository.saveProduct(product);
+        productDetailCache.invalidate(product.getId());
+        productSuggestIndex.onProductIndexed(product);
+        productAggSnapshotCache.onProductsWritten(1);
+        searchResultCache.onProductsWritten();
+        return result;
     }
 
     @Override
     public String batchSaveProduct(List<Product> productList) throws IOException {
-        // 电商批量校验：列表非空、商品ID/名称非空
+        validateBatchProducts(productList);
+        String result = productEsRepository.batchSaveProduct(productList);
+        productList.forEach(product -> {
+            productDetailCache.invalidate(product.getId());
+            productSuggestIndex.onProductIndexed(product);
+        });
+        productAggSnapshotCache.onProductsWritten(productList.size());
+        searchResultCache.onProductsWritten();
+        return result;
+    }
+
+    @Override
+    public BulkIngestJob submitBatchSaveJob(List<Product> productList) {
+        validateBatchProducts(productList);
+        BulkIngestJob job = productBulkIngester.submitJob(productList);
+        log.info("批量导入任务{}已提交，商品总数：{}", job.getJobId(), productList.size());
+        return job;
+    }
+
+    @Override
+    public BulkIngestJob getBatchSaveJob(String jobId) {
+        if (jobId == null || jobId.isEmpty()) {
+            throw new IllegalArgumentException("任务ID不能为空");
+        }
+        return productBulkIngester.getJob(jobId);
+    }
+
+    /**
+     * 流式导入（NDJSON或JSON数组）
+     * - 基于Jackson流式解析逐条读取，不在内存中构建完整商品列表
+     * - 每条商品校验后交给批量写入引擎，按固定条数/字节分批发送；写入跟不上时阻塞读取（背压）
+     * - 遇到非法商品立即终止导入，已提交的商品不回滚
+     */
+    @Override
+    public BulkIngestJob importProducts(InputStream inputStream) throws IOException {
+        BulkIngestJob job = productBulkIngester.startJob();
+        long lineNo = 0;
+        try (MappingIterator<Product> iterator = objectMapper.readerFor(Product.class).readValues(inputStream)) {
+            while (iterator.hasNextValue()) {
+                lineNo++;
+                Product product = iterator.nextValue();
+                if (product.getId() == null || product.getProductName() == null) {
+                    throw new IllegalArgumentException("商品ID和名称不能为空，第" + lineNo + "条，商品ID：" + product.getId());
+                }
+                productBulkIngester.add(job, product);
+            }
+            productBulkIngester.finishJob(job);
+        } catch (JsonProcessingException e) {
+            job.abort("导入数据格式错误，第" + lineNo + "条");
+            throw new IllegalArgumentException("导入数据格式错误，第" + lineNo + "条：" + e.getOriginalMessage()
+                    + abortedJobHint(job), e);
+        } catch (IllegalArgumentException e) {
+            job.abort(e.getMessage());
+            throw new IllegalArgumentException(e.getMessage() + abortedJobHint(job), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort("导入任务被中断");
+            throw new IOException("导入任务被中断", e);
+        }
+        if (job.getSubmittedCount() == 0) {
+            throw new IllegalArgumentException("导入商品列表不能为空");
+        }
+        log.info("流式导入任务{}读取完成，商品总数：{}", job.getJobId(), job.getSubmittedCount());
+        return job;
+    }
+
+    /**
+     * 导入中途失败时之前的商品可能已写入，错误信息带上任务ID和已提交条数，便于调用方查询任务结果
+     */
+    private static String abortedJobHint(BulkIngestJob job) {
+        return "（导入任务" + job.getJobId() + "已中止，此前已提交" + job.getSubmittedCount() + "条）";
+    }
+
+    /**
+     * 电商批量校验：列表非空、商品ID/名称非空
+     */
+    private void validateBatchProducts(List<Product> productList) {
         if (productList == null || productList.isEmpty()) {
             throw new IllegalArgumentException("批量新增商品列表不能为空");
         }
@@ -55,7 +230,6 @@ public class ProductServiceImpl implements ProductService {
                 throw new IllegalArgumentException("商品ID和名称不能为空，商品ID：" + product.getId());
             }
         }
-        return productEsRepository.batchSaveProduct(productList);
     }
 
     @Override
@@ -63,7 +237,29 @@ public class ProductServiceImpl implements ProductService {
         if (productId == null || productId.isEmpty()) {
             throw new IllegalArgumentException("商品ID不能为空");
         }
-        return productEsRepository.getProductById(productId);
+        return productDetailCache.get(productId,
+                id -> detailFlight.execute(id, () -> productEsRepository.getProductById(id)));
+    }
+
+    @Override
+    public List<ProductLookupItem> getProductsByIds(List<String> productIds, List<String> fields) throws IOException {
+        if (productIds == null || productIds.isEmpty()) {
+            throw new IllegalArgumentException("商品ID列表不能为空");
+        }
+        if (productIds.size() > MAX_MGET_SIZE) {
+            throw new IllegalArgumentException("单次最多查询" + MAX_MGET_SIZE + "个商品");
+        }
+        // 去重后查询ES，结果按原顺序（含重复ID）返回
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(productIds));
+        if (distinctIds.contains(null) || distinctIds.contains("")) {
+            throw new IllegalArgumentException("商品ID不能为空");
+        }
+        if (distinctIds.size() == productIds.size()) {
+            return productEsRepository.getProductsByIds(distinctIds, fields);
+        }
+        Map<String, ProductLookupItem> itemMap = new HashMap<>();
+        productEsRepository.getProductsByIds(distinctIds, fields).forEach(item -> itemMap.put(item.getId(), item));
+        return productIds.stream().map(itemMap::get).collect(Collectors.toList());
     }
 
     @Override
@@ -71,7 +267,12 @@ public class ProductServiceImpl implements ProductService {
         if (product.getId() == null || product.getProductName() == null) {
             throw new IllegalArgumentException("商品ID和名称不能为空");
         }
-        return productEsRepository.updateProduct(product);
+        String result = productEsRepository.updateProduct(product);
+        productDetailCache.invalidate(product.getId());
+        productSuggestIndex.onProductIndexed(product);
+        productAggSnapshotCache.onProductsWritten(1);
+        searchResultCache.onProductsWritten();
+        return result;
     }
 
     @Override
@@ -79,7 +280,12 @@ public class ProductServiceImpl implements ProductService {
         if (productId == null || productId.isEmpty()) {
             throw new IllegalArgumentException("商品ID不能为空");
         }
-        return productEsRepository.deleteProductById(productId);
+        String result = productEsRepository.deleteProductById(productId);
+        productDetailCache.invalidate(productId);
+        productSuggestIndex.onProductDeleted(productId);
+        productAggSnapshotCache.onProductsWritten(1);
+        searchResultCache.onProductsWritten();
+        return result;
     }
 
     @Override
@@ -89,16 +295,262 @@ public class ProductServiceImpl implements ProductService {
         if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
             throw new IllegalArgumentException("最低价格不能高于最高价格");
         }
-        return productEsRepository.searchProduct(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder);
+        productSuggestIndex.recordQuery(keyword);
+        // 先查结果缓存，未命中时合并相同条件的并发请求；价格按分取整，与缓存key的规范化一致
+        SearchQueryKey queryKey = SearchQueryKey.of(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder);
+        return searchResultCache.getProducts(queryKey, () -> searchFlight.execute(queryKey, () ->
+                productEsRepository.searchProduct(keyword, roundToCents(minPrice), roundToCents(maxPrice),
+                        category, tags, sortField, sortOrder)));
+    }
+
+    @Override
+    public EsResponseUtil.EsPageResult<Product> searchProductByCursor(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                                      String category, List<String> tags, String sortField,
+                                                                      SortOrder sortOrder, String cursor, int pageSize) throws IOException {
+        validateCursorParams(minPrice, maxPrice, pageSize);
+        return productEsRepository.searchProductByCursor(keyword, minPrice, maxPrice, category, tags,
+                sortField, sortOrder, cursor, pageSize);
+    }
+
+    @Override
+    public List<ProductListItem> searchProductList(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                   String category, List<String> tags, String sortField, SortOrder sortOrder) throws IOException {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        productSuggestIndex.recordQuery(keyword);
+        SearchQueryKey queryKey = SearchQueryKey.of(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder);
+        return searchResultCache.getListItems(queryKey, () -> searchListFlight.execute(queryKey, () ->
+                productEsRepository.searchProductList(keyword, roundToCents(minPrice), roundToCents(maxPrice),
+                        category, tags, sortField, sortOrder)));
     }
 
+    @Override
+    public EsResponseUtil.EsPageResult<ProductListItem> searchProductListByCursor(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                                                  String category, List<String> tags, String sortField,
+                                                                                  SortOrder sortOrder, String cursor, int pageSize) throws IOException {
+        validateCursorParams(minPrice, maxPrice, pageSize);
+        return productEsRepository.searchProductListByCursor(keyword, minPrice, maxPrice, category, tags,
+                sortField, sortOrder, cursor, pageSize);
+    }
+
+    @Override
+    public ProductFacetResult searchProductFacets(ProductFacetQuery facetQuery) throws IOException {
+        if (facetQuery.getMinPrice() != null && facetQuery.getMaxPrice() != null
+                && facetQuery.getMinPrice().compareTo(facetQuery.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        if (facetQuery.getPage() < 1) {
+            throw new IllegalArgumentException("页码不能小于1");
+        }
+        if (facetQuery.getPageSize() < 1 || facetQuery.getPageSize() > 100) {
+            throw new IllegalArgumentException("页大小需在1-100之间");
+        }
+        // from + size不能超过ES的max_result_window，更深的翻页使用游标搜索
+        if ((long) facetQuery.getPage() * facetQuery.getPageSize() > MAX_FACET_RESULT_WINDOW) {
+            throw new IllegalArgumentException("分面搜索最多翻到第" + MAX_FACET_RESULT_WINDOW + "条，请增加筛选条件");
+        }
+        // 价格精度为分，更小的区间宽度没有意义；过小的宽度由仓储层按价格跨度放宽
+        if (!(facetQuery.getPriceInterval() >= MIN_PRICE_INTERVAL)) {
+            throw new IllegalArgumentException("价格区间宽度不能小于" + MIN_PRICE_INTERVAL);
+        }
+        if (facetQuery.getFacetSize() < 1 || facetQuery.getFacetSize() > 100) {
+            throw new IllegalArgumentException("分面取值数量需在1-100之间");
+        }
+        productSuggestIndex.recordQuery(facetQuery.getKeyword());
+        return productEsRepository.searchProductFacets(facetQuery);
+    }
+
+    /**
+     * 价格按分取整（与SearchQueryKey一致，同一缓存key对应的ES查询条件相同）
+     */
+    private static BigDecimal roundToCents(BigDecimal price) {
+        return price == null ? null : CompactValues.fromCents(CompactValues.toCents(price));
+    }
+
+    private void validateCursorParams(BigDecimal minPrice, BigDecimal maxPrice, int pageSize) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        if (pageSize < 1 || pageSize > 100) {
+            throw new IllegalArgumentException("页大小需在1-100之间");
+        }
+    }
+
+    @Override
+    public List<String> suggestProduct(String prefix, int size) throws IOException {
+        if (size < 1 || size > 20) {
+            throw new IllegalArgumentException("联想词数量需在1-20之间");
+        }
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (prefix.length() > 50) {
+            throw new IllegalArgumentException("联想前缀不能超过50个字符");
+        }
+        return productSuggestIndex.suggest(prefix, size);
+    }
+
+    @Override
+    public Map<String, Object> getProductCacheStats() {
+        Map<String, Object> statsMap = new LinkedHashMap<>(productDetailCache.stats());
+        statsMap.put("searchSingleFlight", searchFlight.stats());
+        statsMap.put("searchListSingleFlight", searchListFlight.stats());
+        statsMap.put("detailSingleFlight", detailFlight.stats());
+        statsMap.put("suggest", productSuggestIndex.stats());
+        statsMap.put("searchResult", searchResultCache.stats());
+        return statsMap;
+    }
+
+    /**
+     * 分类聚合（读取快照，快照由后台定时/按写入量重新计算）
+     */
     @Override
     public Map<String, Long> aggProductByCategory() throws IOException {
-        return productEsRepository.aggProductByCategory();
+        return productAggSnapshotCache.get().getCategoryCounts();
     }
 
     @Override
     public Map<String, Map<String, Long>> aggProductByCategoryAndSubCategory() throws IOException {
-        return productEsRepository.aggProductByCategoryAndSubCategory();
+        return productAggSnapshotCache.get().getSubCategoryCounts();
+    }
+
+    @Override
+    public void validateAggBucketStream(List<String> fields, int pageSize) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("分桶字段不能为空");
+        }
+        if (!ProductEsRepository.COMPOSITE_AGG_FIELDS.containsAll(fields)) {
+            throw new IllegalArgumentException("分桶字段仅支持：" + ProductEsRepository.COMPOSITE_AGG_FIELDS);
+        }
+        if (new LinkedHashSet<>(fields).size() != fields.size()) {
+            throw new IllegalArgumentException("分桶字段不能重复");
+        }
+        if (pageSize < 1 || pageSize > MAX_COMPOSITE_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页分桶数需在1-" + MAX_COMPOSITE_PAGE_SIZE + "之间");
+        }
+    }
+
+    /**
+     * 全量分桶统计：组合聚合按页翻取，每页写出为NDJSON后立即flush，内存只占一页
+     * - 写出失败（客户端断开）时抛出IOException，停止继续翻页
+     * - 已输出部分分桶后ES失败：响应已提交无法再改状态码，末尾追加一行{"error":...}，客户端据此判断结果不完整
+     */
+    @Override
+    public long streamProductAggBuckets(List<String> fields, int pageSize, OutputStream outputStream) throws IOException {
+        validateAggBucketStream(fields, pageSize);
+        AtomicLong writtenCount = new AtomicLong();
+        AtomicBoolean writeFailed = new AtomicBoolean();
+        try {
+            return productEsRepository.scanCompositeAgg(fields, pageSize, bucketList -> {
+                try {
+                    for (Map<String, Object> bucket : bucketList) {
+                        outputStream.write(objectMapper.writeValueAsBytes(bucket));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                } catch (IOException e) {
+                    writeFailed.set(true);
+                    throw e;
+                }
+                writtenCount.addAndGet(bucketList.size());
+            });
+        } catch (IOException | RuntimeException e) {
+            if (writtenCount.get() > 0 && !writeFailed.get()) {
+                writeStreamError(outputStream, writtenCount.get(), e);
+            }
+            throw e;
+        }
+    }
+
+    private void writeStreamError(OutputStream outputStream, long bucketCount, Exception cause) {
+        Map<String, Object> errorLine = new LinkedHashMap<>();
+        errorLine.put("error", "分桶统计中断：" + cause.getMessage());
+        errorLine.put("bucketCount", bucketCount);
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(errorLine));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    @Override
+    public ExportJob prepareProductExport(String format, int slices, boolean gzip) {
+        return productExporter.createJob(ExportJob.Format.parse(format), slices, gzip, "stream");
+    }
+
+    @Override
+    public void exportProducts(ExportJob job, OutputStream outputStream) throws IOException {
+        productExporter.export(job, outputStream);
+    }
+
+    @Override
+    public ExportJob submitProductExportFile(String format, int slices) throws IOException {
+        ExportJob job = productExporter.submitFileExport(ExportJob.Format.parse(format), slices);
+        log.info("商品导出任务{}已提交，格式：{}，切片：{}，文件：{}", job.getJobId(), job.getFormat(), slices, job.getTarget());
+        return job;
+    }
+
+    @Override
+    public ExportJob getExportJob(String jobId) {
+        if (jobId == null || jobId.isEmpty()) {
+            throw new IllegalArgumentException("任务ID不能为空");
+        }
+        return productExporter.getJob(jobId);
+    }
+
+    @Override
+    public Map<String, Object> getAggSnapshotStats() {
+        return productAggSnapshotCache.stats();
+    }
+
+    @Override
+    public Map<String, Object> refreshAggSnapshot() throws IOException {
+        productAggSnapshotCache.refresh();
+        return productAggSnapshotCache.stats();
+    }
+
+    @Override
+    public CompletableFuture<Product> getProductByIdAsync(String productId) {
+        if (productId == null || productId.isEmpty()) {
+            throw new IllegalArgumentException("商品ID不能为空");
+        }
+        return productDetailCache.getAsync(productId,
+                id -> detailFlight.executeAsync(id, () -> productEsRepository.getProductByIdAsync(id)));
+    }
+
+    @Override
+    public CompletableFuture<List<Product>> searchProductAsync(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                                              String category, List<String> tags, String sortField, SortOrder sortOrder) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        productSuggestIndex.recordQuery(keyword);
+        // 与同步搜索共用合并器，同步/异步的相同请求同样只查询一次ES
+        SearchQueryKey queryKey = SearchQueryKey.of(keyword, minPrice, maxPrice, category, tags, sortField, sortOrder);
+        return searchResultCache.getProductsAsync(queryKey, () -> searchFlight.executeAsync(queryKey, () ->
+                productEsRepository.searchProductAsync(keyword, roundToCents(minPrice), roundToCents(maxPrice),
+                        category, tags, sortField, sortOrder)));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> aggProductByCategoryAsync() {
+        // 快照就绪时直接返回，否则异步聚合
+        ProductAggSnapshot snapshot = productAggSnapshotCache.peek();
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot.getCategoryCounts());
+        }
+        return productEsRepository.aggProductByCategoryAsync();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Map<String, Long>>> aggProductByCategoryAndSubCategoryAsync() {
+        ProductAggSnapshot snapshot = productAggSnapshotCache.peek();
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot.getSubCategoryCounts());
+        }
+        return productEsRepository.aggProductByCategoryAndSubCategoryAsync();
     }
 }
@@ -0,0 +1,173 @@
+package com.ecommerce.es.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * author Nami
+ * date 2026/1/20 09:40
+ * description 紧凑存储工具（缓存/列表等长期驻留对象使用）
+ * - 价格：BigDecimal -> long分 + 原始小数位（不是整分的价格保留原值，不做舍入），时间：Date -> long毫秒，数值空值用哨兵值表示，避免装箱
+ * - 分类/标签/商家ID等低基数字符串做驻留，相同取值共用一个String实例
+ */
+public final class CompactValues {
+    /** long字段空值 */
+    public static final long NULL_LONG = Long.MIN_VALUE;
+    /** int字段空值 */
+    public static final int NULL_INT = Integer.MIN_VALUE;
+    /** 价格不能无损存为分（超过2位小数或超出long范围），原值另行保存 */
+    public static final long INEXACT_CENTS = Long.MIN_VALUE + 1;
+
+    // 驻留池上限：超过后不再驻留（防止高基数取值撑爆内存）
+    private static final int MAX_POOL_SIZE = 100_000;
+    private static final Map<String, String> STRING_POOL = new ConcurrentHashMap<>();
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    private CompactValues() {
+    }
+
+    // ====================== 价格 ======================
+    /**
+     * 元 -> 分（超过2位小数四舍五入，用于查询条件规范化）
+     * @throws IllegalArgumentException 超出long范围
+     */
+    public static long toCents(BigDecimal price) {
+        if (price == null) {
+            return NULL_LONG;
+        }
+        try {
+            return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("价格超出范围：" + price.toPlainString());
+        }
+    }
+
+    /**
+     * 元 -> 分（无损，用于存储，配合toPriceScale保存原始小数位），不是整分或超出范围时返回INEXACT_CENTS，调用方另存原值
+     */
+    public static long toExactCents(BigDecimal price) {
+        if (price == null) {
+            return NULL_LONG;
+        }
+        if (price.scale() < Byte.MIN_VALUE || price.scale() > Byte.MAX_VALUE) {
+            return INEXACT_CENTS;
+        }
+        try {
+            long cents = price.movePointRight(2).longValueExact();
+            return cents == NULL_LONG || cents == INEXACT_CENTS ? INEXACT_CENTS : cents;
+        } catch (ArithmeticException e) {
+            return INEXACT_CENTS;
+        }
+    }
+
+    /**
+     * 分 -> 元（去掉小数末尾的0，整数价格不带小数位）
+     */
+    public static BigDecimal fromCents(long cents) {
+        if (cents == NULL_LONG) {
+            return null;
+        }
+        if (cents % 100 == 0) {
+            return BigDecimal.valueOf(cents / 100);
+        }
+        return cents % 10 == 0 ? BigDecimal.valueOf(cents / 10, 1) : BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * 价格原始小数位（5999.00为2，5999为0），toExactCents不是INEXACT_CENTS时保证在byte范围内
+     */
+    public static byte toPriceScale(BigDecimal price) {
+        return price == null ? 0 : (byte) price.scale();
+    }
+
+    /**
+     * 分 + 原始小数位 -> 元（与存储前的价格完全一致，5999.00不会变成5999）
+     */
+    public static BigDecimal fromCents(long cents, int scale) {
+        if (cents == NULL_LONG) {
+            return null;
+        }
+        return BigDecimal.valueOf(cents, 2).setScale(scale);
+    }
+
+    // ====================== 装箱数值 ======================
+    public static int toInt(Integer value) {
+        return value == null ? NULL_INT : value;
+    }
+
+    public static Integer fromInt(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    /** 空值用NaN表示 */
+    public static double toDouble(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    public static Double fromDouble(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    // ====================== 字符串驻留 ======================
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = STRING_POOL.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (STRING_POOL.size() >= MAX_POOL_SIZE) {
+            return value;
+        }
+        pooled = STRING_POOL.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    /**
+     * 标签列表 -> 驻留后的数组（空列表共用一个空数组）
+     */
+    public static String[] internArray(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        if (values.isEmpty()) {
+            return EMPTY_ARRAY;
+        }
+        String[] array = new String[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = intern(values.get(i));
+        }
+        return array;
+    }
+
+    /**
+     * 数组 -> 可修改列表（与反序列化得到的List行为一致）
+     */
+    public static List<String> toList(String[] values) {
+        if (values == null) {
+            return null;
+        }
+        return values.length == 0 ? new ArrayList<>() : new ArrayList<>(Arrays.asList(values));
+    }
+
+    /**
+     * 数组 -> 只读列表视图（不复制，供getter使用）
+     */
+    public static List<String> asListView(String[] values) {
+        if (values == null) {
+            return null;
+        }
+        return values.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    public static int poolSize() {
+        return STRING_POOL.size();
+    }
+}
@@ -1,5 +1,7 @@
 package com.ecommerce.es.util;
 
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StatsAggregate;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.TotalHits;
@@ -7,6 +9,7 @@ import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.CollectionUtils;
 
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -27,14 +30,18 @@ public class EsResponseUtil {
      * @return 分页结果（包含总条数、总页数、当前页数据）
      */
     public static <T> EsPageResult<T> wrapPageResult(SearchResponse<T> response, int currentPage, int pageSize) {
+        return wrapPageResult(response, currentPage, pageSize, exactTotalCount(response));
+    }
+
+    /**
+     * 封装ES搜索结果为分页DTO（总条数由调用方给出，如游标翻页时沿用首页统计值）
+     * @param totalCount 总条数
+     */
+    public static <T> EsPageResult<T> wrapPageResult(SearchResponse<T> response, int currentPage, int pageSize,
+                                                     long totalCount) {
         EsPageResult<T> pageResult = new EsPageResult<>();
         try {
             // 1. 处理总条数
-            TotalHits totalHits = response.hits().total();
-            long totalCount = 0;
-            if (totalHits != null && totalHits.relation() == TotalHitsRelation.Eq) {
-                totalCount = totalHits.value();
-            }
             pageResult.setTotalCount(totalCount);
 
             // 2. 计算总页数
@@ -59,8 +66,10 @@ public class EsResponseUtil {
             pageResult.setCurrentPage(currentPage);
             pageResult.setPageSize(pageSize);
 
-            log.info("ES分页结果封装完成：总条数={}, 总页数={}, 当前页={}, 页大小={}",
-                    totalCount, totalPage, currentPage, pageSize);
+            if (log.isDebugEnabled()) {
+                log.debug("ES分页结果封装完成：总条数={}, 总页数={}, 当前页={}, 页大小={}",
+                        totalCount, totalPage, currentPage, pageSize);
+            }
         } catch (Exception e) {
             log.error("封装ES分页结果失败", e);
             throw new EsResponseException("分页结果封装失败：" + e.getMessage());
@@ -68,6 +77,17 @@ public class EsResponseUtil {
         return pageResult;
     }
 
+    /**
+     * 获取精确总条数（未统计或仅为下限时返回0）
+     */
+    public static long exactTotalCount(SearchResponse<?> response) {
+        TotalHits totalHits = response.hits().total();
+        if (totalHits != null && totalHits.relation() == TotalHitsRelation.Eq) {
+            return totalHits.value();
+        }
+        return 0;
+    }
+
     // ====================== 聚合结果解析（电商运营分析） ======================
     /**
      * 解析一级聚合结果（如分类聚合）
@@ -90,7 +110,7 @@ public class EsResponseUtil {
                     .array()
                     .stream()
                     .collect(Collectors.toMap(
-                            bucket -> bucket.key().toString(), // 分类名称
+                            bucket -> bucket.key().stringValue(), // 分类名称（FieldValue未重写toString）
                             bucket -> bucket.docCount()        // 商品数量
                     ));
         } catch (Exception e) {
@@ -123,7 +143,7 @@ public class EsResponseUtil {
                     .array()
                     .stream()
                     .collect(Collectors.toMap(
-                            firstBucket -> firstBucket.key().toString(),
+                            firstBucket -> firstBucket.key().stringValue(),
                             firstBucket -> {
                                 // 解析二级聚合
                                 return firstBucket.aggregations()
@@ -133,7 +153,7 @@ public class EsResponseUtil {
                                         .array()
                                         .stream()
                                         .collect(Collectors.toMap(
-                                                secondBucket -> secondBucket.key().toString(),
+                                                secondBucket -> secondBucket.key().stringValue(),
                                                 secondBucket -> secondBucket.docCount()
                                         ));
                             }
@@ -144,6 +164,80 @@ public class EsResponseUtil {
         }
     }
 
+    // ====================== 分面结果解析（分面搜索） ======================
+    /**
+     * 解析分面计数（filter聚合包裹的terms聚合）
+     * @param aggregations 响应的顶层聚合
+     * @param facetName 分面filter聚合名称
+     * @param termsAggName 内层terms聚合名称
+     * @return 取值 -> 商品数（保持ES返回的数量降序）
+     */
+    public static Map<String, Long> parseFacetTerms(Map<String, Aggregate> aggregations, String facetName, String termsAggName) {
+        Aggregate facet = aggregations == null ? null : aggregations.get(facetName);
+        if (facet == null) {
+            log.warn("聚合结果中未找到分面：{}", facetName);
+            return Collections.emptyMap();
+        }
+        try {
+            Map<String, Long> countMap = new LinkedHashMap<>();
+            facet.filter().aggregations().get(termsAggName).sterms().buckets().array()
+                    .forEach(bucket -> countMap.put(bucket.key().stringValue(), bucket.docCount()));
+            return countMap;
+        } catch (Exception e) {
+            log.error("解析分面结果失败，分面：{}", facetName, e);
+            throw new EsResponseException("解析分面结果失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析分面直方图（filter聚合包裹的histogram聚合）
+     * @return 区间下限 -> 商品数（按区间升序）
+     */
+    public static Map<String, Long> parseFacetHistogram(Map<String, Aggregate> aggregations, String facetName,
+                                                        String histogramAggName) {
+        Aggregate facet = aggregations == null ? null : aggregations.get(facetName);
+        if (facet == null) {
+            log.warn("聚合结果中未找到分面：{}", facetName);
+            return Collections.emptyMap();
+        }
+        try {
+            Map<String, Long> countMap = new LinkedHashMap<>();
+            facet.filter().aggregations().get(histogramAggName).histogram().buckets().array()
+                    .forEach(bucket -> countMap.put(
+                            BigDecimal.valueOf(bucket.key()).stripTrailingZeros().toPlainString(), bucket.docCount()));
+            return countMap;
+        } catch (Exception e) {
+            log.error("解析分面直方图失败，分面：{}", facetName, e);
+            throw new EsResponseException("解析分面直方图失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析分面统计（filter聚合包裹的stats聚合，无数据时只返回count）
+     */
+    public static Map<String, Object> parseFacetStats(Map<String, Aggregate> aggregations, String facetName,
+                                                      String statsAggName) {
+        Aggregate facet = aggregations == null ? null : aggregations.get(facetName);
+        if (facet == null) {
+            log.warn("聚合结果中未找到分面：{}", facetName);
+            return Collections.emptyMap();
+        }
+        try {
+            StatsAggregate stats = facet.filter().aggregations().get(statsAggName).stats();
+            Map<String, Object> statsMap = new LinkedHashMap<>();
+            statsMap.put("count", stats.count());
+            if (stats.count() > 0) {
+                statsMap.put("min", stats.min());
+                statsMap.put("max", stats.max());
+                statsMap.put("avg", stats.avg());
+            }
+            return statsMap;
+        } catch (Exception e) {
+            log.error("解析分面统计失败，分面：{}", facetName, e);
+            throw new EsResponseException("解析分面统计失败：" + e.getMessage());
+        }
+    }
+
     // ====================== 搜索参数校验（前置处理） ======================
     /**
      * 电商搜索参数校验（分页、排序、价格范围）
@@ -189,6 +283,7 @@ public class EsResponseUtil {
         private long totalCount;    // 总条数
         private long totalPage;     // 总页数
         private List<T> list;       // 当前页数据
+        private String nextCursor;  // 下一页游标（游标翻页模式，为空表示已到末页）
 
         // 空构造
         public EsPageResult() {}
@@ -234,6 +329,14 @@ public class EsResponseUtil {
             this.list = list;
         }
 
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public void setNextCursor(String nextCursor) {
+            this.nextCursor = nextCursor;
+        }
+
         // 重写toString，便于日志打印
         @Override
         public String toString() {
@@ -243,6 +346,7 @@ public class EsResponseUtil {
                     ", totalCount=" + totalCount +
                     ", totalPage=" + totalPage +
                     ", listSize=" + (list == null ? 0 : list.size()) +
+                    ", hasNext=" + (nextCursor != null) +
                     '}';
         }
     }
@@ -0,0 +1,247 @@
+package com.ecommerce.es.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * author Nami
+ * date 2026/1/19 10:20
+ * description 搜索联想前缀索引（不可变压缩前缀树）
+ * - 单分支路径压缩为一条边，边标签只记录词条下标+起止位置，不复制字符串
+ * - 每个节点预先算好权重最高的topK个词条，查询只需沿前缀走到对应节点，与命中词条数量无关
+ * - 构建后只读，多线程并发查询无需加锁；有变更时整体重建后替换引用
+ */
+public final class PrefixSuggestTrie {
+    private static final int[] EMPTY_TOP = new int[0];
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+    private static final char[] EMPTY_CHARS = new char[0];
+
+    // 词条按归一化文本升序排列，下标即词条ID
+    private final String[] terms;
+    private final String[] displays;
+    private final long[] weights;
+    private final int topK;
+    private final Node root;
+    private int nodeCount;
+
+    private PrefixSuggestTrie(String[] terms, String[] displays, long[] weights, int topK) {
+        this.terms = terms;
+        this.displays = displays;
+        this.weights = weights;
+        this.topK = topK;
+        this.root = terms.length == 0 ? null : build(0, terms.length, 0);
+    }
+
+    public static Builder builder(int topK) {
+        return new Builder(topK);
+    }
+
+    /**
+     * 归一化：去首尾空白、转小写（前缀匹配不区分大小写）
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ====================== 查询 ======================
+    /**
+     * 按前缀返回权重最高的联想词（最多topK个）
+     */
+    public List<String> suggest(String prefix, int size) {
+        String key = normalize(prefix);
+        if (root == null || key.isEmpty() || size <= 0) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        int pos = 0;
+        while (true) {
+            String label = terms[node.labelTerm];
+            for (int i = node.labelStart; i < node.labelEnd; i++, pos++) {
+                if (pos == key.length()) {
+                    return collect(node, size);
+                }
+                if (label.charAt(i) != key.charAt(pos)) {
+                    return Collections.emptyList();
+                }
+            }
+            if (pos == key.length()) {
+                return collect(node, size);
+            }
+            int childIndex = Arrays.binarySearch(node.childChars, key.charAt(pos));
+            if (childIndex < 0) {
+                return Collections.emptyList();
+            }
+            node = node.children[childIndex];
+        }
+    }
+
+    private List<String> collect(Node node, int size) {
+        int count = Math.min(size, node.top.length);
+        List<String> resultList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            resultList.add(displays[node.top[i]]);
+        }
+        return resultList;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    // ====================== 构建 ======================
+    /**
+     * 构建[lo, hi)范围内词条的子树（范围内词条在depth之前的前缀相同）
+     */
+    private Node build(int lo, int hi, int depth) {
+        nodeCount++;
+        String first = terms[lo];
+        int end = depth + commonPrefixLength(first, terms[hi - 1], depth);
+        Node node = new Node(lo, depth, end);
+
+        int i = lo;
+        int terminal = -1;
+        // 有序数组中恰好等于公共前缀的词条排在最前
+        if (first.length() == end) {
+            terminal = lo;
+            i++;
+        }
+        List<Node> childList = new ArrayList<>();
+        while (i < hi) {
+            char c = terms[i].charAt(end);
+            int j = i + 1;
+            while (j < hi && terms[j].charAt(end) == c) {
+                j++;
+            }
+            childList.add(build(i, j, end));
+            i = j;
+        }
+        if (!childList.isEmpty()) {
+            node.children = childList.toArray(EMPTY_CHILDREN);
+            node.childChars = new char[node.children.length];
+            for (int k = 0; k < node.children.length; k++) {
+                Node child = node.children[k];
+                node.childChars[k] = terms[child.labelTerm].charAt(child.labelStart);
+            }
+        }
+        node.top = mergeTop(terminal, node.children);
+        return node;
+    }
+
+    private static int commonPrefixLength(String a, String b, int from) {
+        int max = Math.min(a.length(), b.length());
+        int i = from;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i - from;
+    }
+
+    /**
+     * 合并本节点词条与子节点的topK（子节点列表均已按权重降序）
+     */
+    private int[] mergeTop(int terminal, Node[] children) {
+        if (children.length == 0) {
+            return terminal < 0 ? EMPTY_TOP : new int[]{terminal};
+        }
+        if (children.length == 1 && terminal < 0) {
+            return children[0].top;
+        }
+        int total = terminal < 0 ? 0 : 1;
+        for (Node child : children) {
+            total += child.top.length;
+        }
+        Integer[] candidates = new Integer[total];
+        int n = 0;
+        if (terminal >= 0) {
+            candidates[n++] = terminal;
+        }
+        for (Node child : children) {
+            for (int id : child.top) {
+                candidates[n++] = id;
+            }
+        }
+        // 权重降序，权重相同按文本升序（下标小的在前）
+        Arrays.sort(candidates, (a, b) -> weights[a] != weights[b] ? Long.compare(weights[b], weights[a]) : Integer.compare(a, b));
+        int[] top = new int[Math.min(topK, total)];
+        for (int k = 0; k < top.length; k++) {
+            top[k] = candidates[k];
+        }
+        return top;
+    }
+
+    /**
+     * 前缀树节点：边标签为terms[labelTerm]的[labelStart, labelEnd)
+     */
+    private static final class Node {
+        private final int labelTerm;
+        private final int labelStart;
+        private final int labelEnd;
+        private char[] childChars = EMPTY_CHARS;
+        private Node[] children = EMPTY_CHILDREN;
+        private int[] top = EMPTY_TOP;
+
+        Node(int labelTerm, int labelStart, int labelEnd) {
+            this.labelTerm = labelTerm;
+            this.labelStart = labelStart;
+            this.labelEnd = labelEnd;
+        }
+    }
+
+    /**
+     * 构建器：相同归一化文本的词条合并，权重累加，展示文本取权重最高的一次
+     */
+    public static final class Builder {
+        private final int topK;
+        private final Map<String, long[]> weightMap = new HashMap<>();
+        private final Map<String, String> displayMap = new HashMap<>();
+        private final Map<String, Long> displayWeightMap = new HashMap<>();
+
+        private Builder(int topK) {
+            if (topK < 1) {
+                throw new IllegalArgumentException("topK必须大于0");
+            }
+            this.topK = topK;
+        }
+
+        public Builder add(String text, long weight) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return this;
+            }
+            weightMap.computeIfAbsent(key, k -> new long[1])[0] += weight;
+            Long displayWeight = displayWeightMap.get(key);
+            if (displayWeight == null || weight > displayWeight) {
+                displayMap.put(key, text.trim());
+                displayWeightMap.put(key, weight);
+            }
+            return this;
+        }
+
+        public PrefixSuggestTrie build() {
+            String[] terms = weightMap.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            String[] displays = new String[terms.length];
+            long[] weights = new long[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                String display = displayMap.get(terms[i]);
+                // 展示文本与归一化文本相同时共用一个字符串
+                displays[i] = display.equals(terms[i]) ? terms[i] : display;
+                weights[i] = weightMap.get(terms[i])[0];
+            }
+            return new PrefixSuggestTrie(terms, displays, weights, topK);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecommerce.es.util;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * author Nami
+ * date 2026/1/8 10:12
+ * description 深分页游标（PIT + search_after），对前端是不透明的Base64字符串
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCursor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** 时间点ID（PIT） */
+    private String pitId;
+    /** 上一页最后一条的排序值（search_after） */
+    private List<Object> searchAfter;
+    /** 下一页页码（从1开始） */
+    private int page;
+    /** 首页统计到的总条数（后续页不再统计，节省开销） */
+    private long totalCount;
+    /** 查询条件摘要（防止翻页过程中条件被篡改） */
+    private int queryHash;
+
+    /**
+     * 编码为URL安全的游标字符串
+     */
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (Exception e) {
+            throw new EsResponseUtil.EsResponseException("游标编码失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 解析前端传入的游标字符串
+     */
+    public static SearchCursor decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            SearchCursor searchCursor = MAPPER.readValue(json, SearchCursor.class);
+            if (searchCursor.getPitId() == null || searchCursor.getSearchAfter() == null) {
+                throw new IllegalArgumentException("游标格式错误");
+            }
+            return searchCursor;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("游标格式错误");
+        }
+    }
+
+    /**
+     * 还原为ES search_after参数
+     */
+    public List<FieldValue> toSearchAfter() {
+        List<FieldValue> values = new ArrayList<>(searchAfter.size());
+        for (Object value : searchAfter) {
+            if (value == null) {
+                values.add(FieldValue.NULL);
+            } else if (value instanceof Double || value instanceof Float) {
+                values.add(FieldValue.of(((Number) value).doubleValue()));
+            } else if (value instanceof Number) {
+                values.add(FieldValue.of(((Number) value).longValue()));
+            } else if (value instanceof Boolean) {
+                values.add(FieldValue.of((Boolean) value));
+            } else {
+                values.add(FieldValue.of(value.toString()));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * ES返回的排序值 -> 可序列化的原始值
+     */
+    public static List<Object> fromSortValues(List<FieldValue> sortValues) {
+        List<Object> values = new ArrayList<>(sortValues.size());
+        for (FieldValue value : sortValues) {
+            values.add(value.isNull() ? null : value._get());
+        }
+        return values;
+    }
+}
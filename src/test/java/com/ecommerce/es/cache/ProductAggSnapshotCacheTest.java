@@ -0,0 +1,81 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.ProductAggSnapshot;
+import com.ecommerce.es.repository.ProductEsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductAggSnapshotCacheTest {
+
+    private ProductEsRepository productEsRepository;
+    private ProductAggSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        productEsRepository = mock(ProductEsRepository.class);
+        cache = new ProductAggSnapshotCache(productEsRepository);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "refreshIntervalMillis", 3600000L);
+        ReflectionTestUtils.setField(cache, "writeThreshold", 3L);
+        ReflectionTestUtils.setField(cache, "minIntervalMillis", 0L);
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void testGet_ComputesOnceThenServesSnapshot() throws Exception {
+        doReturn(snapshot(100L)).when(productEsRepository).aggProductCategorySnapshot();
+
+        assertEquals(100L, cache.get().getCategoryCounts().get("手机"));
+        assertEquals(100L, cache.get().getCategoryCounts().get("手机"));
+
+        verify(productEsRepository, times(1)).aggProductCategorySnapshot();
+        assertEquals(1L, cache.stats().get("hitCount"));
+        assertThrows(UnsupportedOperationException.class, () -> cache.get().getCategoryCounts().put("平板", 1L));
+    }
+
+    @Test
+    void testRefreshFailure_KeepsOldSnapshot() throws Exception {
+        doReturn(snapshot(100L)).doThrow(new IOException("es down")).when(productEsRepository).aggProductCategorySnapshot();
+        cache.refresh();
+
+        assertThrows(IOException.class, () -> cache.refresh());
+        assertEquals(100L, cache.get().getCategoryCounts().get("手机"));
+        assertEquals(1L, cache.stats().get("failureCount"));
+    }
+
+    @Test
+    void testWriteThreshold_TriggersRefresh() throws Exception {
+        doReturn(snapshot(100L), snapshot(103L)).when(productEsRepository).aggProductCategorySnapshot();
+        cache.refresh();
+
+        cache.onProductsWritten(2);
+        cache.onProductsWritten(1);
+
+        verify(productEsRepository, timeout(2000).times(2)).aggProductCategorySnapshot();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (cache.peek().getCategoryCounts().get("手机") != 103L && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(103L, cache.peek().getCategoryCounts().get("手机"));
+        assertEquals(1L, cache.stats().get("writeTriggeredCount"));
+    }
+
+    private static ProductAggSnapshot snapshot(long count) {
+        long now = System.currentTimeMillis();
+        return new ProductAggSnapshot(Collections.singletonMap("手机", count),
+                Collections.singletonMap("手机", Collections.singletonMap("华为", count)), now, 10, 5);
+    }
+}
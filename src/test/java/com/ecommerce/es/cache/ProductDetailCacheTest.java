@@ -0,0 +1,157 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductDetailCacheTest {
+
+    private InMemoryRemoteProductCache remoteCache;
+    private ProductDetailCache cache;
+    private AtomicInteger loadCount;
+    private final AtomicReference<String> putThread = new AtomicReference<>();
+    private final CountDownLatch remotePut = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        remoteCache = new InMemoryRemoteProductCache(100) {
+            @Override
+            public void put(String productId, Product product, long ttlMillis) {
+                super.put(productId, product, ttlMillis);
+                putThread.set(Thread.currentThread().getName());
+                remotePut.countDown();
+            }
+        };
+        cache = new ProductDetailCache(remoteCache);
+        ReflectionTestUtils.setField(cache, "localMaxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlMillis", 60000L);
+        ReflectionTestUtils.setField(cache, "negativeTtlMillis", 60000L);
+        ReflectionTestUtils.setField(cache, "remoteEnabled", true);
+        ReflectionTestUtils.setField(cache, "remoteTtlMillis", 60000L);
+        ReflectionTestUtils.setField(cache, "invalidationRetentionMillis", 60000L);
+        ReflectionTestUtils.setField(cache, "writebackThreads", 1);
+        cache.init();
+        loadCount = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void testGet_LoadsOnceThenHitsLocal() throws Exception {
+        Product first = cache.get("1001", this::load);
+        Product second = cache.get("1001", this::load);
+
+        // 缓存按紧凑格式存储，每次命中返回内容相同的新对象
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(1, loadCount.get());
+        assertEquals(1L, cache.stats().get("localHitCount"));
+        assertNotNull(remoteCache.get("1001"));
+    }
+
+    @Test
+    void testGet_NegativeCache() throws Exception {
+        assertNull(cache.get("missing", id -> {
+            loadCount.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get("missing", this::load));
+
+        assertEquals(1, loadCount.get());
+        assertEquals(1L, cache.stats().get("negativeHitCount"));
+    }
+
+    @Test
+    void testGet_RemoteTier() throws Exception {
+        Product product = new Product();
+        product.setId("1002");
+        remoteCache.put("1002", product, 60000);
+
+        assertEquals(product, cache.get("1002", this::load));
+        assertEquals(0, loadCount.get());
+        assertEquals(1L, cache.stats().get("remoteHitCount"));
+    }
+
+    @Test
+    void testInvalidate_ReloadsAfterWrite() throws Exception {
+        cache.get("1001", this::load);
+        cache.invalidate("1001");
+        cache.get("1001", this::load);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    void testInvalidate_DuringLoadSkipsBackfill() throws Exception {
+        // 加载过程中发生写入：本次结果不回填缓存
+        cache.get("1001", id -> {
+            Product stale = load(id);
+            cache.invalidate(id);
+            return stale;
+        });
+        cache.get("1001", this::load);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    void testInvalidate_OtherProductDoesNotSkipBackfill() throws Exception {
+        // 加载期间其他商品发生写入：本次结果照常回填
+        cache.get("1001", id -> {
+            Product product = load(id);
+            cache.invalidate("2002");
+            return product;
+        });
+        cache.get("1001", this::load);
+
+        assertEquals(1, loadCount.get());
+        assertNotNull(remoteCache.get("1001"));
+    }
+
+    @Test
+    void testInvalidate_SlowLoadBeyondRetentionSkipsBackfill() throws Exception {
+        // 加载耗时超过墓碑保留期：无法确认期间是否失效过，不回填
+        ReflectionTestUtils.setField(cache, "invalidationRetentionMillis", 0L);
+        cache.get("1001", this::load);
+
+        assertNull(remoteCache.get("1001"));
+        cache.get("1001", this::load);
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    void testGetAsync_BackfillsOffLoaderThread() throws Exception {
+        // 模拟ES IO线程完成异步加载：回填不应在该线程上执行
+        CompletableFuture<Product> pending = new CompletableFuture<>();
+        CompletableFuture<Product> result = cache.getAsync("1001", id -> pending);
+        Thread ioThread = new Thread(() -> pending.complete(load("1001")), "es-io-test");
+        ioThread.start();
+
+        assertEquals("1001", result.get(5, TimeUnit.SECONDS).getId());
+        assertTrue(remotePut.await(5, TimeUnit.SECONDS));
+        assertTrue(putThread.get().startsWith("product-cache-writeback-"), putThread.get());
+        assertEquals("1001", cache.getAsync("1001", id -> pending).get().getId());
+        assertEquals(1, loadCount.get());
+    }
+
+    private Product load(String productId) {
+        loadCount.incrementAndGet();
+        Product product = new Product();
+        product.setId(productId);
+        product.setProductName("测试商品");
+        return product;
+    }
+}
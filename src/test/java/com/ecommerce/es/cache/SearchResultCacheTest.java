@@ -0,0 +1,172 @@
+package com.ecommerce.es.cache;
+
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.resilience.EsOverloadedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache(67108864L, 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void testFreshHit_LoadsOnceAndReturnsCopy() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SearchResultCache.ResultLoader<Product> loader = () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(product("1001", "手机"));
+        };
+
+        List<Product> first = cache.getProducts(key("手机", "100"), loader);
+        // 价格按分规范化：100.001与100为同一条件
+        List<Product> second = cache.getProducts(key(" 手机 ", "100.001"), loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals(1L, cache.stats().get("freshHitCount"));
+        assertEquals(1L, cache.stats().get("missCount"));
+    }
+
+    @Test
+    void testWrite_ReturnsStaleAndRefreshesInBackground() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SearchResultCache.ResultLoader<Product> loader = () ->
+                Collections.singletonList(product("100" + loads.incrementAndGet(), "手机"));
+        cache.getProducts(key("手机", null), loader);
+
+        cache.onProductsWritten();
+        // 写入后先返回旧结果，后台刷新
+        assertEquals("1001", cache.getProducts(key("手机", null), loader).get(0).getId());
+        waitForRefresh(1L);
+
+        assertEquals("1002", cache.getProducts(key("手机", null), loader).get(0).getId());
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.stats().get("staleHitCount"));
+    }
+
+    @Test
+    void testWriteVisibilityDelay_ReloadsAfterWrite() throws Exception {
+        cache.shutdown();
+        cache = newCache(67108864L, 60000L);
+        AtomicInteger loads = new AtomicInteger();
+        SearchResultCache.ResultLoader<Product> loader = () ->
+                Collections.singletonList(product("100" + loads.incrementAndGet(), "手机"));
+
+        cache.onProductsWritten();
+        // 写入后立即加载的结果可能不含新商品，下次读取仍会后台刷新
+        cache.getProducts(key("手机", null), loader);
+        cache.getProducts(key("手机", null), loader);
+        waitForRefresh(1L);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testAsyncStale_RefreshesWithAsyncLoader() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<CompletableFuture<List<Product>>> loader = () -> CompletableFuture.completedFuture(
+                Collections.singletonList(product("100" + loads.incrementAndGet(), "手机")));
+        cache.getProductsAsync(key("手机", null), loader).get();
+
+        cache.onProductsWritten();
+        assertEquals("1001", cache.getProductsAsync(key("手机", null), loader).get().get(0).getId());
+        assertEquals("1002", cache.getProductsAsync(key("手机", null), loader).get().get(0).getId());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testMaxWeight_EvictsByEstimatedSize() throws Exception {
+        cache.shutdown();
+        cache = newCache(4096L, 0L);
+        for (int i = 0; i < 100; i++) {
+            String keyword = "关键词" + i;
+            cache.getProducts(key(keyword, null), () -> Collections.singletonList(product("1001", keyword)));
+        }
+        Cache<?, ?> caffeine = (Cache<?, ?>) ReflectionTestUtils.getField(cache, "cache");
+        caffeine.cleanUp();
+
+        assertTrue((Long) cache.stats().get("weightedSize") <= 4096L);
+        assertTrue((Long) cache.stats().get("evictionCount") > 0);
+    }
+
+    @Test
+    void testOverloaded_FallsBackToExpiredResult() throws Exception {
+        // 新鲜期与max-stale均为0：已有结果只能作为过载回退（硬过期在init时已按原配置确定）
+        ReflectionTestUtils.setField(cache, "ttlMillis", 0L);
+        ReflectionTestUtils.setField(cache, "maxStaleMillis", 0L);
+        cache.getProducts(key("手机", null), () -> Collections.singletonList(product("1001", "手机")));
+
+        SearchResultCache.ResultLoader<Product> overloaded = () -> {
+            throw new EsOverloadedException("searchProduct", EsOverloadedException.Reason.CONCURRENCY_LIMIT, 1);
+        };
+        assertEquals("1001", cache.getProducts(key("手机", null), overloaded).get(0).getId());
+
+        Supplier<CompletableFuture<List<Product>>> asyncOverloaded = () -> {
+            CompletableFuture<List<Product>> future = new CompletableFuture<>();
+            future.completeExceptionally(new EsOverloadedException("searchProductAsync",
+                    EsOverloadedException.Reason.CIRCUIT_OPEN, 10));
+            return future;
+        };
+        assertEquals("1001", cache.getProductsAsync(key("手机", null), asyncOverloaded).get().get(0).getId());
+        assertEquals(2L, cache.stats().get("fallbackHitCount"));
+
+        // 没有可回退的结果时照常抛出
+        assertThrows(EsOverloadedException.class, () -> cache.getProducts(key("平板", null), overloaded));
+    }
+
+    private static SearchResultCache newCache(long maxWeight, long writeVisibilityDelayMillis) {
+        SearchResultCache cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxWeight", maxWeight);
+        ReflectionTestUtils.setField(cache, "ttlMillis", 30000L);
+        ReflectionTestUtils.setField(cache, "maxStaleMillis", 60000L);
+        ReflectionTestUtils.setField(cache, "writeVisibilityDelayMillis", writeVisibilityDelayMillis);
+        ReflectionTestUtils.setField(cache, "refreshThreads", 1);
+        cache.init();
+        return cache;
+    }
+
+    private void waitForRefresh(long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && (Long) cache.stats().get("refreshCount") < expected; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, cache.stats().get("refreshCount"));
+    }
+
+    private static SearchQueryKey key(String keyword, String minPrice) {
+        return SearchQueryKey.of(keyword, minPrice == null ? null : new BigDecimal(minPrice), null,
+                null, null, null, null);
+    }
+
+    private static Product product(String id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setProductName(name);
+        product.setCategory("手机");
+        product.setPrice(new BigDecimal("2999"));
+        return product;
+    }
+}
@@ -0,0 +1,139 @@
+package com.ecommerce.es.cache;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testExecute_ConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> singleFlight.execute("hot", () -> {
+                    executions.incrementAndGet();
+                    awaitQuietly(release);
+                    return "result";
+                })));
+            }
+            // 等所有请求进入等待后再放行第一个调用
+            while ((long) singleFlight.stats().get("callCount") < 8) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("result", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(7L, singleFlight.stats().get("sharedCount"));
+        assertEquals(0, singleFlight.stats().get("inFlight"));
+    }
+
+    @Test
+    void testExecute_ExceptionIsNotCached() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        assertThrows(IOException.class, () -> singleFlight.execute("k", () -> {
+            throw new IOException("ES超时");
+        }));
+        assertDoesNotThrow(() -> singleFlight.execute("k", () -> "ok"));
+    }
+
+    @Test
+    void testExecute_ErrorReleasesWaiters() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("hot", () -> {
+                leaderStarted.countDown();
+                awaitQuietly(release);
+                throw new OutOfMemoryError("模拟Error");
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> singleFlight.execute("hot", () -> "other"));
+            while ((long) singleFlight.stats().get("callCount") < 2) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            // 调用方抛出Error时等待方同样收到Error，而不是永久阻塞
+            ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertTrue(leaderError.getCause() instanceof OutOfMemoryError);
+            ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertTrue(followerError.getCause() instanceof OutOfMemoryError);
+            assertEquals(0, singleFlight.stats().get("inFlight"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecuteAsync_SharesInFlightFuture() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> esFuture = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("hot", () -> {
+            executions.incrementAndGet();
+            return esFuture;
+        });
+        CompletableFuture<String> second = singleFlight.executeAsync("hot", () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        // 调用方cancel不影响其他等待方
+        second.cancel(true);
+        esFuture.complete("result");
+
+        assertEquals("result", first.get(1, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        assertEquals(0, singleFlight.stats().get("inFlight"));
+    }
+
+    @Test
+    void testSearchQueryKey_Normalized() {
+        SearchQueryKey a = SearchQueryKey.of(" iPhone ", new BigDecimal("100.00"), null, "",
+                Arrays.asList("5G", "新品"), null, null);
+        SearchQueryKey b = SearchQueryKey.of("iphone", new BigDecimal("100"), null, null,
+                Arrays.asList("新品", "5G", "5G"), "sales", SortOrder.Desc);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, SearchQueryKey.of("iphone", new BigDecimal("100"), null, null,
+                Arrays.asList("5G", "新品"), "price", SortOrder.Desc));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
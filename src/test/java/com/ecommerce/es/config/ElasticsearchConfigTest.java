@@ -0,0 +1,126 @@
+package com.ecommerce.es.config;
+
+import com.ecommerce.es.metrics.EsMetrics;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.elasticsearch.client.NodeSelector;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElasticsearchConfigTest {
+
+    private HttpServer node1;
+    private HttpServer node2;
+    private final AtomicInteger node1Count = new AtomicInteger();
+    private final AtomicInteger node2Count = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        node1 = startStubNode(node1Count);
+        node2 = startStubNode(node2Count);
+    }
+
+    @AfterEach
+    void tearDown() {
+        node1.stop(0);
+        node2.stop(0);
+    }
+
+    @Test
+    void testRestClient_RoundRobinAcrossHostsWithPoolSettings() throws Exception {
+        ElasticsearchConfig config = newConfig("127.0.0.1:" + node1.getAddress().getPort()
+                + ",http://127.0.0.1:" + node2.getAddress().getPort());
+        PoolingNHttpClientConnectionManager connectionManager = config.esConnectionManager();
+        assertEquals(64, connectionManager.getMaxTotal());
+        assertEquals(16, connectionManager.getDefaultMaxPerRoute());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (RestClient restClient = config.restClient(connectionManager, new EsMetrics(registry))) {
+            for (int i = 0; i < 6; i++) {
+                Response response = restClient.performRequest(new Request("GET", "/"));
+                assertEquals(200, response.getStatusLine().getStatusCode());
+            }
+            // 请求在两个节点间轮询
+            assertEquals(3, node1Count.get());
+            assertEquals(3, node2Count.get());
+
+            EsConnectionPoolMonitor monitor = new EsConnectionPoolMonitor(connectionManager);
+            Map<String, Object> stats = monitor.stats();
+            assertEquals(0, stats.get("leased"));
+            assertEquals(64, stats.get("max"));
+            assertEquals(2, ((Map<?, ?>) stats.get("routes")).size());
+
+            // 响应字节数与连接池指标
+            assertEquals(6, registry.get("es.response.size").summary().count());
+            assertEquals(12.0, registry.get("es.response.size").summary().totalAmount());
+            monitor.bindTo(registry);
+            assertEquals(64.0, registry.get("es.pool.connections").tag("state", "max").gauge().value());
+        }
+    }
+
+    @Test
+    void testParseHosts() {
+        HttpHost[] hosts = ElasticsearchConfig.parseHosts(" es1:9201, https://es2 ,", "localhost", 9200, "http");
+        assertEquals(2, hosts.length);
+        assertEquals("http://es1:9201", hosts[0].toURI());
+        assertEquals("https://es2:9200", hosts[1].toURI());
+
+        HttpHost[] single = ElasticsearchConfig.parseHosts("", "localhost", 9200, "http");
+        assertEquals("http://localhost:9200", single[0].toURI());
+    }
+
+    @Test
+    void testBuildNodeSelector() {
+        assertSame(NodeSelector.ANY, ElasticsearchConfig.buildNodeSelector("any"));
+        assertSame(NodeSelector.SKIP_DEDICATED_MASTERS, ElasticsearchConfig.buildNodeSelector("skip-dedicated-masters"));
+        assertTrue(ElasticsearchConfig.buildNodeSelector("attr:rack=rack1").toString().contains("rack1"));
+        assertThrows(IllegalArgumentException.class, () -> ElasticsearchConfig.buildNodeSelector("master-only"));
+    }
+
+    private ElasticsearchConfig newConfig(String hosts) {
+        ElasticsearchConfig config = new ElasticsearchConfig();
+        ReflectionTestUtils.setField(config, "esHost", "localhost");
+        ReflectionTestUtils.setField(config, "esPort", 9200);
+        ReflectionTestUtils.setField(config, "esScheme", "http");
+        ReflectionTestUtils.setField(config, "esHosts", hosts);
+        ReflectionTestUtils.setField(config, "esConnectTimeout", 1000);
+        ReflectionTestUtils.setField(config, "esSocketTimeout", 3000);
+        ReflectionTestUtils.setField(config, "maxConnTotal", 64);
+        ReflectionTestUtils.setField(config, "maxConnPerRoute", 16);
+        ReflectionTestUtils.setField(config, "ioThreadCount", 2);
+        ReflectionTestUtils.setField(config, "keepAliveMillis", 30000L);
+        ReflectionTestUtils.setField(config, "compressionEnabled", true);
+        ReflectionTestUtils.setField(config, "nodeSelector", "skip-dedicated-masters");
+        return config;
+    }
+
+    private HttpServer startStubNode(AtomicInteger counter) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            counter.incrementAndGet();
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,259 @@
+package com.ecommerce.es.controller;
+
+import com.ecommerce.es.config.EsConnectionPoolMonitor;
+import com.ecommerce.es.entity.ExportJob;
+import com.ecommerce.es.entity.ReindexJob;
+import com.ecommerce.es.entity.SlowQueryRecord;
+import com.ecommerce.es.metrics.SlowQueryLog;
+import com.ecommerce.es.resilience.EsResilience;
+import com.ecommerce.es.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class EsAdminControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private EsConnectionPoolMonitor esConnectionPoolMonitor;
+
+    @Mock
+    private SlowQueryLog slowQueryLog;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private EsResilience esResilience;
+
+    @InjectMocks
+    private EsAdminController esAdminController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(esAdminController)
+                .setMessageConverters(new StringHttpMessageConverter(StandardCharsets.UTF_8),
+                        new MappingJackson2HttpMessageConverter(new ObjectMapper()))
+                .build();
+    }
+
+    @Test
+    void testGetPoolStats_Success() throws Exception {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leased", 3);
+        stats.put("max", 200);
+        doReturn(stats).when(esConnectionPoolMonitor).stats();
+
+        mockMvc.perform(get("/admin/es/pool/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.leased").value(3))
+                .andExpect(jsonPath("$.max").value(200));
+    }
+
+    @Test
+    void testGetSlowQueries_Success() throws Exception {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("thresholdMillis", 500L);
+        stats.put("slowCount", 1L);
+        doReturn(stats).when(slowQueryLog).stats();
+        doReturn(Collections.singletonList(new SlowQueryRecord("searchProduct", "[手机]",
+                "POST /ecommerce_product/_search", "{}", 620L, 850L))).when(slowQueryLog).worstQueries();
+
+        mockMvc.perform(get("/admin/es/slow-queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.slowCount").value(1))
+                .andExpect(jsonPath("$.queries[0].operation").value("searchProduct"))
+                .andExpect(jsonPath("$.queries[0].tookMillis").value(620))
+                .andExpect(jsonPath("$.queries[0].latencyMillis").value(850));
+    }
+
+    @Test
+    void testGetResilienceStats_Success() throws Exception {
+        Map<String, Object> search = new LinkedHashMap<>();
+        search.put("limit", 18);
+        search.put("deadlineMillis", 3000L);
+        doReturn(Collections.singletonMap("limiters", Collections.singletonMap("search", search)))
+                .when(esResilience).stats();
+
+        mockMvc.perform(get("/admin/es/resilience"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.limiters.search.limit").value(18))
+                .andExpect(jsonPath("$.limiters.search.deadlineMillis").value(3000));
+    }
+
+    @Test
+    void testRefreshAggSnapshot_Success() throws Exception {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", true);
+        stats.put("ageMillis", 0L);
+        stats.put("computeMillis", 35L);
+        doReturn(stats).when(productService).refreshAggSnapshot();
+
+        mockMvc.perform(post("/admin/es/agg/snapshot/refresh"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ready").value(true))
+                .andExpect(jsonPath("$.computeMillis").value(35));
+    }
+
+    @Test
+    void testExportProducts_StreamsWithJobHeader() throws Exception {
+        ExportJob job = new ExportJob(ExportJob.Format.CSV, 2, false, "stream");
+        doReturn(job).when(productService).prepareProductExport("csv", 2, false);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,productName\n1001,手机\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(productService).exportProducts(eq(job), any());
+
+        mockMvc.perform(get("/admin/es/export").param("format", "csv").param("slices", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Export-Job-Id", job.getJobId()))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,productName\n1001,手机\n"));
+    }
+
+    @Test
+    void testExportProducts_NdjsonFailureAfterCommitEndsWithErrorLine() throws Exception {
+        ExportJob job = new ExportJob(ExportJob.Format.NDJSON, 1, false, "stream");
+        doReturn(job).when(productService).prepareProductExport("ndjson", 1, false);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("{\"id\":\"1001\"}\n{\"error\":\"导出中断：ES连接超时\",\"docCount\":1}\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+            throw new IOException("ES连接超时");
+        }).when(productService).exportProducts(eq(job), any());
+
+        mockMvc.perform(get("/admin/es/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"error\"")));
+    }
+
+    @Test
+    void testExportProducts_CsvFailureAfterCommitAbortsResponse() throws Exception {
+        ExportJob job = new ExportJob(ExportJob.Format.CSV, 1, false, "stream");
+        doReturn(job).when(productService).prepareProductExport("csv", 1, false);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,productName\n1001,手机\n".getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+            throw new IOException("ES连接超时");
+        }).when(productService).exportProducts(eq(job), any());
+
+        // 异常抛给容器中断连接，客户端不会收到正常结束的响应
+        assertThrows(IOException.class, () -> mockMvc.perform(get("/admin/es/export").param("format", "csv")));
+    }
+
+    @Test
+    void testExportProducts_TooManyExports() throws Exception {
+        doThrow(new IllegalStateException("同时进行的导出任务已达上限2个，请稍后再试"))
+                .when(productService).prepareProductExport(anyString(), anyInt(), anyBoolean());
+
+        mockMvc.perform(get("/admin/es/export"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void testStartReindex_Accepted() throws Exception {
+        ReindexJob job = new ReindexJob();
+        job.setIndices("ecommerce_product_v1", "ecommerce_product_v2");
+        doReturn(job).when(productService).startReindex();
+
+        mockMvc.perform(post("/admin/es/reindex"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(job.getJobId()))
+                .andExpect(jsonPath("$.phase").value("CREATING_INDEX"))
+                .andExpect(jsonPath("$.targetIndex").value("ecommerce_product_v2"));
+    }
+
+    @Test
+    void testStartReindex_AlreadyRunning() throws Exception {
+        doThrow(new IllegalStateException("已有索引重建任务在执行")).when(productService).startReindex();
+
+        mockMvc.perform(post("/admin/es/reindex"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testGetReindexJob_Progress() throws Exception {
+        ReindexJob job = new ReindexJob();
+        job.enterPhase(ReindexJob.Phase.COPYING);
+        job.updateCopyProgress("node:1", 1000, 400, 100, 0, 5);
+        doReturn(job).when(productService).getReindexJob("job1");
+
+        mockMvc.perform(get("/admin/es/reindex/job1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phase").value("COPYING"))
+                .andExpect(jsonPath("$.percent").value(50.0))
+                .andExpect(jsonPath("$.taskId").value("node:1"));
+    }
+
+    @Test
+    void testGetReindexJob_NotFound() throws Exception {
+        doReturn(null).when(productService).getReindexJob("missing");
+
+        mockMvc.perform(get("/admin/es/reindex/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetProductIndexInfo_Success() throws Exception {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("ecommerce_product", Collections.singletonList("ecommerce_product_v2"));
+        doReturn(info).when(productService).getProductIndexInfo();
+
+        mockMvc.perform(get("/admin/es/index"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ecommerce_product[0]").value("ecommerce_product_v2"));
+    }
+
+    @Test
+    void testApplyIndexSettingsProfile_Success() throws Exception {
+        mockMvc.perform(put("/admin/es/index/settings/bulk-load"))
+                .andExpect(status().isOk());
+
+        verify(productService).applyProductIndexSettingsProfile("bulk-load");
+    }
+
+    @Test
+    void testApplyIndexSettingsProfile_UnknownProfile() throws Exception {
+        doThrow(new IllegalArgumentException("索引配置档位不存在：fast"))
+                .when(productService).applyProductIndexSettingsProfile("fast");
+
+        mockMvc.perform(put("/admin/es/index/settings/fast"))
+                .andExpect(status().isBadRequest());
+    }
+}
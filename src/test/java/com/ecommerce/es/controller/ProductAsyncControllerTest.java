@@ -0,0 +1,138 @@
+package com.ecommerce.es.controller;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductAsyncControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private ProductService productService;
+
+    @InjectMocks
+    private ProductAsyncController productAsyncController;
+
+    private Product testProduct;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productAsyncController, "searchTimeoutMillis", 3000L);
+        ReflectionTestUtils.setField(productAsyncController, "detailTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(productAsyncController, "aggTimeoutMillis", 5000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(productAsyncController)
+                .setMessageConverters(new StringHttpMessageConverter(StandardCharsets.UTF_8),
+                        new MappingJackson2HttpMessageConverter(new ObjectMapper()))
+                .build();
+
+        testProduct = new Product();
+        testProduct.setId("1001");
+        testProduct.setProductName("测试手机");
+        testProduct.setPrice(new BigDecimal("2999.99"));
+    }
+
+    @Test
+    void testGetProductById_Success() throws Exception {
+        doReturn(CompletableFuture.completedFuture(testProduct)).when(productService).getProductByIdAsync("1001");
+
+        MvcResult mvcResult = mockMvc.perform(get("/product/async/1001"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productName").value("测试手机"));
+    }
+
+    @Test
+    void testGetProductById_NotFound() throws Exception {
+        doReturn(CompletableFuture.completedFuture(null)).when(productService).getProductByIdAsync("1002");
+
+        MvcResult mvcResult = mockMvc.perform(get("/product/async/1002"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testSearchProduct_Success() throws Exception {
+        doReturn(CompletableFuture.completedFuture(Collections.singletonList(testProduct))).when(productService)
+                .searchProductAsync(anyString(), any(), any(), any(), any(), any(), any(SortOrder.class));
+
+        MvcResult mvcResult = mockMvc.perform(get("/product/async/search").param("keyword", "手机"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1001"));
+    }
+
+    @Test
+    void testSearchProduct_ParamError() throws Exception {
+        doThrow(new IllegalArgumentException("最低价格不能高于最高价格")).when(productService)
+                .searchProductAsync(any(), any(), any(), any(), any(), any(), any(SortOrder.class));
+
+        MvcResult mvcResult = mockMvc.perform(get("/product/async/search")
+                        .param("minPrice", "100").param("maxPrice", "10"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testAggProductByCategory_EsError() throws Exception {
+        CompletableFuture<Map<String, Long>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("ES 连接失败"));
+        doReturn(failed).when(productService).aggProductByCategoryAsync();
+
+        MvcResult mvcResult = mockMvc.perform(get("/product/async/agg/category"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testAggProductByCategory_Success() throws Exception {
+        Map<String, Long> aggResult = new HashMap<>();
+        aggResult.put("手机", 100L);
+        doReturn(CompletableFuture.completedFuture(aggResult)).when(productService).aggProductByCategoryAsync();
+
+        MvcResult mvcResult = mockMvc.perform(get("/product/async/agg/category"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.手机").value(100));
+    }
+}
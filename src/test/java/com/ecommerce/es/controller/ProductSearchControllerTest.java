@@ -1,7 +1,13 @@
 package com.ecommerce.es.controller;
 
+import com.ecommerce.es.entity.BulkIngestJob;
 import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductFacetResult;
+import com.ecommerce.es.entity.ProductListItem;
+import com.ecommerce.es.entity.ProductLookupItem;
+import com.ecommerce.es.resilience.EsOverloadedException;
 import com.ecommerce.es.service.ProductService;
+import com.ecommerce.es.util.EsResponseUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import co.elastic.clients.elasticsearch._types.SortOrder;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +25,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.filter.CharacterEncodingFilter;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -27,7 +34,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -159,6 +168,51 @@ class ProductSearchControllerTest {
                 .andExpect(content().string("批量新增成功，共1条数据"));
     }
 
+    @Test
+    void testSubmitBatchSaveJob_Accepted() throws Exception {
+        BulkIngestJob job = new BulkIngestJob();
+        doReturn(job).when(productService).submitBatchSaveJob(anyList());
+
+        mockMvc.perform(post("/product/batch/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testProductList)))
+                .andExpect(status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.jobId").value(job.getJobId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING"));
+    }
+
+    @Test
+    void testImportProducts_Accepted() throws Exception {
+        BulkIngestJob job = new BulkIngestJob();
+        doReturn(job).when(productService).importProducts(any());
+
+        mockMvc.perform(post("/product/batch/import")
+                        .contentType("application/x-ndjson")
+                        .content(objectMapper.writeValueAsString(testProduct) + "\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.jobId").value(job.getJobId()));
+    }
+
+    @Test
+    void testImportProducts_ParamError() throws Exception {
+        doThrow(new IllegalArgumentException("导入数据格式错误，第1条")).when(productService).importProducts(any());
+
+        mockMvc.perform(post("/product/batch/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("导入数据格式错误，第1条")));
+    }
+
+    @Test
+    void testGetBatchSaveJob_NotFound() throws Exception {
+        doReturn(null).when(productService).getBatchSaveJob(anyString());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/batch/job/unknown")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testGetProductById_Success() throws Exception {
         doReturn(testProduct).when(productService).getProductById(anyString());
@@ -180,6 +234,32 @@ class ProductSearchControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testGetProductsByIds_KeepsOrder() throws Exception {
+        doReturn(Arrays.asList(ProductLookupItem.notFound("1002"), ProductLookupItem.found("1001", testProduct)))
+                .when(productService).getProductsByIds(eq(Arrays.asList("1002", "1001")), eq(Arrays.asList("productName", "price")));
+
+        mockMvc.perform(post("/product/mget")
+                        .param("fields", "productName", "price")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1002\",\"1001\"]"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value("1002"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].found").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].found").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].product.productName").value("测试手机"));
+    }
+
+    @Test
+    void testGetProductsByIds_ParamError() throws Exception {
+        doThrow(new IllegalArgumentException("商品ID列表不能为空")).when(productService).getProductsByIds(anyList(), any());
+
+        mockMvc.perform(post("/product/mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testUpdateProduct_Success() throws Exception {
         doReturn("更新成功").when(productService).updateProduct(any(Product.class));
@@ -249,6 +329,116 @@ class ProductSearchControllerTest {
                 .andExpect(content().string("")); // 错误时返回 null，响应体为空字符串
     }
 
+    @Test
+    void testSearchProduct_Overloaded() throws Exception {
+        doThrow(new EsOverloadedException("searchProduct", EsOverloadedException.Reason.CIRCUIT_OPEN, 10))
+                .when(productService).searchProduct(
+                        anyString(), any(BigDecimal.class), any(BigDecimal.class),
+                        anyString(), anyList(), anyString(), any(SortOrder.class)
+                );
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search")
+                        .param("keyword", "手机")
+                        .param("minPrice", "2000")
+                        .param("maxPrice", "9000")
+                        .param("category", "手机")
+                        .param("tags", "[]")
+                        .param("sortField", "price")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "10"));
+    }
+
+    @Test
+    void testSearchProductByCursor_Success() throws Exception {
+        EsResponseUtil.EsPageResult<Product> pageResult = new EsResponseUtil.EsPageResult<>();
+        pageResult.setCurrentPage(1);
+        pageResult.setPageSize(20);
+        pageResult.setTotalCount(1);
+        pageResult.setTotalPage(1);
+        pageResult.setList(testProductList);
+        pageResult.setNextCursor("next_cursor");
+        doReturn(pageResult).when(productService).searchProductByCursor(
+                any(), any(), any(), anyString(), any(), any(), any(SortOrder.class), any(), eq(20)
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search")
+                        .param("category", "手机")
+                        .param("pageSize", "20")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.currentPage").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("next_cursor"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.list[0].id").value("1001"));
+    }
+
+    @Test
+    void testSearchProductByCursor_Expired() throws Exception {
+        doThrow(new IllegalArgumentException("游标已过期，请从第一页重新查询")).when(productService).searchProductByCursor(
+                any(), any(), any(), any(), any(), any(), any(SortOrder.class), eq("expired_cursor"), anyInt()
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search")
+                        .param("cursor", "expired_cursor")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchProductListView_Success() throws Exception {
+        ProductListItem item = new ProductListItem("1001", "测试手机", "手机", new BigDecimal("2999.99"),
+                100, 4.8, Arrays.asList("新品"));
+        doReturn(Arrays.asList(item)).when(productService).searchProductList(
+                any(), any(), any(), anyString(), any(), any(), any(SortOrder.class)
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search")
+                        .param("category", "手机")
+                        .param("view", "list")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value("1001"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].productName").value("测试手机"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void testSearchProductListViewByCursor_Success() throws Exception {
+        EsResponseUtil.EsPageResult<ProductListItem> pageResult = new EsResponseUtil.EsPageResult<>();
+        pageResult.setCurrentPage(1);
+        pageResult.setPageSize(20);
+        pageResult.setTotalCount(1);
+        pageResult.setTotalPage(1);
+        pageResult.setList(Arrays.asList(new ProductListItem("1001", "测试手机", "手机",
+                new BigDecimal("2999.99"), 100, 4.8, null)));
+        pageResult.setNextCursor("next_cursor");
+        doReturn(pageResult).when(productService).searchProductListByCursor(
+                any(), any(), any(), any(), any(), any(), any(SortOrder.class), any(), eq(20)
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search")
+                        .param("view", "list")
+                        .param("pageSize", "20")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("next_cursor"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.list[0].id").value("1001"));
+    }
+
+    @Test
+    void testGetProductCacheStats_Success() throws Exception {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("localHitCount", 10L);
+        stats.put("localEvictionCount", 2L);
+        doReturn(stats).when(productService).getProductCacheStats();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/cache/stats")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.localHitCount").value(10))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.localEvictionCount").value(2));
+    }
+
     @Test
     void testAggProductByCategory_Success() throws Exception {
         // Mock 聚合结果
@@ -264,6 +454,90 @@ class ProductSearchControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.电脑").value(80));
     }
 
+    @Test
+    void testSearchProductFacets_Success() throws Exception {
+        EsResponseUtil.EsPageResult<ProductListItem> pageResult = new EsResponseUtil.EsPageResult<>();
+        pageResult.setCurrentPage(1);
+        pageResult.setPageSize(20);
+        pageResult.setTotalCount(1);
+        pageResult.setTotalPage(1);
+        pageResult.setList(Arrays.asList(new ProductListItem("1001", "测试手机", "手机",
+                new BigDecimal("2999.99"), 100, 4.8, null)));
+        Map<String, Map<String, Long>> facets = new HashMap<>();
+        Map<String, Long> categoryFacet = new HashMap<>();
+        categoryFacet.put("手机", 10L);
+        categoryFacet.put("平板", 5L);
+        facets.put("category", categoryFacet);
+        ProductFacetResult facetResult = new ProductFacetResult();
+        facetResult.setPage(pageResult);
+        facetResult.setFacets(facets);
+        doReturn(facetResult).when(productService).searchProductFacets(argThat(q ->
+                "手机".equals(q.getKeyword()) && Arrays.asList("手机", "平板").equals(q.getCategories())));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search/facets")
+                        .param("keyword", "手机")
+                        .param("categories", "手机", "平板"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.page.list[0].id").value("1001"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.facets.category.平板").value(5));
+    }
+
+    @Test
+    void testSearchProductFacets_ParamError() throws Exception {
+        doThrow(new IllegalArgumentException("页大小需在1-100之间")).when(productService).searchProductFacets(any());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/search/facets")
+                        .param("pageSize", "500"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testStreamProductAggBuckets_Ndjson() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(2);
+            outputStream.write("{\"merchantId\":\"m1\",\"docCount\":8}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(productService).streamProductAggBuckets(eq(Arrays.asList("merchantId")), eq(1000), any());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/agg/stream")
+                        .param("fields", "merchantId"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string("{\"merchantId\":\"m1\",\"docCount\":8}\n"));
+    }
+
+    @Test
+    void testStreamProductAggBuckets_InvalidField() throws Exception {
+        doThrow(new IllegalArgumentException("分桶字段仅支持：[category, subCategory, merchantId, tags]"))
+                .when(productService).validateAggBucketStream(eq(Arrays.asList("price")), anyInt());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/agg/stream")
+                        .param("fields", "price"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSuggestProduct_Success() throws Exception {
+        doReturn(Arrays.asList("华为P60", "华为Mate60 Pro")).when(productService).suggestProduct("华为", 5);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/suggest")
+                        .param("prefix", "华为")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value("华为P60"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value("华为Mate60 Pro"));
+    }
+
+    @Test
+    void testSuggestProduct_InvalidSize() throws Exception {
+        doThrow(new IllegalArgumentException("联想词数量需在1-20之间")).when(productService).suggestProduct("华为", 50);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/product/suggest")
+                        .param("prefix", "华为")
+                        .param("size", "50"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testAggProductByCategoryAndSubCategory_Success() throws Exception {
         // Mock 二级分类聚合结果
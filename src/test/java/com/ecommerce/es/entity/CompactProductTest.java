@@ -0,0 +1,122 @@
+package com.ecommerce.es.entity;
+
+import com.ecommerce.es.config.JacksonConfig;
+import com.ecommerce.es.util.CompactValues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactProductTest {
+
+    private final ObjectMapper objectMapper = new JacksonConfig().dateObjectMapper();
+
+    @Test
+    void testSerialize_SameJsonAsProduct() throws Exception {
+        Product product = sampleProduct();
+
+        String expected = objectMapper.writeValueAsString(product);
+        assertEquals(expected, objectMapper.writeValueAsString(CompactProduct.from(product)));
+
+        // 空字段同样输出null
+        Product empty = new Product();
+        empty.setId("1002");
+        assertEquals(objectMapper.writeValueAsString(empty), objectMapper.writeValueAsString(CompactProduct.from(empty)));
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Product product = sampleProduct();
+        String json = objectMapper.writeValueAsString(product);
+
+        CompactProduct compact = objectMapper.readValue(json, CompactProduct.class);
+        Product restored = compact.toProduct();
+        assertEquals(product, restored);
+        assertNotSame(restored, compact.toProduct());
+        assertEquals(299999L, compact.getPriceCents());
+        // 分类/标签驻留，相同取值共用实例
+        assertSame(restored.getCategory(), CompactProduct.from(sampleProduct()).toProduct().getCategory());
+    }
+
+    @Test
+    void testCents() {
+        assertEquals(599900L, CompactValues.toCents(new BigDecimal("5999")));
+        assertEquals(1L, CompactValues.toCents(new BigDecimal("0.005")));
+        assertEquals(new BigDecimal("5999"), CompactValues.fromCents(599900L));
+        assertEquals(new BigDecimal("5999.9"), CompactValues.fromCents(599990L));
+        assertEquals(new BigDecimal("0.05"), CompactValues.fromCents(5L));
+        assertNull(CompactValues.fromCents(CompactValues.NULL_LONG));
+    }
+
+    @Test
+    void testInexactPrice_KeptAsIs() throws Exception {
+        // ES中price为double，不是整分的价格不能被舍入
+        Product product = sampleProduct();
+        product.setPrice(new BigDecimal("19.999"));
+        CompactProduct compact = CompactProduct.from(product);
+
+        assertEquals(CompactValues.INEXACT_CENTS, compact.getPriceCents());
+        assertEquals(new BigDecimal("19.999"), compact.toProduct().getPrice());
+        assertEquals(objectMapper.writeValueAsString(product), objectMapper.writeValueAsString(compact));
+
+        product.setPrice(new BigDecimal("1E+30"));
+        assertEquals(new BigDecimal("1E+30"), CompactProduct.from(product).toProduct().getPrice());
+
+        ProductListItem item = new ProductListItem("1001", "测试手机", "手机", new BigDecimal("19.999"), null, null, null);
+        assertEquals(new BigDecimal("19.999"), item.getPrice());
+    }
+
+    @Test
+    void testPriceScale_KeptAsIs() throws Exception {
+        // 缓存命中时价格写法与原Product一致，5999.00不能变成5999
+        Product product = sampleProduct();
+        for (String price : Arrays.asList("5999.00", "19.90", "19.9", "5999", "6E+3")) {
+            product.setPrice(new BigDecimal(price));
+            CompactProduct compact = CompactProduct.from(product);
+
+            assertNotEquals(CompactValues.INEXACT_CENTS, compact.getPriceCents());
+            assertEquals(new BigDecimal(price), compact.toProduct().getPrice());
+            assertEquals(objectMapper.writeValueAsString(product), objectMapper.writeValueAsString(compact));
+
+            ProductListItem item = new ProductListItem("1001", "测试手机", "手机", new BigDecimal(price), null, null, null);
+            assertEquals(new BigDecimal(price), item.getPrice());
+        }
+        product.setPrice(new BigDecimal("5999.00"));
+        assertEquals(599900L, CompactProduct.from(product).getPriceCents());
+    }
+
+    @Test
+    void testCents_OverflowIsParamError() {
+        assertThrows(IllegalArgumentException.class, () -> CompactValues.toCents(new BigDecimal("1E+30")));
+        assertEquals(CompactValues.INEXACT_CENTS, CompactValues.toExactCents(new BigDecimal("1E+30")));
+        assertEquals(1999L, CompactValues.toExactCents(new BigDecimal("19.990")));
+    }
+
+    @Test
+    void testProductListItem_JsonUnchanged() throws Exception {
+        ProductListItem item = new ProductListItem("1001", "测试手机", "手机", new BigDecimal("2999.99"),
+                100, 4.8, Arrays.asList("新品", "包邮"));
+
+        assertEquals("{\"id\":\"1001\",\"productName\":\"测试手机\",\"category\":\"手机\",\"price\":2999.99,"
+                + "\"sales\":100,\"score\":4.8,\"tags\":[\"新品\",\"包邮\"]}", objectMapper.writeValueAsString(item));
+        ProductListItem parsed = objectMapper.readValue("{\"id\":\"1\",\"price\":10.5,\"sales\":null,\"description\":\"x\"}",
+                ProductListItem.class);
+        assertEquals(new BigDecimal("10.5"), parsed.getPrice());
+        assertNull(parsed.getSales());
+        assertNull(parsed.getScore());
+        assertNull(parsed.getTags());
+    }
+
+    private Product sampleProduct() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("GMT+8"));
+        return new Product("1001", "测试手机", "手机", "智能手机", new BigDecimal("2999.99"), 50, 100,
+                Arrays.asList("新品", "包邮"), format.parse("2026-01-05 10:00:00"), "测试描述", "m001", 4.8,
+                format.parse("2026-01-06 09:30:00"));
+    }
+}
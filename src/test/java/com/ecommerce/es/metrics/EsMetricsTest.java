@@ -0,0 +1,118 @@
+package com.ecommerce.es.metrics;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import com.ecommerce.es.config.IndexSettingsProperties;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.repository.PointInTimeManager;
+import com.ecommerce.es.repository.ProductEsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EsMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private EsMetrics esMetrics;
+    private ElasticsearchTransport delegate;
+    private InstrumentedEsTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        esMetrics = new EsMetrics(registry);
+        delegate = mock(ElasticsearchTransport.class);
+        doReturn(new JacksonJsonpMapper()).when(delegate).jsonpMapper();
+        transport = new InstrumentedEsTransport(delegate, esMetrics);
+    }
+
+    @Test
+    void testRepositoryOperation_TagsRequestsAndRecordsTookAndHits() throws Exception {
+        doReturn(searchResponse(7, "1001", "1002")).when(delegate).performRequest(any(), any(), any());
+        ProductEsRepository repository = proxy(new ProductEsRepository(new ElasticsearchClient(transport),
+                new ElasticsearchAsyncClient(transport), mock(PointInTimeManager.class), new IndexSettingsProperties()));
+
+        List<Product> productList = repository.searchProduct("手机", null, null, null, null, null, null);
+
+        assertEquals(2, productList.size());
+        assertEquals(1, registry.get("es.operation").tag("operation", "searchProduct").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("es.client.requests").tag("endpoint", "es/search")
+                .tag("operation", "searchProduct").timer().count());
+        assertEquals(7.0, registry.get("es.took").tag("operation", "searchProduct").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2.0, registry.get("es.hits").tag("operation", "searchProduct").summary().totalAmount());
+        // 方法结束后不再打标签
+        assertEquals(EsMetrics.NO_OPERATION, esMetrics.currentOperation());
+    }
+
+    @Test
+    void testBulk_CountsFailedItems() throws Exception {
+        BulkResponse response = BulkResponse.of(b -> b.took(3).errors(true).items(
+                BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("p").id("1").status(201)),
+                BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("p").id("2").status(400)
+                        .error(e -> e.type("mapper_parsing_exception").reason("bad price")))));
+        doReturn(response).when(delegate).performRequest(any(), any(), any());
+
+        transport.performRequest(BulkRequest.of(b -> b.operations(Collections.<BulkOperation>emptyList())), BulkRequest._ENDPOINT, null);
+
+        assertEquals(1.0, registry.get("es.bulk.items").tag("operation", "none").tag("result", "success").counter().count());
+        assertEquals(1.0, registry.get("es.bulk.items").tag("result", "failed").counter().count());
+        assertEquals(3.0, registry.get("es.took").tag("endpoint", "es/bulk").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testAsyncFailure_RecordsErrorOutcome() {
+        CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+        doReturn(future).when(delegate).performRequestAsync(any(), any(), any());
+
+        EsMetrics.OperationContext outer = esMetrics.enterOperation("searchProductAsync", null);
+        CompletableFuture<BulkResponse> result =
+                transport.performRequestAsync(BulkRequest.of(b -> b.operations(Collections.<BulkOperation>emptyList())), BulkRequest._ENDPOINT, null);
+        esMetrics.exitOperation(outer);
+        // 在IO线程完成时仍按发起时的操作打标签
+        future.completeExceptionally(new IOException("connection reset"));
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(1, registry.get("es.client.requests").tag("operation", "searchProductAsync")
+                .tag("outcome", "error").timer().count());
+    }
+
+    private ProductEsRepository proxy(ProductEsRepository target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new EsRepositoryMetricsAspect(esMetrics));
+        return factory.getProxy();
+    }
+
+    private static SearchResponse<Product> searchResponse(long took, String... ids) {
+        List<Hit<Product>> hitList = new ArrayList<>();
+        for (String id : ids) {
+            Product product = new Product();
+            product.setId(id);
+            hitList.add(Hit.of(hit -> hit.index("ecommerce_product").id(id).source(product)));
+        }
+        return SearchResponse.of(r -> r.took(took).timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(hitList)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.ecommerce.es.metrics;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.entity.SlowQueryRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SlowQueryLogTest {
+
+    private RestClient restClient;
+    private SlowQueryLog slowQueryLog;
+
+    @BeforeEach
+    void setUp() {
+        restClient = mock(RestClient.class);
+        slowQueryLog = new SlowQueryLog(restClient, new ObjectMapper());
+        ReflectionTestUtils.setField(slowQueryLog, "enabled", true);
+        ReflectionTestUtils.setField(slowQueryLog, "thresholdMillis", 100L);
+        ReflectionTestUtils.setField(slowQueryLog, "operations", Arrays.asList("searchProduct", "aggProduct"));
+        ReflectionTestUtils.setField(slowQueryLog, "worstSize", 2);
+        ReflectionTestUtils.setField(slowQueryLog, "maxQueryLength", 8192);
+        ReflectionTestUtils.setField(slowQueryLog, "profileSampleRate", 0.0);
+        slowQueryLog.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowQueryLog.shutdown();
+    }
+
+    @Test
+    void testOnResponse_KeepsWorstQueriesOverThreshold() {
+        record("searchProduct", "手机", 50);
+        record("saveProduct", "手机", 900);
+        record("searchProduct", "手机", 300);
+        record("aggProductByCategory", null, 800);
+        record("searchProductList", "耳机", 500);
+
+        List<SlowQueryRecord> worst = slowQueryLog.worstQueries();
+        // 低于阈值、不在记录范围内的不记录；只保留最慢的2条
+        assertEquals(2, worst.size());
+        assertEquals("aggProductByCategory", worst.get(0).getOperation());
+        assertEquals(800, worst.get(0).getLatencyMillis());
+        assertEquals("searchProductList", worst.get(1).getOperation());
+        assertEquals("POST /ecommerce_product/_search", worst.get(1).getRequest());
+        assertEquals(12, worst.get(1).getTookMillis());
+        assertTrue(worst.get(1).getQuery().contains("耳机"));
+        assertEquals("[耳机, null]", worst.get(1).getParams());
+        assertEquals(3L, slowQueryLog.stats().get("slowCount"));
+    }
+
+    @Test
+    void testProfileSample_RerunsWithProfile() throws Exception {
+        ReflectionTestUtils.setField(slowQueryLog, "profileSampleRate", 1.0);
+        Response response = mock(Response.class);
+        doReturn(new StringEntity("{\"took\":40,\"profile\":{\"shards\":[{\"id\":\"[n1][ecommerce_product_v1][0]\"}]}}",
+                ContentType.APPLICATION_JSON)).when(response).getEntity();
+        doReturn(response).when(restClient).performRequest(any(Request.class));
+
+        record("searchProduct", "手机", 300);
+
+        SlowQueryRecord record = slowQueryLog.worstQueries().get(0);
+        for (int i = 0; i < 100 && record.getProfile() == null; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals("[n1][ecommerce_product_v1][0]", record.getProfile().get("shards").get(0).get("id").asText());
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(restClient).performRequest(captor.capture());
+        assertTrue(EntityUtils.toString(captor.getValue().getEntity()).contains("\"profile\":true"));
+    }
+
+    private void record(String operation, String keyword, long latencyMillis) {
+        SearchRequest request = SearchRequest.of(s -> s.index("ecommerce_product")
+                .query(q -> q.match(m -> m.field("productName").query(keyword == null ? "" : keyword))));
+        SearchResponse<Object> response = SearchResponse.of(r -> r.took(12).timedOut(false)
+                .shards(sh -> sh.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(Arrays.asList())));
+        slowQueryLog.onResponse(new EsMetrics.OperationContext(operation, new Object[]{keyword, null}),
+                request, SearchRequest._ENDPOINT, response, TimeUnit.MILLISECONDS.toNanos(latencyMillis),
+                new JacksonJsonpMapper());
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.TranslogDurability;
+import com.ecommerce.es.config.IndexSettingsProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSettingsProfileTest {
+
+    @Test
+    void testApplyDynamicSettings_BulkLoad() {
+        IndexSettingsProperties.Profile profile = new IndexSettingsProperties.Profile();
+        profile.setNumberOfShards(3);
+        profile.setNumberOfReplicas(0);
+        profile.setRefreshInterval("-1");
+        profile.setTranslogDurability("async");
+
+        IndexSettings settings = ProductEsRepository.applyDynamicSettings(new IndexSettings.Builder(), profile).build();
+
+        assertEquals("0", settings.numberOfReplicas());
+        assertEquals("-1", settings.refreshInterval().time());
+        assertEquals(TranslogDurability.Async, settings.translog().durability());
+        // 分片数是静态配置，切换档位时不下发
+        assertNull(settings.numberOfShards());
+    }
+
+    @Test
+    void testGetProfile_Unknown() {
+        IndexSettingsProperties properties = new IndexSettingsProperties();
+        properties.getProfiles().put(IndexSettingsProperties.SERVING, new IndexSettingsProperties.Profile());
+
+        assertNotNull(properties.getProfile(IndexSettingsProperties.SERVING));
+        assertThrows(IllegalArgumentException.class, () -> properties.getProfile("fast"));
+        assertThrows(IllegalArgumentException.class, () -> ProductEsRepository.parseTranslogDurability("never"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.util.EsResponseUtil;
+import jakarta.json.stream.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductAggParseTest {
+
+    // 分类 -> 子分类二级terms聚合的ES响应（typed_keys格式，与客户端请求一致）
+    private static final String SUB_CATEGORY_AGG_RESPONSE = "{\"took\":3,\"timed_out\":false,"
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+            + "\"hits\":{\"total\":{\"value\":30,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]},"
+            + "\"aggregations\":{\"sterms#category_agg\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,"
+            + "\"buckets\":["
+            + "{\"key\":\"手机\",\"doc_count\":20,\"sterms#sub_category_agg\":{\"doc_count_error_upper_bound\":0,"
+            + "\"sum_other_doc_count\":0,\"buckets\":[{\"key\":\"华为\",\"doc_count\":12},{\"key\":\"小米\",\"doc_count\":8}]}},"
+            + "{\"key\":\"电脑\",\"doc_count\":10,\"sterms#sub_category_agg\":{\"doc_count_error_upper_bound\":0,"
+            + "\"sum_other_doc_count\":0,\"buckets\":[{\"key\":\"联想\",\"doc_count\":10}]}}"
+            + "]}}}";
+
+    @Test
+    void testCategoryAndSubCategoryAgg_KeysAreBucketValues() {
+        SearchResponse<Product> response = parse(SUB_CATEGORY_AGG_RESPONSE);
+
+        Map<String, Long> categoryMap = ProductEsRepository.parseCategoryAgg(response);
+        Map<String, Map<String, Long>> subCategoryMap = ProductEsRepository.parseSubCategoryAgg(response);
+
+        assertEquals(20L, categoryMap.get("手机"));
+        assertEquals(10L, categoryMap.get("电脑"));
+        // 同一快照的两个Map分类key一致
+        assertEquals(categoryMap.keySet(), subCategoryMap.keySet());
+        assertEquals(12L, subCategoryMap.get("手机").get("华为"));
+        assertEquals(8L, subCategoryMap.get("手机").get("小米"));
+        assertEquals(10L, subCategoryMap.get("电脑").get("联想"));
+    }
+
+    @Test
+    void testEsResponseUtilAgg_KeysAreBucketValues() {
+        SearchResponse<Product> response = parse(SUB_CATEGORY_AGG_RESPONSE);
+
+        assertEquals(20L, EsResponseUtil.parseSingleAggResult(response, "category_agg").get("手机"));
+        Map<String, Map<String, Long>> doubleAgg =
+                EsResponseUtil.parseDoubleAggResult(response, "category_agg", "sub_category_agg");
+        assertEquals(12L, doubleAgg.get("手机").get("华为"));
+        assertEquals(10L, doubleAgg.get("电脑").get("联想"));
+    }
+
+    private static SearchResponse<Product> parse(String body) {
+        JsonpMapper mapper = new JacksonJsonpMapper();
+        JsonpDeserializer<SearchResponse<Product>> deserializer =
+                SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(Product.class));
+        try (JsonParser parser = mapper.jsonProvider().createParser(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.ecommerce.es.entity.BulkIngestJob;
+import com.ecommerce.es.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductBulkIngesterTest {
+
+    @Mock
+    private ElasticsearchClient esClient;
+
+    private ProductBulkIngester ingester;
+
+    @BeforeEach
+    void setUp() {
+        ingester = new ProductBulkIngester(esClient);
+        ReflectionTestUtils.setField(ingester, "maxActions", 2);
+        ReflectionTestUtils.setField(ingester, "maxBytes", 5L * 1024 * 1024);
+        ReflectionTestUtils.setField(ingester, "flushIntervalMillis", 50L);
+        ReflectionTestUtils.setField(ingester, "concurrentRequests", 1);
+        ReflectionTestUtils.setField(ingester, "maxRetries", 2);
+        ReflectionTestUtils.setField(ingester, "retryBackoffMillis", 10L);
+        ReflectionTestUtils.setField(ingester, "jobRetentionMillis", 60000L);
+        ingester.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingester.shutdown();
+    }
+
+    @Test
+    void testIngest_CountsEachItem() throws Exception {
+        // 商品2永久失败（mapping错误），其余成功
+        when(esClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            List<BulkResponseItem> items = new ArrayList<>();
+            request.operations().forEach(op -> {
+                String id = op.index().id();
+                items.add("2".equals(id) ? errorItem(id, 400, "mapper_parsing_exception") : okItem(id));
+            });
+            return bulkResponse(items);
+        });
+
+        BulkIngestJob job = ingester.startJob();
+        for (int i = 1; i <= 5; i++) {
+            ingester.add(job, product(String.valueOf(i)));
+        }
+        ingester.finishJob(job);
+
+        assertTrue(job.await(5000));
+        assertEquals(5, job.getSubmittedCount());
+        assertEquals(4, job.getSuccessCount());
+        assertEquals(1, job.getFailureCount());
+        assertEquals(BulkIngestJob.Status.COMPLETED_WITH_ERRORS, job.getStatus());
+    }
+
+    @Test
+    void testIngest_RetriesRejectedItems() throws Exception {
+        // 第一次bulk返回429，重试后成功
+        AtomicInteger calls = new AtomicInteger();
+        when(esClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            boolean reject = calls.getAndIncrement() == 0;
+            List<BulkResponseItem> items = new ArrayList<>();
+            request.operations().forEach(op -> items.add(reject
+                    ? errorItem(op.index().id(), 429, "es_rejected_execution_exception")
+                    : okItem(op.index().id())));
+            return bulkResponse(items);
+        });
+
+        BulkIngestJob job = ingester.startJob();
+        ingester.add(job, product("1"));
+        ingester.add(job, product("2"));
+        ingester.finishJob(job);
+
+        assertTrue(job.await(5000));
+        assertEquals(2, job.getSuccessCount());
+        assertEquals(0, job.getFailureCount());
+        assertEquals(2, job.getRetryCount());
+        assertEquals(BulkIngestJob.Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void testIngest_FailsAfterMaxRetries() throws Exception {
+        when(esClient.bulk(any(BulkRequest.class))).thenThrow(new IOException("connection refused"));
+
+        BulkIngestJob job = ingester.startJob();
+        ingester.add(job, product("1"));
+        ingester.finishJob(job);
+
+        assertTrue(job.await(5000));
+        assertEquals(0, job.getSuccessCount());
+        assertEquals(1, job.getFailureCount());
+        assertEquals(2, job.getRetryCount());
+    }
+
+    @Test
+    void testRetry_KeepsSubmitTimeAsExternalVersion() throws Exception {
+        // 重发时版本号和updateTime都保持提交时间，不会覆盖期间更晚提交的写入
+        List<BulkRequest> requests = new CopyOnWriteArrayList<>();
+        List<Long> updateTimes = new CopyOnWriteArrayList<>();
+        when(esClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            requests.add(request);
+            updateTimes.add(((Product) request.operations().get(0).index().document()).getUpdateTime().getTime());
+            boolean reject = requests.size() == 1;
+            List<BulkResponseItem> items = new ArrayList<>();
+            request.operations().forEach(op -> items.add(reject
+                    ? errorItem(op.index().id(), 429, "es_rejected_execution_exception")
+                    : okItem(op.index().id())));
+            return bulkResponse(items);
+        });
+
+        BulkIngestJob job = ingester.startJob();
+        ingester.add(job, product("1"));
+        ingester.finishJob(job);
+
+        assertTrue(job.await(5000));
+        assertEquals(2, requests.size());
+        IndexOperation<?> first = requests.get(0).operations().get(0).index();
+        IndexOperation<?> retry = requests.get(1).operations().get(0).index();
+        assertEquals(VersionType.ExternalGte, first.versionType());
+        assertEquals(first.version(), retry.version());
+        assertEquals(first.version(), updateTimes.get(1));
+    }
+
+    @Test
+    void testVersionConflict_SupersededItemCountsAsDone() throws Exception {
+        when(esClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            List<BulkResponseItem> items = new ArrayList<>();
+            request.operations().forEach(op -> items.add(errorItem(op.index().id(), 409, "version_conflict_engine_exception")));
+            return bulkResponse(items);
+        });
+        AtomicInteger indexed = new AtomicInteger();
+        ingester.addIndexedListener(product -> indexed.incrementAndGet());
+
+        BulkIngestJob job = ingester.startJob();
+        ingester.add(job, product("1"));
+        ingester.finishJob(job);
+
+        assertTrue(job.await(5000));
+        assertEquals(1, job.getSuccessCount());
+        assertEquals(0, job.getRetryCount());
+        assertEquals(0, indexed.get());
+    }
+
+    @Test
+    void testRequestFailure_NonTransientNotRetried() throws Exception {
+        when(esClient.bulk(any(BulkRequest.class))).thenThrow(new IllegalStateException("request body too large"));
+
+        BulkIngestJob job = ingester.startJob();
+        ingester.add(job, product("1"));
+        ingester.finishJob(job);
+
+        assertTrue(job.await(5000));
+        assertEquals(1, job.getFailureCount());
+        assertEquals(0, job.getRetryCount());
+        assertTrue(ProductBulkIngester.isRetryable(new IOException("connection reset")));
+        assertFalse(ProductBulkIngester.isRetryable(new IllegalStateException("bad request")));
+    }
+
+    @Test
+    void testShutdown_FailsPendingRetries() throws Exception {
+        // 重试退避期间关闭：未执行的重试记为失败，任务正常结束
+        ReflectionTestUtils.setField(ingester, "retryBackoffMillis", 60000L);
+        when(esClient.bulk(any(BulkRequest.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            List<BulkResponseItem> items = new ArrayList<>();
+            request.operations().forEach(op -> items.add(errorItem(op.index().id(), 429, "es_rejected_execution_exception")));
+            return bulkResponse(items);
+        });
+
+        BulkIngestJob job = ingester.startJob();
+        ingester.add(job, product("1"));
+        ingester.finishJob(job);
+        while (job.getRetryCount() == 0) {
+            Thread.sleep(10);
+        }
+        ingester.shutdown();
+
+        assertTrue(job.isFinished());
+        assertEquals(0, job.getSuccessCount());
+        assertEquals(1, job.getFailureCount());
+        assertEquals(BulkIngestJob.Status.COMPLETED_WITH_ERRORS, job.getStatus());
+    }
+
+    private Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setProductName("测试商品" + id);
+        return product;
+    }
+
+    private BulkResponseItem okItem(String id) {
+        return BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("ecommerce_product").id(id).status(201));
+    }
+
+    private BulkResponseItem errorItem(String id, int status, String type) {
+        return BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("ecommerce_product").id(id)
+                .status(status).error(e -> e.type(type).reason(type)));
+    }
+
+    private BulkResponse bulkResponse(List<BulkResponseItem> items) {
+        boolean errors = items.stream().anyMatch(item -> item.error() != null);
+        return BulkResponse.of(b -> b.errors(errors).took(1).items(items));
+    }
+}
@@ -0,0 +1,241 @@
+package com.ecommerce.es.repository;
+
+import com.ecommerce.es.config.JacksonConfig;
+import com.ecommerce.es.entity.ExportJob;
+import com.ecommerce.es.entity.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductExporterTest {
+
+    private ProductEsRepository productEsRepository;
+    private ProductExporter exporter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productEsRepository = mock(ProductEsRepository.class);
+        doReturn("pit-1").when(productEsRepository).openProductPit();
+        exporter = new ProductExporter(productEsRepository, new JacksonConfig().dateObjectMapper());
+        ReflectionTestUtils.setField(exporter, "batchSize", 2);
+        ReflectionTestUtils.setField(exporter, "maxSlices", 4);
+        ReflectionTestUtils.setField(exporter, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(exporter, "queueBatchesPerSlice", 1);
+        ReflectionTestUtils.setField(exporter, "jobRetentionMillis", 60000L);
+        exporter.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        exporter.shutdown();
+    }
+
+    @Test
+    void testExport_NdjsonSingleSlice() throws Exception {
+        mockSlices(3);
+        ExportJob job = exporter.createJob(ExportJob.Format.NDJSON, 1, false, "stream");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        exporter.export(job, outputStream);
+
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"0-0\",\"productName\":\"手机0\""));
+        assertEquals(ExportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getDocCount());
+        assertEquals(2, job.getBatchCount());
+        assertEquals(outputStream.size(), job.getByteCount());
+        verify(productEsRepository).releasePit("pit-1");
+    }
+
+    @Test
+    void testExport_SlicedGzipContainsAllSlices() throws Exception {
+        mockSlices(5);
+        ExportJob job = exporter.createJob(ExportJob.Format.NDJSON, 3, true, "stream");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        exporter.export(job, outputStream);
+
+        List<String> lines = new ArrayList<>(Arrays.asList(gunzip(outputStream.toByteArray()).split("\n")));
+        assertEquals(15, lines.size());
+        assertEquals(15, job.getDocCount());
+        for (int slice = 0; slice < 3; slice++) {
+            String prefix = "{\"id\":\"" + slice + "-4\"";
+            assertTrue(lines.stream().anyMatch(line -> line.startsWith(prefix)));
+        }
+        verify(productEsRepository, times(3)).scanProductSlice(eq("pit-1"), anyInt(), eq(3), isNull(), eq(2), eq(Product.class), any());
+    }
+
+    @Test
+    void testExport_CsvEscaping() throws Exception {
+        Product product = new Product("1001", "手机,\"旗舰\"版", "手机", null, new BigDecimal("2999.90"), 10, null,
+                Arrays.asList("新品", "包邮"), null, "第一行\n第二行", "m1", 4.5, null);
+        doAnswer(invocation -> {
+            ProductEsRepository.BatchHandler<Product> handler = invocation.getArgument(6);
+            handler.accept(Collections.singletonList(product));
+            return 1L;
+        }).when(productEsRepository).scanProductSlice(anyString(), anyInt(), anyInt(), any(), anyInt(), eq(Product.class), any());
+        ExportJob job = exporter.createJob(ExportJob.Format.CSV, 1, false, "stream");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        exporter.export(job, outputStream);
+
+        assertEquals(ProductExporter.CSV_HEADER + "\n"
+                        + "1001,\"手机,\"\"旗舰\"\"版\",手机,,2999.90,10,,新品|包邮,,\"第一行\n第二行\",m1,4.5\n",
+                new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExport_WriteFailureStopsSlicesAndReleasesPermit() throws Exception {
+        mockSlices(1000);
+        ExportJob job = exporter.createJob(ExportJob.Format.NDJSON, 2, false, "stream");
+        OutputStream brokenStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("客户端断开");
+            }
+        };
+
+        assertThrows(IOException.class, () -> exporter.export(job, brokenStream));
+
+        assertEquals(ExportJob.Status.FAILED, job.getStatus());
+        verify(productEsRepository).releasePit("pit-1");
+        // 许可已释放，可以创建新任务
+        assertNotNull(exporter.createJob(ExportJob.Format.CSV, 1, false, "stream"));
+    }
+
+    @Test
+    void testExport_NdjsonScanFailureAppendsErrorLine() throws Exception {
+        mockScanFailureAfterFirstBatch();
+        ExportJob job = exporter.createJob(ExportJob.Format.NDJSON, 1, true, "stream");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertThrows(IOException.class, () -> exporter.export(job, outputStream));
+
+        // gzip尾部已写入，客户端可完整解压并读到错误行
+        String[] lines = gunzip(outputStream.toByteArray()).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"error\":\"导出中断：ES连接超时\",\"docCount\":2}", lines[2]);
+        assertEquals(ExportJob.Status.FAILED, job.getStatus());
+    }
+
+    @Test
+    void testExport_CsvScanFailureWritesNoErrorLine() throws Exception {
+        mockScanFailureAfterFirstBatch();
+        ExportJob job = exporter.createJob(ExportJob.Format.CSV, 1, false, "stream");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertThrows(IOException.class, () -> exporter.export(job, outputStream));
+
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertFalse(lines[2].contains("error"));
+    }
+
+    @Test
+    void testSubmitFileExport_OpenFailureFailsJobAndReleasesPermit() throws Exception {
+        File exportDir = Files.createTempDirectory("export-test").toFile();
+        ReflectionTestUtils.setField(exporter, "exportDir", exportDir.getAbsolutePath());
+        ExecutorService fileExecutor = (ExecutorService) ReflectionTestUtils.getField(exporter, "fileExecutor");
+        // 先占住文件线程，提交后删除导出目录，使文件打开失败
+        CountDownLatch blocker = new CountDownLatch(1);
+        fileExecutor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ExportJob job = exporter.submitFileExport(ExportJob.Format.NDJSON, 1);
+        assertTrue(exportDir.delete());
+        blocker.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(ExportJob.Status.FAILED, job.getStatus());
+        assertTrue(job.getErrorMessage().startsWith("导出文件创建失败"));
+        verify(productEsRepository, never()).openProductPit();
+        // 许可已释放，可以创建新任务
+        assertNotNull(exporter.createJob(ExportJob.Format.CSV, 1, false, "stream"));
+    }
+
+    @Test
+    void testCreateJob_Limits() {
+        assertThrows(IllegalArgumentException.class, () -> exporter.createJob(ExportJob.Format.NDJSON, 5, false, "stream"));
+        exporter.createJob(ExportJob.Format.NDJSON, 1, false, "stream");
+        assertThrows(IllegalStateException.class, () -> exporter.createJob(ExportJob.Format.NDJSON, 1, false, "stream"));
+        assertThrows(IllegalArgumentException.class, () -> ExportJob.Format.parse("xml"));
+    }
+
+    /**
+     * 每个切片返回perSlice个商品（按batchSize=2分批）
+     */
+    private void mockSlices(int perSlice) throws IOException {
+        doAnswer(invocation -> {
+            int sliceId = invocation.getArgument(1);
+            ProductEsRepository.BatchHandler<Product> handler = invocation.getArgument(6);
+            List<Product> batch = new ArrayList<>();
+            for (int i = 0; i < perSlice; i++) {
+                Product product = new Product();
+                product.setId(sliceId + "-" + i);
+                product.setProductName("手机" + i);
+                batch.add(product);
+                if (batch.size() == 2) {
+                    handler.accept(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                handler.accept(batch);
+            }
+            return (long) perSlice;
+        }).when(productEsRepository).scanProductSlice(anyString(), anyInt(), anyInt(), any(), anyInt(), eq(Product.class), any());
+    }
+
+    private void mockScanFailureAfterFirstBatch() throws IOException {
+        doAnswer(invocation -> {
+            ProductEsRepository.BatchHandler<Product> handler = invocation.getArgument(6);
+            Product first = new Product();
+            first.setId("1001");
+            Product second = new Product();
+            second.setId("1002");
+            handler.accept(Arrays.asList(first, second));
+            throw new IOException("ES连接超时");
+        }).when(productEsRepository).scanProductSlice(anyString(), anyInt(), anyInt(), any(), anyInt(), eq(Product.class), any());
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, n);
+            }
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
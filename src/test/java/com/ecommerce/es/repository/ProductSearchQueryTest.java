@@ -0,0 +1,124 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import com.ecommerce.es.entity.ProductFacetQuery;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchQueryTest {
+
+    @Test
+    void testKeywordSearch_ScoredShouldWithFilters() {
+        Query query = ProductEsRepository.buildSearchQuery("手机", new BigDecimal("1000"), null, "手机", null);
+
+        assertTrue(query.isBool());
+        assertEquals(2, query.bool().should().size());
+        assertEquals(2, query.bool().filter().size());
+    }
+
+    @Test
+    void testBrowse_ConstantScoreFilterOnly() {
+        Query query = ProductEsRepository.buildSearchQuery("  ", null, new BigDecimal("5000"), "手机",
+                Arrays.asList("新品", "包邮"));
+
+        assertTrue(query.isConstantScore());
+        Query filter = query.constantScore().filter();
+        assertTrue(filter.bool().should().isEmpty());
+        assertEquals(3, filter.bool().filter().size());
+    }
+
+    @Test
+    void testBrowse_NoFilterMatchAll() {
+        Query query = ProductEsRepository.buildSearchQuery(null, null, null, "", null);
+
+        assertTrue(query.isMatchAll());
+        assertTrue(ProductEsRepository.isBrowseMode(null));
+        assertFalse(ProductEsRepository.isBrowseMode("手机"));
+    }
+
+    @Test
+    void testCursorQueryHash_StableAcrossInstances() {
+        int hash = ProductEsRepository.cursorQueryHash("手机", new BigDecimal("10"), null, "手机",
+                Arrays.asList("新品"), "price", SortOrder.Asc);
+
+        // 只由条件的字符串形式决定，不随JVM变化（枚举hashCode每次启动不同）
+        assertEquals("手机\u000110\u0001null\u0001手机\u0001[新品]\u0001price\u0001asc".hashCode(), hash);
+        assertEquals(hash, ProductEsRepository.cursorQueryHash("手机", new BigDecimal("10.0"), null, "手机",
+                Arrays.asList("新品"), "price", SortOrder.Asc));
+        assertNotEquals(hash, ProductEsRepository.cursorQueryHash("手机", new BigDecimal("10"), null, "手机",
+                Arrays.asList("新品"), "price", SortOrder.Desc));
+    }
+
+    @Test
+    void testFacetSearch_PostFilterAndFacetExcludesOwnFilter() {
+        ProductFacetQuery facetQuery = new ProductFacetQuery();
+        facetQuery.setKeyword("手机");
+        facetQuery.setCategories(Arrays.asList("手机", "平板"));
+        facetQuery.setTags(Arrays.asList("新品"));
+        facetQuery.setMinPrice(new BigDecimal("1000"));
+        facetQuery.setPage(2);
+
+        SearchRequest request = ProductEsRepository.buildFacetSearchRequest(facetQuery, facetQuery.getPriceInterval());
+
+        // 关键词在query中，分面条件只在post_filter中
+        assertTrue(request.query().isBool());
+        assertTrue(request.query().bool().filter().isEmpty());
+        assertEquals(3, request.postFilter().bool().filter().size());
+        assertEquals(20, request.from());
+
+        // 分类分面排除分类条件，只保留标签+价格
+        Aggregation categoryAgg = request.aggregations().get("category");
+        assertEquals(2, categoryAgg.filter().bool().filter().size());
+        assertEquals(20, categoryAgg.aggregations().get("values").terms().size());
+        // 子分类分面受全部条件过滤
+        assertEquals(3, request.aggregations().get("subCategory").filter().bool().filter().size());
+        // 价格分面排除价格条件
+        Aggregation priceAgg = request.aggregations().get("price");
+        assertEquals(2, priceAgg.filter().bool().filter().size());
+        assertEquals(500, priceAgg.aggregations().get("histogram").histogram().interval());
+        assertTrue(priceAgg.aggregations().get("stats").isStats());
+    }
+
+    @Test
+    void testFacetSearch_PriceIntervalCappedBySpan() {
+        // 跨度10万元、请求宽度0.01元：放宽到500元，最多200个桶
+        assertEquals(500, ProductEsRepository.effectivePriceInterval(0.01, 100000), 1e-9);
+        assertEquals(1000, ProductEsRepository.effectivePriceInterval(1000, 100000), 1e-9);
+        assertEquals(0.01, ProductEsRepository.effectivePriceInterval(0.01, 0), 1e-9);
+    }
+
+    @Test
+    void testFacetSearch_NoFilterMatchAll() {
+        SearchRequest request = ProductEsRepository.buildFacetSearchRequest(new ProductFacetQuery(), 500);
+
+        assertNull(request.postFilter());
+        assertTrue(request.query().isMatchAll());
+        assertTrue(request.aggregations().get("tags").filter().isMatchAll());
+    }
+
+    @Test
+    void testCompositeAgg_SourcesAndAfterKey() {
+        SearchRequest first = ProductEsRepository.buildCompositeAggRequest(Arrays.asList("category", "merchantId"), 500, null);
+        CompositeAggregation composite = first.aggregations().get("buckets").composite();
+
+        assertEquals(0, first.size());
+        assertEquals(500, composite.size());
+        assertEquals(2, composite.sources().size());
+        assertTrue(composite.sources().get(1).get("merchantId").terms().missingBucket());
+        assertTrue(composite.after().isEmpty());
+
+        SearchRequest next = ProductEsRepository.buildCompositeAggRequest(Collections.singletonList("tags"), 500,
+                Collections.singletonMap("tags", FieldValue.of("新品")));
+        assertEquals("新品", next.aggregations().get("buckets").composite().after().get("tags").stringValue());
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.es.repository;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.json.JsonData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchTemplatesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testCombination() {
+        assertEquals(0, ProductSearchTemplates.combination(" ", null, null, "", null));
+        int mask = ProductSearchTemplates.combination("手机", new BigDecimal("100"), null, "手机", Arrays.asList("新品"));
+        assertEquals(ProductSearchTemplates.KEYWORD | ProductSearchTemplates.MIN_PRICE
+                | ProductSearchTemplates.CATEGORY | ProductSearchTemplates.TAGS, mask);
+        assertEquals("product_search_27", ProductSearchTemplates.templateId(mask));
+    }
+
+    @Test
+    void testParams_OnlyPresentConditions() {
+        Map<String, JsonData> params = ProductSearchTemplates.params(null, null, new BigDecimal("5000"), "手机",
+                null, null, null, true);
+
+        assertFalse(params.containsKey("keyword"));
+        assertFalse(params.containsKey("minPrice"));
+        assertEquals(5000.0, params.get("maxPrice").to(Double.class));
+        assertEquals("sales", params.get("sortField").to(String.class));
+        assertEquals("desc", params.get("sortOrder").to(String.class));
+        assertTrue(params.get("listView").to(Boolean.class));
+    }
+
+    @Test
+    void testTemplateSource_AllCombinationsRenderValidJson() throws Exception {
+        for (int mask = 0; mask < ProductSearchTemplates.COMBINATIONS; mask++) {
+            String source = ProductSearchTemplates.templateSource(mask);
+            JsonNode full = objectMapper.readTree(render(source, false));
+            JsonNode list = objectMapper.readTree(render(source, true));
+
+            assertFalse(full.has("_source"));
+            assertEquals(7, list.get("_source").get("includes").size());
+            JsonNode query = full.get("query");
+            if ((mask & ProductSearchTemplates.KEYWORD) != 0) {
+                assertEquals(2, query.get("bool").get("should").size());
+            } else if (mask == 0) {
+                assertTrue(query.has("match_all"));
+            } else {
+                assertTrue(query.has("constant_score"));
+                assertFalse(full.get("track_total_hits").asBoolean());
+            }
+        }
+    }
+
+    /**
+     * 简单模拟ES端mustache渲染
+     */
+    private String render(String source, boolean listView) {
+        return source
+                .replaceAll("\\{\\{#listView}}(.*?)\\{\\{/listView}}", listView ? "$1" : "")
+                .replace("{{#toJson}}tags{{/toJson}}", "[\"新品\",\"包邮\"]")
+                .replace("{{minPrice}}", "100.0")
+                .replace("{{maxPrice}}", "5000.0")
+                .replaceAll("\\{\\{\\w+}}", "v");
+    }
+}
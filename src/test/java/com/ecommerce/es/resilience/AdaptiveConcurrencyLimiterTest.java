@@ -0,0 +1,115 @@
+package com.ecommerce.es.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+
+    @Test
+    void testTryAcquire_RejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 200, 2.0, 0.9, 50, 30000, nanoTime::get);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.onIgnored();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1L, limiter.stats().get("rejectedCount"));
+    }
+
+    @Test
+    void testFastResponses_IncreaseLimitOnlyWhenUtilized() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        // 在途数低于上限一半：不增长
+        limiter.tryAcquire();
+        complete(limiter, 10);
+        assertEquals(10, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+        }
+        complete(limiter, 10);
+        assertEquals(11, limiter.getLimit());
+    }
+
+    @Test
+    void testSlowResponses_DecreaseOncePerRtt() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(100);
+        limiter.tryAcquire();
+        complete(limiter, 100);
+
+        // 同一批排队的请求都超过基线×2返回，只下调一次
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+        }
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        for (int i = 0; i < 3; i++) {
+            limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(500));
+        }
+        assertEquals(90, limiter.getLimit());
+
+        // 下调之后发出的请求再次变慢，继续下调
+        limiter.tryAcquire();
+        complete(limiter, 500);
+        assertEquals(81, limiter.getLimit());
+    }
+
+    @Test
+    void testDropped_DecreasesDownToMinLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+            limiter.onDropped(TimeUnit.MILLISECONDS.toNanos(1000));
+        }
+        assertEquals(5, limiter.getLimit());
+        assertEquals(50L, limiter.stats().get("droppedCount"));
+    }
+
+    @Test
+    void testMinRttThreshold_IgnoresJitterOnFastQueries() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        limiter.tryAcquire();
+        complete(limiter, 2);
+        // 2ms -> 30ms超过基线×2，但低于50ms不视为排队
+        limiter.tryAcquire();
+        complete(limiter, 30);
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testBaselineWindow_FollowsSustainedSlowdown() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10);
+        limiter.tryAcquire();
+        complete(limiter, 100);
+        // 窗口结束后以本窗口最小耗时（300ms）为新基线，之后300ms不再视为排队
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        limiter.tryAcquire();
+        complete(limiter, 300);
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        limiter.tryAcquire();
+        complete(limiter, 300);
+        int limit = limiter.getLimit();
+
+        limiter.tryAcquire();
+        complete(limiter, 300);
+        assertEquals(limit, limiter.getLimit());
+        assertEquals(300.0, limiter.stats().get("baselineRttMillis"));
+    }
+
+    private void complete(AdaptiveConcurrencyLimiter limiter, long rttMillis) {
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 5, 200, 2.0, 0.9, 50, 30000, nanoTime::get);
+    }
+}
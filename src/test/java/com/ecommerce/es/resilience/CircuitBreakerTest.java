@@ -0,0 +1,106 @@
+package com.ecommerce.es.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    void testFailureRate_OpensAfterMinimumCalls() {
+        CircuitBreaker breaker = newBreaker();
+        // 调用数不足minimum-calls时不熔断
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(10000, breaker.remainingOpenMillis());
+        assertEquals(1L, breaker.stats().get("rejectedCount"));
+    }
+
+    @Test
+    void testSlidingWindow_OldFailuresAgeOut() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 3; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+        // 窗口大小10：之后的成功调用把失败率压到阈值以下
+        for (int i = 0; i < 7; i++) {
+            breaker.tryAcquire();
+            breaker.onSuccess();
+        }
+        breaker.tryAcquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(10, breaker.stats().get("windowCalls"));
+        assertEquals(3, breaker.stats().get("windowFailures"));
+    }
+
+    @Test
+    void testHalfOpen_ClosesAfterProbesSucceed() {
+        CircuitBreaker breaker = openBreaker();
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        // 只放行2个探测请求
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testHalfOpen_ReopensOnProbeFailure() {
+        CircuitBreaker breaker = openBreaker();
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2L, breaker.stats().get("openCount"));
+    }
+
+    @Test
+    void testHalfOpen_IgnoredProbeReturnsPermit() {
+        CircuitBreaker breaker = openBreaker();
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        // 参数错误等结果不算探测成功，也不占用名额
+        breaker.onIgnored();
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private CircuitBreaker newBreaker() {
+        return new CircuitBreaker(10, 4, 0.5, 10000, 2, nanoTime::get);
+    }
+}
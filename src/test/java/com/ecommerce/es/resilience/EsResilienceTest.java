@@ -0,0 +1,274 @@
+package com.ecommerce.es.resilience;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 过载保护：本地ES替身注入延迟/错误，经切面 + 截止时间传输层调用
+ */
+class EsResilienceTest {
+
+    private static final String SEARCH_RESPONSE = "{\"took\":1,\"timed_out\":false,"
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+            + "\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]}}";
+    private static final String ERROR_RESPONSE = "{\"error\":{\"type\":\"search_phase_execution_exception\","
+            + "\"reason\":\"all shards failed\"},\"status\":%d}";
+
+    private final AtomicLong latencyMillis = new AtomicLong();
+    // 不为null时请求阻塞到放行，用于稳定地制造在途请求
+    private volatile CountDownLatch gate;
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private ExecutorService stubExecutor;
+    private HttpServer stubEs;
+    private RestClient restClient;
+    private ElasticsearchClient esClient;
+    private EsResilience esResilience;
+    private EsResilienceAspect aspect;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stubExecutor = Executors.newCachedThreadPool();
+        stubEs = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubEs.setExecutor(stubExecutor);
+        stubEs.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            try {
+                Thread.sleep(latencyMillis.get());
+                CountDownLatch currentGate = gate;
+                if (currentGate != null) {
+                    currentGate.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            int code = status.get();
+            byte[] body = (code == 200 ? SEARCH_RESPONSE : String.format(ERROR_RESPONSE, code))
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stubEs.start();
+
+        restClient = RestClient.builder(new HttpHost("127.0.0.1", stubEs.getAddress().getPort())).build();
+        esResilience = newResilience();
+        esClient = new ElasticsearchClient(new DeadlineEsTransport(
+                new RestClientTransport(restClient, new JacksonJsonpMapper()), esResilience, 1000, 30000));
+        aspect = new EsResilienceAspect(esResilience);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        CountDownLatch currentGate = gate;
+        if (currentGate != null) {
+            currentGate.countDown();
+        }
+        restClient.close();
+        stubEs.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void testDeadline_SlowEsFailsAtDeadlineNotSocketTimeout() {
+        latencyMillis.set(2000);
+
+        long startNanos = System.nanoTime();
+        EsOverloadedException e = assertThrows(EsOverloadedException.class, () -> call("searchProduct", false));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // 搜索截止时间300ms，远早于30s socket-timeout
+        assertEquals(EsOverloadedException.Reason.DEADLINE_EXCEEDED, e.getReason());
+        assertTrue(e.getCause() instanceof IOException);
+        assertTrue(elapsedMillis >= 300 && elapsedMillis < 1500, "耗时：" + elapsedMillis);
+        assertEquals(1L, limiterStats("search").get("droppedCount"));
+    }
+
+    @Test
+    void testConcurrencyLimit_ShedsExcessCallsImmediately() throws Throwable {
+        gate = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = callers.submit(() -> callUnchecked("getProductById"));
+            Future<?> second = callers.submit(() -> callUnchecked("getProductById"));
+            for (int i = 0; i < 500 && requestCount.get() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, limiterStats("detail").get("inFlight"));
+
+            // 并发上限2：第三个请求不排队，直接拒绝
+            long startNanos = System.nanoTime();
+            EsOverloadedException e = assertThrows(EsOverloadedException.class, () -> call("getProductById", false));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 200);
+            assertEquals(EsOverloadedException.Reason.CONCURRENCY_LIMIT, e.getReason());
+            assertEquals(1, e.getRetryAfterSeconds());
+
+            // 异步方法被拒绝时返回失败的future
+            CompletableFuture<?> rejected = (CompletableFuture<?>) call("getProductByIdAsync", true);
+            ExecutionException asyncError = assertThrows(ExecutionException.class, rejected::get);
+            assertTrue(asyncError.getCause() instanceof EsOverloadedException);
+
+            gate.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertEquals(2, requestCount.get());
+            assertEquals(0, limiterStats("detail").get("inFlight"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCircuitBreaker_OpensOnEsErrorsAndStopsCallingEs() throws Throwable {
+        status.set(500);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResponseException.class, () -> call("searchProduct", false));
+        }
+
+        EsOverloadedException e = assertThrows(EsOverloadedException.class, () -> call("searchProduct", false));
+        assertEquals(EsOverloadedException.Reason.CIRCUIT_OPEN, e.getReason());
+        assertEquals(10, e.getRetryAfterSeconds());
+        assertEquals(4, requestCount.get());
+
+        // 熔断按方法区分，其他方法不受影响
+        status.set(200);
+        assertNotNull(call("searchProductList", false));
+    }
+
+    @Test
+    void testTooManyRequests_BacksOffLimit() {
+        status.set(429);
+        ResponseException e = assertThrows(ResponseException.class, () -> call("searchProduct", false));
+
+        assertEquals(429, e.getResponse().getStatusLine().getStatusCode());
+        assertEquals(1L, limiterStats("search").get("droppedCount"));
+        assertEquals(1, breakerStats("searchProduct").get("windowFailures"));
+    }
+
+    @Test
+    void testClientError_NotCountedAsFailure() {
+        // 参数错误（如排序字段不存在、too_many_buckets）不应让一个客户端把接口熔断
+        status.set(400);
+        for (int i = 0; i < 6; i++) {
+            ElasticsearchException e = assertThrows(ElasticsearchException.class, () -> call("searchProduct", false));
+            assertEquals(400, e.status());
+        }
+
+        assertEquals(6, requestCount.get());
+        assertEquals("CLOSED", breakerStats("searchProduct").get("state").toString());
+        assertEquals(0, breakerStats("searchProduct").get("windowCalls"));
+        assertEquals(0L, limiterStats("search").get("droppedCount"));
+    }
+
+    @Test
+    void testBulk_NoDeadlineAndFixedLimit() throws Throwable {
+        latencyMillis.set(500);
+        // 批量写入不受截止时间限制（搜索截止时间300ms，这里500ms仍成功）
+        assertNotNull(call("batchSaveProduct", false));
+
+        assertEquals(0L, limiterStats("bulk").get("deadlineMillis"));
+        assertEquals(3, limiterStats("bulk").get("limit"));
+        assertEquals(0L, limiterStats("bulk").get("droppedCount"));
+    }
+
+    @Test
+    void testUnguardedOperation_Passthrough() throws Throwable {
+        status.set(500);
+        for (int i = 0; i < 6; i++) {
+            assertThrows(ResponseException.class, () -> call("scanProducts", false));
+        }
+        assertEquals(6, requestCount.get());
+        assertTrue(((Map<?, ?>) esResilience.stats().get("circuitBreakers")).isEmpty());
+    }
+
+    private Object call(String operation, boolean async) throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getName()).thenReturn(operation);
+        when(signature.getReturnType()).thenReturn(async ? CompletableFuture.class : SearchResponse.class);
+        when(joinPoint.proceed()).thenAnswer(invocation -> esClient.search(s -> s.index("ecommerce_product"), Object.class));
+        return aspect.guard(joinPoint);
+    }
+
+    private Object callUnchecked(String operation) {
+        try {
+            return call(operation, false);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> limiterStats(String type) {
+        return (Map<String, Object>) ((Map<String, Object>) esResilience.stats().get("limiters")).get(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> breakerStats(String operation) {
+        return (Map<String, Object>) ((Map<String, Object>) esResilience.stats().get("circuitBreakers")).get(operation);
+    }
+
+    private static EsResilience newResilience() {
+        EsResilience resilience = new EsResilience(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(resilience, "enabled", true);
+        ReflectionTestUtils.setField(resilience, "breakerWindowSize", 4);
+        ReflectionTestUtils.setField(resilience, "breakerMinimumCalls", 4);
+        ReflectionTestUtils.setField(resilience, "breakerFailureRate", 0.5);
+        ReflectionTestUtils.setField(resilience, "breakerOpenMillis", 10000L);
+        ReflectionTestUtils.setField(resilience, "breakerHalfOpenCalls", 1);
+        ReflectionTestUtils.setField(resilience, "initialLimit", 2);
+        ReflectionTestUtils.setField(resilience, "minLimit", 1);
+        ReflectionTestUtils.setField(resilience, "maxLimit", 2);
+        ReflectionTestUtils.setField(resilience, "limitTolerance", 2.0);
+        ReflectionTestUtils.setField(resilience, "limitBackoffRatio", 0.9);
+        ReflectionTestUtils.setField(resilience, "minRttThresholdMillis", 50L);
+        ReflectionTestUtils.setField(resilience, "baselineWindowMillis", 30000L);
+        ReflectionTestUtils.setField(resilience, "bulkLimit", 3);
+        ReflectionTestUtils.setField(resilience, "detailDeadlineMillis", 5000L);
+        ReflectionTestUtils.setField(resilience, "searchDeadlineMillis", 300L);
+        ReflectionTestUtils.setField(resilience, "aggDeadlineMillis", 5000L);
+        ReflectionTestUtils.setField(resilience, "writeDeadlineMillis", 10000L);
+        ReflectionTestUtils.setField(resilience, "bulkDeadlineMillis", 0L);
+        ReflectionTestUtils.setField(resilience, "limitRetryAfterSeconds", 1L);
+        resilience.init();
+        return resilience;
+    }
+}
@@ -0,0 +1,201 @@
+package com.ecommerce.es.service.impl;
+
+import com.ecommerce.es.cache.ProductAggSnapshotCache;
+import com.ecommerce.es.cache.ProductDetailCache;
+import com.ecommerce.es.cache.ProductSuggestIndex;
+import com.ecommerce.es.cache.SearchResultCache;
+import com.ecommerce.es.config.JacksonConfig;
+import com.ecommerce.es.entity.BulkIngestJob;
+import com.ecommerce.es.entity.Product;
+import com.ecommerce.es.entity.ProductLookupItem;
+import com.ecommerce.es.repository.ProductBulkIngester;
+import com.ecommerce.es.repository.ProductEsRepository;
+import com.ecommerce.es.repository.ProductExporter;
+import com.ecommerce.es.repository.ProductIndexReindexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceImplTest {
+
+    @Mock
+    private ProductEsRepository productEsRepository;
+
+    @Mock
+    private ProductBulkIngester productBulkIngester;
+
+    @Mock
+    private ProductDetailCache productDetailCache;
+
+    @Mock
+    private ProductIndexReindexer productIndexReindexer;
+
+    @Mock
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Mock
+    private ProductAggSnapshotCache productAggSnapshotCache;
+
+    @Mock
+    private ProductExporter productExporter;
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    private ProductServiceImpl productService;
+
+    private BulkIngestJob job;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductServiceImpl(productEsRepository, productBulkIngester,
+                new JacksonConfig().dateObjectMapper(), productDetailCache, productIndexReindexer, productSuggestIndex,
+                productAggSnapshotCache, productExporter, searchResultCache);
+        job = new BulkIngestJob();
+    }
+
+    @Test
+    void testImportProducts_Ndjson() throws Exception {
+        doReturn(job).when(productBulkIngester).startJob();
+        doAnswer(invocation -> {
+            job.onSubmitted();
+            return null;
+        }).when(productBulkIngester).add(eq(job), any(Product.class));
+
+        String ndjson = "{\"id\":\"1\",\"productName\":\"手机\",\"createTime\":\"2026-01-05 10:00:00\"}\n"
+                + "{\"id\":\"2\",\"productName\":\"电脑\",\"unknownField\":1}\n";
+        productService.importProducts(stream(ndjson));
+
+        ArgumentCaptor<Product> captor = ArgumentCaptor.forClass(Product.class);
+        verify(productBulkIngester, times(2)).add(eq(job), captor.capture());
+        List<Product> products = captor.getAllValues();
+        assertEquals("1", products.get(0).getId());
+        assertEquals("电脑", products.get(1).getProductName());
+        verify(productBulkIngester).finishJob(job);
+    }
+
+    @Test
+    void testImportProducts_JsonArray() throws Exception {
+        doReturn(job).when(productBulkIngester).startJob();
+        doAnswer(invocation -> {
+            job.onSubmitted();
+            return null;
+        }).when(productBulkIngester).add(eq(job), any(Product.class));
+
+        productService.importProducts(stream("[{\"id\":\"1\",\"productName\":\"手机\"},{\"id\":\"2\",\"productName\":\"电脑\"}]"));
+
+        verify(productBulkIngester, times(2)).add(eq(job), any(Product.class));
+        verify(productBulkIngester).finishJob(job);
+    }
+
+    @Test
+    void testImportProducts_InvalidProductAborts() throws Exception {
+        doReturn(job).when(productBulkIngester).startJob();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> productService.importProducts(
+                stream("{\"id\":\"1\",\"productName\":\"手机\"}\n{\"id\":\"2\"}\n")));
+        assertTrue(e.getMessage().contains("第2条"));
+        assertTrue(e.getMessage().contains(job.getJobId()));
+        assertTrue(e.getMessage().contains("第2条"));
+        assertEquals(BulkIngestJob.Status.FAILED, job.getStatus());
+        verify(productBulkIngester, never()).finishJob(any());
+    }
+
+    @Test
+    void testImportProducts_MalformedJson() throws Exception {
+        doReturn(job).when(productBulkIngester).startJob();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.importProducts(stream("{\"id\":\"1\",")));
+        assertEquals(BulkIngestJob.Status.FAILED, job.getStatus());
+    }
+
+    @Test
+    void testGetProductsByIds_DuplicateIdsQueriedOnce() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        doReturn(Arrays.asList(ProductLookupItem.found("1", product), ProductLookupItem.notFound("2")))
+                .when(productEsRepository).getProductsByIds(Arrays.asList("1", "2"), null);
+
+        List<ProductLookupItem> items = productService.getProductsByIds(Arrays.asList("1", "2", "1"), null);
+
+        assertEquals(3, items.size());
+        assertTrue(items.get(0).isFound());
+        assertFalse(items.get(1).isFound());
+        assertSame(product, items.get(2).getProduct());
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamProductAggBuckets_WritesNdjsonPerPage() throws Exception {
+        doAnswer(invocation -> {
+            ProductEsRepository.BatchHandler<Map<String, Object>> handler = invocation.getArgument(2);
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("category", "手机");
+            bucket.put("docCount", 120L);
+            Map<String, Object> missingBucket = new LinkedHashMap<>();
+            missingBucket.put("category", null);
+            missingBucket.put("docCount", 3L);
+            handler.accept(Arrays.asList(bucket, missingBucket));
+            return 2L;
+        }).when(productEsRepository).scanCompositeAgg(eq(Arrays.asList("category")), eq(1000), any());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long count = productService.streamProductAggBuckets(Arrays.asList("category"), 1000, outputStream);
+
+        assertEquals(2L, count);
+        assertEquals("{\"category\":\"手机\",\"docCount\":120}\n{\"category\":null,\"docCount\":3}\n",
+                new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamProductAggBuckets_EsFailureAfterFirstPageWritesErrorLine() throws Exception {
+        doAnswer(invocation -> {
+            ProductEsRepository.BatchHandler<Map<String, Object>> handler = invocation.getArgument(2);
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("category", "手机");
+            bucket.put("docCount", 120L);
+            handler.accept(Collections.singletonList(bucket));
+            throw new IOException("search_phase_execution_exception");
+        }).when(productEsRepository).scanCompositeAgg(eq(Arrays.asList("category")), eq(1000), any());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertThrows(IOException.class, () ->
+                productService.streamProductAggBuckets(Arrays.asList("category"), 1000, outputStream));
+
+        assertEquals("{\"category\":\"手机\",\"docCount\":120}\n"
+                        + "{\"error\":\"分桶统计中断：search_phase_execution_exception\",\"bucketCount\":1}\n",
+                new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamProductAggBuckets_InvalidField() {
+        assertThrows(IllegalArgumentException.class, () ->
+                productService.validateAggBucketStream(Arrays.asList("category", "price"), 1000));
+        assertThrows(IllegalArgumentException.class, () ->
+                productService.validateAggBucketStream(Arrays.asList("tags", "tags"), 1000));
+        verifyNoInteractions(productEsRepository);
+    }
+}
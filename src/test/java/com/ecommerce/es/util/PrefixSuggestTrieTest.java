@@ -0,0 +1,57 @@
+package com.ecommerce.es.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixSuggestTrieTest {
+
+    @Test
+    void testSuggest_TopKByWeight() {
+        PrefixSuggestTrie trie = PrefixSuggestTrie.builder(3)
+                .add("华为Mate60 Pro", 500)
+                .add("华为P60", 800)
+                .add("华为平板MatePad", 100)
+                .add("华硕天选", 900)
+                .add("小米14", 1000)
+                .build();
+
+        assertEquals(Arrays.asList("华为P60", "华为Mate60 Pro", "华为平板MatePad"), trie.suggest("华为", 10));
+        assertEquals(Arrays.asList("华硕天选", "华为P60"), trie.suggest("华", 2));
+        // 前缀落在压缩边中间
+        assertEquals(Collections.singletonList("华为Mate60 Pro"), trie.suggest("华为mate6", 10));
+        assertEquals(Collections.emptyList(), trie.suggest("苹果", 10));
+        assertEquals(Collections.emptyList(), trie.suggest("  ", 10));
+    }
+
+    @Test
+    void testBuilder_MergeSameText() {
+        PrefixSuggestTrie trie = PrefixSuggestTrie.builder(5)
+                .add("iPhone 15", 100)
+                .add("iphone 15 ", 50)
+                .add("iPhone 15 Pro", 120)
+                .build();
+
+        assertEquals(2, trie.size());
+        // 合并后权重150，展示文本取权重高的一次
+        assertEquals(Arrays.asList("iPhone 15", "iPhone 15 Pro"), trie.suggest("IPHONE", 5));
+        assertEquals(Collections.singletonList("iPhone 15 Pro"), trie.suggest("iphone 15 p", 5));
+    }
+
+    @Test
+    void testSuggest_PrefixIsWholeTerm() {
+        PrefixSuggestTrie trie = PrefixSuggestTrie.builder(10)
+                .add("手机", 10)
+                .add("手机壳", 30)
+                .add("手机支架", 20)
+                .build();
+
+        assertEquals(Arrays.asList("手机壳", "手机支架", "手机"), trie.suggest("手机", 10));
+        assertEquals(Collections.singletonList("手机壳"), trie.suggest("手机壳", 10));
+        assertEquals(Collections.emptyList(), trie.suggest("手机壳子", 10));
+        assertEquals(0, PrefixSuggestTrie.builder(3).build().suggest("手", 10).size());
+    }
+}